@@ -0,0 +1,228 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CPS510 A9 – Batched bulk loader for the E-Ticket tables
+ *
+ * Replaces one executeUpdate() (= one Oracle round trip) per row with
+ * JDBC addBatch()/executeBatch(), sending batchSize rows per round trip.
+ *
+ * Transaction semantics follow populateTables():
+ *  - begin() switches the connection to setAutoCommit(false)
+ *  - commit() commits and restores auto-commit
+ *  - rollback() undoes everything since the last commit
+ *
+ * With commitInterval = 0 the whole load is one transaction (all or
+ * nothing, like the original populateTables). A positive commitInterval
+ * commits every N rows to bound undo/redo size for very large loads;
+ * a failure then only rolls back the rows since the last commit.
+ *
+ * Per-table row counts and wall-clock time are collected so callers can
+ * report throughput in rows per second.
+ */
+public class BulkLoader {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Binds one row of type T to the INSERT's parameters.
+     */
+    public interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    /**
+     * Rows and time spent loading one table.
+     */
+    public static class TableStats {
+        private final String table;
+        private long rows;
+        private long nanos;
+        private long batches;
+
+        TableStats(String table) {
+            this.table = table;
+        }
+
+        public String getTable()  { return table; }
+        public long getRows()     { return rows; }
+        public long getBatches()  { return batches; }
+        public double getMillis() { return nanos / 1_000_000.0; }
+
+        public double getRowsPerSecond() {
+            return nanos == 0 ? 0.0 : rows * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %8d rows in %6d batch(es), %9.1f ms, %10.0f rows/s",
+                    table, rows, batches, getMillis(), getRowsPerSecond());
+        }
+    }
+
+    private final Connection conn;
+    private final int batchSize;
+    private final int commitInterval;
+    private final Map<String, TableStats> stats = new LinkedHashMap<>();
+    private long rowsSinceCommit = 0;
+    private boolean previousAutoCommit = true;
+
+    public BulkLoader(Connection conn) {
+        this(conn, DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * @param batchSize      rows sent per executeBatch() round trip
+     * @param commitInterval rows per intermediate commit, 0 = single commit
+     */
+    public BulkLoader(Connection conn, int batchSize, int commitInterval) {
+        if (batchSize < 1 || commitInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid batchSize=" + batchSize + " / commitInterval=" + commitInterval);
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    // ============== Transaction control ==============
+
+    public void begin() throws SQLException {
+        previousAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        rowsSinceCommit = 0;
+    }
+
+    public void commit() throws SQLException {
+        conn.commit();
+        conn.setAutoCommit(previousAutoCommit);
+        rowsSinceCommit = 0;
+    }
+
+    public void rollback() throws SQLException {
+        try {
+            conn.rollback();
+        } finally {
+            conn.setAutoCommit(previousAutoCommit);
+            rowsSinceCommit = 0;
+        }
+    }
+
+    // ============== Loading ==============
+
+    /**
+     * Open a batch for one table. Bind parameters on statement() and call
+     * add() per row; close() flushes the remaining rows.
+     */
+    public Batch open(String table, String insertSql) throws SQLException {
+        return new Batch(statsFor(table), conn.prepareStatement(insertSql));
+    }
+
+    /**
+     * Stream rows from an iterator into one table. Rows are never held in
+     * memory beyond the current JDBC batch.
+     */
+    public <T> TableStats load(String table, String insertSql,
+                               Iterator<? extends T> rows, RowBinder<T> binder) throws SQLException {
+        try (Batch batch = open(table, insertSql)) {
+            PreparedStatement ps = batch.statement();
+            while (rows.hasNext()) {
+                binder.bind(ps, rows.next());
+                batch.add();
+            }
+            return batch.stats;
+        }
+    }
+
+    public List<TableStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    public long getTotalRows() {
+        long total = 0;
+        for (TableStats s : stats.values()) {
+            total += s.rows;
+        }
+        return total;
+    }
+
+    private TableStats statsFor(String table) {
+        TableStats s = stats.get(table);
+        if (s == null) {
+            s = new TableStats(table);
+            stats.put(table, s);
+        }
+        return s;
+    }
+
+    /**
+     * One table's INSERT statement plus its pending batch.
+     */
+    public class Batch implements AutoCloseable {
+        private final TableStats stats;
+        private final PreparedStatement ps;
+        private final long openedAt = System.nanoTime();
+        private int pending = 0;
+        private boolean failed = false;
+
+        Batch(TableStats stats, PreparedStatement ps) {
+            this.stats = stats;
+            this.ps = ps;
+        }
+
+        public PreparedStatement statement() {
+            return ps;
+        }
+
+        /**
+         * Queue the currently bound row; sends the batch once it is full.
+         */
+        public void add() throws SQLException {
+            try {
+                ps.addBatch();
+                pending++;
+                if (pending >= batchSize) {
+                    flush();
+                }
+            } catch (SQLException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            ps.executeBatch();
+            stats.rows += pending;
+            stats.batches++;
+            rowsSinceCommit += pending;
+            pending = 0;
+
+            if (commitInterval > 0 && rowsSinceCommit >= commitInterval) {
+                conn.commit();
+                rowsSinceCommit = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (!failed) {
+                    flush();
+                }
+            } finally {
+                // Wall-clock time from open() to close(), including row binding
+                stats.nanos += System.nanoTime() - openedAt;
+                ps.close();
+            }
+        }
+    }
+}
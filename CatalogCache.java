@@ -0,0 +1,249 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * CPS510 A9 – Read-through cache over the event catalogue
+ *
+ * Events, Organizers, Venues and Showtimes change rarely compared to how
+ * often they are read, so their reads go through ReadThroughCache:
+ *
+ *  - event(id), organizer(id), venue(id), showtime(id): single rows
+ *  - eventPage(after): one EventListing page (GUI table, keyset paging)
+ *
+ * Keyword searches are not cached here: EventSearchIndex already answers
+ * them from memory.
+ *
+ * The write paths (EventRepository, via SchemaRepository for DDL and
+ * bulk loads) keep it correct:
+ *
+ *  - insert / updateTitle / delete call eventChanged(id), which drops
+ *    that event plus every cached page (any page may now be out of date).
+ *  - dropTables / createTables / populateTables call invalidateAll().
+ *
+ * Entries also expire after a TTL (default 5 minutes), which bounds how
+ * long a change made by another process can go unseen.
+ */
+public class CatalogCache {
+
+    public static final int DEFAULT_MAX_ROWS = 10_000;
+    public static final int DEFAULT_MAX_PAGES = 500;
+    public static final long DEFAULT_TTL_MS = 5 * 60_000L;
+
+    static final String SQL_EVENT =
+            "SELECT EventID, OrganizerID, Title, Category, Description FROM Events WHERE EventID = ?";
+    static final String SQL_ORGANIZER =
+            "SELECT OrganizerID, Name, ContactEmail, ContactPhone FROM Organizers WHERE OrganizerID = ?";
+    static final String SQL_VENUE =
+            "SELECT VenueID, Name, Address, City, Capacity FROM Venues WHERE VenueID = ?";
+    static final String SQL_SHOWTIME =
+            "SELECT ShowtimeID, EventID, VenueID, StartDateTime, BasePrice FROM Showtimes WHERE ShowtimeID = ?";
+
+    // ============== Cached rows ==============
+
+    public static final class Event {
+        public final int eventId;
+        public final int organizerId;
+        public final String title;
+        public final String category;
+        public final String description;
+
+        Event(int eventId, int organizerId, String title, String category, String description) {
+            this.eventId = eventId;
+            this.organizerId = organizerId;
+            this.title = title;
+            this.category = category;
+            this.description = description;
+        }
+    }
+
+    public static final class Organizer {
+        public final int organizerId;
+        public final String name;
+        public final String contactEmail;
+        public final String contactPhone;
+
+        Organizer(int organizerId, String name, String contactEmail, String contactPhone) {
+            this.organizerId = organizerId;
+            this.name = name;
+            this.contactEmail = contactEmail;
+            this.contactPhone = contactPhone;
+        }
+    }
+
+    public static final class Venue {
+        public final int venueId;
+        public final String name;
+        public final String address;
+        public final String city;
+        public final int capacity;
+
+        Venue(int venueId, String name, String address, String city, int capacity) {
+            this.venueId = venueId;
+            this.name = name;
+            this.address = address;
+            this.city = city;
+            this.capacity = capacity;
+        }
+    }
+
+    public static final class Showtime {
+        public final int showtimeId;
+        public final int eventId;
+        public final int venueId;
+        public final Timestamp startDateTime;
+        public final long basePriceCents;
+
+        Showtime(int showtimeId, int eventId, int venueId, Timestamp startDateTime, long basePriceCents) {
+            this.showtimeId = showtimeId;
+            this.eventId = eventId;
+            this.venueId = venueId;
+            this.startDateTime = startDateTime;
+            this.basePriceCents = basePriceCents;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int pageSize;
+
+    private final ReadThroughCache<Integer, Event> events;
+    private final ReadThroughCache<Integer, Organizer> organizers;
+    private final ReadThroughCache<Integer, Venue> venues;
+    private final ReadThroughCache<Integer, Showtime> showtimes;
+    private final ReadThroughCache<Integer, EventListing.Page> eventPages;
+
+    public CatalogCache(ConnectionPool pool) {
+        this(pool, DEFAULT_MAX_ROWS, DEFAULT_MAX_PAGES, DEFAULT_TTL_MS,
+                EventListing.DEFAULT_PAGE_SIZE);
+    }
+
+    public CatalogCache(ConnectionPool pool, int maxRows, int maxPages, long ttlMs, int pageSize) {
+        this.pool = pool;
+        this.pageSize = pageSize;
+        this.events = new ReadThroughCache<>("events", maxRows, ttlMs, this::loadEvent);
+        this.organizers = new ReadThroughCache<>("organizers", maxRows, ttlMs, this::loadOrganizer);
+        this.venues = new ReadThroughCache<>("venues", maxRows, ttlMs, this::loadVenue);
+        this.showtimes = new ReadThroughCache<>("showtimes", maxRows, ttlMs, this::loadShowtime);
+        this.eventPages = new ReadThroughCache<>("eventPages", maxPages, ttlMs, this::loadPage);
+    }
+
+    // ============== Reads ==============
+
+    public Event event(int eventId) throws SQLException {
+        return events.get(eventId);
+    }
+
+    public Organizer organizer(int organizerId) throws SQLException {
+        return organizers.get(organizerId);
+    }
+
+    public Venue venue(int venueId) throws SQLException {
+        return venues.get(venueId);
+    }
+
+    public Showtime showtime(int showtimeId) throws SQLException {
+        return showtimes.get(showtimeId);
+    }
+
+    /**
+     * The page of events after afterEventId (Integer.MIN_VALUE for the
+     * first), getPageSize() rows long.
+     */
+    public EventListing.Page eventPage(int afterEventId) throws SQLException {
+        return eventPages.get(afterEventId);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // ============== Invalidation (called by the write paths) ==============
+
+    /**
+     * An event was added, renamed or deleted.
+     */
+    public void eventChanged(int eventId) {
+        events.invalidate(eventId);
+        eventPages.invalidateAll();
+    }
+
+    /**
+     * Tables were dropped, created or (re)populated.
+     */
+    public void invalidateAll() {
+        events.invalidateAll();
+        organizers.invalidateAll();
+        venues.invalidateAll();
+        showtimes.invalidateAll();
+        eventPages.invalidateAll();
+    }
+
+    // ============== Loaders ==============
+
+    private Event loadEvent(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_EVENT)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next()
+                        ? new Event(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4), rs.getString(5))
+                        : null;
+            }
+        }
+    }
+
+    private Organizer loadOrganizer(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_ORGANIZER)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next()
+                        ? new Organizer(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4))
+                        : null;
+            }
+        }
+    }
+
+    private Venue loadVenue(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_VENUE)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next()
+                        ? new Venue(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5))
+                        : null;
+            }
+        }
+    }
+
+    private Showtime loadShowtime(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_SHOWTIME)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next()
+                        ? new Showtime(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getTimestamp(4),
+                                       Math.round(rs.getDouble(5) * 100))
+                        : null;
+            }
+        }
+    }
+
+    private EventListing.Page loadPage(Integer afterEventId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return EventListing.fetchPage(conn, afterEventId, pageSize);
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public String stats() {
+        return "catalog cache:\n  " + events.stats()
+                + "\n  " + organizers.stats()
+                + "\n  " + venues.stats()
+                + "\n  " + showtimes.stats()
+                + "\n  " + eventPages.stats();
+    }
+}
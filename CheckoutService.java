@@ -0,0 +1,291 @@
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Checkout (HELD seats -> Order + Payment + Tickets)
+ *
+ * One checkout turns the buyer's HELD seats (identified by the hold token
+ * hold() returned, so nobody can buy someone else's hold) into:
+ *
+ *   1 row in ORDERS   (Status 'PAID')
+ *   1 row in PAYMENTS (AuthCode from the PaymentAuthorizer)
+ *   N rows in TICKETS (one per seat, with a random unguessable QRCode)
+ *
+ * and flips the seats' SEATMAPS rows HELD -> SOLD, all in ONE transaction:
+ * either the buyer gets every ticket and the seats are sold, or nothing
+ * changes.
+ *
+ *  - The payment is authorised first, outside the transaction, so no row
+ *    locks are held while waiting on the gateway. If the transaction then
+ *    fails, the authorisation is voided.
+ *  - The seat update runs first inside the transaction (ascending
+ *    SeatMapID, via SeatReservationService), so concurrent checkouts lock
+ *    seats in the same order. Ticket rows go in one JDBC batch.
+ *  - Order, payment and ticket IDs come from IdAllocator, so no insert
+ *    needs a lookup or a retry on a duplicate key. The showtime price is
+ *    read through CatalogCache.
+ *  - Once committed, the hold's expiry timers are cancelled; a timer
+ *    that fires anyway finds the seat SOLD and leaves it alone.
+ *  - If the reservation service maintains summary counters, the seat and
+ *    ticket counts and revenue are added to them as the last write of
+ *    the transaction, so the hot summary rows stay locked briefly.
+ */
+public class CheckoutService {
+
+    public enum Status { OK, SEATS_NOT_HELD, DECLINED, GATEWAY_ERROR }
+
+    /**
+     * Outcome of one checkout.
+     */
+    public static final class Result {
+        public final Status status;
+        public final long orderId;
+        public final long paymentId;
+        public final long[] ticketIds;
+        public final String[] qrCodes;
+        public final long totalCents;
+        public final String message;
+
+        Result(Status status, long orderId, long paymentId, long[] ticketIds,
+               String[] qrCodes, long totalCents, String message) {
+            this.status = status;
+            this.orderId = orderId;
+            this.paymentId = paymentId;
+            this.ticketIds = ticketIds;
+            this.qrCodes = qrCodes;
+            this.totalCents = totalCents;
+            this.message = message;
+        }
+
+        static Result failed(Status status, String message) {
+            return new Result(status, 0, 0, new long[0], new String[0], 0, message);
+        }
+
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+
+        @Override
+        public String toString() {
+            return status == Status.OK
+                    ? String.format("Order %d: %d ticket(s), total %.2f", orderId, ticketIds.length, totalCents / 100.0)
+                    : status + ": " + message;
+        }
+    }
+
+    static final String SQL_INSERT_ORDER =
+            "INSERT INTO Orders (OrderID, UserID, OrderDateTime, OrderTotal, Status) " +
+            "VALUES (?, ?, SYSDATE, ?, 'PAID')";
+    static final String SQL_INSERT_PAYMENT =
+            "INSERT INTO Payments (PaymentID, OrderID, Amount, Method, PaidAt, AuthCode) " +
+            "VALUES (?, ?, ?, ?, SYSDATE, ?)";
+    static final String SQL_INSERT_TICKET =
+            "INSERT INTO Tickets (TicketID, OrderID, ShowtimeID, SeatID, TicketPrice, QRCode, IsValidated) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 'N')";
+
+    private final ConnectionPool pool;
+    private final SeatReservationService reservations;
+    private final PaymentAuthorizer authorizer;
+    private final IdAllocator ids;
+    private final CatalogCache catalog;
+    private final SecureRandom random = new SecureRandom();
+
+    // ---- metrics ----
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong tickets = new AtomicLong();
+    private final AtomicLong seatFailures = new AtomicLong();
+    private final AtomicLong declines = new AtomicLong();
+    private final AtomicLong gatewayErrors = new AtomicLong();
+
+    public CheckoutService(ConnectionPool pool, SeatReservationService reservations,
+                           PaymentAuthorizer authorizer, IdAllocator ids) {
+        this(pool, reservations, authorizer, ids, new CatalogCache(pool));
+    }
+
+    public CheckoutService(ConnectionPool pool, SeatReservationService reservations,
+                           PaymentAuthorizer authorizer, IdAllocator ids, CatalogCache catalog) {
+        this.pool = pool;
+        this.reservations = reservations;
+        this.authorizer = authorizer;
+        this.ids = ids;
+        this.catalog = catalog;
+    }
+
+    // ============== Checkout ==============
+
+    /**
+     * Buy the given seats of one showtime for userId. They must be HELD
+     * under holdToken (from SeatReservationService.hold()).
+     */
+    public Result checkout(int userId, long holdToken, int showtimeId, int[] seatIds, String method)
+            throws SQLException {
+        if (seatIds.length == 0) {
+            return Result.failed(Status.SEATS_NOT_HELD, "no seats given");
+        }
+        if (!reservations.isHeldBy(holdToken, showtimeId, seatIds)) {
+            seatFailures.incrementAndGet();
+            return Result.failed(Status.SEATS_NOT_HELD, "seats are not held under this hold token");
+        }
+
+        long priceCents = basePriceCents(showtimeId);
+        long totalCents = priceCents * seatIds.length;
+        long orderId = ids.next(IdAllocator.Sequence.ORDER);
+        long paymentId = ids.next(IdAllocator.Sequence.PAYMENT);
+        long[] ticketIds = ids.next(IdAllocator.Sequence.TICKET, seatIds.length);
+
+        // 1) Authorise outside the transaction
+        PaymentAuthorizer.Authorization auth;
+        try {
+            auth = authorizer.authorize(orderId, userId, totalCents, method);
+        } catch (Exception e) {
+            gatewayErrors.incrementAndGet();
+            return Result.failed(Status.GATEWAY_ERROR, "payment gateway error: " + e.getMessage());
+        }
+        if (!auth.approved) {
+            declines.incrementAndGet();
+            return Result.failed(Status.DECLINED, auth.declineReason);
+        }
+
+        // 2) Seats + order + payment + tickets in one transaction
+        String[] qrCodes = new String[seatIds.length];
+        for (int i = 0; i < seatIds.length; i++) {
+            qrCodes[i] = newQrCode(ticketIds[i]);
+        }
+
+        boolean committed = false;
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            boolean sold = false;
+            try {
+                sold = reservations.transitionInTransaction(conn, showtimeId, seatIds,
+                        SeatInventory.SeatStatus.HELD, SeatInventory.SeatStatus.SOLD, holdToken);
+                if (!sold) {
+                    conn.rollback();
+                    seatFailures.incrementAndGet();
+                    return Result.failed(Status.SEATS_NOT_HELD, "seats were taken or expired");
+                }
+                insertOrder(conn, orderId, userId, totalCents);
+                insertPayment(conn, paymentId, orderId, totalCents, method, auth.authCode);
+                insertTickets(conn, orderId, showtimeId, seatIds, priceCents, ticketIds, qrCodes);
+                SummaryRepository summaries = reservations.getSummaries();
+                if (summaries != null) {
+                    summaries.apply(conn, new SummaryRepository.Delta()
+                            .seats(showtimeId, SeatInventory.SeatStatus.HELD,
+                                    SeatInventory.SeatStatus.SOLD, seatIds.length)
+                            .tickets(showtimeId, seatIds.length, totalCents));
+                }
+                conn.commit();
+                committed = true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                if (sold) {
+                    reservations.revert(showtimeId, seatIds,
+                            SeatInventory.SeatStatus.HELD, SeatInventory.SeatStatus.SOLD, holdToken);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } finally {
+            if (!committed) {
+                voidQuietly(auth.authCode);
+            }
+        }
+
+        reservations.holdEnded(holdToken, showtimeId, seatIds);
+        orders.incrementAndGet();
+        tickets.addAndGet(seatIds.length);
+        return new Result(Status.OK, orderId, paymentId, ticketIds, qrCodes, totalCents, null);
+    }
+
+    // ============== Writes ==============
+
+    private static void insertOrder(Connection conn, long orderId, int userId, long totalCents)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_ORDER)) {
+            ps.setLong(1, orderId);
+            ps.setInt(2, userId);
+            ps.setDouble(3, totalCents / 100.0);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertPayment(Connection conn, long paymentId, long orderId, long amountCents,
+                                      String method, String authCode) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_PAYMENT)) {
+            ps.setLong(1, paymentId);
+            ps.setLong(2, orderId);
+            ps.setDouble(3, amountCents / 100.0);
+            ps.setString(4, method);
+            ps.setString(5, authCode);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertTickets(Connection conn, long orderId, int showtimeId, int[] seatIds,
+                                      long priceCents, long[] ticketIds, String[] qrCodes)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_TICKET)) {
+            for (int i = 0; i < seatIds.length; i++) {
+                ps.setLong(1, ticketIds[i]);
+                ps.setLong(2, orderId);
+                ps.setInt(3, showtimeId);
+                ps.setInt(4, seatIds[i]);
+                ps.setDouble(5, priceCents / 100.0);
+                ps.setString(6, qrCodes[i]);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int c : counts) {
+                if (c != 1 && c != Statement.SUCCESS_NO_INFO) {
+                    throw new SQLException("Ticket insert affected " + c + " rows");
+                }
+            }
+        }
+    }
+
+    // ============== Helpers ==============
+
+    /**
+     * 64 random bits plus the TicketID: unguessable, and unique because
+     * TicketIDs are.
+     */
+    private String newQrCode(long ticketId) {
+        return String.format("QR-%016X-%d", random.nextLong(), ticketId);
+    }
+
+    private long basePriceCents(int showtimeId) throws SQLException {
+        CatalogCache.Showtime showtime = catalog.showtime(showtimeId);
+        if (showtime == null) {
+            throw new SQLException("Showtime " + showtimeId + " not found");
+        }
+        return showtime.basePriceCents;
+    }
+
+    private void voidQuietly(String authCode) {
+        try {
+            authorizer.voidAuthorization(authCode);
+        } catch (Exception e) {
+            System.err.println("Could not void authorization " + authCode + ": " + e.getMessage());
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getOrders()        { return orders.get(); }
+    public long getTickets()       { return tickets.get(); }
+    public long getSeatFailures()  { return seatFailures.get(); }
+    public long getDeclines()      { return declines.get(); }
+    public long getGatewayErrors() { return gatewayErrors.get(); }
+
+    public String stats() {
+        return "checkout: orders=" + orders.get() + " tickets=" + tickets.get()
+                + " seatFailures=" + seatFailures.get() + " declined=" + declines.get()
+                + " gatewayErrors=" + gatewayErrors.get();
+    }
+}
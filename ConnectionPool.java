@@ -0,0 +1,630 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Shared JDBC connection pool for the E-Ticket apps
+ *
+ * Both front-ends (ETicketUI and ETicketGUI) borrow connections from
+ * here instead of holding one DriverManager connection for the whole
+ * process. Features:
+ *  - min/max sizing: maxSize is a hard cap. A semaphore bounds the
+ *    borrowers, and every physical connection (borrowed, idle or being
+ *    opened by the housekeeper) takes one of maxSize slots before it is
+ *    created
+ *  - idle eviction down to minIdle by a background housekeeper
+ *  - validation on borrow (Connection.isValid), so a dropped Oracle
+ *    session is replaced instead of failing the next operation
+ *  - leak detection: connections held longer than leakThresholdMs are
+ *    reported once, with the stack trace of the borrower. Capturing that
+ *    trace costs every borrow, so LEAK_DETECTION_DISABLED (any value
+ *    <= 0) turns both the capture and the scan off
+ *  - metrics: active, idle, borrows, total/max wait time
+ *
+ * Connections handed out are proxies: calling close() returns the
+ * physical connection to the pool. Physical connections come from a
+ * ConnectionFactory, so an embedded stand-in database can replace Oracle.
+ *
+ * Statement cache: each physical connection keeps up to
+ * statementCacheSize PreparedStatements, keyed by SQL text and evicted
+ * least-recently-used first. prepareStatement(sql) hands out a cached
+ * statement when one is free, and closing it puts it back (result set
+ * closed; parameters, batch and per-statement settings reset) instead of
+ * closing the cursor. The app's usual
+ *   try (PreparedStatement ps = conn.prepareStatement(SQL)) { ... }
+ * therefore parses each SQL string once per connection, not once per
+ * click. forUrl() also turns on the Oracle driver's implicit statement
+ * cache, which catches statements that fall out of this one.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Source of physical connections (Oracle in production, any JDBC
+     * database in tests / benchmarks).
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Skip the isValid() round trip for connections returned this recently
+    private static final long VALIDATION_BYPASS_MS = 500L;
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    /** leakThresholdMs that turns leak detection off. */
+    public static final long LEAK_DETECTION_DISABLED = 0L;
+
+    private final ConnectionFactory factory;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long borrowTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+
+    // Idle physical connections, most recently used first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // Borrowed connections, for leak detection
+    private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    // One permit per connection that may exist (idle or borrowed)
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // ---- metrics ----
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong stmtHits = new AtomicLong();
+    private final AtomicLong stmtMisses = new AtomicLong();
+    private final AtomicLong stmtEvictions = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, int minIdle, int maxSize,
+                          long idleTimeoutMs, long borrowTimeoutMs, long leakThresholdMs) {
+        this(factory, minIdle, maxSize, idleTimeoutMs, borrowTimeoutMs, leakThresholdMs,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * statementCacheSize = 0 disables the per-connection statement cache.
+     */
+    public ConnectionPool(ConnectionFactory factory, int minIdle, int maxSize,
+                          long idleTimeoutMs, long borrowTimeoutMs, long leakThresholdMs,
+                          int statementCacheSize) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.factory = factory;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eticket-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L,
+                (leakDetection() ? Math.min(idleTimeoutMs, leakThresholdMs) : idleTimeoutMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pool with the defaults used by the console and GUI apps:
+     * 1..8 connections, 5 min idle timeout, 30 s borrow timeout,
+     * 60 s leak threshold, 64 cached statements per connection.
+     */
+    public static ConnectionPool forUrl(String url, String user, String pass) {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", pass);
+        // Oracle driver-side cache (ignored by other drivers)
+        props.setProperty("oracle.jdbc.implicitStatementCacheSize",
+                String.valueOf(DEFAULT_STATEMENT_CACHE_SIZE));
+        return new ConnectionPool(() -> DriverManager.getConnection(url, props),
+                1, 8, 5 * 60_000L, 30_000L, 60_000L);
+    }
+
+    // ============== Borrow / return ==============
+
+    /**
+     * Borrow a connection. The caller must close() it (try-with-resources)
+     * to hand it back. Blocks up to borrowTimeoutMs when the pool is full.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMs
+                        + " ms waiting for a pooled connection (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeValidIdle();
+            while (pc == null) {
+                if (reserveSlot()) {
+                    pc = open();
+                } else {
+                    // Every slot is taken, but not all by borrowers (we hold a
+                    // permit): one is idle or about to be, e.g. a housekeeper refill
+                    pc = awaitIdle(start);
+                }
+            }
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowSite = leakDetection() ? new Throwable("Connection borrowed here") : null;
+            pc.leakReported = false;
+            borrowed.put(pc, Boolean.TRUE);
+            borrowCount.incrementAndGet();
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Take one of the maxSize connection slots, if any is free.
+     */
+    private boolean reserveSlot() {
+        int n;
+        do {
+            n = totalConnections.get();
+            if (n >= maxSize) {
+                return false;
+            }
+        } while (!totalConnections.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    /**
+     * Open a physical connection in a slot already reserved.
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            PooledConnection pc = new PooledConnection(factory.create());
+            createdCount.incrementAndGet();
+            return pc;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private PooledConnection awaitIdle(long startNanos) throws SQLException {
+        long leftMs = borrowTimeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (leftMs <= 0) {
+            throw new SQLException("Timed out after " + borrowTimeoutMs
+                    + " ms waiting for a pooled connection (" + stats() + ")");
+        }
+        try {
+            PooledConnection pc = idle.pollFirst(Math.min(leftMs, 10L), TimeUnit.MILLISECONDS);
+            if (pc != null && !isAlive(pc.physical)) {
+                invalidCount.incrementAndGet();
+                discard(pc);
+                return null;
+            }
+            return pc;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            long age = System.currentTimeMillis() - pc.lastReturnedAt;
+            if (age < VALIDATION_BYPASS_MS || isAlive(pc.physical)) {
+                return pc;
+            }
+            invalidCount.incrementAndGet();
+            discard(pc);
+        }
+        return null;
+    }
+
+    private static boolean isAlive(Connection c) {
+        try {
+            return !c.isClosed() && c.isValid(VALIDATION_TIMEOUT_SEC);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called by the proxy's close(): reset session state and put the
+     * physical connection back, or discard it if it is broken.
+     */
+    private void giveBack(PooledConnection pc) {
+        borrowed.remove(pc);
+        try {
+            boolean reusable = !closed.get() && !pc.physical.isClosed();
+            if (reusable && !pc.physical.getAutoCommit()) {
+                // Uncommitted work from a failed caller must not leak into the next borrower
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pc.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            } else {
+                discard(pc);
+            }
+        } catch (SQLException e) {
+            discard(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        long prev;
+        while (nanos > (prev = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(prev, nanos)) {
+                break;
+            }
+        }
+    }
+
+    // ============== Housekeeping ==============
+
+    /**
+     * Evict connections idle longer than idleTimeoutMs (keeping minIdle),
+     * top the pool back up to minIdle and report suspected leaks.
+     */
+    private void housekeep() {
+        if (closed.get()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledConnection pc = it.next();
+            if (now - pc.lastReturnedAt > idleTimeoutMs && idle.remove(pc)) {
+                evictedCount.incrementAndGet();
+                discard(pc);
+            }
+        }
+
+        // Only into free slots, so idle + borrowed never exceeds maxSize
+        while (idle.size() < minIdle && reserveSlot()) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException | RuntimeException e) {
+                break; // database unreachable; retry on the next run
+            }
+        }
+
+        if (!leakDetection()) {
+            return;
+        }
+        for (PooledConnection pc : borrowed.keySet()) {
+            if (!pc.leakReported && pc.borrowSite != null && now - pc.borrowedAt > leakThresholdMs) {
+                pc.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("WARNING: possible connection leak, held for "
+                        + (now - pc.borrowedAt) + " ms");
+                pc.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    private boolean leakDetection() {
+        return leakThresholdMs > 0;
+    }
+
+    // ============== Metrics ==============
+
+    public int getActiveCount()     { return borrowed.size(); }
+    public int getIdleCount()       { return idle.size(); }
+    public int getTotalCount()      { return totalConnections.get(); }
+    public int getMaxSize()         { return maxSize; }
+    public long getBorrowCount()    { return borrowCount.get(); }
+    public long getCreatedCount()   { return createdCount.get(); }
+    public long getEvictedCount()   { return evictedCount.get(); }
+    public long getInvalidCount()   { return invalidCount.get(); }
+    public long getLeakCount()      { return leakCount.get(); }
+    public long getMaxWaitMillis()  { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()); }
+    public long getStatementCacheHits()      { return stmtHits.get(); }
+    public long getStatementCacheMisses()    { return stmtMisses.get(); }
+    public long getStatementCacheEvictions() { return stmtEvictions.get(); }
+
+    public double getAverageWaitMillis() {
+        long n = borrowCount.get();
+        return n == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / n;
+    }
+
+    /**
+     * One-line summary, e.g. for the console or the GUI output area.
+     */
+    public String stats() {
+        return String.format(
+                "pool: active=%d idle=%d total=%d/%d borrows=%d avgWait=%.2fms maxWait=%dms "
+                        + "created=%d evicted=%d invalid=%d leaks=%d stmtCache=%d/%d/%d (hit/miss/evict)",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize, getBorrowCount(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getCreatedCount(),
+                getEvictedCount(), getInvalidCount(), getLeakCount(),
+                stmtHits.get(), stmtMisses.get(), stmtEvictions.get());
+    }
+
+    /**
+     * Close all idle connections and refuse new borrows. Borrowed
+     * connections are closed when their holders return them.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    // ============== Pooled connection wrapper ==============
+
+    /**
+     * A physical connection plus its bookkeeping. Each borrow gets a fresh
+     * proxy handle, so a stale handle closed twice cannot return the
+     * connection a second time.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        // Idle prepared statements by SQL text, least recently used first.
+        // A statement in use is removed, so two callers never share one.
+        final LinkedHashMap<String, CachedStatement> statements =
+                new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                        if (size() > statementCacheSize) {
+                            stmtEvictions.incrementAndGet();
+                            closeQuietly(eldest.getValue().physical);
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            AtomicBoolean handleClosed = new AtomicBoolean(false);
+            InvocationHandler h = (proxy, method, args) -> invoke(handleClosed, proxy, method, args);
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    h);
+        }
+
+        private Object invoke(AtomicBoolean handleClosed, Object proxy, Method method, Object[] args)
+                throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (handleClosed.compareAndSet(false, true)) {
+                    giveBack(this);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return handleClosed.get() || physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Pooled[" + physical + "]";
+            }
+            if (handleClosed.get()) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (statementCacheSize > 0 && "prepareStatement".equals(name)
+                    && args.length == 1 && args[0] instanceof String) {
+                return prepareCached((Connection) proxy, (String) args[0]);
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // ---- statement cache ----
+
+        private PreparedStatement prepareCached(Connection handle, String sql) throws SQLException {
+            CachedStatement cs;
+            synchronized (statements) {
+                cs = statements.remove(sql);
+            }
+            if (cs != null && !cs.physical.isClosed()) {
+                stmtHits.incrementAndGet();
+            } else {
+                stmtMisses.incrementAndGet();
+                PreparedStatement ps = physical.prepareStatement(sql);
+                try {
+                    cs = new CachedStatement(sql, ps);
+                } catch (SQLException | RuntimeException e) {
+                    closeQuietly(ps);
+                    throw e;
+                }
+            }
+            return cs.newHandle(this, handle);
+        }
+
+        /**
+         * Called when the caller closes its statement handle: reset the
+         * statement (open result set, parameters, batch, warnings, fetch
+         * size, query timeout, max rows) and keep it for the next
+         * prepareStatement(sameSql), so nothing the previous borrower set
+         * leaks into the next one.
+         */
+        void release(CachedStatement cs) {
+            try {
+                if (cs.physical.isClosed()) {
+                    return;
+                }
+                ResultSet rs = cs.physical.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                cs.physical.clearParameters();
+                cs.physical.clearBatch();
+                cs.physical.clearWarnings();
+                if (cs.physical.getFetchSize() != cs.defaultFetchSize) {
+                    cs.physical.setFetchSize(cs.defaultFetchSize);
+                }
+                if (cs.physical.getQueryTimeout() != cs.defaultQueryTimeout) {
+                    cs.physical.setQueryTimeout(cs.defaultQueryTimeout);
+                }
+                if (cs.physical.getMaxRows() != cs.defaultMaxRows) {
+                    cs.physical.setMaxRows(cs.defaultMaxRows);
+                }
+            } catch (SQLException e) {
+                closeQuietly(cs.physical);
+                return;
+            }
+            CachedStatement displaced;
+            synchronized (statements) {
+                displaced = statements.put(cs.sql, cs);
+            }
+            if (displaced != null && displaced != cs) {
+                // the same SQL was open twice at once; keep one copy
+                closeQuietly(displaced.physical);
+            }
+        }
+    }
+
+    /**
+     * A physical PreparedStatement owned by the statement cache.
+     */
+    private static final class CachedStatement {
+        final String sql;
+        final PreparedStatement physical;
+        final int defaultFetchSize;
+        final int defaultQueryTimeout;
+        final int defaultMaxRows;
+
+        CachedStatement(String sql, PreparedStatement physical) throws SQLException {
+            this.sql = sql;
+            this.physical = physical;
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+            this.defaultMaxRows = physical.getMaxRows();
+        }
+
+        /**
+         * Handle given to one caller: close() returns the statement to the
+         * cache, and getConnection() answers the pooled connection handle.
+         */
+        PreparedStatement newHandle(PooledConnection owner, Connection connHandle) {
+            AtomicBoolean handleClosed = new AtomicBoolean(false);
+            InvocationHandler h = (proxy, method, args) -> {
+                String name = method.getName();
+                if ("close".equals(name)) {
+                    if (handleClosed.compareAndSet(false, true)) {
+                        owner.release(this);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name)) {
+                    return handleClosed.get() || physical.isClosed();
+                }
+                if ("getConnection".equals(name)) {
+                    return connHandle;
+                }
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("toString".equals(name)) {
+                    return "Cached[" + physical + "]";
+                }
+                if (handleClosed.get()) {
+                    throw new SQLException("Statement has been closed");
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    h);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // connection already broken
+        }
+    }
+}
@@ -0,0 +1,985 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Streaming CSV import for VENUES, SEATS and EVENTS
+ *
+ * Partner seat charts arrive as CSV files with tens of thousands of rows
+ * or more. One import streams a file through three stages, each on its
+ * own thread, connected by bounded queues of reusable row batches:
+ *
+ *   parser --> validator --> writer(s) --> (batch back to the parser)
+ *
+ *  - parser: reads the file through a FileChannel in fixed-size chunks
+ *    (a record cut by a chunk boundary is carried over to the next one)
+ *    and splits RFC 4180 CSV (quoted fields, "" escapes, CRLF) on the raw
+ *    bytes. Numbers are parsed straight from the bytes; only text fields
+ *    become Strings.
+ *  - validator: checks every row against the table's constraints before
+ *    the database sees it: required columns, VARCHAR2 byte lengths, ID
+ *    ranges, the parent row of each FK (Venues / Organizers already in
+ *    the database) and the UNIQUE / PK keys within the file.
+ *  - writers: each on its own pooled connection, insert one batch per
+ *    JDBC executeBatch() and commit it. If the database still rejects a
+ *    batch (e.g. a key that is already there), the batch is rolled back
+ *    and retried row by row, so only the offending rows are rejected.
+ *
+ * The number of batches in flight is fixed, so a slow database makes the
+ * parser wait instead of reading the whole file into memory
+ * (backpressure); the report says how often each stage had to wait.
+ *
+ * Rejected rows are counted and the first few are reported with their
+ * row number and reason; the rest of the file still loads. Batches commit
+ * as they go, so an import that fails midway (e.g. the connection drops)
+ * keeps what it wrote; re-running a VENUES or SEATS file then rejects the
+ * rows that are already there. EVENTS get new IDs from IdAllocator, the
+ * same way addEvent does, so their files have no EventID column.
+ *
+ * Expected header rows (any column order; optional columns may be left
+ * out):
+ *
+ *   venues.csv: VenueID,Name,Address,City,Capacity
+ *   seats.csv:  SeatID,VenueID,Section,RowLabel,SeatNumber
+ *   events.csv: OrganizerID,Title,Category,Description
+ */
+public class CsvImporter {
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    public static final int DEFAULT_WRITERS = 2;
+    public static final int DEFAULT_QUEUE_DEPTH = 4;
+    public static final int MAX_REPORTED_REJECTS = 20;
+
+    static final long MAX_NUMBER_10 = 9_999_999_999L; // NUMBER(10)
+
+    /**
+     * One CSV column and the constraint of the table column it fills.
+     */
+    static final class Column {
+        final String name;
+        final boolean numeric;
+        final boolean required;
+        final long min;
+        final int maxBytes;
+
+        private Column(String name, boolean numeric, boolean required, long min, int maxBytes) {
+            this.name = name;
+            this.numeric = numeric;
+            this.required = required;
+            this.min = min;
+            this.maxBytes = maxBytes;
+        }
+
+        static Column number(String name, boolean required, long min) {
+            return new Column(name, true, required, min, 0);
+        }
+
+        static Column text(String name, boolean required, int maxBytes) {
+            return new Column(name, false, required, 0, maxBytes);
+        }
+    }
+
+    /**
+     * What a file holds. Columns are in INSERT parameter order.
+     */
+    public enum Kind {
+        VENUES("Venues",
+                "INSERT INTO Venues (VenueID, Name, Address, City, Capacity) VALUES (?, ?, ?, ?, ?)",
+                false,
+                Column.number("VenueID", true, 1),
+                Column.text("Name", true, 200),
+                Column.text("Address", false, 300),
+                Column.text("City", false, 120),
+                Column.number("Capacity", false, 0)),
+        SEATS("Seats",
+                "INSERT INTO Seats (SeatID, VenueID, Section, RowLabel, SeatNumber) VALUES (?, ?, ?, ?, ?)",
+                false,
+                Column.number("SeatID", true, 1),
+                Column.number("VenueID", true, 1),
+                Column.text("Section", true, 50),
+                Column.text("RowLabel", true, 20),
+                Column.text("SeatNumber", true, 20)),
+        EVENTS("Events",
+                "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) VALUES (?, ?, ?, ?, ?)",
+                true,
+                Column.number("OrganizerID", true, 1),
+                Column.text("Title", true, 200),
+                Column.text("Category", false, 100),
+                Column.text("Description", false, 1000));
+
+        final String table;
+        final String insertSql;
+        final boolean allocatesId;
+        final Column[] columns;
+
+        Kind(String table, String insertSql, boolean allocatesId, Column... columns) {
+            this.table = table;
+            this.insertSql = insertSql;
+            this.allocatesId = allocatesId;
+            this.columns = columns;
+        }
+
+        public String header() {
+            StringBuilder sb = new StringBuilder();
+            for (Column c : columns) {
+                sb.append(sb.length() > 0 ? "," : "").append(c.name);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Outcome of one import.
+     */
+    public static final class Report {
+        public final Kind kind;
+        public final String file;
+        public final long bytes;
+        public final long rows;
+        public final long imported;
+        public final long rejected;
+        public final List<String> rejects;
+        public final long elapsedMs;
+        public final long parserWaits;
+        public final long validatorWaits;
+        public final long rowByRowBatches;
+
+        Report(Kind kind, String file, long bytes, long rows, long imported, long rejected,
+               List<String> rejects, long elapsedMs, long parserWaits, long validatorWaits,
+               long rowByRowBatches) {
+            this.kind = kind;
+            this.file = file;
+            this.bytes = bytes;
+            this.rows = rows;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.rejects = rejects;
+            this.elapsedMs = elapsedMs;
+            this.parserWaits = parserWaits;
+            this.validatorWaits = validatorWaits;
+            this.rowByRowBatches = rowByRowBatches;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedMs == 0 ? 0.0 : rows * 1000.0 / elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s from %s: %,d row(s) read, %,d imported, %,d rejected in %,d ms "
+                            + "(%,.0f rows/s, %.1f MB/s; waits: parser %d, validator %d; "
+                            + "row-by-row batches %d)",
+                    kind.table, file, rows, imported, rejected, elapsedMs, rowsPerSecond(),
+                    elapsedMs == 0 ? 0.0 : bytes / 1e3 / elapsedMs, parserWaits, validatorWaits,
+                    rowByRowBatches);
+        }
+    }
+
+    static final String SQL_VENUE_IDS = "SELECT VenueID FROM Venues";
+    static final String SQL_ORGANIZER_IDS = "SELECT OrganizerID FROM Organizers";
+
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+    private final int chunkBytes;
+    private final int batchRows;
+    private final int writers;
+    private final int queueDepth;
+
+    // ---- metrics ----
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+
+    public CsvImporter(ConnectionPool pool, IdAllocator ids) {
+        this(pool, ids, DEFAULT_CHUNK_BYTES, BulkLoader.DEFAULT_BATCH_SIZE, DEFAULT_WRITERS, DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+     * @param chunkBytes bytes read from the file at a time
+     * @param batchRows  rows per batch (one executeBatch() and commit)
+     * @param writers    writer threads, each with its own connection
+     * @param queueDepth batches each queue holds before its producer waits
+     */
+    public CsvImporter(ConnectionPool pool, IdAllocator ids, int chunkBytes, int batchRows,
+                       int writers, int queueDepth) {
+        if (chunkBytes < 1024 || batchRows < 1 || writers < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("Invalid chunkBytes=" + chunkBytes + " / batchRows=" + batchRows
+                    + " / writers=" + writers + " / queueDepth=" + queueDepth);
+        }
+        this.pool = pool;
+        this.ids = ids;
+        this.chunkBytes = chunkBytes;
+        this.batchRows = batchRows;
+        this.writers = writers;
+        this.queueDepth = queueDepth;
+    }
+
+    // ============== Import ==============
+
+    /**
+     * Import one file. Bad rows are rejected and reported; the rest load.
+     * Throws if the file cannot be read or has an unusable header, or if
+     * the database fails for any reason other than a bad row.
+     */
+    public Report importFile(Kind kind, Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Set<Long> parents = loadParents(kind);
+        Job job = new Job(kind, parents);
+
+        ExecutorService exec = Executors.newFixedThreadPool(2 + writers, r -> {
+            Thread t = new Thread(r, "eticket-import");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Void> stages = new ExecutorCompletionService<>(exec);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            job.bytes = channel.size();
+            stages.submit(() -> {
+                job.parse(channel);
+                return null;
+            });
+            stages.submit(() -> {
+                job.validate();
+                return null;
+            });
+            for (int w = 0; w < writers; w++) {
+                stages.submit(() -> {
+                    job.write();
+                    return null;
+                });
+            }
+            for (int i = 0; i < 2 + writers; i++) {
+                Future<Void> done = stages.take();
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    // A failed stage leaves the others blocked on their queues
+                    exec.shutdownNow();
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    }
+                    throw new IllegalStateException("Import of " + file + " failed", cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing " + file, e);
+        } finally {
+            exec.shutdownNow();
+        }
+
+        files.incrementAndGet();
+        rowsImported.addAndGet(job.imported.get());
+        rowsRejected.addAndGet(job.rejected.get());
+        return new Report(kind, String.valueOf(file.getFileName()), job.bytes, job.rows, job.imported.get(),
+                job.rejected.get(), new ArrayList<>(job.rejects), (System.nanoTime() - start) / 1_000_000L,
+                job.parserWaits, job.validatorWaits, job.rowByRowBatches.get());
+    }
+
+    /**
+     * Import and print the report (and the first rejected rows) to out.
+     */
+    public Report importFile(Kind kind, Path file, Consumer<String> out) throws IOException, SQLException {
+        out.accept("=== Importing " + kind.table + " from " + file + " ===");
+        Report r = importFile(kind, file);
+        for (String reject : r.rejects) {
+            out.accept("  Rejected " + reject);
+        }
+        if (r.rejected > r.rejects.size()) {
+            out.accept("  ... and " + (r.rejected - r.rejects.size()) + " more rejected row(s)");
+        }
+        out.accept(r.toString());
+        return r;
+    }
+
+    /**
+     * IDs of the rows the file's FK column must point at.
+     */
+    private Set<Long> loadParents(Kind kind) throws SQLException {
+        Set<Long> ids = new HashSet<>();
+        String sql = kind == Kind.EVENTS ? SQL_ORGANIZER_IDS : SQL_VENUE_IDS;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    // ============== Row batches ==============
+
+    /**
+     * Up to batchRows parsed rows, column-major per row: slot
+     * row * columns + column. Batches are recycled, so a steady import
+     * allocates little more than the text fields.
+     */
+    static final class RowBatch {
+        final int columns;
+        final long[] rowNumbers;
+        final long[] numbers;
+        final String[] texts;
+        final int[] textBytes;
+        final boolean[] present;
+        final String[] rejects;
+        int size;
+
+        RowBatch(int capacity, int columns) {
+            this.columns = columns;
+            this.rowNumbers = new long[capacity];
+            this.numbers = new long[capacity * columns];
+            this.texts = new String[capacity * columns];
+            this.textBytes = new int[capacity * columns];
+            this.present = new boolean[capacity * columns];
+            this.rejects = new String[capacity];
+        }
+
+        boolean isFull() {
+            return size == rowNumbers.length;
+        }
+
+        void clear() {
+            Arrays.fill(texts, 0, size * columns, null);
+            Arrays.fill(present, 0, size * columns, false);
+            Arrays.fill(rejects, 0, size, null);
+            size = 0;
+        }
+    }
+
+    // Sent down the queues when the file is done
+    private static final RowBatch END = new RowBatch(0, 0);
+
+    /**
+     * State of one import, shared by its stage threads.
+     */
+    private final class Job {
+        final Kind kind;
+        final Column[] columns;
+        final Set<Long> parents;
+        final BlockingQueue<RowBatch> free;
+        final BlockingQueue<RowBatch> parsed;
+        final BlockingQueue<RowBatch> validated;
+
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong rowByRowBatches = new AtomicLong();
+        final AtomicInteger reported = new AtomicInteger();
+        final ConcurrentLinkedQueue<String> rejects = new ConcurrentLinkedQueue<>();
+        volatile long bytes;
+        volatile long rows;
+        volatile long parserWaits;
+        volatile long validatorWaits;
+
+        Job(Kind kind, Set<Long> parents) {
+            this.kind = kind;
+            this.columns = kind.columns;
+            this.parents = parents;
+            // Every batch is in exactly one place: a queue or a stage
+            int total = 2 * queueDepth + writers + 2;
+            this.free = new ArrayBlockingQueue<>(total);
+            this.parsed = new ArrayBlockingQueue<>(queueDepth);
+            this.validated = new ArrayBlockingQueue<>(queueDepth + writers);
+            for (int i = 0; i < total; i++) {
+                free.add(new RowBatch(batchRows, columns.length));
+            }
+        }
+
+        // ---------- parser ----------
+
+        void parse(ReadableByteChannel channel) throws IOException, InterruptedException {
+            CsvReader reader = new CsvReader(channel, chunkBytes);
+            if (!reader.next()) {
+                throw new IOException("Empty file; expected header: " + kind.header());
+            }
+            int[] columnOfField = mapHeader(reader);
+            int fieldCount = columnOfField.length;
+
+            long rowNumber = 1;
+            long dataRows = 0;
+            RowBatch batch = free.take();
+            while (reader.next()) {
+                rowNumber++;
+                if (reader.isBlank()) {
+                    continue;
+                }
+                dataRows++;
+                int row = batch.size++;
+                batch.rowNumbers[row] = rowNumber;
+                if (reader.fieldCount() != fieldCount) {
+                    batch.rejects[row] = "has " + reader.fieldCount() + " field(s), the header has " + fieldCount;
+                } else if (reader.malformed()) {
+                    batch.rejects[row] = "has text after a closing quote";
+                } else {
+                    for (int f = 0; f < fieldCount; f++) {
+                        int c = columnOfField[f];
+                        if (reader.isEmpty(f)) {
+                            continue;
+                        }
+                        int slot = row * columns.length + c;
+                        if (columns[c].numeric) {
+                            long v = reader.number(f);
+                            if (v == CsvReader.NOT_A_NUMBER) {
+                                batch.rejects[row] = columns[c].name + " is not a whole number";
+                                break;
+                            }
+                            batch.numbers[slot] = v;
+                        } else {
+                            batch.textBytes[slot] = reader.byteLength(f);
+                            batch.texts[slot] = reader.text(f);
+                        }
+                        batch.present[slot] = true;
+                    }
+                }
+                if (batch.isFull()) {
+                    if (!parsed.offer(batch)) {
+                        parserWaits++;
+                        parsed.put(batch);
+                    }
+                    batch = free.take();
+                }
+            }
+            rows = dataRows;
+            parsed.put(batch);
+            parsed.put(END);
+        }
+
+        private int[] mapHeader(CsvReader reader) throws IOException {
+            int[] columnOfField = new int[reader.fieldCount()];
+            boolean[] seen = new boolean[columns.length];
+            for (int f = 0; f < columnOfField.length; f++) {
+                String name = reader.text(f).trim();
+                int c = indexOf(name);
+                if (c < 0 || seen[c]) {
+                    throw new IOException((c < 0 ? "Unknown" : "Duplicate") + " column '" + name
+                            + "' in header; expected: " + kind.header());
+                }
+                seen[c] = true;
+                columnOfField[f] = c;
+            }
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c].required && !seen[c]) {
+                    throw new IOException("Header has no " + columns[c].name + " column; expected: " + kind.header());
+                }
+            }
+            return columnOfField;
+        }
+
+        private int indexOf(String name) {
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c].name.equalsIgnoreCase(name)) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        // ---------- validator ----------
+
+        void validate() throws InterruptedException {
+            // Keys seen so far in this file (PK / UNIQUE)
+            Set<Long> ids = new HashSet<>();
+            Set<String> seatKeys = new HashSet<>();
+            while (true) {
+                RowBatch batch = parsed.take();
+                if (batch == END) {
+                    break;
+                }
+                for (int row = 0; row < batch.size; row++) {
+                    if (batch.rejects[row] == null) {
+                        batch.rejects[row] = check(batch, row, ids, seatKeys);
+                    }
+                    if (batch.rejects[row] != null) {
+                        reject(batch.rowNumbers[row], batch.rejects[row]);
+                    }
+                }
+                if (!validated.offer(batch)) {
+                    validatorWaits++;
+                    validated.put(batch);
+                }
+            }
+            for (int w = 0; w < writers; w++) {
+                validated.put(END);
+            }
+        }
+
+        /**
+         * Why the row would violate a constraint, or null if it is fine.
+         */
+        private String check(RowBatch batch, int row, Set<Long> ids, Set<String> seatKeys) {
+            int base = row * columns.length;
+            for (int c = 0; c < columns.length; c++) {
+                Column col = columns[c];
+                if (!batch.present[base + c]) {
+                    if (col.required) {
+                        return col.name + " is missing";
+                    }
+                } else if (col.numeric) {
+                    long v = batch.numbers[base + c];
+                    if (v < col.min || v > MAX_NUMBER_10) {
+                        return col.name + " " + v + " is out of range " + col.min + ".." + MAX_NUMBER_10;
+                    }
+                } else if (batch.textBytes[base + c] > col.maxBytes) {
+                    return col.name + " is " + batch.textBytes[base + c] + " bytes, at most " + col.maxBytes;
+                }
+            }
+            switch (kind) {
+                case VENUES: {
+                    long venueId = batch.numbers[base];
+                    if (parents.contains(venueId)) {
+                        return "VenueID " + venueId + " already exists";
+                    }
+                    if (!ids.add(venueId)) {
+                        return "VenueID " + venueId + " appears twice in the file";
+                    }
+                    return null;
+                }
+                case SEATS: {
+                    long seatId = batch.numbers[base];
+                    long venueId = batch.numbers[base + 1];
+                    if (!parents.contains(venueId)) {
+                        return "VenueID " + venueId + " does not exist";
+                    }
+                    if (!ids.add(seatId)) {
+                        return "SeatID " + seatId + " appears twice in the file";
+                    }
+                    String key = venueId + "\u0000" + batch.texts[base + 2] + "\u0000" + batch.texts[base + 3]
+                            + "\u0000" + batch.texts[base + 4];
+                    if (!seatKeys.add(key)) {
+                        return "seat " + batch.texts[base + 2] + "/" + batch.texts[base + 3] + "/"
+                                + batch.texts[base + 4] + " of venue " + venueId + " appears twice in the file";
+                    }
+                    return null;
+                }
+                case EVENTS: {
+                    long organizerId = batch.numbers[base];
+                    return parents.contains(organizerId) ? null : "OrganizerID " + organizerId + " does not exist";
+                }
+                default:
+                    return null;
+            }
+        }
+
+        // ---------- writers ----------
+
+        void write() throws SQLException, InterruptedException {
+            try (Connection conn = pool.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(kind.insertSql)) {
+                    while (true) {
+                        RowBatch batch = validated.take();
+                        if (batch == END) {
+                            break;
+                        }
+                        writeBatch(conn, ps, batch);
+                        batch.clear();
+                        free.put(batch);
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+
+        private void writeBatch(Connection conn, PreparedStatement ps, RowBatch batch) throws SQLException {
+            int good = 0;
+            for (int row = 0; row < batch.size; row++) {
+                if (batch.rejects[row] == null) {
+                    good++;
+                }
+            }
+            if (good == 0) {
+                return;
+            }
+            long[] newIds = kind.allocatesId ? ids.next(IdAllocator.Sequence.EVENT, good) : null;
+
+            int k = 0;
+            for (int row = 0; row < batch.size; row++) {
+                if (batch.rejects[row] == null) {
+                    bind(ps, batch, row, newIds != null ? newIds[k++] : 0);
+                    ps.addBatch();
+                }
+            }
+            try {
+                ps.executeBatch();
+                conn.commit();
+                imported.addAndGet(good);
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+                ps.clearBatch();
+                if (!isRowError(e)) {
+                    throw e;
+                }
+            }
+
+            // The database refused a row the validator let through: find it
+            rowByRowBatches.incrementAndGet();
+            k = 0;
+            for (int row = 0; row < batch.size; row++) {
+                if (batch.rejects[row] != null) {
+                    continue;
+                }
+                bind(ps, batch, row, newIds != null ? newIds[k++] : 0);
+                try {
+                    ps.executeUpdate();
+                    imported.incrementAndGet();
+                } catch (SQLException e) {
+                    if (!isRowError(e)) {
+                        throw e;
+                    }
+                    reject(batch.rowNumbers[row], e.getMessage());
+                }
+            }
+            conn.commit();
+        }
+
+        private void bind(PreparedStatement ps, RowBatch batch, int row, long newId) throws SQLException {
+            int p = 1;
+            if (kind.allocatesId) {
+                ps.setLong(p++, newId);
+            }
+            int base = row * columns.length;
+            for (int c = 0; c < columns.length; c++, p++) {
+                if (!batch.present[base + c]) {
+                    ps.setNull(p, columns[c].numeric ? Types.NUMERIC : Types.VARCHAR);
+                } else if (columns[c].numeric) {
+                    ps.setLong(p, batch.numbers[base + c]);
+                } else {
+                    ps.setString(p, batch.texts[base + c]);
+                }
+            }
+        }
+
+        private void reject(long rowNumber, String reason) {
+            rejected.incrementAndGet();
+            if (reported.getAndIncrement() < MAX_REPORTED_REJECTS) {
+                rejects.add("row " + rowNumber + ": " + reason);
+            }
+        }
+    }
+
+    /**
+     * A bad row rather than a bad database: integrity constraint (SQLSTATE
+     * class 23) or data exception such as a value too long (class 22).
+     */
+    static boolean isRowError(SQLException e) {
+        Throwable t = e;
+        for (int depth = 0; t != null && depth < 8; depth++) {
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && (state.startsWith("23") || state.startsWith("22"))) {
+                    return true;
+                }
+                SQLException next = ((SQLException) t).getNextException();
+                t = next != null ? next : t.getCause();
+            } else {
+                t = t.getCause();
+            }
+        }
+        return false;
+    }
+
+    // ============== CSV on raw bytes ==============
+
+    /**
+     * Splits a byte stream into CSV records without decoding it. The
+     * current record's fields are (start, end) offsets into the buffer,
+     * valid until the next call to next().
+     */
+    static final class CsvReader {
+        static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+        private final ReadableByteChannel channel;
+        private byte[] buf;
+        private int pos;
+        private int limit;
+        private boolean eof;
+        private boolean first = true;
+
+        private int fields;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] quoted = new boolean[16];
+        private boolean[] escaped = new boolean[16];
+        private boolean malformed;
+        private byte[] scratch = new byte[256];
+
+        CsvReader(ReadableByteChannel channel, int chunkBytes) {
+            this.channel = channel;
+            this.buf = new byte[chunkBytes];
+        }
+
+        /**
+         * Advance to the next record; false at the end of the input.
+         */
+        boolean next() throws IOException {
+            while (true) {
+                if (pos >= limit && eof) {
+                    return false;
+                }
+                int end = scan();
+                if (end >= 0) {
+                    pos = end;
+                    return true;
+                }
+                fill();
+            }
+        }
+
+        /**
+         * Parse the record at pos; returns the offset after it, or -1 if
+         * it runs past the buffered bytes and more input may follow.
+         */
+        private int scan() {
+            fields = 0;
+            malformed = false;
+            int p = pos;
+            while (true) {
+                int start;
+                int end;
+                boolean esc = false;
+                boolean q = p < limit && buf[p] == '"';
+                if (q) {
+                    start = ++p;
+                    while (true) {
+                        if (p >= limit) {
+                            return eof ? closeUnterminated(start) : -1;
+                        }
+                        if (buf[p] == '"') {
+                            if (p + 1 >= limit && !eof) {
+                                return -1;
+                            }
+                            if (p + 1 < limit && buf[p + 1] == '"') {
+                                esc = true;
+                                p += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        p++;
+                    }
+                    end = p++;
+                    while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') {
+                        malformed = true;
+                        p++;
+                    }
+                } else {
+                    start = p;
+                    while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') {
+                        p++;
+                    }
+                    end = p;
+                }
+                if (p >= limit && !eof) {
+                    return -1;
+                }
+                addField(start, end, q, esc);
+                if (p >= limit) {
+                    return p;
+                }
+                if (buf[p] == ',') {
+                    p++;
+                    continue;
+                }
+                if (buf[p] == '\r') {
+                    if (p + 1 >= limit && !eof) {
+                        return -1;
+                    }
+                    p++;
+                    if (p < limit && buf[p] == '\n') {
+                        p++;
+                    }
+                    return p;
+                }
+                return p + 1; // '\n'
+            }
+        }
+
+        private int closeUnterminated(int start) {
+            malformed = true;
+            addField(start, limit, true, false);
+            return limit;
+        }
+
+        private void addField(int start, int end, boolean q, boolean esc) {
+            if (fields == starts.length) {
+                starts = Arrays.copyOf(starts, fields * 2);
+                ends = Arrays.copyOf(ends, fields * 2);
+                quoted = Arrays.copyOf(quoted, fields * 2);
+                escaped = Arrays.copyOf(escaped, fields * 2);
+            }
+            starts[fields] = start;
+            ends[fields] = end;
+            quoted[fields] = q;
+            escaped[fields] = esc;
+            fields++;
+        }
+
+        /**
+         * Keep the unfinished record, read the next chunk behind it; a
+         * record longer than the buffer doubles it.
+         */
+        private void fill() throws IOException {
+            int carry = limit - pos;
+            if (carry == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            } else if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, carry);
+            }
+            pos = 0;
+            limit = carry;
+            ByteBuffer bb = ByteBuffer.wrap(buf, limit, buf.length - limit);
+            int n = channel.read(bb);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+            if (first && limit >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB
+                    && (buf[2] & 0xFF) == 0xBF) {
+                pos = 3; // UTF-8 byte order mark
+            }
+            first = false;
+        }
+
+        int fieldCount() {
+            return fields;
+        }
+
+        boolean malformed() {
+            return malformed;
+        }
+
+        boolean isBlank() {
+            return fields == 1 && !quoted[0] && ends[0] == starts[0];
+        }
+
+        /**
+         * Blank or "" (Oracle stores an empty string as NULL anyway).
+         */
+        boolean isEmpty(int f) {
+            return trimmedStart(f) == trimmedEnd(f);
+        }
+
+        int byteLength(int f) {
+            return escaped[f] ? unescape(f) : trimmedEnd(f) - trimmedStart(f);
+        }
+
+        /**
+         * Whole number in the field (surrounding blanks allowed), or
+         * NOT_A_NUMBER.
+         */
+        long number(int f) {
+            int s = trimmedStart(f);
+            int e = trimmedEnd(f);
+            boolean negative = s < e && buf[s] == '-';
+            if (negative) {
+                s++;
+            }
+            if (s == e || e - s > 18) {
+                return NOT_A_NUMBER;
+            }
+            long v = 0;
+            for (int i = s; i < e; i++) {
+                int d = buf[i] - '0';
+                if (d < 0 || d > 9) {
+                    return NOT_A_NUMBER;
+                }
+                v = v * 10 + d;
+            }
+            return negative ? -v : v;
+        }
+
+        String text(int f) {
+            if (escaped[f]) {
+                int n = unescape(f);
+                return new String(scratch, 0, n, StandardCharsets.UTF_8);
+            }
+            int s = trimmedStart(f);
+            return new String(buf, s, trimmedEnd(f) - s, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Copy a quoted field with "" collapsed to " into scratch; returns
+         * its length.
+         */
+        private int unescape(int f) {
+            int len = ends[f] - starts[f];
+            if (scratch.length < len) {
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+            }
+            int n = 0;
+            for (int i = starts[f]; i < ends[f]; i++) {
+                scratch[n++] = buf[i];
+                if (buf[i] == '"') {
+                    i++; // skip the second quote of ""
+                }
+            }
+            return n;
+        }
+
+        // Unquoted fields drop surrounding blanks; quoted ones keep them
+        private int trimmedStart(int f) {
+            int s = starts[f];
+            while (!quoted[f] && s < ends[f] && buf[s] == ' ') {
+                s++;
+            }
+            return s;
+        }
+
+        private int trimmedEnd(int f) {
+            int e = ends[f];
+            while (!quoted[f] && e > starts[f] && buf[e - 1] == ' ') {
+                e--;
+            }
+            return e;
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getFiles()        { return files.get(); }
+    public long getRowsImported() { return rowsImported.get(); }
+    public long getRowsRejected() { return rowsRejected.get(); }
+
+    public String stats() {
+        return "csvImport: files=" + files.get() + " imported=" + rowsImported.get()
+                + " rejected=" + rowsRejected.get();
+    }
+}
@@ -0,0 +1,550 @@
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Synthetic large-scale dataset generator
+ *
+ * Produces production-sized data for the E-Ticket schema (millions of
+ * Users / Orders / Tickets and a full SeatMap per Showtime) from a seed.
+ *
+ * Every row is a pure function of (seed, table, id): nothing is kept in
+ * memory and any ID range can be generated independently. That makes the
+ * output deterministic regardless of how many threads load it, and lets
+ * each table be split into chunks that stream through BulkLoader on
+ * separate pooled connections.
+ *
+ * All constraints from createTables() hold by construction:
+ *  - Users.Email is "user<id>@example.com" (UNIQUE)
+ *  - uq_venue_section_row_seat: each seat offset within a venue maps to a
+ *    distinct (Section, RowLabel, SeatNumber)
+ *  - uq_showtimes_event_venue_start: showtimes of one event are on
+ *    different days
+ *  - uq_seatmaps_showtime_seat: one SeatMaps row per (showtime, seat slot)
+ *  - uq_tickets_showtime_seat: ticket t takes slot (t * stride) mod N with
+ *    stride coprime to N, a bijection, so no slot is sold twice; SeatMaps
+ *    rows for those slots are SOLD
+ *  - uq_tickets_qrcode: QRCode embeds the TicketID
+ *  - all FKs point at IDs in the 1..count range of the parent table
+ *
+ * Tables are loaded in FK levels (parents before children); tables in the
+ * same level, and chunks of one table, load in parallel.
+ */
+public class DataGenerator {
+
+    /**
+     * Dataset size. The defaults give ~1M users, 10k showtimes,
+     * 20M SeatMaps rows and 4M tickets.
+     */
+    public static class Config {
+        public long seed = 42L;
+        public int users = 1_000_000;
+        public int organizers = 1_000;
+        public int venues = 50;
+        public int sectionsPerVenue = 10;
+        public int rowsPerSection = 20;
+        public int seatsPerRow = 10;
+        public int events = 2_000;
+        public int showtimesPerEvent = 5;
+        public int tickets = 4_000_000;
+        public int ticketsPerOrder = 4;
+        public double heldFraction = 0.02;
+
+        /**
+         * Same shape with every count multiplied by factor (seats per
+         * venue are left unchanged).
+         */
+        public static Config scaled(double factor) {
+            Config c = new Config();
+            c.users = Math.max(1, (int) (c.users * factor));
+            c.organizers = Math.max(1, (int) (c.organizers * factor));
+            c.venues = Math.max(1, (int) (c.venues * factor));
+            c.events = Math.max(1, (int) (c.events * factor));
+            c.tickets = Math.max(0, (int) (c.tickets * factor));
+            return c;
+        }
+
+        int seatsPerVenue()   { return sectionsPerVenue * rowsPerSection * seatsPerRow; }
+        int seats()           { return venues * seatsPerVenue(); }
+        int showtimes()       { return events * showtimesPerEvent; }
+        long seatMaps()       { return (long) showtimes() * seatsPerVenue(); }
+        int orders()          { return (tickets + ticketsPerOrder - 1) / ticketsPerOrder; }
+    }
+
+    private static final String[] CATEGORIES = {
+            "Concert", "Movie", "Theatre", "Sports", "Comedy", "Festival", "Conference", "Family"
+    };
+    private static final String[] TITLE_WORDS_1 = {
+            "Live", "Grand", "Summer", "Midnight", "Electric", "Classic", "Royal", "Urban",
+            "Golden", "Silent", "Neon", "Winter", "Wild", "Lost", "Rising", "Final"
+    };
+    private static final String[] TITLE_WORDS_2 = {
+            "Symphony", "Showdown", "Tour", "Night", "Premiere", "Festival", "Derby", "Gala",
+            "Odyssey", "Revue", "Jam", "Classic", "Encore", "Spectacular", "Sessions", "Cup"
+    };
+    private static final String[] CITIES = {
+            "Toronto", "Montreal", "Vancouver", "Calgary", "Ottawa", "Edmonton", "Winnipeg", "Halifax"
+    };
+    private static final String[] FIRST_NAMES = {
+            "Ahmad", "John", "Sarah", "Maria", "Wei", "Priya", "Omar", "Emma", "Lucas", "Aisha"
+    };
+    private static final String[] LAST_NAMES = {
+            "Kanaan", "Doe", "Ali", "Smith", "Chen", "Patel", "Nguyen", "Garcia", "Brown", "Khan"
+    };
+    private static final String[] METHODS = { "CARD", "PAYPAL", "GIFT_CARD" };
+
+    // Salts so that each table draws from an independent pseudo-random stream
+    private static final long SALT_USER = 1, SALT_EVENT = 2, SALT_SHOWTIME = 3, SALT_SEATMAP = 4,
+            SALT_ORDER = 5, SALT_PAYMENT = 6, SALT_ORG = 7, SALT_VENUE = 8;
+
+    private static final long BASE_TIME = Timestamp.valueOf("2026-01-01 00:00:00").getTime();
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final Config cfg;
+    private final int seatsPerVenue;
+    private final long seatMapCount;
+    private final long stride;
+    private final long strideInverse;
+
+    public DataGenerator(Config cfg) {
+        if (cfg.seatMaps() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many SeatMaps rows: " + cfg.seatMaps());
+        }
+        if (cfg.tickets > cfg.seatMaps()) {
+            throw new IllegalArgumentException("tickets (" + cfg.tickets
+                    + ") exceeds available seat slots (" + cfg.seatMaps() + ")");
+        }
+        this.cfg = cfg;
+        this.seatsPerVenue = cfg.seatsPerVenue();
+        this.seatMapCount = cfg.seatMaps();
+
+        // Pick a stride coprime with N so that slot(t) = t*stride mod N is a bijection
+        long n = Math.max(1, seatMapCount);
+        long s = (long) (n * 0.6180339887) | 1L;
+        while (n > 1 && BigInteger.valueOf(s).gcd(BigInteger.valueOf(n)).longValue() != 1) {
+            s += 2;
+        }
+        this.stride = s % n;
+        this.strideInverse = n > 1
+                ? BigInteger.valueOf(stride).modInverse(BigInteger.valueOf(n)).longValue()
+                : 0L;
+    }
+
+    // ============== Deterministic randomness ==============
+
+    /**
+     * SplitMix64 finaliser over (seed, salt, id): a stateless, well-mixed
+     * 64-bit hash, so rows can be generated in any order on any thread.
+     */
+    private long hash(long salt, long id) {
+        long z = cfg.seed + salt * 0x9E3779B97F4A7C15L + id * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private int pick(long salt, long id, int bound) {
+        return (int) Math.floorMod(hash(salt, id), (long) bound);
+    }
+
+    private static <T> T pick(T[] values, long h) {
+        return values[(int) Math.floorMod(h, (long) values.length)];
+    }
+
+    // ============== Derived relationships ==============
+
+    int venueOfShowtime(int showtimeId) {
+        return pick(SALT_SHOWTIME, showtimeId, cfg.venues) + 1;
+    }
+
+    int eventOfShowtime(int showtimeId) {
+        return (showtimeId - 1) / cfg.showtimesPerEvent + 1;
+    }
+
+    long basePriceCents(int showtimeId) {
+        return 2_000 + pick(SALT_SHOWTIME, showtimeId * 31L + 7, 20_000);
+    }
+
+    /** SeatMaps slot (0-based) sold by ticket t (0-based). */
+    long slotOfTicket(long t) {
+        return (t * stride) % seatMapCount;
+    }
+
+    /** Ticket (0-based) that sold a slot, or -1 if the slot is unsold. */
+    long ticketOfSlot(long slot) {
+        long t = seatMapCount > 1 ? (slot * strideInverse) % seatMapCount : 0;
+        return t < cfg.tickets ? t : -1;
+    }
+
+    int showtimeOfSlot(long slot) {
+        return (int) (slot / seatsPerVenue) + 1;
+    }
+
+    int seatOfSlot(long slot) {
+        int showtimeId = showtimeOfSlot(slot);
+        int offset = (int) (slot % seatsPerVenue);
+        return (venueOfShowtime(showtimeId) - 1) * seatsPerVenue + offset + 1;
+    }
+
+    int orderOfTicket(long ticketId) {
+        return (int) ((ticketId - 1) / cfg.ticketsPerOrder) + 1;
+    }
+
+    long orderTotalCents(int orderId) {
+        long first = (long) (orderId - 1) * cfg.ticketsPerOrder;
+        long last = Math.min(first + cfg.ticketsPerOrder, cfg.tickets);
+        long total = 0;
+        for (long t = first; t < last; t++) {
+            total += basePriceCents(showtimeOfSlot(slotOfTicket(t)));
+        }
+        return total;
+    }
+
+    // ============== Row binders (one per table) ==============
+
+    static final String INSERT_USER =
+            "INSERT INTO Users (UserID, FirstName, LastName, Email, Phone) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_ORGANIZER =
+            "INSERT INTO Organizers (OrganizerID, Name, ContactEmail, ContactPhone) VALUES (?, ?, ?, ?)";
+    static final String INSERT_VENUE =
+            "INSERT INTO Venues (VenueID, Name, Address, City, Capacity) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_EVENT =
+            "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_SHOWTIME =
+            "INSERT INTO Showtimes (ShowtimeID, EventID, VenueID, StartDateTime, BasePrice) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_SEAT =
+            "INSERT INTO Seats (SeatID, VenueID, Section, RowLabel, SeatNumber) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_ORDER =
+            "INSERT INTO Orders (OrderID, UserID, OrderDateTime, OrderTotal, Status) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_PAYMENT =
+            "INSERT INTO Payments (PaymentID, OrderID, Amount, Method, PaidAt, AuthCode) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String INSERT_SEATMAP =
+            "INSERT INTO SeatMaps (SeatMapID, ShowtimeID, SeatID, Status) VALUES (?, ?, ?, ?)";
+    static final String INSERT_TICKET =
+            "INSERT INTO Tickets (TicketID, OrderID, ShowtimeID, SeatID, TicketPrice, QRCode, IsValidated) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    void bindUser(PreparedStatement ps, long id) throws SQLException {
+        long h = hash(SALT_USER, id);
+        ps.setLong(1, id);
+        ps.setString(2, pick(FIRST_NAMES, h));
+        ps.setString(3, pick(LAST_NAMES, h >>> 16));
+        ps.setString(4, "user" + id + "@example.com");
+        ps.setString(5, String.format("416%07d", Math.floorMod(h >>> 32, 10_000_000L)));
+    }
+
+    void bindOrganizer(PreparedStatement ps, long id) throws SQLException {
+        ps.setLong(1, id);
+        ps.setString(2, "Organizer " + id);
+        ps.setString(3, "contact" + id + "@organizer.example.com");
+        ps.setString(4, String.format("416555%04d", Math.floorMod(hash(SALT_ORG, id), 10_000L)));
+    }
+
+    void bindVenue(PreparedStatement ps, long id) throws SQLException {
+        long h = hash(SALT_VENUE, id);
+        ps.setLong(1, id);
+        ps.setString(2, "Venue " + id);
+        ps.setString(3, (1 + Math.floorMod(h, 999L)) + " Main St");
+        ps.setString(4, pick(CITIES, h >>> 20));
+        ps.setInt(5, seatsPerVenue);
+    }
+
+    void bindEvent(PreparedStatement ps, long id) throws SQLException {
+        long h = hash(SALT_EVENT, id);
+        String category = pick(CATEGORIES, h);
+        String title = pick(TITLE_WORDS_1, h >>> 8) + " " + pick(TITLE_WORDS_2, h >>> 16) + " " + id;
+        ps.setLong(1, id);
+        ps.setInt(2, (int) Math.floorMod(h >>> 24, (long) cfg.organizers) + 1);
+        ps.setString(3, title);
+        ps.setString(4, category);
+        ps.setString(5, category + " event: " + title + ".");
+    }
+
+    void bindShowtime(PreparedStatement ps, long id) throws SQLException {
+        int showtimeId = (int) id;
+        int k = (showtimeId - 1) % cfg.showtimesPerEvent;
+        int eventId = eventOfShowtime(showtimeId);
+        // One day apart per showtime of the same event => unique (EventID, VenueID, Start)
+        long start = BASE_TIME
+                + (Math.floorMod(hash(SALT_EVENT, eventId) >>> 32, 300L) + k) * DAY_MS
+                + (18 + pick(SALT_SHOWTIME, id * 17 + 3, 4)) * 3_600_000L;
+        ps.setLong(1, id);
+        ps.setInt(2, eventId);
+        ps.setInt(3, venueOfShowtime(showtimeId));
+        ps.setTimestamp(4, new Timestamp(start));
+        ps.setDouble(5, basePriceCents(showtimeId) / 100.0);
+    }
+
+    void bindSeat(PreparedStatement ps, long id) throws SQLException {
+        int offset = (int) ((id - 1) % seatsPerVenue);
+        int perSection = cfg.rowsPerSection * cfg.seatsPerRow;
+        int section = offset / perSection;
+        int row = (offset % perSection) / cfg.seatsPerRow;
+        int seat = offset % cfg.seatsPerRow;
+        ps.setLong(1, id);
+        ps.setInt(2, (int) ((id - 1) / seatsPerVenue) + 1);
+        ps.setString(3, "S" + (section + 1));
+        ps.setString(4, rowLabel(row));
+        ps.setString(5, Integer.toString(seat + 1));
+    }
+
+    void bindOrder(PreparedStatement ps, long id) throws SQLException {
+        long h = hash(SALT_ORDER, id);
+        ps.setLong(1, id);
+        ps.setInt(2, (int) Math.floorMod(h, (long) cfg.users) + 1);
+        ps.setTimestamp(3, new Timestamp(BASE_TIME - Math.floorMod(h >>> 20, 180L * DAY_MS)));
+        ps.setDouble(4, orderTotalCents((int) id) / 100.0);
+        ps.setString(5, "PAID");
+    }
+
+    void bindPayment(PreparedStatement ps, long id) throws SQLException {
+        long h = hash(SALT_PAYMENT, id);
+        ps.setLong(1, id);
+        ps.setLong(2, id);
+        ps.setDouble(3, orderTotalCents((int) id) / 100.0);
+        ps.setString(4, pick(METHODS, h));
+        ps.setTimestamp(5, new Timestamp(BASE_TIME - Math.floorMod(hash(SALT_ORDER, id) >>> 20, 180L * DAY_MS)));
+        ps.setString(6, String.format("AUTH%012X", h >>> 16));
+    }
+
+    void bindSeatMap(PreparedStatement ps, long id) throws SQLException {
+        long slot = id - 1;
+        String status;
+        if (ticketOfSlot(slot) >= 0) {
+            status = "SOLD";
+        } else if (Math.floorMod(hash(SALT_SEATMAP, id), 10_000L) < cfg.heldFraction * 10_000) {
+            status = "HELD";
+        } else {
+            status = "AVAILABLE";
+        }
+        ps.setLong(1, id);
+        ps.setInt(2, showtimeOfSlot(slot));
+        ps.setInt(3, seatOfSlot(slot));
+        ps.setString(4, status);
+    }
+
+    void bindTicket(PreparedStatement ps, long id) throws SQLException {
+        long slot = slotOfTicket(id - 1);
+        int showtimeId = showtimeOfSlot(slot);
+        ps.setLong(1, id);
+        ps.setInt(2, orderOfTicket(id));
+        ps.setInt(3, showtimeId);
+        ps.setInt(4, seatOfSlot(slot));
+        ps.setDouble(5, basePriceCents(showtimeId) / 100.0);
+        ps.setString(6, String.format("QR-%08X-%d", hash(SALT_SEATMAP, slot) >>> 32, id));
+        ps.setString(7, "N");
+    }
+
+    /** 0 -> A, 25 -> Z, 26 -> AA, ... */
+    private static String rowLabel(int row) {
+        StringBuilder sb = new StringBuilder();
+        int r = row;
+        do {
+            sb.insert(0, (char) ('A' + r % 26));
+            r = r / 26 - 1;
+        } while (r >= 0);
+        return sb.toString();
+    }
+
+    // ============== Streaming ==============
+
+    /**
+     * Iterator over IDs from..to (inclusive). Each row is computed from
+     * its ID when bound, so only the ID is ever held.
+     */
+    static final class IdRange implements Iterator<Long> {
+        private long next;
+        private final long last;
+
+        IdRange(long first, long last) {
+            this.next = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next <= last;
+        }
+
+        @Override
+        public Long next() {
+            if (next > last) {
+                throw new NoSuchElementException();
+            }
+            return next++;
+        }
+    }
+
+    /**
+     * One generated table: name, INSERT, row count and binder.
+     */
+    private static final class TableSpec {
+        final String table;
+        final String sql;
+        final long rows;
+        final BulkLoader.RowBinder<Long> binder;
+
+        TableSpec(String table, String sql, long rows, BulkLoader.RowBinder<Long> binder) {
+            this.table = table;
+            this.sql = sql;
+            this.rows = rows;
+            this.binder = binder;
+        }
+    }
+
+    /**
+     * FK levels: each level only references tables from earlier levels.
+     */
+    private List<List<TableSpec>> levels() {
+        List<List<TableSpec>> levels = new ArrayList<>();
+        List<TableSpec> l0 = new ArrayList<>();
+        l0.add(new TableSpec("Users", INSERT_USER, cfg.users, this::bindUser));
+        l0.add(new TableSpec("Organizers", INSERT_ORGANIZER, cfg.organizers, this::bindOrganizer));
+        l0.add(new TableSpec("Venues", INSERT_VENUE, cfg.venues, this::bindVenue));
+        List<TableSpec> l1 = new ArrayList<>();
+        l1.add(new TableSpec("Events", INSERT_EVENT, cfg.events, this::bindEvent));
+        l1.add(new TableSpec("Seats", INSERT_SEAT, cfg.seats(), this::bindSeat));
+        l1.add(new TableSpec("Orders", INSERT_ORDER, cfg.orders(), this::bindOrder));
+        List<TableSpec> l2 = new ArrayList<>();
+        l2.add(new TableSpec("Showtimes", INSERT_SHOWTIME, cfg.showtimes(), this::bindShowtime));
+        l2.add(new TableSpec("Payments", INSERT_PAYMENT, cfg.orders(), this::bindPayment));
+        List<TableSpec> l3 = new ArrayList<>();
+        l3.add(new TableSpec("SeatMaps", INSERT_SEATMAP, seatMapCount, this::bindSeatMap));
+        l3.add(new TableSpec("Tickets", INSERT_TICKET, cfg.tickets, this::bindTicket));
+        levels.add(l0);
+        levels.add(l1);
+        levels.add(l2);
+        levels.add(l3);
+        return levels;
+    }
+
+    /**
+     * Load the whole dataset into an empty schema.
+     *
+     * @param threads   parallel loader threads (each uses its own connection)
+     * @param chunkRows rows per chunk; each chunk is one transaction
+     * @param batchSize JDBC batch size inside a chunk
+     * @param progress  receives one line per finished table
+     * @return total rows inserted
+     */
+    public long load(ConnectionPool pool, int threads, int chunkRows, int batchSize,
+                     Consumer<String> progress) throws SQLException {
+        ExecutorService exec = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "eticket-datagen");
+            t.setDaemon(true);
+            return t;
+        });
+        long total = 0;
+        try {
+            for (List<TableSpec> level : levels()) {
+                long levelStart = System.nanoTime();
+                List<Future<Long>> futures = new ArrayList<>();
+                List<AtomicLong> rowsPerTable = new ArrayList<>();
+                for (TableSpec spec : level) {
+                    AtomicLong loaded = new AtomicLong();
+                    rowsPerTable.add(loaded);
+                    for (long first = 1; first <= spec.rows; first += chunkRows) {
+                        long last = Math.min(spec.rows, first + chunkRows - 1);
+                        long from = first;
+                        futures.add(exec.submit(() -> {
+                            long n = loadChunk(pool, spec, from, last, batchSize);
+                            loaded.addAndGet(n);
+                            return n;
+                        }));
+                    }
+                }
+                for (Future<Long> f : futures) {
+                    total += await(f);
+                }
+                double secs = (System.nanoTime() - levelStart) / 1e9;
+                for (int i = 0; i < level.size(); i++) {
+                    long rows = rowsPerTable.get(i).get();
+                    progress.accept(String.format("  %-10s %,12d rows  %8.1f s  %,12.0f rows/s (level)",
+                            level.get(i).table, rows, secs, secs == 0 ? 0.0 : rows / secs));
+                }
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+        return total;
+    }
+
+    private long loadChunk(ConnectionPool pool, TableSpec spec, long first, long last,
+                           int batchSize) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            BulkLoader loader = new BulkLoader(conn, batchSize, 0);
+            loader.begin();
+            try {
+                loader.load(spec.table, spec.sql, new IdRange(first, last), spec.binder);
+                loader.commit();
+            } catch (SQLException | RuntimeException e) {
+                loader.rollback();
+                throw e;
+            }
+            return last - first + 1;
+        }
+    }
+
+    private static long await(Future<Long> f) throws SQLException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while generating data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException("Data generation failed: " + cause, cause);
+        }
+    }
+
+    // ============== Command line ==============
+
+    /**
+     * Usage: java DataGenerator &lt;jdbcUrl&gt; &lt;user&gt; &lt;pass&gt; [scale] [threads] [seed]
+     * Expects empty tables (run Drop + Create Tables first).
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: java DataGenerator <jdbcUrl> <user> <pass> [scale] [threads] [seed]");
+            return;
+        }
+        double scale = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        Config cfg = Config.scaled(scale);
+        if (args.length > 5) {
+            cfg.seed = Long.parseLong(args[5]);
+        }
+
+        System.out.println("=== Generating dataset (scale " + scale + ", seed " + cfg.seed
+                + ", " + threads + " threads) ===");
+        DataGenerator gen = new DataGenerator(cfg);
+        long start = System.nanoTime();
+        try (ConnectionPool pool = new ConnectionPool(
+                () -> DriverManager.getConnection(args[0], args[1], args[2]),
+                1, threads, 60_000L, 60_000L, 10 * 60_000L)) {
+            long rows = gen.load(pool, threads, 50_000, BulkLoader.DEFAULT_BATCH_SIZE, System.out::println);
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Inserted %,d rows in %.1f s (%,.0f rows/s)%n", rows, secs, rows / secs);
+            try (Connection conn = pool.getConnection()) {
+                // Bulk inserts bypass the summary deltas
+                System.out.println("Rebuilt " + new SummaryRepository(pool).rebuild(conn) + " summary row(s)");
+            }
+        }
+    }
+}
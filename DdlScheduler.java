@@ -0,0 +1,394 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CPS510 A9 – Dependency-aware DDL scheduler
+ *
+ * Runs a list of DDL statements in waves instead of one after another.
+ * The order comes from the FK constraints in the CREATE TABLE statements
+ * themselves, so no table order is written down anywhere:
+ *
+ *  - create: a table waits for the tables it REFERENCES, e.g.
+ *    Users / Organizers / Venues, then Events / Seats / Orders, then
+ *    Showtimes / Payments, then SeatMaps / Tickets
+ *  - drop: a table waits for the tables that reference it (the same
+ *    graph reversed)
+ *  - any other statement (ALTER, CREATE INDEX, ...) is a barrier: it
+ *    waits for everything before it, and everything after waits for it
+ *
+ * The statements of one wave run in parallel, each on its own pooled
+ * connection; the next wave starts when the whole wave is done. With a
+ * parallelism of 1, or no spare connection in the pool, every wave runs
+ * on the caller's connection instead. Each statement is timed, and the
+ * timings are printed wave by wave from the calling thread, so the
+ * output consumer need not be thread-safe.
+ */
+public class DdlScheduler {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * One statement and the names of the steps it must wait for.
+     */
+    public static final class Step {
+        public final String name;
+        public final String sql;
+        public final Set<String> after;
+
+        Step(String name, String sql, Set<String> after) {
+            this.name = name;
+            this.sql = sql;
+            this.after = Collections.unmodifiableSet(after);
+        }
+
+        @Override
+        public String toString() {
+            return name + (after.isEmpty() ? "" : " after " + after);
+        }
+    }
+
+    /**
+     * How one statement went.
+     */
+    public static final class Timing {
+        public final Step step;
+        public final int wave;
+        public final long micros;
+        public final SQLException error;
+        public final boolean tolerated;
+
+        Timing(Step step, int wave, long micros, SQLException error, boolean tolerated) {
+            this.step = step;
+            this.wave = wave;
+            this.micros = micros;
+            this.error = error;
+            this.tolerated = tolerated;
+        }
+
+        public boolean failed() {
+            return error != null && !tolerated;
+        }
+
+        @Override
+        public String toString() {
+            String head = error == null ? "OK: " : tolerated ? "Skip: " : "Error: ";
+            return head + shortSql(step.sql) + String.format(" (%.1f ms)", micros / 1000.0)
+                    + (error != null ? " (" + error.getMessage() + ")" : "");
+        }
+    }
+
+    /**
+     * Outcome of one run(): timings by wave, in plan order within a wave.
+     */
+    public static final class Report {
+        public final List<List<Timing>> waves;
+        public final long elapsedMs;
+        public final int parallelism;
+
+        Report(List<List<Timing>> waves, long elapsedMs, int parallelism) {
+            this.waves = Collections.unmodifiableList(waves);
+            this.elapsedMs = elapsedMs;
+            this.parallelism = parallelism;
+        }
+
+        public SQLException firstError() {
+            for (List<Timing> wave : waves) {
+                for (Timing t : wave) {
+                    if (t.failed()) {
+                        return t.error;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Sum of the statement times: what running them one by one costs.
+         */
+        public long serialMs() {
+            long micros = 0;
+            for (List<Timing> wave : waves) {
+                for (Timing t : wave) {
+                    micros += t.micros;
+                }
+            }
+            return micros / 1000L;
+        }
+
+        @Override
+        public String toString() {
+            int steps = 0;
+            for (List<Timing> wave : waves) {
+                steps += wave.size();
+            }
+            return steps + " statement(s) in " + waves.size() + " wave(s), " + elapsedMs
+                    + " ms (" + serialMs() + " ms of statement time, parallelism " + parallelism + ")";
+        }
+    }
+
+    private static final Pattern CREATE_TABLE =
+            Pattern.compile("\\s*CREATE\\s+TABLE\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern REFERENCES =
+            Pattern.compile("\\bREFERENCES\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final ConnectionPool pool;
+    private volatile int parallelism;
+    private volatile Consumer<Statement> tracker = stmt -> { };
+
+    public DdlScheduler(ConnectionPool pool) {
+        this(pool, DEFAULT_PARALLELISM);
+    }
+
+    public DdlScheduler(ConnectionPool pool, int parallelism) {
+        this.pool = pool;
+        setParallelism(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Most statements run at once (1: everything on the caller's
+     * connection, one by one).
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * See every statement before it executes (e.g. to cancel it).
+     */
+    public void setStatementTracker(Consumer<Statement> tracker) {
+        this.tracker = tracker != null ? tracker : stmt -> { };
+    }
+
+    // ============== Plans ==============
+
+    /**
+     * Steps for running statements in order: CREATE TABLEs wait only for
+     * the tables they reference (among these statements); anything else
+     * is a barrier.
+     */
+    public static List<Step> createPlan(List<String> statements) {
+        List<Step> steps = new ArrayList<>();
+        Set<String> tables = new HashSet<>();
+        String barrier = null;
+        for (String sql : statements) {
+            Matcher create = CREATE_TABLE.matcher(sql);
+            Set<String> after = new LinkedHashSet<>();
+            String name;
+            if (create.lookingAt()) {
+                name = create.group(1).toUpperCase(Locale.ROOT);
+                if (barrier != null) {
+                    after.add(barrier);
+                }
+                for (String parent : references(sql)) {
+                    if (tables.contains(parent) && !parent.equals(name)) {
+                        after.add(parent);
+                    }
+                }
+                tables.add(name);
+            } else {
+                name = "#" + (steps.size() + 1);
+                for (Step s : steps) {
+                    after.add(s.name);
+                }
+                barrier = name;
+            }
+            steps.add(new Step(name, sql, after));
+        }
+        return steps;
+    }
+
+    /**
+     * Steps dropping every table the CREATE TABLE statements create,
+     * children before parents. Other statements are ignored.
+     */
+    public static List<Step> dropPlan(List<String> createStatements) {
+        Map<String, Set<String>> children = new LinkedHashMap<>();
+        for (String sql : createStatements) {
+            Matcher create = CREATE_TABLE.matcher(sql);
+            if (create.lookingAt()) {
+                children.putIfAbsent(create.group(1).toUpperCase(Locale.ROOT), new LinkedHashSet<>());
+            }
+        }
+        for (String sql : createStatements) {
+            Matcher create = CREATE_TABLE.matcher(sql);
+            if (!create.lookingAt()) {
+                continue;
+            }
+            String child = create.group(1).toUpperCase(Locale.ROOT);
+            for (String parent : references(sql)) {
+                Set<String> c = children.get(parent);
+                if (c != null && !parent.equals(child)) {
+                    c.add(child);
+                }
+            }
+        }
+        List<Step> steps = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> e : children.entrySet()) {
+            steps.add(new Step(e.getKey(), "DROP TABLE " + e.getKey() + " CASCADE CONSTRAINTS", e.getValue()));
+        }
+        return steps;
+    }
+
+    /**
+     * Group steps into waves: each wave only waits for earlier waves.
+     * Steps keep their plan order within a wave.
+     */
+    public static List<List<Step>> waves(List<Step> steps) {
+        Set<String> pending = new HashSet<>();
+        for (Step s : steps) {
+            pending.add(s.name);
+        }
+        List<Step> remaining = new ArrayList<>(steps);
+        List<List<Step>> waves = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<Step> wave = new ArrayList<>();
+            for (Step s : remaining) {
+                // Names that are not steps here (e.g. tables that already exist) do not block
+                if (Collections.disjoint(s.after, pending)) {
+                    wave.add(s);
+                }
+            }
+            if (wave.isEmpty()) {
+                throw new IllegalArgumentException("Cyclic DDL dependencies among " + remaining);
+            }
+            for (Step s : wave) {
+                pending.remove(s.name);
+            }
+            remaining.removeAll(wave);
+            waves.add(wave);
+        }
+        return waves;
+    }
+
+    // ============== Run ==============
+
+    /**
+     * Run the steps wave by wave. An error that tolerated accepts is
+     * reported as "Skip" and does not stop anything; any other error lets
+     * its wave finish and then stops before the next one (see
+     * Report.firstError()).
+     */
+    public Report run(Connection conn, List<Step> steps, Predicate<SQLException> tolerated,
+                      Consumer<String> out) {
+        long start = System.nanoTime();
+        List<List<Step>> plan = waves(steps);
+        int threads = Math.min(parallelism, pool.getMaxSize() - pool.getActiveCount());
+        int widest = 0;
+        for (List<Step> wave : plan) {
+            widest = Math.max(widest, wave.size());
+        }
+        threads = Math.max(1, Math.min(threads, widest));
+
+        ExecutorService exec = threads > 1 ? Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "eticket-ddl");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        List<List<Timing>> done = new ArrayList<>();
+        try {
+            for (List<Step> wave : plan) {
+                int w = done.size() + 1;
+                long waveStart = System.nanoTime();
+                List<Timing> timings = new ArrayList<>();
+                if (exec == null || wave.size() == 1) {
+                    for (Step s : wave) {
+                        timings.add(execute(conn, s, w, tolerated));
+                    }
+                } else {
+                    List<Future<Timing>> futures = new ArrayList<>();
+                    for (Step s : wave) {
+                        futures.add(exec.submit(() -> {
+                            try (Connection own = pool.getConnection()) {
+                                return execute(own, s, w, tolerated);
+                            } catch (SQLException e) {
+                                // Could not borrow a connection
+                                return new Timing(s, w, 0, e, false);
+                            }
+                        }));
+                    }
+                    for (Future<Timing> f : futures) {
+                        timings.add(await(f));
+                    }
+                }
+                done.add(timings);
+                for (Timing t : timings) {
+                    out.accept(t.toString());
+                }
+                out.accept(String.format("  wave %d: %d statement(s) in %d ms", w, wave.size(),
+                        (System.nanoTime() - waveStart) / 1_000_000L));
+                if (timings.stream().anyMatch(Timing::failed)) {
+                    break;
+                }
+            }
+        } finally {
+            if (exec != null) {
+                exec.shutdownNow();
+            }
+        }
+        return new Report(done, (System.nanoTime() - start) / 1_000_000L, threads);
+    }
+
+    private Timing execute(Connection conn, Step step, int wave, Predicate<SQLException> tolerated) {
+        long t0 = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            tracker.accept(stmt);
+            stmt.executeUpdate(step.sql);
+            return new Timing(step, wave, (System.nanoTime() - t0) / 1000L, null, false);
+        } catch (SQLException e) {
+            return new Timing(step, wave, (System.nanoTime() - t0) / 1000L, e, tolerated.test(e));
+        }
+    }
+
+    // ============== Helpers ==============
+
+    private static Set<String> references(String sql) {
+        Set<String> parents = new LinkedHashSet<>();
+        Matcher m = REFERENCES.matcher(sql);
+        while (m.find()) {
+            parents.add(m.group(1).toUpperCase(Locale.ROOT));
+        }
+        return parents;
+    }
+
+    private static Timing await(Future<Timing> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running DDL", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("DDL step failed", e.getCause());
+        }
+    }
+
+    static String shortSql(String sql) {
+        String s = sql.replaceAll("\\s+", " ").trim();
+        int paren = s.indexOf(" (");
+        return paren > 0 && CREATE_TABLE.matcher(s).lookingAt() ? s.substring(0, paren) : s;
+    }
+}
@@ -0,0 +1,1492 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * CPS510 A9 – Benchmark harness for the E-Ticket data-access paths
+ *
+ * A quick smoke test: one command times every path and runs the
+ * correctness checks below. For measurements to compare across changes
+ * use the JMH module in jmh/ (EventBenchmarks, PopulateBenchmarks).
+ *
+ * Measures the operations the console and GUI apps actually perform:
+ *  - listEvents            (full ordered scan of EVENTS)
+ *  - listEventsPaged       (one keyset page of EVENTS at a random depth)
+ *  - searchEventsByTitle   (LOWER(Title) LIKE '%kw%')
+ *  - searchIndex           (same keywords through EventSearchIndex)
+ *  - catalogCache          (skewed event lookups / first page through
+ *                           CatalogCache; prints hit/miss/eviction stats)
+ *  - addEvent / updateEventTitle / deleteEvent
+ *  - populateTables        (schema reset + generated load via BulkLoader)
+ *  - seatContention        (stress: many buyers hold/sell seats of one
+ *                           showtime; fails if any seat is sold twice)
+ *  - checkout              (stress: buyers hold + check out seats through
+ *                           CheckoutService with the stub gateway; fails
+ *                           if tickets and sold seats do not match)
+ *  - gateScan              (QR validation through TicketValidationService,
+ *                           first with the database idle, then while
+ *                           another transaction locks the same Tickets
+ *                           rows; fails if any ticket validates twice or
+ *                           the write-back loses a validation)
+ *  - gateOffline           (gate scanning with the database unreachable:
+ *                           snapshot preload, WAL, restart, replay once
+ *                           the database is back; also times WAL recovery
+ *                           of 100k scans and the roll-over after them)
+ *  - reports               (ReportRepository sales reports, sequential vs
+ *                           parallel partitions; fails if per-event,
+ *                           per-venue and per-method totals disagree with
+ *                           TICKETS)
+ *  - summaries             (holds, releases, expiries and checkouts with
+ *                           SummaryRepository counters maintained; fails
+ *                           if reconciliation finds any difference, then
+ *                           compares summary reads with GROUP BY queries
+ *                           and checks that a corrupted counter is found
+ *                           and repaired)
+ *  - schemaTuning          (hot lookups - orders of a user, payments and
+ *                           tickets of an order, seats left, revenue of a
+ *                           showtime, sales of a week, title prefix, FK
+ *                           checks - without and then with the
+ *                           SchemaTuning indexes, printing the plan lines
+ *                           of each)
+ *  - csvImport             (CsvImporter: venues, then 200k seats with
+ *                           quoted fields, CRLF and one bad row of each
+ *                           kind, with 1 and 4 writers, then events;
+ *                           fails unless the imported / rejected counts
+ *                           are exact; deletes what it imported)
+ *  - migrations            (SchemaMigrator on the loaded schema: an
+ *                           up-to-date check, one pending version, a
+ *                           version that failed halfway, an edited
+ *                           script; fails if any of these goes wrong or
+ *                           the data changes)
+ *  - schemaReset           (Drop + Create Tables, one statement at a time
+ *                           vs the DdlScheduler's parallel waves, with
+ *                           per-statement timings; runs last and leaves
+ *                           the schema empty)
+ *
+ * Each benchmark runs warm-up iterations first, then records the latency
+ * of every measured call and reports throughput (ops/s) plus p50 / p90 /
+ * p99 / p99.9 / max latency.
+ *
+ * It talks plain JDBC, so it runs offline against an embedded in-process
+ * database (e.g. H2 in Oracle mode) or against the TMU Oracle server:
+ *
+ *   java -cp ".:h2.jar" ETicketBench "jdbc:h2:mem:eticket;MODE=Oracle;DB_CLOSE_DELAY=-1" sa ""
+ *   java -cp ".:ojdbc8.jar" ETicketBench jdbc:oracle:thin:@host:1521:orcl user pass
+ *
+ * Optional 4th/5th arguments: measured iterations (default 2000) and
+ * dataset scale for DataGenerator (default 0.01). A 6th argument limits
+ * the run to benchmarks whose name contains it.
+ */
+public class ETicketBench {
+
+    /**
+     * One measured operation; i is the iteration number (warm-up included).
+     */
+    interface Op {
+        void run(Connection conn, int i) throws SQLException;
+    }
+
+    /**
+     * Latency samples for one benchmark.
+     */
+    static class Result {
+        final String name;
+        final long[] nanos;
+        final double wallSeconds;
+
+        Result(String name, long[] nanos, double wallSeconds) {
+            this.name = name;
+            this.nanos = nanos;
+            this.wallSeconds = wallSeconds;
+            Arrays.sort(this.nanos);
+        }
+
+        double percentileMicros(double p) {
+            if (nanos.length == 0) {
+                return 0.0;
+            }
+            int idx = (int) Math.ceil(p / 100.0 * nanos.length) - 1;
+            return nanos[Math.max(0, Math.min(nanos.length - 1, idx))] / 1_000.0;
+        }
+
+        double opsPerSecond() {
+            return wallSeconds == 0 ? 0.0 : nanos.length / wallSeconds;
+        }
+
+        static String header() {
+            return String.format("%-28s %8s %12s %10s %10s %10s %10s %10s",
+                    "Benchmark", "ops", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %8d %12.1f %10.1f %10.1f %10.1f %10.1f %10.1f",
+                    name, nanos.length, opsPerSecond(),
+                    percentileMicros(50), percentileMicros(90), percentileMicros(99),
+                    percentileMicros(99.9), percentileMicros(100));
+        }
+    }
+
+    // Same SQL the apps issue
+    static final String SQL_LIST =
+            "SELECT EventID, Title, Category FROM Events ORDER BY EventID";
+    static final String SQL_SEARCH =
+            "SELECT EventID, Title, Category FROM Events WHERE LOWER(Title) LIKE ? ORDER BY EventID";
+    static final String SQL_ADD =
+            "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) VALUES (?, ?, ?, ?, ?)";
+    static final String SQL_UPDATE =
+            "UPDATE Events SET Title = ? WHERE EventID = ?";
+    static final String SQL_DELETE =
+            "DELETE FROM Events WHERE EventID = ?";
+
+    // What summary reads replace: seat and ticket aggregates of one showtime / event
+    static final String SQL_AGG_SHOWTIME =
+            "SELECT (SELECT COUNT(*) FROM SeatMaps WHERE ShowtimeID = ? AND Status = 'AVAILABLE'), " +
+            "       t.Tickets, t.Revenue " +
+            "FROM (SELECT COUNT(*) AS Tickets, SUM(TicketPrice) AS Revenue FROM Tickets WHERE ShowtimeID = ?) t";
+    static final String SQL_AGG_EVENT =
+            "SELECT (SELECT COUNT(*) FROM SeatMaps m JOIN Showtimes s ON s.ShowtimeID = m.ShowtimeID " +
+            "        WHERE s.EventID = ? AND m.Status = 'AVAILABLE'), t.Tickets, t.Revenue " +
+            "FROM (SELECT COUNT(*) AS Tickets, SUM(t.TicketPrice) AS Revenue FROM Tickets t " +
+            "      JOIN Showtimes s ON s.ShowtimeID = t.ShowtimeID WHERE s.EventID = ?) t";
+
+    private static final String[] KEYWORDS = {
+            "live", "grand", "night", "tour", "gala", "symphony", "cup", "42", "neon", "zzz-no-match"
+    };
+
+    // IDs for benchmark-inserted events, far above generated ones
+    private static final int BENCH_ID_BASE = 900_000_000;
+
+    private final ConnectionPool pool;
+    private final int iterations;
+    private final int warmup;
+    private final DataGenerator.Config dataset;
+    private final List<Result> results = new ArrayList<>();
+    private final SummaryRepository summaries;
+
+    ETicketBench(ConnectionPool pool, int iterations, DataGenerator.Config dataset) {
+        this.pool = pool;
+        this.iterations = iterations;
+        this.warmup = Math.max(10, iterations / 5);
+        this.dataset = dataset;
+        this.summaries = new SummaryRepository(pool);
+    }
+
+    // ============== Harness ==============
+
+    Result measure(String name, int warmupIters, int measuredIters, Op op) throws SQLException {
+        long[] samples = new long[measuredIters];
+        try (Connection conn = pool.getConnection()) {
+            for (int i = 0; i < warmupIters; i++) {
+                op.run(conn, i);
+            }
+            long wallStart = System.nanoTime();
+            for (int i = 0; i < measuredIters; i++) {
+                long t0 = System.nanoTime();
+                op.run(conn, warmupIters + i);
+                samples[i] = System.nanoTime() - t0;
+            }
+            double wall = (System.nanoTime() - wallStart) / 1e9;
+            Result r = new Result(name, samples, wall);
+            results.add(r);
+            System.out.println(r);
+            return r;
+        }
+    }
+
+    /**
+     * Drop, create and load the generated dataset; returns rows inserted.
+     */
+    long resetAndLoad(int threads) throws SQLException {
+        SchemaRepository schema = new SchemaRepository(pool,
+                new EventRepository(pool, new IdAllocator(pool), new CatalogCache(pool)),
+                new SeatMapRepository(pool), summaries);
+        try (Connection conn = pool.getConnection()) {
+            schema.dropTables(conn, line -> { });
+            schema.createTables(conn, line -> { });
+        }
+        long rows = new DataGenerator(dataset).load(pool, threads, 50_000,
+                BulkLoader.DEFAULT_BATCH_SIZE, line -> { });
+        try (Connection conn = pool.getConnection()) {
+            summaries.rebuild(conn);
+        }
+        return rows;
+    }
+
+    // ============== Benchmarks ==============
+
+    void benchListEvents() throws SQLException {
+        int iters = Math.max(5, iterations / 20);
+        measure("listEvents", Math.max(2, iters / 5), iters, (conn, i) -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SQL_LIST)) {
+                consume(rs);
+            }
+        });
+    }
+
+    /**
+     * One keyset page of EVENTS at a random depth (what the GUI table and
+     * the console listing fetch per round trip).
+     */
+    void benchListEventsPaged() throws SQLException {
+        long maxId = countRows("SELECT MAX(EventID) FROM Events");
+        measure("listEventsPaged", warmup, iterations, (conn, i) -> {
+            int after = (int) ((i * 7919L) % Math.max(1, maxId));
+            try (PreparedStatement ps = conn.prepareStatement(EventListing.SQL_PAGE)) {
+                EventListing.fetchPage(ps, after, EventListing.DEFAULT_PAGE_SIZE);
+            }
+        });
+    }
+
+    void benchSearch() throws SQLException {
+        measure("searchEventsByTitle", warmup, iterations, (conn, i) -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_SEARCH)) {
+                ps.setString(1, "%" + KEYWORDS[i % KEYWORDS.length] + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    consume(rs);
+                }
+            }
+        });
+    }
+
+    void benchSearchIndex() throws SQLException {
+        EventSearchIndex index;
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            index = EventSearchIndex.load(conn);
+        }
+        System.out.printf("  (search index: %,d events, %,d terms, built in %d ms)%n",
+                index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000L);
+        measure("searchIndex", warmup, iterations, (conn, i) -> {
+            if (index.search(KEYWORDS[i % KEYWORDS.length]).size() == Integer.MAX_VALUE) {
+                System.out.print(""); // keep the JIT from discarding the call
+            }
+        });
+    }
+
+    /**
+     * Catalogue reads through CatalogCache: skewed event lookups (a few
+     * popular events get most reads) plus first-page listings.
+     */
+    void benchCatalogCache() throws SQLException {
+        long maxId = countRows("SELECT MAX(EventID) FROM Events");
+        int hot = (int) Math.max(1, Math.min(maxId, 2_000));
+        CatalogCache catalog = new CatalogCache(pool);
+        measure("catalogCache", warmup, iterations, (conn, i) -> {
+            if (i % 10 == 0) {
+                catalog.eventPage(Integer.MIN_VALUE);
+            } else {
+                // 80% of lookups hit the hot set, the rest anywhere
+                long r = (i * 2654435761L) & 0x7fffffffL;
+                int id = (int) (i % 5 == 0 ? 1 + r % Math.max(1, maxId) : 1 + r % hot);
+                catalog.event(id);
+            }
+        });
+        System.out.println("  " + catalog.stats().replace("\n", "\n  "));
+    }
+
+    void benchAddUpdateDelete() throws SQLException {
+        int total = warmup + iterations;
+        measure("addEvent", warmup, iterations, (conn, i) -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_ADD)) {
+                ps.setInt(1, BENCH_ID_BASE + i);
+                ps.setInt(2, 1);
+                ps.setString(3, "Bench Event " + i);
+                ps.setString(4, "Benchmark");
+                ps.setString(5, "Inserted by ETicketBench");
+                ps.executeUpdate();
+            }
+        });
+        measure("updateEventTitle", warmup, iterations, (conn, i) -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE)) {
+                ps.setString(1, "Bench Event " + i + " (updated)");
+                ps.setInt(2, BENCH_ID_BASE + (i % total));
+                ps.executeUpdate();
+            }
+        });
+        measure("deleteEvent", warmup, iterations, (conn, i) -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_DELETE)) {
+                ps.setInt(1, BENCH_ID_BASE + i);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    void benchPopulate() throws SQLException {
+        long[] rows = new long[1];
+        Result r = measure("populateTables (generated)", 1, 3, (conn, i) -> rows[0] = resetAndLoad(1));
+        System.out.printf("  -> %,d rows per load, %,.0f rows/s at p50%n",
+                rows[0], rows[0] / (r.percentileMicros(50) / 1e6));
+    }
+
+    /**
+     * Concurrency stress test for SeatReservationService: buyers threads
+     * race to hold and then sell (or release) random 1-4 seat groups of one
+     * showtime until it sells out. Every successful sell is tallied per
+     * seat; the run fails if any seat was sold twice or if memory, the
+     * tally and SEATMAPS disagree on the SOLD count.
+     */
+    void benchSeatContention(int buyers) throws Exception {
+        final int showtimeId = 1;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE SeatMaps SET Status = 'AVAILABLE' WHERE ShowtimeID = ?")) {
+            ps.setInt(1, showtimeId);
+            ps.executeUpdate();
+        }
+        SeatInventory inventory;
+        try (Connection conn = pool.getConnection()) {
+            summaries.rebuild(conn); // the reset above bypassed the counters
+            inventory = SeatInventory.load(conn);
+        }
+        SeatReservationService service = new SeatReservationService(pool, inventory);
+        service.setSummaries(summaries);
+
+        int[] seatIds = inventory.seatIds(showtimeId);
+        int minSeat = Arrays.stream(seatIds).min().orElse(0);
+        int maxSeat = Arrays.stream(seatIds).max().orElse(0);
+        AtomicIntegerArray soldTimes = new AtomicIntegerArray(maxSeat - minSeat + 1);
+        AtomicLong sells = new AtomicLong();
+        AtomicLong releases = new AtomicLong();
+
+        ExecutorService exec = Executors.newFixedThreadPool(buyers);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            futures.add(exec.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (inventory.countAvailable(showtimeId) > 0 || inventory.countHeld(showtimeId) > 0) {
+                    int n = 1 + rnd.nextInt(4);
+                    int[] want = new int[n];
+                    int base = rnd.nextInt(seatIds.length);
+                    for (int k = 0; k < n; k++) {
+                        want[k] = seatIds[(base + k) % seatIds.length];
+                    }
+                    long token = service.hold(showtimeId, want);
+                    if (token == SeatReservationService.NO_HOLD) {
+                        continue;
+                    }
+                    if (rnd.nextInt(10) == 0) {
+                        service.release(token, showtimeId, want);
+                        releases.incrementAndGet();
+                    } else if (service.sell(token, showtimeId, want)) {
+                        sells.incrementAndGet();
+                        for (int seat : want) {
+                            soldTimes.incrementAndGet(seat - minSeat);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        exec.shutdown();
+        exec.awaitTermination(1, TimeUnit.MINUTES);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        int tallied = 0;
+        for (int i = 0; i < soldTimes.length(); i++) {
+            if (soldTimes.get(i) > 1) {
+                throw new IllegalStateException("Seat " + (minSeat + i) + " sold "
+                        + soldTimes.get(i) + " times");
+            }
+            tallied += soldTimes.get(i);
+        }
+        int dbSold;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM SeatMaps WHERE ShowtimeID = ? AND Status = 'SOLD'")) {
+            ps.setInt(1, showtimeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                dbSold = rs.getInt(1);
+            }
+        }
+        if (dbSold != tallied || inventory.countSold(showtimeId) != tallied) {
+            throw new IllegalStateException("SOLD mismatch: tally=" + tallied + " db=" + dbSold
+                    + " memory=" + inventory.countSold(showtimeId));
+        }
+        System.out.printf("seatContention: %d buyers, %d seats, %d sells, %d releases in %.2f s "
+                        + "(%.0f attempts/s) - PASS, no seat sold twice%n",
+                buyers, seatIds.length, sells.get(), releases.get(), secs,
+                service.getAttempts() / secs);
+        System.out.println("  " + service.stats());
+    }
+
+    /**
+     * Concurrent hold + checkout of every AVAILABLE seat in a few
+     * showtimes; checks that each sold seat got exactly one ticket.
+     */
+    void benchCheckout(int buyers) throws Exception {
+        SeatInventory inventory;
+        try (Connection conn = pool.getConnection()) {
+            inventory = SeatInventory.load(conn);
+        }
+        SeatReservationService reservations = new SeatReservationService(pool, inventory);
+        reservations.setSummaries(summaries);
+        StubPaymentAuthorizer gateway = new StubPaymentAuthorizer();
+        IdAllocator ids = new IdAllocator(pool);
+        CheckoutService checkout = new CheckoutService(pool, reservations, gateway, ids);
+
+        // Showtime 1 is used by seatContention, which resets it without its tickets
+        int[] showtimeIds = Arrays.stream(inventory.showtimeIds()).filter(id -> id > 1).limit(4).toArray();
+        checkHoldTokens(reservations, checkout, showtimeIds[0]);
+        long ticketsBefore = countRows("SELECT COUNT(*) FROM Tickets");
+        AtomicLong seatsBought = new AtomicLong();
+
+        ExecutorService exec = Executors.newFixedThreadPool(buyers);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            final int buyer = b;
+            futures.add(exec.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int showtimeId : showtimeIds) {
+                    int[] seatIds = inventory.seatIds(showtimeId);
+                    while (inventory.countAvailable(showtimeId) > 0) {
+                        int n = 1 + rnd.nextInt(4);
+                        int[] want = new int[n];
+                        int base = rnd.nextInt(seatIds.length);
+                        for (int k = 0; k < n; k++) {
+                            want[k] = seatIds[(base + k) % seatIds.length];
+                        }
+                        long token = reservations.hold(showtimeId, want);
+                        if (token == SeatReservationService.NO_HOLD) {
+                            continue;
+                        }
+                        CheckoutService.Result r = checkout.checkout(1 + buyer, token, showtimeId, want, "CARD");
+                        if (!r.isOk()) {
+                            throw new IllegalStateException("checkout failed: " + r);
+                        }
+                        seatsBought.addAndGet(n);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        exec.shutdown();
+        exec.awaitTermination(1, TimeUnit.MINUTES);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        long newTickets = countRows("SELECT COUNT(*) FROM Tickets") - ticketsBefore;
+        if (newTickets != seatsBought.get() || newTickets != checkout.getTickets()) {
+            throw new IllegalStateException("Ticket mismatch: bought=" + seatsBought.get()
+                    + " inserted=" + newTickets);
+        }
+        System.out.printf("checkout: %d buyers, %d orders, %d tickets in %.2f s (%.0f orders/s) - PASS%n",
+                buyers, checkout.getOrders(), newTickets, secs, checkout.getOrders() / secs);
+        System.out.println("  " + checkout.stats());
+        System.out.println("  " + gateway.stats());
+        System.out.println("  " + ids.stats());
+    }
+
+    /**
+     * A hold can only be bought or released with the token hold() gave
+     * it, and the token is what SEATMAPS records while it is HELD.
+     */
+    private void checkHoldTokens(SeatReservationService reservations, CheckoutService checkout,
+                                 int showtimeId) throws SQLException {
+        SeatInventory inventory = reservations.getInventory();
+        int[] seat = { inventory.seatIds(showtimeId, SeatInventory.SeatStatus.AVAILABLE)[0] };
+        long token = reservations.hold(showtimeId, seat);
+        long other = token ^ 1L;
+        long recorded = countRows("SELECT HoldToken FROM SeatMaps WHERE SeatMapID = "
+                + inventory.seatMapIdOf(showtimeId, seat[0]));
+        if (token == SeatReservationService.NO_HOLD || recorded != token
+                || reservations.sell(other, showtimeId, seat)
+                || reservations.release(other, showtimeId, seat)
+                || checkout.checkout(1, other, showtimeId, seat, "CARD").isOk()
+                || !reservations.release(token, showtimeId, seat)) {
+            throw new IllegalStateException("Hold of seat " + seat[0] + " usable without its token");
+        }
+        System.out.println("  hold tokens: another buyer cannot sell, release or check out a hold - PASS");
+    }
+
+    /**
+     * Gate scans of a few preloaded showtimes: valid, repeated and bogus
+     * codes from several gate threads. The second half runs while another
+     * transaction holds row locks on the tickets (a stalled database), so
+     * write-back has to wait or retry while scans must not slow down.
+     */
+    void benchGateScan(int gates) throws Exception {
+        int[] showtimeIds = new int[4];
+        List<String> codes = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT ShowtimeID FROM Tickets WHERE IsValidated = 'N' "
+                     + "GROUP BY ShowtimeID ORDER BY COUNT(*) DESC FETCH FIRST 4 ROWS ONLY")) {
+            int n = 0;
+            while (rs.next()) {
+                showtimeIds[n++] = rs.getInt(1);
+            }
+            showtimeIds = Arrays.copyOf(showtimeIds, n);
+        }
+        String in = Arrays.toString(showtimeIds).replace('[', '(').replace(']', ')');
+        int[] showtimeOf;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT QRCode, ShowtimeID FROM Tickets "
+                     + "WHERE IsValidated = 'N' AND ShowtimeID IN " + in)) {
+            List<Integer> owners = new ArrayList<>();
+            while (rs.next()) {
+                codes.add(rs.getString(1));
+                owners.add(rs.getInt(2));
+            }
+            showtimeOf = owners.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        try (TicketValidationService gate = new TicketValidationService(pool)) {
+            try (Connection conn = pool.getConnection()) {
+                for (int id : showtimeIds) {
+                    gate.preload(conn, id);
+                }
+            }
+
+            scanAll("gateScan (db idle)", gate, codes, showtimeOf, gates, 0, codes.size() / 2);
+            gate.flush();
+            try (Connection locker = pool.getConnection()) {
+                locker.setAutoCommit(false);
+                try (Statement stmt = locker.createStatement()) {
+                    stmt.executeUpdate("UPDATE Tickets SET TicketPrice = TicketPrice "
+                            + "WHERE ShowtimeID IN " + in);
+                }
+                scanAll("gateScan (rows locked)", gate, codes, showtimeOf, gates,
+                        codes.size() / 2, codes.size());
+                Thread.sleep(1_000); // keep the writer blocked a little longer
+                locker.rollback();
+            }
+            if (!gate.flush()) {
+                gate.flush();
+            }
+
+            long validatedRows = countRows("SELECT COUNT(*) FROM Tickets WHERE IsValidated = 'Y' "
+                    + "AND ShowtimeID IN " + in);
+            if (gate.getValid() != codes.size() || validatedRows != codes.size()
+                    || gate.getPending() != 0) {
+                throw new IllegalStateException("Validation mismatch: codes=" + codes.size()
+                        + " valid=" + gate.getValid() + " rows=" + validatedRows
+                        + " pending=" + gate.getPending());
+            }
+            System.out.printf("  -> %d gates, %d tickets of %d showtimes validated once and written back - PASS%n",
+                    gates, codes.size(), showtimeIds.length);
+            System.out.println("  " + gate.stats());
+        }
+    }
+
+    /**
+     * Each sales report with 1 and with 4 partitions in parallel; the
+     * totals of every report must match a plain SUM over TICKETS.
+     */
+    void benchReports() throws Exception {
+        long ticketCount = countRows("SELECT COUNT(*) FROM Tickets");
+        long revenueCents;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SUM(TicketPrice) FROM Tickets")) {
+            rs.next();
+            revenueCents = Math.round(rs.getDouble(1) * 100);
+        }
+
+        int iters = Math.max(3, iterations / 200);
+        for (int parallelism : new int[] { 1, 4 }) {
+            ExecutorService exec = Executors.newFixedThreadPool(parallelism);
+            try {
+                ReportRepository reports = new ReportRepository(pool, exec, parallelism);
+                long[] tickets = new long[1];
+                long[] cents = new long[1];
+                String suffix = " (x" + parallelism + ")";
+
+                measure("reports salesByEvent" + suffix, 1, iters, (conn, i) -> {
+                    tickets[0] = 0;
+                    cents[0] = 0;
+                    reports.salesByEvent(r -> {
+                        tickets[0] += r.tickets;
+                        cents[0] += r.revenueCents;
+                    });
+                });
+                checkTotals("salesByEvent", tickets[0], cents[0], ticketCount, revenueCents);
+
+                measure("reports salesByShowtime" + suffix, 1, iters, (conn, i) -> {
+                    tickets[0] = 0;
+                    cents[0] = 0;
+                    reports.salesByShowtime(r -> {
+                        tickets[0] += r.tickets;
+                        cents[0] += r.revenueCents;
+                    });
+                });
+                checkTotals("salesByShowtime", tickets[0], cents[0], ticketCount, revenueCents);
+
+                measure("reports salesByVenue" + suffix, 1, iters, (conn, i) -> {
+                    tickets[0] = 0;
+                    cents[0] = 0;
+                    reports.salesByVenue(r -> {
+                        tickets[0] += r.tickets;
+                        cents[0] += r.revenueCents;
+                    });
+                });
+                checkTotals("salesByVenue", tickets[0], cents[0], ticketCount, revenueCents);
+
+                measure("reports methodsByEvent" + suffix, 1, iters, (conn, i) -> {
+                    tickets[0] = 0;
+                    cents[0] = 0;
+                    reports.paymentMethodsByEvent(r -> {
+                        tickets[0] += r.tickets;
+                        cents[0] += r.revenueCents;
+                    });
+                });
+                checkTotals("paymentMethodsByEvent", tickets[0], cents[0], ticketCount, revenueCents);
+            } finally {
+                exec.shutdown();
+            }
+        }
+        System.out.printf("  -> report totals match TICKETS (%d tickets, %.2f revenue) - PASS%n",
+                ticketCount, revenueCents / 100.0);
+    }
+
+    private static void checkTotals(String report, long tickets, long cents,
+                                    long expectedTickets, long expectedCents) {
+        // Rounding per group may differ from rounding the grand total by a few cents
+        if (tickets != expectedTickets || Math.abs(cents - expectedCents) > 100) {
+            throw new IllegalStateException(report + " totals: tickets=" + tickets + " revenue=" + cents
+                    + " expected tickets=" + expectedTickets + " revenue=" + expectedCents);
+        }
+    }
+
+    /**
+     * Offline gate: preload one showtime (saves its snapshot), lose the
+     * database, scan half the tickets, restart still offline and scan all
+     * of them (the first half must be rejected as already validated via
+     * the WAL), then reconnect and check every validation reached TICKETS.
+     */
+    void benchGateOffline() throws Exception {
+        int showtimeId;
+        List<String> codes = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT ShowtimeID FROM Tickets WHERE IsValidated = 'N' "
+                    + "GROUP BY ShowtimeID ORDER BY COUNT(*) DESC FETCH FIRST 1 ROWS ONLY")) {
+                rs.next();
+                showtimeId = rs.getInt(1);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT QRCode FROM Tickets WHERE IsValidated = 'N' "
+                    + "AND ShowtimeID = " + showtimeId)) {
+                while (rs.next()) {
+                    codes.add(rs.getString(1));
+                }
+            }
+        }
+        int[] showtimeOf = new int[codes.size()];
+        Arrays.fill(showtimeOf, showtimeId);
+        int half = codes.size() / 2;
+
+        Path dir = Files.createTempDirectory("eticket-gate");
+        Path bigDir = Files.createTempDirectory("eticket-gate-wal");
+        try (ConnectionPool down = new ConnectionPool(() -> {
+                    throw new SQLException("venue network down");
+                }, 0, 1, 60_000L, 1_000L, 60_000L)) {
+
+            // Online before doors open: saves the snapshot
+            try (TicketValidationService gate = new TicketValidationService(pool,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, TicketValidationService.DEFAULT_FLUSH_MS, dir);
+                 Connection conn = pool.getConnection()) {
+                gate.preload(conn, showtimeId);
+            }
+
+            // Network drops: snapshot + WAL only
+            try (TicketValidationService gate = new TicketValidationService(down,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, TicketValidationService.DEFAULT_FLUSH_MS, dir)) {
+                gate.preloadOffline(showtimeId);
+                scanAll("gateOffline (no db)", gate, codes, showtimeOf, 4, 0, half);
+            }
+
+            // Gate restarts, still offline: the WAL remembers the first half
+            try (TicketValidationService gate = new TicketValidationService(down,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, TicketValidationService.DEFAULT_FLUSH_MS, dir)) {
+                gate.preloadOffline(showtimeId);
+                for (int i = 0; i < half; i++) {
+                    TicketValidationService.Result r = gate.validate(showtimeId, codes.get(i));
+                    if (r.outcome != TicketValidationService.Outcome.ALREADY_VALIDATED) {
+                        throw new IllegalStateException("ticket scanned before restart accepted again: " + r);
+                    }
+                }
+                scanAll("gateOffline (restarted)", gate, codes, showtimeOf, 4, half, codes.size());
+                System.out.println("  " + gate.getLog().getRecovery());
+            }
+
+            // Network back: replay
+            long start = System.nanoTime();
+            try (TicketValidationService gate = new TicketValidationService(pool,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, TicketValidationService.DEFAULT_FLUSH_MS, dir)) {
+                if (!gate.flush() || gate.getPending() != 0) {
+                    throw new IllegalStateException("replay failed: " + gate.stats());
+                }
+                System.out.printf("  replayed %d validation(s) in %.1f ms%n", gate.getWritten(),
+                        (System.nanoTime() - start) / 1e6);
+            }
+            long rows = countRows("SELECT COUNT(*) FROM Tickets WHERE IsValidated = 'Y' AND ShowtimeID = "
+                    + showtimeId);
+            if (rows != codes.size()) {
+                throw new IllegalStateException("Replay mismatch: scanned=" + codes.size() + " rows=" + rows);
+            }
+            try (TicketValidationService gate = new TicketValidationService(pool,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, TicketValidationService.DEFAULT_FLUSH_MS, dir)) {
+                if (gate.getPending() != 0) {
+                    throw new IllegalStateException("checkpoint missed: " + gate.getPending() + " pending");
+                }
+            }
+            System.out.printf("  -> %d tickets of showtime %d scanned offline across a restart and replayed - PASS%n",
+                    codes.size(), showtimeId);
+
+            // Recovery time of a 100k-scan WAL
+            int entries = 100_000;
+            try (GateScanLog log = new GateScanLog(bigDir.resolve("gate-scans.wal"),
+                    GateScanLog.DEFAULT_SYNC_MS, (seq, st, t, at) -> { })) {
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < entries; i++) {
+                    log.appendScan(1 + i % 100, BENCH_ID_BASE + i, now + i);
+                }
+            }
+            start = System.nanoTime();
+            try (TicketValidationService gate = new TicketValidationService(down,
+                    TicketValidationService.DEFAULT_BATCH_SIZE, 60_000L, bigDir)) {
+                System.out.printf("  WAL recovery: %d entries, %s; service ready in %.1f ms (%d queued for replay)%n",
+                        entries, gate.getLog().getRecovery(), (System.nanoTime() - start) / 1e6,
+                        gate.getPending());
+            }
+
+            // Once a checkpoint covers all of it, the WAL rolls over to one record
+            try (GateScanLog log = new GateScanLog(bigDir.resolve("gate-scans.wal"),
+                    GateScanLog.DEFAULT_SYNC_MS, (seq, st, t, at) -> { })) {
+                log.appendCheckpoint(entries);
+                if (!log.rollOver(entries)) {
+                    throw new IllegalStateException("WAL did not roll over: " + log.stats());
+                }
+                log.appendScan(1, BENCH_ID_BASE + entries, System.currentTimeMillis());
+            }
+            try (GateScanLog log = new GateScanLog(bigDir.resolve("gate-scans.wal"),
+                    GateScanLog.DEFAULT_SYNC_MS, (seq, st, t, at) -> {
+                        if (seq <= entries) {
+                            throw new IllegalStateException("scan after roll-over numbered " + seq);
+                        }
+                    })) {
+                GateScanLog.Recovery r = log.getRecovery();
+                if (r.records != 2 || r.scans != 1 || r.checkpoint != entries + 1) {
+                    throw new IllegalStateException("WAL after roll-over: " + r);
+                }
+                System.out.println("  -> WAL after roll-over: " + r + " - PASS");
+            }
+        } finally {
+            deleteDir(dir);
+            deleteDir(bigDir);
+        }
+    }
+
+    /**
+     * Buyers hold seats of a few showtimes and then check out, release or
+     * abandon them (abandoned holds expire through HoldExpiryScheduler),
+     * all maintaining the summary counters. Reconciliation must then find
+     * no difference. Also times summary reads against the GROUP BY they
+     * replace, and checks that a corrupted counter is found and repaired.
+     */
+    void benchSummaries(int buyers) throws Exception {
+        SeatInventory inventory;
+        try (Connection conn = pool.getConnection()) {
+            inventory = SeatInventory.load(conn);
+        }
+        SeatReservationService reservations = new SeatReservationService(pool, inventory);
+        reservations.setSummaries(summaries);
+        CheckoutService checkout = new CheckoutService(pool, reservations, new StubPaymentAuthorizer(),
+                new IdAllocator(pool));
+        int[] showtimeIds = Arrays.stream(inventory.showtimeIds())
+                .filter(id -> inventory.countAvailable(id) > 0).skip(4).limit(4).toArray();
+        AtomicLong released = new AtomicLong();
+        AtomicLong abandoned = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (HoldExpiryScheduler expiry = new HoldExpiryScheduler(pool, inventory, 10)) {
+            expiry.setSummaries(summaries);
+            expiry.adoptUnownedHolds(50); // generated HELD seats
+            reservations.setHoldExpiry(expiry, 50);
+            ExecutorService exec = Executors.newFixedThreadPool(buyers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int b = 0; b < buyers; b++) {
+                final int buyer = b;
+                futures.add(exec.submit(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    for (int showtimeId : showtimeIds) {
+                        int[] seatIds = inventory.seatIds(showtimeId);
+                        while (inventory.countAvailable(showtimeId) > 0) {
+                            int n = 1 + rnd.nextInt(4);
+                            int[] want = new int[n];
+                            int base = rnd.nextInt(seatIds.length);
+                            for (int k = 0; k < n; k++) {
+                                want[k] = seatIds[(base + k) % seatIds.length];
+                            }
+                            long token = reservations.hold(showtimeId, want);
+                            if (token == SeatReservationService.NO_HOLD) {
+                                continue;
+                            }
+                            int action = rnd.nextInt(4);
+                            if (action == 0) {
+                                reservations.release(token, showtimeId, want);
+                                released.incrementAndGet();
+                            } else if (action == 1) {
+                                abandoned.incrementAndGet(); // left to expire
+                            } else {
+                                checkout.checkout(1 + buyer, token, showtimeId, want, "CARD");
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } finally {
+                exec.shutdownNow();
+            }
+            System.out.printf("summaries: %d buyers, %d showtimes without AVAILABLE seats in %.2f s: %d orders, "
+                            + "%d releases, %d expired holds%n",
+                    buyers, showtimeIds.length, (System.nanoTime() - start) / 1e9, checkout.getOrders(),
+                    released.get(), abandoned.get());
+            System.out.println("  " + expiry.stats());
+        }
+        System.out.println("  " + summaries.stats());
+
+        try (Connection conn = pool.getConnection()) {
+            SummaryRepository.Reconciliation r = summaries.reconcile(conn, false);
+            if (!r.matches()) {
+                throw new IllegalStateException("Summary counters drifted: " + r.mismatches);
+            }
+            System.out.println("  reconcile after the run: " + r + " - PASS");
+        }
+
+        // O(1) summary rows vs the aggregates they replace
+        int maxShowtime = (int) countRows("SELECT MAX(ShowtimeID) FROM Showtimes");
+        int maxEvent = (int) countRows("SELECT MAX(EventID) FROM Events");
+        int iters = Math.max(50, iterations / 4);
+        measure("summary showtime row", iters / 5, iters, (conn, i) ->
+                summaries.showtime(conn, 1 + ThreadLocalRandom.current().nextInt(maxShowtime)));
+        measure("aggregate showtime", iters / 5, iters, (conn, i) ->
+                aggregate(conn, SQL_AGG_SHOWTIME, 1 + ThreadLocalRandom.current().nextInt(maxShowtime)));
+        measure("summary event row", iters / 5, iters, (conn, i) ->
+                summaries.event(conn, 1 + ThreadLocalRandom.current().nextInt(maxEvent)));
+        measure("aggregate event", iters / 5, iters, (conn, i) ->
+                aggregate(conn, SQL_AGG_EVENT, 1 + ThreadLocalRandom.current().nextInt(maxEvent)));
+
+        // A counter changed behind the repository's back must be found and repaired
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE ShowtimeSummary SET SeatsSold = SeatsSold + 1 WHERE ShowtimeID = ?")) {
+                ps.setInt(1, showtimeIds[0]);
+                ps.executeUpdate();
+            }
+            SummaryRepository.Reconciliation r = summaries.reconcile(conn, true);
+            if (r.mismatches.size() != 1 || !r.matches()) {
+                throw new IllegalStateException("Corrupted counter not repaired: " + r + " " + r.mismatches);
+            }
+            System.out.println("  corrupted counter: " + r + " - PASS");
+        }
+    }
+
+    /**
+     * SchemaMigrator on the loaded schema: the no-op check, one pending
+     * version, finishing a version that failed halfway, and refusing an
+     * edited script; the data must be untouched throughout.
+     */
+    void benchMigrations() throws SQLException {
+        EventRepository events = new EventRepository(pool, new IdAllocator(pool), new CatalogCache(pool));
+        SeatMapRepository seatMaps = new SeatMapRepository(pool);
+        SchemaRepository schema = new SchemaRepository(pool, events, seatMaps, summaries);
+        SchemaMigrator migrator = schema.migrator();
+        long ticketsBefore = countRows("SELECT COUNT(*) FROM Tickets");
+        long seatMapsBefore = countRows("SELECT COUNT(*) FROM SeatMaps");
+
+        try (Connection conn = pool.getConnection()) {
+            SchemaMigrator.Result r = migrator.migrate(conn, line -> { });
+            System.out.println("  first run on the loaded schema: " + r);
+        }
+        int iters = Math.max(20, iterations / 10);
+        measure("migrate (up to date)", iters / 5, iters, (conn, i) -> migrator.migrate(conn, line -> { }));
+
+        // One pending version: the indexes of V4
+        try (Connection conn = pool.getConnection()) {
+            schema.tuning().dropIndexes(conn, line -> { });
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM SchemaVersion WHERE Version = 4");
+            }
+            SchemaMigrator.Result r = migrator.migrate(conn, line -> { });
+            if (!r.ok || r.applied != 1 || r.currentVersion != migrator.latestVersion()) {
+                throw new IllegalStateException("Pending V4 not applied: " + r);
+            }
+            System.out.println("  pending V4: " + r + " - PASS");
+        }
+
+        // The same through Create Tables: the in-memory state is reloaded, not emptied
+        try (Connection conn = pool.getConnection()) {
+            schema.tuning().dropIndexes(conn, line -> { });
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM SchemaVersion WHERE Version = 4");
+            }
+            // Seat services keep the inventory they were built with: it must be reloaded in place
+            SeatInventory inventory = seatMaps.inventory();
+            schema.createTables(conn, line -> { });
+            long eventCount = countRows("SELECT COUNT(*) FROM Events");
+            EventSearchIndex index = events.searchIndex();
+            if (index == null || index.size() != eventCount || inventory.showtimeCount() == 0
+                    || seatMaps.inventory() != inventory) {
+                throw new IllegalStateException("In-memory state lost by Create Tables on a loaded schema");
+            }
+            System.out.printf("  Create Tables on the loaded schema: %d event(s) indexed, %d showtime(s) "
+                    + "in the seat inventory - PASS%n", index.size(), inventory.showtimeCount());
+        }
+
+        // V3 failed after its first table: the retry creates only the second
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE EventSummary");
+                stmt.executeUpdate("UPDATE SchemaVersion SET Success = 'N' WHERE Version = 3");
+            }
+            List<String> lines = new ArrayList<>();
+            SchemaMigrator.Result r = migrator.migrate(conn, lines::add);
+            long created = lines.stream().filter(l -> l.startsWith("OK: CREATE TABLE")).count();
+            if (!r.ok || r.applied != 1 || created != 1) {
+                throw new IllegalStateException("Failed V3 not finished: " + r + " " + lines);
+            }
+            summaries.rebuild(conn);
+            System.out.println("  failed V3 retried: " + r + " - PASS");
+        }
+
+        // An applied script that changed must stop the migration
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE SchemaVersion SET Checksum = 'edited' WHERE Version = 1");
+            }
+            SchemaMigrator.Result r = migrator.migrate(conn, line -> { });
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE SchemaVersion SET Checksum = ? WHERE Version = 1")) {
+                ps.setString(1, migrator.migrations().get(0).checksum());
+                ps.executeUpdate();
+            }
+            if (r.ok || r.applied != 0) {
+                throw new IllegalStateException("Edited V1 not refused: " + r);
+            }
+            System.out.println("  edited V1: " + r + " - PASS");
+            schema.schemaStatus(conn, line -> System.out.println("  " + line));
+        }
+
+        if (countRows("SELECT COUNT(*) FROM Tickets") != ticketsBefore
+                || countRows("SELECT COUNT(*) FROM SeatMaps") != seatMapsBefore) {
+            throw new IllegalStateException("Migrations changed the data");
+        }
+        System.out.printf("  -> %d tickets and %d seat maps kept across every migration - PASS%n",
+                ticketsBefore, seatMapsBefore);
+    }
+
+    /**
+     * CsvImporter on partner-style files: a few venues, then 200k seats
+     * for them (quoted fields, CRLF, a blank line, padded numbers and one
+     * bad row of each kind), once with one writer and once with four, then
+     * a small events file. Counts must come out exact; the imported rows
+     * are deleted again.
+     */
+    void benchCsvImport() throws IOException, SQLException {
+        int seatsPerVenue = 50_000;
+        int venues = 4;
+        long firstVenue = countRows("SELECT MAX(VenueID) FROM Venues") + 1;
+        long firstSeat = countRows("SELECT MAX(SeatID) FROM Seats") + 1;
+        long existingSeat = countRows("SELECT MIN(SeatID) FROM Seats");
+        long organizer = countRows("SELECT MIN(OrganizerID) FROM Organizers");
+        long lastSeat = firstSeat + (long) venues * seatsPerVenue + 10;
+
+        Path dir = Files.createTempDirectory("eticket-csv");
+        try {
+            // Venues: 4 good rows, a duplicate, one that exists, a name too long
+            StringBuilder csv = new StringBuilder("VenueID,Name,City,Capacity\r\n");
+            for (int v = 0; v < venues; v++) {
+                csv.append(firstVenue + v).append(",\"CSV Arena ").append(v).append(", Hall\",Toronto,")
+                        .append(seatsPerVenue).append("\r\n");
+            }
+            csv.append(firstVenue).append(",Twice,Toronto,10\r\n");
+            csv.append("1,Already there,Toronto,10\r\n");
+            csv.append(firstVenue + venues).append(',').append(repeat('N', 201)).append(",Toronto,10\r\n");
+            Path venuesCsv = write(dir.resolve("venues.csv"), csv);
+
+            CsvImporter importer = new CsvImporter(pool, new IdAllocator(pool));
+            CsvImporter.Report r = importer.importFile(CsvImporter.Kind.VENUES, venuesCsv,
+                    line -> System.out.println("  " + line));
+            if (r.imported != venues || r.rejected != 3) {
+                throw new IllegalStateException("Venues: expected " + venues + " imported / 3 rejected: " + r);
+            }
+
+            // Seats: venues x 50k good rows, plus 8 bad ones halfway through
+            csv = new StringBuilder(venues * seatsPerVenue * 32);
+            csv.append('\uFEFF').append("SeatID,VenueID,Section,RowLabel,SeatNumber\r\n");
+            long seatId = firstSeat;
+            for (int v = 0; v < venues; v++) {
+                long venueId = firstVenue + v;
+                for (int n = 0; n < seatsPerVenue; n++, seatId++) {
+                    String section = seatId == firstSeat ? "\"Floor, \"\"A\"\"\"" : "Sec" + n / 2500;
+                    if (n % 1000 == 999) {
+                        csv.append(' ').append(seatId).append(" , ").append(venueId).append(" ,");
+                    } else {
+                        csv.append(seatId).append(',').append(venueId).append(',');
+                    }
+                    csv.append(section).append(",R").append(n / 50 % 50).append(',').append(n % 50 + 1)
+                            .append("\r\n");
+                }
+                if (v == venues / 2 - 1) {
+                    long bad = lastSeat;
+                    csv.append("\r\n");
+                    csv.append(bad++).append(",999999999,Sec0,R0,1\r\n");                   // no such venue
+                    csv.append(firstSeat).append(',').append(firstVenue).append(",X,1,1\r\n"); // SeatID twice
+                    csv.append(bad++).append(',').append(firstVenue).append(",Sec0,R0,2\r\n"); // seat twice
+                    csv.append(bad++).append(',').append(firstVenue).append(",,R1,1\r\n");     // no Section
+                    csv.append("abc,").append(firstVenue).append(",X,2,1\r\n");               // not a number
+                    csv.append(bad++).append(',').append(firstVenue).append(",X,")
+                            .append(repeat('R', 21)).append(",1\r\n");                      // RowLabel too long
+                    csv.append(bad++).append(',').append(firstVenue).append(",X,3\r\n");        // 4 fields
+                    csv.append(existingSeat).append(',').append(firstVenue + 1)
+                            .append(",X,4,1\r\n");                                           // already in the DB
+                }
+            }
+            Path seatsCsv = write(dir.resolve("seats.csv"), csv);
+            long goodSeats = (long) venues * seatsPerVenue;
+            String venueIds = "VenueID BETWEEN " + firstVenue + " AND " + (firstVenue + venues - 1);
+
+            CsvImporter.Report one = null;
+            CsvImporter.Report four = null;
+            for (int writers : new int[] {1, 4}) {
+                try (Connection conn = pool.getConnection();
+                     Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM Seats WHERE " + venueIds);
+                }
+                CsvImporter seats = new CsvImporter(pool, new IdAllocator(pool), CsvImporter.DEFAULT_CHUNK_BYTES,
+                        BulkLoader.DEFAULT_BATCH_SIZE, writers, CsvImporter.DEFAULT_QUEUE_DEPTH);
+                System.out.println("  seats.csv with " + writers + " writer(s):");
+                r = seats.importFile(CsvImporter.Kind.SEATS, seatsCsv, line -> System.out.println("  " + line));
+                if (r.imported != goodSeats || r.rejected != 8 || r.rowByRowBatches != 1
+                        || countRows("SELECT COUNT(*) FROM Seats WHERE " + venueIds) != goodSeats) {
+                    throw new IllegalStateException("Seats: expected " + goodSeats + " imported / 8 rejected: " + r);
+                }
+                if (writers == 1) {
+                    one = r;
+                } else {
+                    four = r;
+                }
+            }
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT Section FROM Seats WHERE SeatID = ?")) {
+                ps.setLong(1, firstSeat);
+                try (ResultSet rs = ps.executeQuery()) {
+                    String section = rs.next() ? rs.getString(1) : null;
+                    if (!"Floor, \"A\"".equals(section)) {
+                        throw new IllegalStateException("Quoted Section came back as " + section);
+                    }
+                }
+            }
+            System.out.printf("  -> seats: %,d imported, 8 rejected, quoted field intact; "
+                            + "%,.0f rows/s (1 writer) -> %,.0f rows/s (4 writers) - PASS%n",
+                    goodSeats, one.rowsPerSecond(), four.rowsPerSecond());
+
+            // Events: IDs come from IdAllocator; one row has no such organizer
+            csv = new StringBuilder("Title,OrganizerID,Category\n");
+            csv.append("CSV bench concert,").append(organizer).append(",Music\n");
+            csv.append("\"CSV bench \"\"Live\"\" night\",").append(organizer).append(",Comedy\n");
+            csv.append("CSV bench orphan,999999999,Music\n");
+            Path eventsCsv = write(dir.resolve("events.csv"), csv);
+            r = importer.importFile(CsvImporter.Kind.EVENTS, eventsCsv, line -> System.out.println("  " + line));
+            long titled = countRows("SELECT COUNT(*) FROM Events WHERE Title LIKE 'CSV bench %'");
+            if (r.imported != 2 || r.rejected != 1 || titled != 2) {
+                throw new IllegalStateException("Events: expected 2 imported / 1 rejected: " + r);
+            }
+            System.out.println("  -> venues, seats and events imported with exact reject counts - PASS");
+        } finally {
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM Events WHERE Title LIKE 'CSV bench %'");
+                stmt.executeUpdate("DELETE FROM Seats WHERE VenueID >= " + firstVenue);
+                stmt.executeUpdate("DELETE FROM Venues WHERE VenueID >= " + firstVenue);
+            }
+            deleteDir(dir);
+        }
+    }
+
+    private static Path write(Path file, CharSequence text) throws IOException {
+        return Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Drop + Create of the whole schema (the reset of a local reload loop),
+     * one statement at a time vs the DdlScheduler's parallel waves. Runs
+     * last: it leaves the schema empty.
+     */
+    void benchSchemaReset() throws SQLException {
+        SchemaRepository schema = new SchemaRepository(pool,
+                new EventRepository(pool, new IdAllocator(pool), new CatalogCache(pool)),
+                new SeatMapRepository(pool), summaries);
+        int iters = Math.max(5, iterations / 100);
+        int parallel = schema.scheduler().getParallelism();
+        schema.scheduler().setParallelism(1);
+        Result serial = measure("schemaReset (serial)", 2, iters, (conn, i) -> {
+            schema.dropTables(conn, line -> { });
+            schema.createTables(conn, line -> { });
+        });
+        schema.scheduler().setParallelism(parallel);
+        Result waves = measure("schemaReset (parallel " + parallel + ")", 2, iters, (conn, i) -> {
+            schema.dropTables(conn, line -> { });
+            schema.createTables(conn, line -> { });
+        });
+        System.out.printf("  -> p50 %.1f ms -> %.1f ms%n",
+                serial.percentileMicros(50) / 1000.0, waves.percentileMicros(50) / 1000.0);
+
+        // Per-statement timings of one more reset
+        try (Connection conn = pool.getConnection()) {
+            schema.dropTables(conn, line -> System.out.println("  " + line));
+            schema.createTables(conn, line -> System.out.println("  " + line));
+        }
+        try (Connection conn = pool.getConnection()) {
+            List<SchemaMigrator.VersionInfo> status = schema.migrator().status(conn);
+            if (!status.stream().allMatch(v -> v.state == SchemaMigrator.State.APPLIED)) {
+                throw new IllegalStateException("Schema not fully created: " + status);
+            }
+            System.out.println("  -> schema at V" + schema.migrator().latestVersion() + " after the reset - PASS");
+        }
+    }
+
+    /**
+     * A hot access path for benchSchemaTuning: SQL plus random binds.
+     */
+    private static final class AccessPath {
+        final String name;
+        final String sql;
+        final Binder binder;
+
+        AccessPath(String name, String sql, Binder binder) {
+            this.name = name;
+            this.sql = sql;
+            this.binder = binder;
+        }
+    }
+
+    interface Binder {
+        Object[] binds(ThreadLocalRandom rnd);
+    }
+
+    /**
+     * The apps' hot lookups without, then with the SchemaTuning indexes:
+     * latency of each, and the plan lines that show which access path the
+     * optimizer picked.
+     */
+    void benchSchemaTuning() throws SQLException {
+        int users = (int) countRows("SELECT MAX(UserID) FROM Users");
+        int orders = (int) countRows("SELECT MAX(OrderID) FROM Orders");
+        int venues = (int) countRows("SELECT MAX(VenueID) FROM Venues");
+        int showtimes = (int) countRows("SELECT MAX(ShowtimeID) FROM Showtimes");
+        int seats = (int) countRows("SELECT MAX(SeatID) FROM Seats");
+        long end = java.sql.Timestamp.valueOf("2026-01-01 00:00:00").getTime();
+        long day = 24L * 60 * 60 * 1000;
+        List<AccessPath> paths = Arrays.asList(
+                new AccessPath("ordersOfUser",
+                        "SELECT OrderID, OrderDateTime, OrderTotal FROM Orders WHERE UserID = ? "
+                                + "ORDER BY OrderDateTime DESC",
+                        rnd -> new Object[] { 1 + rnd.nextInt(users) }),
+                new AccessPath("paymentsOfOrder",
+                        "SELECT Method, Amount FROM Payments WHERE OrderID = ?",
+                        rnd -> new Object[] { 1 + rnd.nextInt(orders) }),
+                new AccessPath("ticketsOfOrder",
+                        "SELECT TicketID, SeatID, TicketPrice FROM Tickets WHERE OrderID = ?",
+                        rnd -> new Object[] { 1 + rnd.nextInt(orders) }),
+                new AccessPath("showtimesAtVenue",
+                        "SELECT ShowtimeID, StartDateTime FROM Showtimes WHERE VenueID = ? "
+                                + "ORDER BY StartDateTime",
+                        rnd -> new Object[] { 1 + rnd.nextInt(venues) }),
+                new AccessPath("seatsLeft",
+                        "SELECT COUNT(*) FROM SeatMaps WHERE ShowtimeID = ? AND Status = 'AVAILABLE'",
+                        rnd -> new Object[] { 1 + rnd.nextInt(showtimes) }),
+                new AccessPath("revenueOfShowtime",
+                        "SELECT COUNT(*), SUM(TicketPrice) FROM Tickets WHERE ShowtimeID = ?",
+                        rnd -> new Object[] { 1 + rnd.nextInt(showtimes) }),
+                new AccessPath("salesOfWeek",
+                        "SELECT COUNT(*), SUM(OrderTotal) FROM Orders "
+                                + "WHERE OrderDateTime >= ? AND OrderDateTime < ?",
+                        rnd -> {
+                            long from = end - (7 + rnd.nextInt(173)) * day;
+                            return new Object[] { new java.sql.Timestamp(from),
+                                    new java.sql.Timestamp(from + 7 * day) };
+                        }),
+                new AccessPath("titlePrefix",
+                        "SELECT EventID, Title FROM Events WHERE LOWER(Title) LIKE ?",
+                        rnd -> new Object[] { KEYWORDS[rnd.nextInt(KEYWORDS.length)] + "%" }),
+                new AccessPath("seatFkCheck",
+                        "SELECT COUNT(*) FROM Tickets WHERE SeatID = ?",
+                        rnd -> new Object[] { 1 + rnd.nextInt(seats) })
+        );
+
+        SchemaTuning tuning = new SchemaTuning();
+        int iters = Math.max(20, iterations / 10);
+        try (Connection conn = pool.getConnection()) {
+            tuning.dropIndexes(conn, line -> { });
+        }
+        List<Result> before = measurePaths("", paths, iters);
+        try (Connection conn = pool.getConnection()) {
+            List<String> skipped = new ArrayList<>();
+            int created = tuning.apply(conn, line -> {
+                if (line.startsWith("Skip:")) {
+                    skipped.add(line);
+                }
+            });
+            System.out.println("  schema tuning v" + SchemaTuning.VERSION + ": " + created + " index(es) created");
+            for (String line : skipped) {
+                System.out.println("  " + line);
+            }
+        }
+        List<Result> after = measurePaths(" (tuned)", paths, iters);
+        for (int i = 0; i < paths.size(); i++) {
+            System.out.printf("  -> %-18s p50 %10.1f us -> %10.1f us (x%.1f)%n", paths.get(i).name,
+                    before.get(i).percentileMicros(50), after.get(i).percentileMicros(50),
+                    before.get(i).percentileMicros(50) / Math.max(0.1, after.get(i).percentileMicros(50)));
+        }
+    }
+
+    private List<Result> measurePaths(String suffix, List<AccessPath> paths, int iters) throws SQLException {
+        List<Result> out = new ArrayList<>();
+        for (AccessPath path : paths) {
+            out.add(measure(path.name + suffix, iters / 5, iters, (conn, i) -> {
+                try (PreparedStatement ps = conn.prepareStatement(path.sql)) {
+                    Object[] binds = path.binder.binds(ThreadLocalRandom.current());
+                    for (int b = 0; b < binds.length; b++) {
+                        ps.setObject(b + 1, binds[b]);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            rs.getObject(1);
+                        }
+                    }
+                }
+            }));
+            try (Connection conn = pool.getConnection()) {
+                for (String line : SchemaTuning.explain(conn, path.sql,
+                        path.binder.binds(ThreadLocalRandom.current()))) {
+                    if (line.matches("(?i).*(scan|index|idx_|table access|primary_key).*")) {
+                        System.out.println("      plan: " + line.trim());
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void aggregate(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            ps.setInt(2, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rs.getLong(1);
+                }
+            }
+        }
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Scan codes[from, to) from gates threads: each ticket once, then a
+     * repeat and a bogus code every 4th ticket. Records scan latencies.
+     */
+    private void scanAll(String name, TicketValidationService gate, List<String> codes, int[] showtimeOf,
+                         int gates, int from, int to) throws Exception {
+        int count = to - from;
+        long[] samples = new long[count + (count + 3) / 4 * 2];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService exec = Executors.newFixedThreadPool(gates);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int g = 0; g < gates; g++) {
+            futures.add(exec.submit(() -> {
+                int k;
+                while ((k = next.getAndIncrement()) < count) {
+                    int i = from + k;
+                    long t0 = System.nanoTime();
+                    TicketValidationService.Result r = gate.validate(showtimeOf[i], codes.get(i));
+                    samples[k] = System.nanoTime() - t0;
+                    if (r.outcome != TicketValidationService.Outcome.VALID) {
+                        throw new IllegalStateException("first scan of ticket " + i + ": " + r);
+                    }
+                    if (k % 4 == 0) {
+                        int extra = count + k / 4 * 2;
+                        t0 = System.nanoTime();
+                        r = gate.validate(showtimeOf[i], codes.get(i));
+                        samples[extra] = System.nanoTime() - t0;
+                        if (r.outcome != TicketValidationService.Outcome.ALREADY_VALIDATED) {
+                            throw new IllegalStateException("repeat scan of ticket " + i + ": " + r);
+                        }
+                        t0 = System.nanoTime();
+                        r = gate.validate(showtimeOf[i], "QR-FORGED-" + i);
+                        samples[extra + 1] = System.nanoTime() - t0;
+                        if (r.outcome != TicketValidationService.Outcome.UNKNOWN) {
+                            throw new IllegalStateException("bogus code accepted: " + r);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+        Result r = new Result(name, samples, (System.nanoTime() - start) / 1e9);
+        results.add(r);
+        System.out.println(r);
+    }
+
+    private long countRows(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void consume(ResultSet rs) throws SQLException {
+        long sink = 0;
+        while (rs.next()) {
+            sink += rs.getInt(1);
+            String title = rs.getString(2);
+            sink += title == null ? 0 : title.length();
+            rs.getString(3);
+        }
+        if (sink == 42) {
+            System.out.print(""); // keep the JIT from discarding the loop
+        }
+    }
+
+    // ============== main ==============
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: java ETicketBench <jdbcUrl> <user> <pass> "
+                    + "[iterations] [scale] [filter]");
+            return;
+        }
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        double scale = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        String filter = args.length > 5 ? args[5] : "";
+
+        DataGenerator.Config dataset = DataGenerator.Config.scaled(scale);
+
+        try (ConnectionPool pool = new ConnectionPool(
+                () -> DriverManager.getConnection(args[0], args[1], args[2]),
+                1, 16, 60_000L, 60_000L, ConnectionPool.LEAK_DETECTION_DISABLED)) {
+
+            ETicketBench bench = new ETicketBench(pool, iterations, dataset);
+
+            System.out.println("=== Loading benchmark dataset (scale " + scale + ") ===");
+            long start = System.nanoTime();
+            long rows = bench.resetAndLoad(4);
+            System.out.printf("Loaded %,d rows in %.1f s%n%n", rows, (System.nanoTime() - start) / 1e9);
+
+            System.out.println(Result.header());
+            if ("listEvents".contains(filter)) {
+                bench.benchListEvents();
+            }
+            if ("listEventsPaged".contains(filter)) {
+                bench.benchListEventsPaged();
+            }
+            if ("searchEventsByTitle".contains(filter)) {
+                bench.benchSearch();
+            }
+            if ("searchIndex".contains(filter)) {
+                bench.benchSearchIndex();
+            }
+            if ("catalogCache".contains(filter)) {
+                bench.benchCatalogCache();
+            }
+            if ("addEvent updateEventTitle deleteEvent".contains(filter)) {
+                bench.benchAddUpdateDelete();
+            }
+            if ("populateTables".contains(filter)) {
+                bench.benchPopulate();
+            }
+            if ("seatContention".contains(filter)) {
+                bench.benchSeatContention(64);
+            }
+            if ("checkout".contains(filter)) {
+                bench.benchCheckout(16);
+            }
+            if ("gateScan".contains(filter)) {
+                bench.benchGateScan(8);
+            }
+            if ("gateOffline".contains(filter)) {
+                bench.benchGateOffline();
+            }
+            if ("reports".contains(filter)) {
+                bench.benchReports();
+            }
+            if ("summaries".contains(filter)) {
+                bench.benchSummaries(16);
+            }
+            if ("schemaTuning".contains(filter)) {
+                bench.benchSchemaTuning();
+            }
+            if ("csvImport".contains(filter)) {
+                bench.benchCsvImport();
+            }
+            if ("migrations".contains(filter)) {
+                bench.benchMigrations();
+            }
+            if ("schemaReset".contains(filter)) {
+                bench.benchSchemaReset();
+            }
+            System.out.println();
+            System.out.println(pool.stats());
+        }
+    }
+}
@@ -1,6 +1,15 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.KeyEvent;
 import java.sql.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CPS510 A9 – Swing UI for E-Ticket DB
@@ -8,34 +17,121 @@ import java.sql.*;
  * This GUI demonstrates:
  *  - Logging into TMU Oracle DB with user-entered credentials
  *  - Dropping / creating / populating tables
+ *  - Importing partner CSV files (venues / seats / events)
  *  - Query Tables (Events sub-menu) with:
  *      * List Events
  *      * Add Event
  *      * Update Event Title
  *      * Delete Event
  *      * Search Events by Title
+ *      * Seat Availability / Availability Summary / Sales Reports
+ *  - Reconcile Counters (check / rebuild the summary counters)
  *
- * It mirrors the console menu structure:
+ * Its buttons follow the console menu:
  *  1) Drop Tables
  *  2) Create Tables
- *  3) Populate Tables
- *  4) Query Tables (Events sub-menu)
+ *  3) Populate Dummy Data
+ *  8) Import CSV
+ *  4) Query Tables (Events)
+ *  5) Reconcile Counters
  *  0) Exit
+ * Schema Tuning (6) and Schema Versions (7) are console-only.
+ *
+ * All JDBC work runs on a single background worker (see runInBackground),
+ * never on the Swing Event Dispatch Thread, so the window stays responsive
+ * during long Oracle round trips. A running statement can be aborted with
+ * the "Cancel" button, which calls Statement.cancel(). The SQL itself lives
+ * in the repositories shared with the console app (EventRepository,
+ * SeatMapRepository, SchemaRepository, ReportRepository,
+ * SummaryRepository).
+ *
+ * The output pane is a JList over a bounded ring buffer (LogListModel):
+ * memory stays constant over long sessions and bursts of output are
+ * painted once per frame.
+ *
+ * The bottom search box suggests events as you type: keystrokes are
+ * debounced, suggestions come from the in-memory EventSearchIndex on a
+ * separate thread, and answers to outdated input are dropped.
  */
 public class ETicketGUI extends JFrame {
 
-    // Connection is passed in from the login dialog / main()
-    private Connection conn;
-    private JTextArea outputArea;
+    // Connection pool is created from the login dialog in main();
+    // every background task borrows its own connection from it
+    private final ConnectionPool pool;
+    private LogListModel output;
     private JTextField searchField;
     private JPanel buttonPanel;
+    private JButton btnSearchGo;
+    private JButton btnCancel;
+
+    // Background worker for JDBC calls. The UI allows one operation in
+    // flight at a time; the small queue rejects runaway submissions.
+    private final ExecutorService dbExecutor;
+
+    // Only touched on the EDT: true while a background DB task is running
+    private boolean busy = false;
+
+    // Statement currently executing on the worker (for Cancel)
+    private volatile Statement currentStatement;
+
+    // Data-access layer shared with the console app. The repositories also
+    // own the in-memory views (search index, seat inventory, catalogue cache)
+    private final EventRepository events;
+    private final SeatMapRepository seats;
+    private final SchemaRepository schema;
+    private final SummaryRepository summaries;
+    // Own parallel executor (not dbExecutor): reports run several queries at once
+    private final ReportRepository reports;
+
+    // Type-ahead: suggestions are computed off the EDT on their own thread,
+    // so they never queue behind (or block) a long JDBC task
+    private static final int TYPEAHEAD_DELAY_MS = 150;
+    private static final int TYPEAHEAD_MIN_CHARS = 2;
+    private static final int TYPEAHEAD_MAX_SUGGESTIONS = 8;
+    private final ExecutorService typeaheadExecutor;
+    private Timer typeaheadTimer;          // EDT only
+    private Future<?> typeaheadTask;       // EDT only
+    private long typeaheadGeneration = 0;  // EDT only; bumped per query
+    private JPopupMenu suggestionPopup;
+
+    /**
+     * A unit of JDBC work executed off the EDT by runInBackground(),
+     * on a connection borrowed from the pool for the task's duration.
+     */
+    private interface DbTask {
+        void run(Connection conn) throws SQLException;
+    }
 
     /**
-     * Main GUI constructor: we receive an already-open Oracle Connection
-     * plus the username (for display in the window title).
+     * Main GUI constructor: we receive a connection pool that has already
+     * been verified against Oracle, plus the username (for display in the
+     * window title).
      */
-    public ETicketGUI(Connection conn, String currentUser) {
-        this.conn = conn;
+    public ETicketGUI(ConnectionPool pool, String currentUser) {
+        this.pool = pool;
+        this.dbExecutor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(4),
+                r -> {
+                    Thread t = new Thread(r, "eticket-db-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.events = new EventRepository(pool, new IdAllocator(pool), new CatalogCache(pool), dbExecutor);
+        this.seats = new SeatMapRepository(pool, dbExecutor);
+        this.summaries = new SummaryRepository(pool, dbExecutor);
+        this.schema = new SchemaRepository(pool, events, seats, summaries, dbExecutor);
+        events.setStatementTracker(this::track);
+        seats.setStatementTracker(this::track);
+        summaries.setStatementTracker(this::track);
+        schema.setStatementTracker(this::track);
+        this.reports = new ReportRepository(pool);
+        reports.setStatementTracker(this::track);
+        this.typeaheadExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "eticket-typeahead");
+            t.setDaemon(true);
+            return t;
+        });
 
         // ===== Window setup =====
         setTitle("CPS510 E-Ticket System – Java UI (User: " + currentUser + ")");
@@ -45,27 +141,33 @@ public class ETicketGUI extends JFrame {
         setLayout(new BorderLayout(8, 8));
 
         // ===== Output area (acts like console) =====
-        outputArea = new JTextArea();
-        outputArea.setEditable(false);
-        outputArea.setFont(new Font("monospaced", Font.PLAIN, 12));
-        JScrollPane scroll = new JScrollPane(outputArea);
+        // Bounded ring buffer shown in a JList: only visible rows are painted
+        output = new LogListModel();
+        JList<String> outputList = new JList<>(output);
+        outputList.setFont(new Font("monospaced", Font.PLAIN, 12));
+        JScrollPane scroll = new JScrollPane(outputList);
+        output.attach(outputList, scroll);
         add(scroll, BorderLayout.CENTER);
 
         // ===== Top button panel (mirrors main menu) =====
         buttonPanel = new JPanel();
-        // 5 main actions: Drop / Create / Populate / Query Tables / Exit
-        buttonPanel.setLayout(new GridLayout(1, 5, 6, 6));
+        // 7 main actions: Drop / Create / Populate / Import / Query Tables / Reconcile / Exit
+        buttonPanel.setLayout(new GridLayout(1, 7, 6, 6));
 
         JButton btnDrop     = new JButton("Drop Tables");
         JButton btnCreate   = new JButton("Create Tables");
         JButton btnPopulate = new JButton("Populate Dummy Data");
+        JButton btnImport   = new JButton("Import CSV");
         JButton btnQuery    = new JButton("Query Tables (Events)");
+        JButton btnReconcile = new JButton("Reconcile Counters");
         JButton btnExit     = new JButton("Exit");
 
         buttonPanel.add(btnDrop);
         buttonPanel.add(btnCreate);
         buttonPanel.add(btnPopulate);
+        buttonPanel.add(btnImport);
         buttonPanel.add(btnQuery);
+        buttonPanel.add(btnReconcile);
         buttonPanel.add(btnExit);
 
         add(buttonPanel, BorderLayout.NORTH);
@@ -73,52 +175,157 @@ public class ETicketGUI extends JFrame {
         // ===== Bottom search panel (simple direct search) =====
         JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
         searchField = new JTextField();
-        JButton btnSearchGo = new JButton("Search");
+        btnSearchGo = new JButton("Search");
+        btnCancel = new JButton("Cancel");
+        btnCancel.setEnabled(false);
+
+        JPanel searchButtons = new JPanel(new GridLayout(1, 2, 5, 5));
+        searchButtons.add(btnSearchGo);
+        searchButtons.add(btnCancel);
 
         searchPanel.add(new JLabel("Search title keyword:"), BorderLayout.WEST);
         searchPanel.add(searchField, BorderLayout.CENTER);
-        searchPanel.add(btnSearchGo, BorderLayout.EAST);
+        searchPanel.add(searchButtons, BorderLayout.EAST);
 
         add(searchPanel, BorderLayout.SOUTH);
 
         // Connection is already open at this point
         appendLine("Connected to Oracle as: " + currentUser);
 
+        // Build the seat inventory and search index in the background
+        runInBackground("Load in-memory data", conn -> schema.reloadInMemory(conn, this::appendLine));
+
         // ===== Wire button actions =====
-        btnDrop.addActionListener(e -> dropTables());
-        btnCreate.addActionListener(e -> createTables());
-        btnPopulate.addActionListener(e -> populateTables());
+        btnDrop.addActionListener(e -> runInBackground("Drop tables",
+                conn -> schema.dropTables(conn, this::appendLine)));
+        btnCreate.addActionListener(e -> runInBackground("Create tables",
+                conn -> schema.createTables(conn, this::appendLine)));
+        btnPopulate.addActionListener(e -> runInBackground("Populate tables",
+                conn -> schema.populateTables(conn, this::appendLine)));
+        btnImport.addActionListener(e -> importCsv());
+        btnReconcile.addActionListener(e -> runInBackground("Reconcile counters",
+                conn -> schema.reconcileSummaries(conn, true, this::appendLine)));
 
         // New: Query Tables button opens the Query Menu (Events sub-menu)
         btnQuery.addActionListener(e -> showQueryMenu());
 
-        // Bottom "Search" executes the filtered query using the search box
+        // Bottom "Search" (or Enter) executes the filtered query using the search box
         btnSearchGo.addActionListener(e -> searchEvents());
+        searchField.addActionListener(e -> searchEvents());
+        installTypeahead();
 
-        // Exit button closes DB connection and app
+        // Cancel aborts whatever statement the worker is executing
+        btnCancel.addActionListener(e -> cancelRunningStatement());
+
+        // Exit button closes DB connections and app
         btnExit.addActionListener(e -> {
-            try {
-                if (conn != null && !conn.isClosed()) {
-                    conn.close();
-                }
-            } catch (SQLException ex) {
-                // ignore
-            }
+            dbExecutor.shutdownNow();
+            typeaheadExecutor.shutdownNow();
+            pool.close();
             System.exit(0);
         });
     }
 
     // ============== Small helper methods ==============
 
+    /**
+     * Safe to call from any thread: background tasks stream their
+     * progress through here. Lines are queued in the bounded LogListModel
+     * and reach the screen in one batch per frame.
+     */
     private void appendLine(String text) {
-        outputArea.append(text + "\n");
-        outputArea.setCaretPosition(outputArea.getDocument().getLength());
+        output.append(text);
     }
 
     private void setButtonsEnabled(boolean enabled) {
         for (Component c : buttonPanel.getComponents()) {
             c.setEnabled(enabled);
         }
+        btnSearchGo.setEnabled(enabled);
+        searchField.setEnabled(enabled);
+    }
+
+    // ============== Background execution ==============
+
+    /**
+     * Run a JDBC task on the background worker. Must be called on the EDT.
+     * Buttons are disabled while the task runs so the same operation cannot
+     * be submitted twice; returns false if another task is still running.
+     */
+    private boolean runInBackground(String label, DbTask task) {
+        if (pool == null) {
+            appendLine("No DB connection.");
+            return false;
+        }
+        if (busy) {
+            appendLine("Busy: please wait for the current operation to finish.");
+            return false;
+        }
+
+        busy = true;
+        setButtonsEnabled(false);
+        btnCancel.setEnabled(true);
+
+        try {
+            dbExecutor.execute(() -> {
+                long start = System.nanoTime();
+                try (Connection conn = pool.getConnection()) {
+                    task.run(conn);
+                } catch (SQLException e) {
+                    appendLine(label + " failed: " + e.getMessage());
+                } catch (RuntimeException e) {
+                    appendLine(label + " failed: " + e);
+                } finally {
+                    currentStatement = null;
+                    long ms = (System.nanoTime() - start) / 1_000_000L;
+                    appendLine("(" + label + " took " + ms + " ms)");
+                    SwingUtilities.invokeLater(this::finishBackgroundTask);
+                }
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            appendLine(label + " rejected: " + e.getMessage());
+            finishBackgroundTask();
+            return false;
+        }
+        return true;
+    }
+
+    private void finishBackgroundTask() {
+        busy = false;
+        btnCancel.setEnabled(false);
+        setButtonsEnabled(true);
+    }
+
+    /**
+     * Register a statement as the one currently executing on the worker,
+     * so that the Cancel button can abort it.
+     */
+    private <T extends Statement> T track(T stmt) {
+        currentStatement = stmt;
+        return stmt;
+    }
+
+    /**
+     * Statement.cancel() is a network call to Oracle, so it is issued from
+     * a short-lived helper thread instead of the EDT.
+     */
+    private void cancelRunningStatement() {
+        Statement stmt = currentStatement;
+        if (stmt == null) {
+            appendLine("Nothing to cancel.");
+            return;
+        }
+        appendLine("Cancelling current statement...");
+        Thread t = new Thread(() -> {
+            try {
+                stmt.cancel();
+                reports.cancel(); // a running report may have more statements open
+            } catch (SQLException e) {
+                appendLine("Cancel failed: " + e.getMessage());
+            }
+        }, "eticket-db-cancel");
+        t.setDaemon(true);
+        t.start();
     }
 
     // ============== Query Menu (Events sub-menu) ==============
@@ -128,7 +335,7 @@ public class ETicketGUI extends JFrame {
      * using a Swing dialog with buttons for each operation.
      */
     private void showQueryMenu() {
-        if (conn == null) {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
@@ -141,6 +348,9 @@ public class ETicketGUI extends JFrame {
                     "Update Event Title",
                     "Delete Event",
                     "Search Events by Title",
+                    "Seat Availability",
+                    "Availability Summary",
+                    "Sales Reports",
                     "Back"
             };
 
@@ -156,7 +366,7 @@ public class ETicketGUI extends JFrame {
             );
 
             if (choice == 0) {
-                listEvents();
+                showEventList();
             } else if (choice == 1) {
                 addEvent();
             } else if (choice == 2) {
@@ -165,6 +375,12 @@ public class ETicketGUI extends JFrame {
                 deleteEvent();
             } else if (choice == 4) {
                 promptSearchEvents();
+            } else if (choice == 5) {
+                showSeatAvailability();
+            } else if (choice == 6) {
+                showAvailabilitySummary();
+            } else if (choice == 7) {
+                showSalesReports();
             } else {
                 // Back or dialog closed
                 done = true;
@@ -172,515 +388,253 @@ public class ETicketGUI extends JFrame {
         }
     }
 
-    // ============== 1) Drop Tables ==============
+    // ============== Seat availability (in-memory) ==============
 
     /**
-     * Drop all project tables in dependency order (children first).
-     * Same logic as the console version, but writes to the UI text area.
+     * Seats left for one showtime, per section, plus the first block of
+     * adjacent seats for a party size. Answered from memory, so it runs
+     * directly on the EDT.
      */
-    private void dropTables() {
-        if (conn == null) {
-            appendLine("No DB connection.");
-            return;
-        }
+    private void showSeatAvailability() {
+        try {
+            String idStr = JOptionPane.showInputDialog(
+                    this,
+                    "ShowtimeID:",
+                    "Seat Availability",
+                    JOptionPane.QUESTION_MESSAGE
+            );
+            if (idStr == null) return;
+            int showtimeId = Integer.parseInt(idStr.trim());
 
-        appendLine("=== Dropping tables (if they exist) ===");
-
-        String[] drops = {
-                "DROP TABLE Tickets CASCADE CONSTRAINTS",
-                "DROP TABLE SeatMaps CASCADE CONSTRAINTS",
-                "DROP TABLE Payments CASCADE CONSTRAINTS",
-                "DROP TABLE Orders CASCADE CONSTRAINTS",
-                "DROP TABLE Seats CASCADE CONSTRAINTS",
-                "DROP TABLE Showtimes CASCADE CONSTRAINTS",
-                "DROP TABLE Events CASCADE CONSTRAINTS",
-                "DROP TABLE Venues CASCADE CONSTRAINTS",
-                "DROP TABLE Organizers CASCADE CONSTRAINTS",
-                "DROP TABLE Users CASCADE CONSTRAINTS"
-        };
+            String partyStr = JOptionPane.showInputDialog(
+                    this,
+                    "Seats together (party size):",
+                    "Seat Availability",
+                    JOptionPane.QUESTION_MESSAGE
+            );
+            if (partyStr == null) return;
+            int party = Integer.parseInt(partyStr.trim());
 
-        for (String sql : drops) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.executeUpdate(sql);
-                appendLine("OK: " + sql);
-            } catch (SQLException e) {
-                appendLine("Skip: " + sql + " (" + e.getMessage() + ")");
+            SeatInventory inv = seats.inventory();
+            if (!inv.hasShowtime(showtimeId)) {
+                appendLine("No seat map loaded for ShowtimeID = " + showtimeId);
+                return;
             }
-        }
 
-        appendLine("Done dropping tables.");
+            long start = System.nanoTime();
+            appendLine("=== Seat Availability: Showtime " + showtimeId + " ===");
+            appendLine("Available: " + inv.countAvailable(showtimeId)
+                    + " | Held: " + inv.countHeld(showtimeId)
+                    + " | Sold: " + inv.countSold(showtimeId));
+            for (java.util.Map.Entry<String, Integer> e : inv.availableBySection(showtimeId).entrySet()) {
+                appendLine("  Section " + e.getKey() + ": " + e.getValue() + " available");
+            }
+            int[] block = inv.findContiguous(showtimeId, null, party);
+            appendLine(block == null
+                    ? "No " + party + " adjacent seats available."
+                    : party + " adjacent seats: SeatIDs " + java.util.Arrays.toString(block));
+            appendLine("(answered in " + (System.nanoTime() - start) / 1_000L + " us)");
+
+        } catch (NumberFormatException ex) {
+            appendLine("Invalid number input.");
+        }
     }
 
-    // ============== 2) Create Tables ==============
+    // ============== Availability summary (counter tables) ==============
 
     /**
-     * Create the 3NF/BCNF schema for the e-ticket system.
-     * This is the same schema used in the console app.
+     * Seats left, tickets sold and revenue for one showtime or event, or
+     * the top events by revenue, read from the summary counters: one row
+     * per showtime / event instead of aggregating SEATMAPS and TICKETS.
      */
-    private void createTables() {
-        if (conn == null) {
-            appendLine("No DB connection.");
+    private void showAvailabilitySummary() {
+        String[] options = { "Showtime", "Event", "Top 10 Events by Revenue", "Back" };
+        int choice = JOptionPane.showOptionDialog(
+                this,
+                "=== Availability Summary ===",
+                "Availability Summary",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+        if (choice < 0 || choice >= options.length - 1) {
             return;
         }
 
-        appendLine("=== Creating tables ===");
-
-        try (Statement stmt = conn.createStatement()) {
-
-            // USERS
-            stmt.executeUpdate(
-                    "CREATE TABLE Users (" +
-                            "    UserID       NUMBER(10)      PRIMARY KEY," +
-                            "    FirstName    VARCHAR2(100)   NOT NULL," +
-                            "    LastName     VARCHAR2(100)   NOT NULL," +
-                            "    Email        VARCHAR2(255)   NOT NULL UNIQUE," +
-                            "    Phone        VARCHAR2(30)," +
-                            "    CreatedAt    DATE            DEFAULT SYSDATE NOT NULL" +
-                            ")"
-            );
-
-            // ORGANIZERS
-            stmt.executeUpdate(
-                    "CREATE TABLE Organizers (" +
-                            "    OrganizerID   NUMBER(10)     PRIMARY KEY," +
-                            "    Name          VARCHAR2(200)  NOT NULL," +
-                            "    ContactEmail  VARCHAR2(255)," +
-                            "    ContactPhone  VARCHAR2(30)" +
-                            ")"
-            );
-
-            // VENUES
-            stmt.executeUpdate(
-                    "CREATE TABLE Venues (" +
-                            "    VenueID   NUMBER(10)     PRIMARY KEY," +
-                            "    Name      VARCHAR2(200)  NOT NULL," +
-                            "    Address   VARCHAR2(300)," +
-                            "    City      VARCHAR2(120)," +
-                            "    Capacity  NUMBER(10)" +
-                            ")"
-            );
-
-            // EVENTS
-            stmt.executeUpdate(
-                    "CREATE TABLE Events (" +
-                            "    EventID     NUMBER(10)    PRIMARY KEY," +
-                            "    OrganizerID NUMBER(10)    NOT NULL," +
-                            "    Title       VARCHAR2(200) NOT NULL," +
-                            "    Category    VARCHAR2(100)," +
-                            "    Description VARCHAR2(1000)," +
-                            "    CONSTRAINT fk_events_organizer" +
-                            "        FOREIGN KEY (OrganizerID)" +
-                            "        REFERENCES Organizers (OrganizerID)" +
-                            ")"
-            );
-
-            // SHOWTIMES
-            stmt.executeUpdate(
-                    "CREATE TABLE Showtimes (" +
-                            "    ShowtimeID    NUMBER(10)     PRIMARY KEY," +
-                            "    EventID       NUMBER(10)     NOT NULL," +
-                            "    VenueID       NUMBER(10)     NOT NULL," +
-                            "    StartDateTime DATE           NOT NULL," +
-                            "    BasePrice     NUMBER(10,2)   NOT NULL," +
-                            "    CONSTRAINT fk_showtimes_event" +
-                            "        FOREIGN KEY (EventID)" +
-                            "        REFERENCES Events (EventID)," +
-                            "    CONSTRAINT fk_showtimes_venue" +
-                            "        FOREIGN KEY (VenueID)" +
-                            "        REFERENCES Venues (VenueID)," +
-                            "    CONSTRAINT uq_showtimes_event_venue_start" +
-                            "        UNIQUE (EventID, VenueID, StartDateTime)" +
-                            ")"
-            );
-
-            // SEATS
-            stmt.executeUpdate(
-                    "CREATE TABLE Seats (" +
-                            "    SeatID     NUMBER(10)    PRIMARY KEY," +
-                            "    VenueID    NUMBER(10)    NOT NULL," +
-                            "    Section    VARCHAR2(50)  NOT NULL," +
-                            "    RowLabel   VARCHAR2(20)  NOT NULL," +
-                            "    SeatNumber VARCHAR2(20)  NOT NULL," +
-                            "    CONSTRAINT fk_seats_venue" +
-                            "        FOREIGN KEY (VenueID)" +
-                            "        REFERENCES Venues (VenueID)," +
-                            "    CONSTRAINT uq_venue_section_row_seat" +
-                            "        UNIQUE (VenueID, Section, RowLabel, SeatNumber)" +
-                            ")"
-            );
-
-            // ORDERS
-            stmt.executeUpdate(
-                    "CREATE TABLE Orders (" +
-                            "    OrderID        NUMBER(10)     PRIMARY KEY," +
-                            "    UserID         NUMBER(10)     NOT NULL," +
-                            "    OrderDateTime  DATE           DEFAULT SYSDATE NOT NULL," +
-                            "    OrderTotal     NUMBER(10,2)   NOT NULL," +
-                            "    Status         VARCHAR2(20)   NOT NULL," +
-                            "    CONSTRAINT fk_orders_user" +
-                            "        FOREIGN KEY (UserID)" +
-                            "        REFERENCES Users (UserID)" +
-                            ")"
-            );
-
-            // PAYMENTS
-            stmt.executeUpdate(
-                    "CREATE TABLE Payments (" +
-                            "    PaymentID  NUMBER(10)     PRIMARY KEY," +
-                            "    OrderID    NUMBER(10)     NOT NULL," +
-                            "    Amount     NUMBER(10,2)   NOT NULL," +
-                            "    Method     VARCHAR2(40)   NOT NULL," +
-                            "    PaidAt     DATE," +
-                            "    AuthCode   VARCHAR2(64)," +
-                            "    CONSTRAINT fk_payments_order" +
-                            "        FOREIGN KEY (OrderID)" +
-                            "        REFERENCES Orders (OrderID)" +
-                            ")"
-            );
-
-            // SEATMAPS
-            stmt.executeUpdate(
-                    "CREATE TABLE SeatMaps (" +
-                            "    SeatMapID  NUMBER(10)     PRIMARY KEY," +
-                            "    ShowtimeID NUMBER(10)     NOT NULL," +
-                            "    SeatID     NUMBER(10)     NOT NULL," +
-                            "    Status     VARCHAR2(16)   NOT NULL," +
-                            "    CONSTRAINT fk_seatmaps_showtime" +
-                            "        FOREIGN KEY (ShowtimeID)" +
-                            "        REFERENCES Showtimes (ShowtimeID)," +
-                            "    CONSTRAINT fk_seatmaps_seat" +
-                            "        FOREIGN KEY (SeatID)" +
-                            "        REFERENCES Seats (SeatID)," +
-                            "    CONSTRAINT uq_seatmaps_showtime_seat" +
-                            "        UNIQUE (ShowtimeID, SeatID)," +
-                            "    CONSTRAINT chk_seatmaps_status" +
-                            "        CHECK (Status IN ('AVAILABLE', 'HELD', 'SOLD'))" +
-                            ")"
+        int id = 0;
+        if (choice < 2) {
+            String idStr = JOptionPane.showInputDialog(
+                    this,
+                    options[choice] + "ID:",
+                    "Availability Summary",
+                    JOptionPane.QUESTION_MESSAGE
             );
+            if (idStr == null) return;
+            try {
+                id = Integer.parseInt(idStr.trim());
+            } catch (NumberFormatException ex) {
+                appendLine("Invalid number input.");
+                return;
+            }
+        }
 
-            // TICKETS
-            stmt.executeUpdate(
-                    "CREATE TABLE Tickets (" +
-                            "    TicketID     NUMBER(10)     PRIMARY KEY," +
-                            "    OrderID      NUMBER(10)     NOT NULL," +
-                            "    ShowtimeID   NUMBER(10)     NOT NULL," +
-                            "    SeatID       NUMBER(10)     NOT NULL," +
-                            "    TicketPrice  NUMBER(10,2)   NOT NULL," +
-                            "    QRCode       VARCHAR2(128)  NOT NULL," +
-                            "    IsValidated  CHAR(1)        DEFAULT 'N' NOT NULL," +
-                            "    ValidatedAt  DATE," +
-                            "    CONSTRAINT fk_tickets_order" +
-                            "        FOREIGN KEY (OrderID)" +
-                            "        REFERENCES Orders (OrderID)," +
-                            "    CONSTRAINT fk_tickets_showtime" +
-                            "        FOREIGN KEY (ShowtimeID)" +
-                            "        REFERENCES Showtimes (ShowtimeID)," +
-                            "    CONSTRAINT fk_tickets_seat" +
-                            "        FOREIGN KEY (SeatID)" +
-                            "        REFERENCES Seats (SeatID)," +
-                            "    CONSTRAINT uq_tickets_qrcode" +
-                            "        UNIQUE (QRCode)," +
-                            "    CONSTRAINT uq_tickets_showtime_seat" +
-                            "        UNIQUE (ShowtimeID, SeatID)," +
-                            "    CONSTRAINT chk_tickets_isvalidated" +
-                            "        CHECK (IsValidated IN ('Y','N'))" +
-                            ")"
-            );
+        int key = id;
+        runInBackground("Availability summary", conn -> {
+            String header = " | Available, Held, Sold/Seats (sell-through) | Tickets | Revenue";
+            if (choice == 0) {
+                appendLine("ShowtimeID" + header);
+                appendLine(summaries.showtime(conn, key).toString());
+            } else if (choice == 1) {
+                appendLine("EventID" + header);
+                appendLine(summaries.event(conn, key).toString());
+            } else {
+                appendLine("EventID" + header);
+                for (SummaryRepository.Counters c : summaries.topEvents(conn, 10)) {
+                    appendLine(c.toString());
+                }
+            }
+        });
+    }
 
-            appendLine("All tables created successfully.");
+    // ============== CSV import ==============
 
-        } catch (SQLException e) {
-            appendLine("Error creating tables: " + e.getMessage());
+    /**
+     * Pick what the file holds and the file itself, then stream it into
+     * the table on the DB worker (see CsvImporter for the format).
+     */
+    private void importCsv() {
+        CsvImporter.Kind kind = (CsvImporter.Kind) JOptionPane.showInputDialog(this,
+                "The file holds (header row required):", "Import CSV", JOptionPane.QUESTION_MESSAGE,
+                null, CsvImporter.Kind.values(), CsvImporter.Kind.SEATS);
+        if (kind == null) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import " + kind.table + " (" + kind.header() + ")");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        runInBackground("Import " + kind.table,
+                conn -> schema.importCsv(conn, kind, file, this::appendLine));
     }
 
-    // ============== 3) Populate Tables ==============
+    // ============== Sales reports ==============
 
     /**
-     * Insert the same dummy records as in the console program.
-     * This gives us data to show in the simple UI reports.
+     * Pick a sales report and stream its rows into the output pane as the
+     * parallel queries return them.
      */
-    private void populateTables() {
-        if (conn == null) {
-            appendLine("No DB connection.");
+    private void showSalesReports() {
+        String[] options = {
+                "Revenue by Event",
+                "Revenue by Showtime",
+                "Revenue by Venue",
+                "Payment Methods",
+                "Payment Methods by Event",
+                "Back"
+        };
+        int choice = JOptionPane.showOptionDialog(
+                this,
+                "=== Sales Reports ===",
+                "Sales Reports",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+        if (choice < 0 || choice >= options.length - 1) {
             return;
         }
 
-        appendLine("=== Inserting dummy data into tables ===");
-
-        try {
-            conn.setAutoCommit(false);
-
-            // USERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Users (UserID, FirstName, LastName, Email, Phone) " +
-                            "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Ahmad");
-                ps.setString(3, "Kanaan");
-                ps.setString(4, "ahmad@example.com");
-                ps.setString(5, "4161111111");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "John");
-                ps.setString(3, "Doe");
-                ps.setString(4, "john@example.com");
-                ps.setString(5, "4162222222");
-                ps.executeUpdate();
-
-                ps.setInt(1, 3);
-                ps.setString(2, "Sarah");
-                ps.setString(3, "Ali");
-                ps.setString(4, "sarah@example.com");
-                ps.setString(5, "6473333333");
-                ps.executeUpdate();
-            }
-
-            // ORGANIZERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Organizers (OrganizerID, Name, ContactEmail, ContactPhone) " +
-                            "VALUES (?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Live Nation");
-                ps.setString(3, "contact@livenation.com");
-                ps.setString(4, "4165550000");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "Cineplex");
-                ps.setString(3, "info@cineplex.com");
-                ps.setString(4, "4165551234");
-                ps.executeUpdate();
-            }
-
-            // VENUES
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Venues (VenueID, Name, Address, City, Capacity) " +
-                            "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Scotiabank Arena");
-                ps.setString(3, "40 Bay St");
-                ps.setString(4, "Toronto");
-                ps.setInt(5, 20000);
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "Cineplex YD Square");
-                ps.setString(3, "10 Dundas St E");
-                ps.setString(4, "Toronto");
-                ps.setInt(5, 500);
-                ps.executeUpdate();
-            }
-
-            // EVENTS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
-                            "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setString(3, "Drake Live Concert");
-                ps.setString(4, "Concert");
-                ps.setString(5, "Drake performing live in Toronto.");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setString(3, "Avengers: Endgame");
-                ps.setString(4, "Movie");
-                ps.setString(5, "Special screening of Avengers Endgame.");
-                ps.executeUpdate();
-            }
-
-            // SHOWTIMES
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Showtimes (ShowtimeID, EventID, VenueID, StartDateTime, BasePrice) " +
-                            "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setInt(3, 1);
-                ps.setTimestamp(4, Timestamp.valueOf("2025-12-10 20:00:00"));
-                ps.setDouble(5, 150.00);
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setInt(3, 2);
-                ps.setTimestamp(4, Timestamp.valueOf("2025-12-12 18:00:00"));
-                ps.setDouble(5, 20.00);
-                ps.executeUpdate();
-            }
-
-            // SEATS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Seats (SeatID, VenueID, Section, RowLabel, SeatNumber) " +
-                            "VALUES (?, ?, ?, ?, ?)")) {
-                // Venue 1: 3 seats
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "1");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "2");
-                ps.executeUpdate();
-
-                ps.setInt(1, 3);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "3");
-                ps.executeUpdate();
-
-                // Venue 2: 2 seats
-                ps.setInt(1, 4);
-                ps.setInt(2, 2);
-                ps.setString(3, "Front");
-                ps.setString(4, "B");
-                ps.setString(5, "5");
-                ps.executeUpdate();
-
-                ps.setInt(1, 5);
-                ps.setInt(2, 2);
-                ps.setString(3, "Front");
-                ps.setString(4, "B");
-                ps.setString(5, "6");
-                ps.executeUpdate();
+        String label = options[choice];
+        runInBackground(label, conn -> {
+            appendLine("=== " + label + " ===");
+            long rows;
+            switch (choice) {
+                case 0:
+                    appendLine("EventID | Title | Showtimes | Sold/Seats (sell-through) | Tickets | Revenue");
+                    rows = reports.salesByEvent(row -> appendLine(row.toString()));
+                    break;
+                case 1:
+                    appendLine("ShowtimeID | Event @ Venue, Start | Sold/Seats (sell-through), Held | Tickets | Revenue");
+                    rows = reports.salesByShowtime(row -> appendLine(row.toString()));
+                    break;
+                case 2:
+                    appendLine("VenueID | Venue, City | Showtimes | Sold/Seats (sell-through) | Tickets | Revenue");
+                    rows = reports.salesByVenue(row -> appendLine(row.toString()));
+                    break;
+                case 3:
+                    appendLine("Method | Orders | Tickets | Revenue");
+                    rows = reports.paymentMethods(conn, row -> appendLine(row.toString()));
+                    break;
+                default:
+                    appendLine("EventID | Title | Method | Orders | Tickets | Revenue");
+                    rows = reports.paymentMethodsByEvent(row -> appendLine(row.toString()));
+                    break;
             }
-
-            // ORDERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Orders (OrderID, UserID, OrderDateTime, OrderTotal, Status) " +
-                            "VALUES (?, ?, SYSDATE, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setDouble(3, 150.00);
-                ps.setString(4, "PAID");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setDouble(3, 20.00);
-                ps.setString(4, "PAID");
-                ps.executeUpdate();
-            }
-
-            // PAYMENTS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Payments (PaymentID, OrderID, Amount, Method, PaidAt, AuthCode) " +
-                            "VALUES (?, ?, ?, ?, SYSDATE, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setDouble(3, 150.00);
-                ps.setString(4, "CARD");
-                ps.setString(5, "AUTH12345");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setDouble(3, 20.00);
-                ps.setString(4, "CARD");
-                ps.setString(5, "AUTH67890");
-                ps.executeUpdate();
-            }
-
-            // TICKETS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Tickets (TicketID, OrderID, ShowtimeID, SeatID, TicketPrice, QRCode, IsValidated) " +
-                            "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setInt(3, 1);
-                ps.setInt(4, 1);
-                ps.setDouble(5, 150.00);
-                ps.setString(6, "QR-ABC-111");
-                ps.setString(7, "N");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setInt(3, 2);
-                ps.setInt(4, 5);
-                ps.setDouble(5, 20.00);
-                ps.setString(6, "QR-XYZ-222");
-                ps.setString(7, "Y");
-                ps.executeUpdate();
-            }
-
-            conn.commit();
-            conn.setAutoCommit(true);
-            appendLine("Dummy data inserted successfully.");
-
-        } catch (SQLException e) {
-            appendLine("Error populating tables: " + e.getMessage());
-            try {
-                conn.rollback();
-                conn.setAutoCommit(true);
-            } catch (SQLException ex2) {
-                appendLine("Rollback error: " + ex2.getMessage());
-            }
-        }
+            appendLine(rows == 0 ? "(No rows)" : rows + " row(s).");
+        });
     }
 
     // ============== 4) Simple reports & CRUD on EVENTS ==============
 
     /**
      * Simple report #1: list all events (EventID, Title, Category).
+     *
+     * Opens a table window backed by EventTableModel: only the first page
+     * is read up front, and further pages are fetched on the DB worker as
+     * the user scrolls, so large EVENTS tables neither block the EDT nor
+     * get copied into the log area.
      */
-    private void listEvents() {
-        if (conn == null) {
+    private void showEventList() {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
-
-        appendLine("=== Events ===");
-        String sql = "SELECT EventID, Title, Category FROM Events ORDER BY EventID";
-
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            boolean hasRows = false;
-            while (rs.next()) {
-                hasRows = true;
-                int id = rs.getInt("EventID");
-                String title = rs.getString("Title");
-                String cat = rs.getString("Category");
-                appendLine(id + " | " + title + " | " + cat);
-            }
-
-            if (!hasRows) {
-                appendLine("(No rows found in Events table)");
+        EventTableModel model = new EventTableModel(events, this::appendLine);
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setMaxWidth(90);
+        JScrollPane scroll = new JScrollPane(table);
+
+        // Fetch the next page when the last visible row nears the end
+        Runnable checkViewport = () -> {
+            Rectangle view = table.getVisibleRect();
+            int last = table.rowAtPoint(new Point(0, view.y + view.height - 1));
+            model.ensureLoaded(last < 0 ? model.getRowCount() - 1 : last);
+        };
+        scroll.getViewport().addChangeListener(e -> checkViewport.run());
+        model.addTableModelListener(e -> SwingUtilities.invokeLater(checkViewport));
+
+        JDialog dialog = new JDialog(this, "Events", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                model.close();
             }
-
-        } catch (SQLException e) {
-            appendLine("Error listing events: " + e.getMessage());
-        }
+        });
+        dialog.add(scroll);
+        dialog.setSize(600, 400);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        model.ensureLoaded(0);
     }
 
     /**
      * Add a new event (interactive prompts via dialogs).
      */
     private void addEvent() {
-        if (conn == null) {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
 
         try {
-            String idStr = JOptionPane.showInputDialog(
-                    this,
-                    "New EventID (integer, must be unique):",
-                    "Add Event",
-                    JOptionPane.QUESTION_MESSAGE
-            );
-            if (idStr == null) return; // cancelled
-            int eventId = Integer.parseInt(idStr.trim());
-
             String orgStr = JOptionPane.showInputDialog(
                     this,
                     "OrganizerID (must exist in ORGANIZERS):",
@@ -717,22 +671,25 @@ public class ETicketGUI extends JFrame {
             if (description == null) description = "";
             description = description.trim();
 
-            String sql = "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
-                    "VALUES (?, ?, ?, ?, ?)";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, eventId);
-                ps.setInt(2, organizerId);
-                ps.setString(3, title);
-                ps.setString(4, category);
-                ps.setString(5, description);
-
-                int rows = ps.executeUpdate();
-                appendLine("Inserted " + rows + " row(s) into EVENTS.");
-            }
+            final String t = title;
+            final String c = category;
+            final String d = description;
+            runInBackground("Add event", conn -> insertEvent(conn, organizerId, t, c, d));
 
         } catch (NumberFormatException ex) {
             appendLine("Invalid number input. Event not added.");
+        }
+    }
+
+    /**
+     * JDBC half of addEvent(); runs on the background worker. The EventID
+     * comes from IdAllocator instead of being typed in.
+     */
+    private void insertEvent(Connection conn, int organizerId, String title,
+                             String category, String description) {
+        try {
+            int eventId = events.insert(conn, organizerId, title, category, description);
+            appendLine("Inserted 1 row(s) into EVENTS (EventID " + eventId + ").");
         } catch (SQLException e) {
             appendLine("Error inserting event: " + e.getMessage());
         }
@@ -742,7 +699,7 @@ public class ETicketGUI extends JFrame {
      * Update event title by EventID (interactive).
      */
     private void updateEventTitle() {
-        if (conn == null) {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
@@ -764,24 +721,25 @@ public class ETicketGUI extends JFrame {
                     JOptionPane.QUESTION_MESSAGE
             );
             if (newTitle == null) return;
-            newTitle = newTitle.trim();
-
-            String sql = "UPDATE Events SET Title = ? WHERE EventID = ?";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, newTitle);
-                ps.setInt(2, eventId);
-
-                int rows = ps.executeUpdate();
-                if (rows == 0) {
-                    appendLine("No event found with EventID = " + eventId);
-                } else {
-                    appendLine("Updated " + rows + " row(s).");
-                }
-            }
+            final String t = newTitle.trim();
+            runInBackground("Update event", conn -> updateEventTitle(conn, eventId, t));
 
         } catch (NumberFormatException ex) {
             appendLine("Invalid number input. Nothing updated.");
+        }
+    }
+
+    /**
+     * JDBC half of updateEventTitle(); runs on the background worker.
+     */
+    private void updateEventTitle(Connection conn, int eventId, String newTitle) {
+        try {
+            int rows = events.updateTitle(conn, eventId, newTitle);
+            if (rows == 0) {
+                appendLine("No event found with EventID = " + eventId);
+            } else {
+                appendLine("Updated " + rows + " row(s).");
+            }
         } catch (SQLException e) {
             appendLine("Error updating event: " + e.getMessage());
         }
@@ -791,7 +749,7 @@ public class ETicketGUI extends JFrame {
      * Delete event by EventID (interactive, with confirmation).
      */
     private void deleteEvent() {
-        if (conn == null) {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
@@ -817,21 +775,24 @@ public class ETicketGUI extends JFrame {
                 return;
             }
 
-            String sql = "DELETE FROM Events WHERE EventID = ?";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, eventId);
-
-                int rows = ps.executeUpdate();
-                if (rows == 0) {
-                    appendLine("No event found with EventID = " + eventId);
-                } else {
-                    appendLine("Deleted " + rows + " row(s).");
-                }
-            }
+            runInBackground("Delete event", conn -> deleteEvent(conn, eventId));
 
         } catch (NumberFormatException ex) {
             appendLine("Invalid number input. Nothing deleted.");
+        }
+    }
+
+    /**
+     * JDBC half of deleteEvent(); runs on the background worker.
+     */
+    private void deleteEvent(Connection conn, int eventId) {
+        try {
+            int rows = events.delete(conn, eventId);
+            if (rows == 0) {
+                appendLine("No event found with EventID = " + eventId);
+            } else {
+                appendLine("Deleted " + rows + " row(s).");
+            }
         } catch (SQLException e) {
             appendLine("Error deleting event (maybe FK constraints): " + e.getMessage());
         }
@@ -856,6 +817,7 @@ public class ETicketGUI extends JFrame {
      * Bottom search box handler – gets keyword from the text field.
      */
     private void searchEvents() {
+        cancelTypeahead();
         String keyword = searchField.getText();
         searchEventsByKeyword(keyword);
     }
@@ -863,9 +825,11 @@ public class ETicketGUI extends JFrame {
     /**
      * Core search implementation (used both by bottom search box
      * and by the Query Menu "Search Events by Title").
+     * Answered from the in-memory index directly on the EDT (well under a
+     * millisecond); without an index the SQL query runs in the background.
      */
     private void searchEventsByKeyword(String keywordRaw) {
-        if (conn == null) {
+        if (pool == null) {
             appendLine("No DB connection.");
             return;
         }
@@ -876,36 +840,148 @@ public class ETicketGUI extends JFrame {
             return;
         }
 
-        appendLine("=== Search Events: \"" + keyword + "\" ===");
+        long start = System.nanoTime();
+        java.util.List<EventSearchIndex.Hit> hits = events.search(keyword);
+        if (hits != null) {
+            appendLine("=== Search Events: \"" + keyword + "\" ===");
+            for (EventSearchIndex.Hit hit : hits) {
+                appendLine(hit.toString());
+            }
+            if (hits.isEmpty()) {
+                appendLine("(No events match that keyword)");
+            }
+            appendLine(String.format("(%d result(s) from the search index in %.3f ms)",
+                    hits.size(), (System.nanoTime() - start) / 1e6));
+            return;
+        }
 
-        String sql = "SELECT EventID, Title, Category " +
-                "FROM Events " +
-                "WHERE LOWER(Title) LIKE ? " +
-                "ORDER BY EventID";
-
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, "%" + keyword + "%");
-
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean hasRows = false;
-                while (rs.next()) {
-                    hasRows = true;
-                    int id = rs.getInt("EventID");
-                    String title = rs.getString("Title");
-                    String cat = rs.getString("Category");
-                    appendLine(id + " | " + title + " | " + cat);
-                }
+        runInBackground("Search events", conn -> runEventSearch(conn, keyword));
+    }
 
-                if (!hasRows) {
-                    appendLine("(No events match that keyword)");
-                }
+    /**
+     * JDBC half of searchEventsByKeyword(); runs on the background worker.
+     */
+    private void runEventSearch(Connection conn, String keyword) {
+        appendLine("=== Search Events: \"" + keyword + "\" ===");
+        try {
+            java.util.List<EventListing.Row> rows = events.searchTitles(conn, keyword);
+            for (EventListing.Row row : rows) {
+                appendLine(row.toString());
+            }
+            if (rows.isEmpty()) {
+                appendLine("(No events match that keyword)");
             }
-
         } catch (SQLException e) {
             appendLine("Error searching events: " + e.getMessage());
         }
     }
 
+    // ============== Type-ahead ==============
+
+    /**
+     * Every edit of the search box (re)starts a short timer; only when
+     * typing pauses does a suggestion query go out.
+     */
+    private void installTypeahead() {
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false); // keep typing in the field
+
+        typeaheadTimer = new Timer(TYPEAHEAD_DELAY_MS, e -> startTypeaheadQuery());
+        typeaheadTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                typeaheadTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                typeaheadTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // attribute changes only
+            }
+        });
+
+        searchField.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "hideSuggestions");
+        searchField.getActionMap().put("hideSuggestions", new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                cancelTypeahead();
+            }
+        });
+    }
+
+    /**
+     * Runs on the EDT when the debounce timer fires. Any query still in
+     * flight is cancelled, and the new one is tagged with a generation so
+     * a late answer to older input is ignored.
+     */
+    private void startTypeaheadQuery() {
+        if (typeaheadTask != null) {
+            typeaheadTask.cancel(true);
+        }
+        long generation = ++typeaheadGeneration;
+
+        String text = searchField.getText().trim();
+        EventSearchIndex index = events.searchIndex();
+        if (text.length() < TYPEAHEAD_MIN_CHARS || index == null || !searchField.isEnabled()) {
+            suggestionPopup.setVisible(false);
+            return;
+        }
+
+        typeaheadTask = typeaheadExecutor.submit(() -> {
+            java.util.List<EventSearchIndex.Hit> hits = index.search(text, TYPEAHEAD_MAX_SUGGESTIONS);
+            if (!Thread.currentThread().isInterrupted()) {
+                SwingUtilities.invokeLater(() -> showSuggestions(generation, hits));
+            }
+        });
+    }
+
+    /**
+     * EDT: show the suggestions unless newer input has arrived meanwhile.
+     */
+    private void showSuggestions(long generation, java.util.List<EventSearchIndex.Hit> hits) {
+        if (generation != typeaheadGeneration || !searchField.isShowing()) {
+            return; // stale
+        }
+        suggestionPopup.setVisible(false);
+        suggestionPopup.removeAll();
+        if (hits.isEmpty()) {
+            return;
+        }
+        for (EventSearchIndex.Hit hit : hits) {
+            JMenuItem item = new JMenuItem(hit.eventId + "  " + hit.title + "  (" + hit.category + ")");
+            item.addActionListener(e -> {
+                cancelTypeahead();
+                appendLine("=== Event " + hit.eventId + " ===");
+                appendLine(hit.toString());
+            });
+            suggestionPopup.add(item);
+        }
+        // The box sits at the bottom of the window, so open upwards
+        suggestionPopup.pack();
+        suggestionPopup.show(searchField, 0, -suggestionPopup.getPreferredSize().height);
+    }
+
+    /**
+     * EDT: drop pending / in-flight suggestions and hide the popup.
+     */
+    private void cancelTypeahead() {
+        typeaheadTimer.stop();
+        if (typeaheadTask != null) {
+            typeaheadTask.cancel(true);
+            typeaheadTask = null;
+        }
+        typeaheadGeneration++;
+        suggestionPopup.setVisible(false);
+    }
+
     // ============== Login dialog ==============
 
     /**
@@ -1033,7 +1109,7 @@ public class ETicketGUI extends JFrame {
                 System.exit(0);
             }
 
-            Connection conn = null;
+            ConnectionPool pool = null;
             try {
                 // Load Oracle JDBC driver
                 Class.forName("oracle.jdbc.driver.OracleDriver");
@@ -1046,10 +1122,15 @@ public class ETicketGUI extends JFrame {
 
                 String url = "jdbc:oracle:thin:@" + host + ":" + port + ":" + sid;
 
-                conn = DriverManager.getConnection(url, user, pass);
+                pool = ConnectionPool.forUrl(url, user, pass);
+
+                // Borrow once up front so bad credentials fail here
+                try (Connection conn = pool.getConnection()) {
+                    conn.getMetaData();
+                }
 
-                // 2) Launch the main GUI with this connection
-                ETicketGUI gui = new ETicketGUI(conn, user);
+                // 2) Launch the main GUI with this pool
+                ETicketGUI gui = new ETicketGUI(pool, user);
                 gui.setVisible(true);
 
             } catch (ClassNotFoundException e) {
@@ -1068,8 +1149,8 @@ public class ETicketGUI extends JFrame {
                         "Connection Error",
                         JOptionPane.ERROR_MESSAGE
                 );
-                if (conn != null) {
-                    try { conn.close(); } catch (SQLException ignored2) {}
+                if (pool != null) {
+                    pool.close();
                 }
                 System.exit(1);
             }
@@ -1,4 +1,5 @@
 import java.sql.*;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -6,9 +7,13 @@ import java.util.Scanner;
  *
  * Main menu:
  *  1) Drop Tables
- *  2) Create Tables
+ *  2) Create Tables (or migrate an existing schema to the latest version)
  *  3) Populate Tables (dummy data)
  *  4) Query Tables (sub-menu for Events)
+ *  5) Reconcile Summary Counters
+ *  6) Apply Schema Tuning (secondary indexes)
+ *  7) Schema Versions
+ *  8) Import CSV (venues / seats / events)
  *  0) Exit
  *
  * Query sub-menu (Events):
@@ -17,16 +22,22 @@ import java.util.Scanner;
  *  - Update event title
  *  - Delete event
  *  - Search events by title
+ *  - Sales reports / availability dashboard
  *
  * The schema and dummy data are based on our A6/A8 3NF/BCNF design
  * for the E-Ticket Reservation System:
  *  Users, Organizers, Venues, Events, Showtimes, Seats, SeatMaps,
  *  Orders, Payments, Tickets.
  *
+ * All SQL lives in the repositories (SchemaRepository, EventRepository,
+ * SeatMapRepository, ReportRepository, SummaryRepository), shared with
+ * the GUI; this class only prompts and prints.
+ *
  * At the bottom of this file:
  *  - listEvents(...) implements a basic report (projection + ordering).
- *  - searchEventsByTitle(...) implements a search/filter report using
- *    a LIKE condition (selection with user-supplied keyword).
+ *  - searchEventsByTitle(...) implements a search/filter report, answered
+ *    from the in-memory EventSearchIndex (falling back to a LIKE query
+ *    when the index could not be built).
  */
 public class ETicketUI {
 
@@ -36,6 +47,12 @@ public class ETicketUI {
     private static final String USER = "akanaan";
     private static final String PASS = "01029927";
 
+    // Data-access layer shared with the GUI
+    private static EventRepository events;
+    private static SchemaRepository schema;
+    private static ReportRepository reports;
+    private static SummaryRepository summaries;
+
     public static void main(String[] args) {
         // Load Oracle JDBC driver
         try {
@@ -46,11 +63,26 @@ public class ETicketUI {
             return;
         }
 
-        // Connect and show main menu
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS);
+        // Connect and show main menu. Each menu action borrows its own
+        // pooled connection, so a dropped Oracle session only fails that
+        // action and the next one gets a fresh, validated connection.
+        try (ConnectionPool pool = ConnectionPool.forUrl(URL, USER, PASS);
              Scanner in = new Scanner(System.in)) {
 
-            System.out.println("Connected to Oracle as: " + USER);
+            // Fail fast on bad credentials / unreachable server
+            try (Connection conn = pool.getConnection()) {
+                conn.getMetaData();
+                System.out.println("Connected to Oracle as: " + USER);
+            }
+
+            events = new EventRepository(pool, new IdAllocator(pool), new CatalogCache(pool));
+            summaries = new SummaryRepository(pool);
+            schema = new SchemaRepository(pool, events, new SeatMapRepository(pool), summaries);
+            reports = new ReportRepository(pool);
+
+            try (Connection conn = pool.getConnection()) {
+                schema.reloadInMemory(conn, System.out::println);
+            }
 
             boolean running = true;
             while (running) {
@@ -58,25 +90,53 @@ public class ETicketUI {
                 System.out.print("Choose option: ");
                 String choice = in.nextLine().trim();
 
-                switch (choice) {
-                    case "1":
-                        dropTables(conn);
-                        break;
-                    case "2":
-                        createTables(conn);
-                        break;
-                    case "3":
-                        populateTables(conn);
-                        break;
-                    case "4":
-                        queryMenu(conn, in);
-                        break;
-                    case "0":
-                        running = false;
-                        System.out.println("Exiting. Bye!");
-                        break;
-                    default:
-                        System.out.println("Invalid choice. Try again.");
+                try {
+                    switch (choice) {
+                        case "1":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.dropTables(conn, System.out::println);
+                            }
+                            break;
+                        case "2":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.createTables(conn, System.out::println);
+                            }
+                            break;
+                        case "3":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.populateTables(conn, System.out::println);
+                            }
+                            break;
+                        case "4":
+                            queryMenu(pool, in);
+                            break;
+                        case "5":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.reconcileSummaries(conn, true, System.out::println);
+                            }
+                            break;
+                        case "6":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.applyTuning(conn, System.out::println);
+                            }
+                            break;
+                        case "7":
+                            try (Connection conn = pool.getConnection()) {
+                                schema.schemaStatus(conn, System.out::println);
+                            }
+                            break;
+                        case "8":
+                            importCsv(pool, in);
+                            break;
+                        case "0":
+                            running = false;
+                            System.out.println("Exiting. Bye!");
+                            break;
+                        default:
+                            System.out.println("Invalid choice. Try again.");
+                    }
+                } catch (SQLException e) {
+                    System.out.println("Could not get a database connection: " + e.getMessage());
                 }
                 System.out.println();
             }
@@ -92,496 +152,16 @@ public class ETicketUI {
     private static void printMainMenu() {
         System.out.println("===== CPS510 A9 – E-Ticket System =====");
         System.out.println("1. Drop Tables");
-        System.out.println("2. Create Tables");
+        System.out.println("2. Create / Migrate Tables");
         System.out.println("3. Populate Tables (insert dummy data)");
         System.out.println("4. Query Tables (Events sub-menu)");
+        System.out.println("5. Reconcile Summary Counters");
+        System.out.println("6. Apply Schema Tuning (secondary indexes)");
+        System.out.println("7. Schema Versions");
+        System.out.println("8. Import CSV (venues / seats / events)");
         System.out.println("0. Exit");
     }
 
-    // ================== 1) DROP TABLES ==================
-    /**
-     * Drop all project tables in dependency order (children first).
-     * This matches the A9 "Drop Tables" menu requirement.
-     */
-    private static void dropTables(Connection conn) {
-        System.out.println("=== Dropping tables (if they exist) ===");
-
-        // Drop in dependency order (children first)
-        String[] drops = {
-            "DROP TABLE Tickets CASCADE CONSTRAINTS",
-            "DROP TABLE SeatMaps CASCADE CONSTRAINTS",
-            "DROP TABLE Payments CASCADE CONSTRAINTS",
-            "DROP TABLE Orders CASCADE CONSTRAINTS",
-            "DROP TABLE Seats CASCADE CONSTRAINTS",
-            "DROP TABLE Showtimes CASCADE CONSTRAINTS",
-            "DROP TABLE Events CASCADE CONSTRAINTS",
-            "DROP TABLE Venues CASCADE CONSTRAINTS",
-            "DROP TABLE Organizers CASCADE CONSTRAINTS",
-            "DROP TABLE Users CASCADE CONSTRAINTS"
-        };
-
-        for (String sql : drops) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.executeUpdate(sql);
-                System.out.println("OK: " + sql);
-            } catch (SQLException e) {
-                // If table doesn't exist, just show message and continue
-                System.out.println("Skip: " + sql + " (" + e.getMessage() + ")");
-            }
-        }
-
-        System.out.println("Done dropping tables.");
-    }
-
-    // ================== 2) CREATE TABLES ==================
-    /**
-     * Create the 3NF/BCNF schema for the e-ticket reservation system.
-     * This corresponds to the logical design from A6/A8.
-     */
-    private static void createTables(Connection conn) {
-        System.out.println("=== Creating tables ===");
-
-        try (Statement stmt = conn.createStatement()) {
-
-            // USERS
-            stmt.executeUpdate(
-                "CREATE TABLE Users (" +
-                "    UserID       NUMBER(10)      PRIMARY KEY," +
-                "    FirstName    VARCHAR2(100)   NOT NULL," +
-                "    LastName     VARCHAR2(100)   NOT NULL," +
-                "    Email        VARCHAR2(255)   NOT NULL UNIQUE," +
-                "    Phone        VARCHAR2(30)," +
-                "    CreatedAt    DATE            DEFAULT SYSDATE NOT NULL" +
-                ")"
-            );
-
-            // ORGANIZERS
-            stmt.executeUpdate(
-                "CREATE TABLE Organizers (" +
-                "    OrganizerID   NUMBER(10)     PRIMARY KEY," +
-                "    Name          VARCHAR2(200)  NOT NULL," +
-                "    ContactEmail  VARCHAR2(255)," +
-                "    ContactPhone  VARCHAR2(30)" +
-                ")"
-            );
-
-            // VENUES
-            stmt.executeUpdate(
-                "CREATE TABLE Venues (" +
-                "    VenueID   NUMBER(10)     PRIMARY KEY," +
-                "    Name      VARCHAR2(200)  NOT NULL," +
-                "    Address   VARCHAR2(300)," +
-                "    City      VARCHAR2(120)," +
-                "    Capacity  NUMBER(10)" +
-                ")"
-            );
-
-            // EVENTS
-            stmt.executeUpdate(
-                "CREATE TABLE Events (" +
-                "    EventID     NUMBER(10)    PRIMARY KEY," +
-                "    OrganizerID NUMBER(10)    NOT NULL," +
-                "    Title       VARCHAR2(200) NOT NULL," +
-                "    Category    VARCHAR2(100)," +
-                "    Description VARCHAR2(1000)," +
-                "    CONSTRAINT fk_events_organizer" +
-                "        FOREIGN KEY (OrganizerID)" +
-                "        REFERENCES Organizers (OrganizerID)" +
-                ")"
-            );
-
-            // SHOWTIMES
-            stmt.executeUpdate(
-                "CREATE TABLE Showtimes (" +
-                "    ShowtimeID    NUMBER(10)     PRIMARY KEY," +
-                "    EventID       NUMBER(10)     NOT NULL," +
-                "    VenueID       NUMBER(10)     NOT NULL," +
-                "    StartDateTime DATE           NOT NULL," +
-                "    BasePrice     NUMBER(10,2)   NOT NULL," +
-                "    CONSTRAINT fk_showtimes_event" +
-                "        FOREIGN KEY (EventID)" +
-                "        REFERENCES Events (EventID)," +
-                "    CONSTRAINT fk_showtimes_venue" +
-                "        FOREIGN KEY (VenueID)" +
-                "        REFERENCES Venues (VenueID)," +
-                "    CONSTRAINT uq_showtimes_event_venue_start" +
-                "        UNIQUE (EventID, VenueID, StartDateTime)" +
-                ")"
-            );
-
-            // SEATS
-            stmt.executeUpdate(
-                "CREATE TABLE Seats (" +
-                "    SeatID     NUMBER(10)    PRIMARY KEY," +
-                "    VenueID    NUMBER(10)    NOT NULL," +
-                "    Section    VARCHAR2(50)  NOT NULL," +
-                "    RowLabel   VARCHAR2(20)  NOT NULL," +
-                "    SeatNumber VARCHAR2(20)  NOT NULL," +
-                "    CONSTRAINT fk_seats_venue" +
-                "        FOREIGN KEY (VenueID)" +
-                "        REFERENCES Venues (VenueID)," +
-                "    CONSTRAINT uq_venue_section_row_seat" +
-                "        UNIQUE (VenueID, Section, RowLabel, SeatNumber)" +
-                ")"
-            );
-
-            // ORDERS
-            stmt.executeUpdate(
-                "CREATE TABLE Orders (" +
-                "    OrderID        NUMBER(10)     PRIMARY KEY," +
-                "    UserID         NUMBER(10)     NOT NULL," +
-                "    OrderDateTime  DATE           DEFAULT SYSDATE NOT NULL," +
-                "    OrderTotal     NUMBER(10,2)   NOT NULL," +
-                "    Status         VARCHAR2(20)   NOT NULL," +
-                "    CONSTRAINT fk_orders_user" +
-                "        FOREIGN KEY (UserID)" +
-                "        REFERENCES Users (UserID)" +
-                ")"
-            );
-
-            // PAYMENTS
-            stmt.executeUpdate(
-                "CREATE TABLE Payments (" +
-                "    PaymentID  NUMBER(10)     PRIMARY KEY," +
-                "    OrderID    NUMBER(10)     NOT NULL," +
-                "    Amount     NUMBER(10,2)   NOT NULL," +
-                "    Method     VARCHAR2(40)   NOT NULL," +
-                "    PaidAt     DATE," +
-                "    AuthCode   VARCHAR2(64)," +
-                "    CONSTRAINT fk_payments_order" +
-                "        FOREIGN KEY (OrderID)" +
-                "        REFERENCES Orders (OrderID)" +
-                ")"
-            );
-
-            // SEATMAPS
-            stmt.executeUpdate(
-                "CREATE TABLE SeatMaps (" +
-                "    SeatMapID  NUMBER(10)     PRIMARY KEY," +
-                "    ShowtimeID NUMBER(10)     NOT NULL," +
-                "    SeatID     NUMBER(10)     NOT NULL," +
-                "    Status     VARCHAR2(16)   NOT NULL," +
-                "    CONSTRAINT fk_seatmaps_showtime" +
-                "        FOREIGN KEY (ShowtimeID)" +
-                "        REFERENCES Showtimes (ShowtimeID)," +
-                "    CONSTRAINT fk_seatmaps_seat" +
-                "        FOREIGN KEY (SeatID)" +
-                "        REFERENCES Seats (SeatID)," +
-                "    CONSTRAINT uq_seatmaps_showtime_seat" +
-                "        UNIQUE (ShowtimeID, SeatID)," +
-                "    CONSTRAINT chk_seatmaps_status" +
-                "        CHECK (Status IN ('AVAILABLE', 'HELD', 'SOLD'))" +
-                ")"
-            );
-
-            // TICKETS
-            stmt.executeUpdate(
-                "CREATE TABLE Tickets (" +
-                "    TicketID     NUMBER(10)     PRIMARY KEY," +
-                "    OrderID      NUMBER(10)     NOT NULL," +
-                "    ShowtimeID   NUMBER(10)     NOT NULL," +
-                "    SeatID       NUMBER(10)     NOT NULL," +
-                "    TicketPrice  NUMBER(10,2)   NOT NULL," +
-                "    QRCode       VARCHAR2(128)  NOT NULL," +
-                "    IsValidated  CHAR(1)        DEFAULT 'N' NOT NULL," +
-                "    ValidatedAt  DATE," +
-                "    CONSTRAINT fk_tickets_order" +
-                "        FOREIGN KEY (OrderID)" +
-                "        REFERENCES Orders (OrderID)," +
-                "    CONSTRAINT fk_tickets_showtime" +
-                "        FOREIGN KEY (ShowtimeID)" +
-                "        REFERENCES Showtimes (ShowtimeID)," +
-                "    CONSTRAINT fk_tickets_seat" +
-                "        FOREIGN KEY (SeatID)" +
-                "        REFERENCES Seats (SeatID)," +
-                "    CONSTRAINT uq_tickets_qrcode" +
-                "        UNIQUE (QRCode)," +
-                "    CONSTRAINT uq_tickets_showtime_seat" +
-                "        UNIQUE (ShowtimeID, SeatID)," +
-                "    CONSTRAINT chk_tickets_isvalidated" +
-                "        CHECK (IsValidated IN ('Y','N'))" +
-                ")"
-            );
-
-            System.out.println("All tables created successfully.");
-
-        } catch (SQLException e) {
-            System.out.println("Error creating tables: " + e.getMessage());
-        }
-    }
-
-    // ================== 3) POPULATE TABLES ==================
-    /**
-     * Insert a small set of dummy records into all main tables.
-     *
-     * This data set is used to demonstrate:
-     *  - Basic CRUD operations on EVENTS (see queryMenu)
-     *  - Simple reports over EVENTS (listEvents, searchEventsByTitle)
-     *  - Potential extension to advanced reports, e.g.:
-     *      * tickets sold / revenue per event (from Tickets / Orders)
-     *      * seat availability per showtime (from SeatMaps)
-     *
-     * All inserts respect the 3NF/BCNF schema from A6/A8.
-     */
-    private static void populateTables(Connection conn) {
-        System.out.println("=== Inserting dummy data into tables ===");
-
-        try {
-            conn.setAutoCommit(false); // group inserts in one transaction
-
-            // USERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Users (UserID, FirstName, LastName, Email, Phone) " +
-                    "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Ahmad");
-                ps.setString(3, "Kanaan");
-                ps.setString(4, "ahmad@example.com");
-                ps.setString(5, "4161111111");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "John");
-                ps.setString(3, "Doe");
-                ps.setString(4, "john@example.com");
-                ps.setString(5, "4162222222");
-                ps.executeUpdate();
-
-                ps.setInt(1, 3);
-                ps.setString(2, "Sarah");
-                ps.setString(3, "Ali");
-                ps.setString(4, "sarah@example.com");
-                ps.setString(5, "6473333333");
-                ps.executeUpdate();
-            }
-
-            // ORGANIZERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Organizers (OrganizerID, Name, ContactEmail, ContactPhone) " +
-                    "VALUES (?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Live Nation");
-                ps.setString(3, "contact@livenation.com");
-                ps.setString(4, "4165550000");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "Cineplex");
-                ps.setString(3, "info@cineplex.com");
-                ps.setString(4, "4165551234");
-                ps.executeUpdate();
-            }
-
-            // VENUES
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Venues (VenueID, Name, Address, City, Capacity) " +
-                    "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setString(2, "Scotiabank Arena");
-                ps.setString(3, "40 Bay St");
-                ps.setString(4, "Toronto");
-                ps.setInt(5, 20000);
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setString(2, "Cineplex YD Square");
-                ps.setString(3, "10 Dundas St E");
-                ps.setString(4, "Toronto");
-                ps.setInt(5, 500);
-                ps.executeUpdate();
-            }
-
-            // EVENTS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
-                    "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setString(3, "Drake Live Concert");
-                ps.setString(4, "Concert");
-                ps.setString(5, "Drake performing live in Toronto.");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setString(3, "Avengers: Endgame");
-                ps.setString(4, "Movie");
-                ps.setString(5, "Special screening of Avengers Endgame.");
-                ps.executeUpdate();
-            }
-
-            // SHOWTIMES
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Showtimes (ShowtimeID, EventID, VenueID, StartDateTime, BasePrice) " +
-                    "VALUES (?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setInt(3, 1);
-                ps.setTimestamp(4, Timestamp.valueOf("2025-12-10 20:00:00"));
-                ps.setDouble(5, 150.00);
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setInt(3, 2);
-                ps.setTimestamp(4, Timestamp.valueOf("2025-12-12 18:00:00"));
-                ps.setDouble(5, 20.00);
-                ps.executeUpdate();
-            }
-
-            // SEATS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Seats (SeatID, VenueID, Section, RowLabel, SeatNumber) " +
-                    "VALUES (?, ?, ?, ?, ?)")) {
-                // Venue 1: 3 seats
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "1");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "2");
-                ps.executeUpdate();
-
-                ps.setInt(1, 3);
-                ps.setInt(2, 1);
-                ps.setString(3, "Floor");
-                ps.setString(4, "A");
-                ps.setString(5, "3");
-                ps.executeUpdate();
-
-                // Venue 2: 2 seats
-                ps.setInt(1, 4);
-                ps.setInt(2, 2);
-                ps.setString(3, "Front");
-                ps.setString(4, "B");
-                ps.setString(5, "5");
-                ps.executeUpdate();
-
-                ps.setInt(1, 5);
-                ps.setInt(2, 2);
-                ps.setString(3, "Front");
-                ps.setString(4, "B");
-                ps.setString(5, "6");
-                ps.executeUpdate();
-            }
-
-            // SEATMAPS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO SeatMaps (SeatMapID, ShowtimeID, SeatID, Status) " +
-                    "VALUES (?, ?, ?, ?)")) {
-                // Showtime 1
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setInt(3, 1);
-                ps.setString(4, "AVAILABLE");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 1);
-                ps.setInt(3, 2);
-                ps.setString(4, "AVAILABLE");
-                ps.executeUpdate();
-
-                ps.setInt(1, 3);
-                ps.setInt(2, 1);
-                ps.setInt(3, 3);
-                ps.setString(4, "HELD");
-                ps.executeUpdate();
-
-                // Showtime 2
-                ps.setInt(1, 4);
-                ps.setInt(2, 2);
-                ps.setInt(3, 4);
-                ps.setString(4, "AVAILABLE");
-                ps.executeUpdate();
-
-                ps.setInt(1, 5);
-                ps.setInt(2, 2);
-                ps.setInt(3, 5);
-                ps.setString(4, "SOLD");
-                ps.executeUpdate();
-            }
-
-            // ORDERS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Orders (OrderID, UserID, OrderDateTime, OrderTotal, Status) " +
-                    "VALUES (?, ?, SYSDATE, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setDouble(3, 150.00);
-                ps.setString(4, "PAID");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setDouble(3, 20.00);
-                ps.setString(4, "PAID");
-                ps.executeUpdate();
-            }
-
-            // PAYMENTS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Payments (PaymentID, OrderID, Amount, Method, PaidAt, AuthCode) " +
-                    "VALUES (?, ?, ?, ?, SYSDATE, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setDouble(3, 150.00);
-                ps.setString(4, "CARD");
-                ps.setString(5, "AUTH12345");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setDouble(3, 20.00);
-                ps.setString(4, "CARD");
-                ps.setString(5, "AUTH67890");
-                ps.executeUpdate();
-            }
-
-            // TICKETS
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO Tickets (TicketID, OrderID, ShowtimeID, SeatID, TicketPrice, QRCode, IsValidated) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
-                ps.setInt(1, 1);
-                ps.setInt(2, 1);
-                ps.setInt(3, 1);
-                ps.setInt(4, 1);
-                ps.setDouble(5, 150.00);
-                ps.setString(6, "QR-ABC-111");
-                ps.setString(7, "N");
-                ps.executeUpdate();
-
-                ps.setInt(1, 2);
-                ps.setInt(2, 2);
-                ps.setInt(3, 2);
-                ps.setInt(4, 5);
-                ps.setDouble(5, 20.00);
-                ps.setString(6, "QR-XYZ-222");
-                ps.setString(7, "Y");
-                ps.executeUpdate();
-            }
-
-            conn.commit();
-            conn.setAutoCommit(true);
-            System.out.println("Dummy data inserted successfully.");
-
-        } catch (SQLException e) {
-            System.out.println("Error populating tables: " + e.getMessage());
-            try {
-                conn.rollback();
-                conn.setAutoCommit(true);
-            } catch (SQLException ex2) {
-                System.out.println("Rollback error: " + ex2.getMessage());
-            }
-        }
-    }
-
     // ================== 4) QUERY MENU (EVENTS) ==================
     /**
      * Sub-menu that focuses on CRUD and simple reports over EVENTS.
@@ -590,8 +170,14 @@ public class ETicketUI {
      *  - Create (addEvent)
      *  - Update (updateEventTitle)
      *  - Delete (deleteEvent)
+     *  - Sales reports (salesReports)
+     *  - Availability dashboard (availability), read from the summary
+     *    counters
+     *
+     * Each operation reads its input first and only then borrows a
+     * connection from the pool, so none is held while the user types.
      */
-    private static void queryMenu(Connection conn, Scanner in) {
+    private static void queryMenu(ConnectionPool pool, Scanner in) {
         boolean back = false;
         while (!back) {
             System.out.println("=== Query Menu (Events) ===");
@@ -600,28 +186,38 @@ public class ETicketUI {
             System.out.println("3. Update Event Title");
             System.out.println("4. Delete Event");
             System.out.println("5. Search Events by Title");
+            System.out.println("6. Sales Reports");
+            System.out.println("7. Availability Dashboard");
             System.out.println("0. Back to Main Menu");
             System.out.print("Choose option: ");
             String choice = in.nextLine().trim();
 
+            if ("0".equals(choice)) {
+                back = true;
+                continue;
+            }
+
             switch (choice) {
                 case "1":
-                    listEvents(conn);
+                    listEvents();
                     break;
                 case "2":
-                    addEvent(conn, in);
+                    addEvent(pool, in);
                     break;
                 case "3":
-                    updateEventTitle(conn, in);
+                    updateEventTitle(pool, in);
                     break;
                 case "4":
-                    deleteEvent(conn, in);
+                    deleteEvent(pool, in);
                     break;
                 case "5":
-                    searchEventsByTitle(conn, in);
+                    searchEventsByTitle(pool, in);
                     break;
-                case "0":
-                    back = true;
+                case "6":
+                    salesReports(pool, in);
+                    break;
+                case "7":
+                    availability(pool, in);
                     break;
                 default:
                     System.out.println("Invalid choice. Try again.");
@@ -632,6 +228,140 @@ public class ETicketUI {
 
     // ---- Query helpers on EVENTS ----
 
+    /**
+     * Sales and revenue reports (see ReportRepository). Aggregation runs in
+     * SQL, partitions of events run in parallel, and rows are printed as
+     * they arrive instead of being collected first.
+     */
+    private static void salesReports(ConnectionPool pool, Scanner in) {
+        System.out.println("1. Revenue by Event");
+        System.out.println("2. Revenue by Showtime");
+        System.out.println("3. Revenue by Venue");
+        System.out.println("4. Payment Methods");
+        System.out.println("5. Payment Methods by Event");
+        System.out.print("Choose report: ");
+        String choice = in.nextLine().trim();
+
+        long start = System.nanoTime();
+        try {
+            long rows;
+            switch (choice) {
+                case "1":
+                    System.out.println("EventID | Title | Showtimes | Sold/Seats (sell-through) | Tickets | Revenue");
+                    rows = reports.salesByEvent(System.out::println);
+                    break;
+                case "2":
+                    System.out.println("ShowtimeID | Event @ Venue, Start | Sold/Seats (sell-through), Held | Tickets | Revenue");
+                    rows = reports.salesByShowtime(System.out::println);
+                    break;
+                case "3":
+                    System.out.println("VenueID | Venue, City | Showtimes | Sold/Seats (sell-through) | Tickets | Revenue");
+                    rows = reports.salesByVenue(System.out::println);
+                    break;
+                case "4":
+                    System.out.println("Method | Orders | Tickets | Revenue");
+                    try (Connection conn = pool.getConnection()) {
+                        rows = reports.paymentMethods(conn, System.out::println);
+                    }
+                    break;
+                case "5":
+                    System.out.println("EventID | Title | Method | Orders | Tickets | Revenue");
+                    rows = reports.paymentMethodsByEvent(System.out::println);
+                    break;
+                default:
+                    System.out.println("Invalid choice.");
+                    return;
+            }
+            if (rows == 0) {
+                System.out.println("(No rows)");
+            }
+            System.out.println("(" + rows + " row(s) in " + (System.nanoTime() - start) / 1_000_000L + " ms)");
+        } catch (SQLException e) {
+            System.out.println("Error running report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load a partner CSV file into VENUES, SEATS or EVENTS. The file needs
+     * a header row naming its columns; bad rows are listed and skipped.
+     */
+    private static void importCsv(ConnectionPool pool, Scanner in) {
+        CsvImporter.Kind[] kinds = CsvImporter.Kind.values();
+        for (int i = 0; i < kinds.length; i++) {
+            System.out.println((i + 1) + ". " + kinds[i].table + " (" + kinds[i].header() + ")");
+        }
+        System.out.print("Choose: ");
+        int choice;
+        try {
+            choice = Integer.parseInt(in.nextLine().trim());
+        } catch (NumberFormatException e) {
+            choice = 0;
+        }
+        if (choice < 1 || choice > kinds.length) {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        System.out.print("CSV file: ");
+        String file = in.nextLine().trim();
+        if (file.isEmpty()) {
+            System.out.println("No file given.");
+            return;
+        }
+        try (Connection conn = pool.getConnection()) {
+            schema.importCsv(conn, kinds[choice - 1], java.nio.file.Paths.get(file), System.out::println);
+        } catch (SQLException e) {
+            System.out.println("Could not get a database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seats left / tickets sold per showtime or event, and the top events
+     * by revenue, read from the summary counters (one row per showtime or
+     * event) instead of aggregating SEATMAPS and TICKETS.
+     */
+    private static void availability(ConnectionPool pool, Scanner in) {
+        System.out.println("1. Showtime");
+        System.out.println("2. Event");
+        System.out.println("3. Top 10 Events by Revenue");
+        System.out.print("Choose: ");
+        String choice = in.nextLine().trim();
+
+        try {
+            switch (choice) {
+                case "1":
+                    System.out.print("ShowtimeID: ");
+                    int showtimeId = Integer.parseInt(in.nextLine().trim());
+                    try (Connection conn = pool.getConnection()) {
+                        System.out.println("ShowtimeID | Available, Held, Sold/Seats (sell-through) | Tickets | Revenue");
+                        System.out.println(summaries.showtime(conn, showtimeId));
+                    }
+                    break;
+                case "2":
+                    System.out.print("EventID: ");
+                    int eventId = Integer.parseInt(in.nextLine().trim());
+                    try (Connection conn = pool.getConnection()) {
+                        System.out.println("EventID | Available, Held, Sold/Seats (sell-through) | Tickets | Revenue");
+                        System.out.println(summaries.event(conn, eventId));
+                    }
+                    break;
+                case "3":
+                    try (Connection conn = pool.getConnection()) {
+                        System.out.println("EventID | Available, Held, Sold/Seats (sell-through) | Tickets | Revenue");
+                        for (SummaryRepository.Counters c : summaries.topEvents(conn, 10)) {
+                            System.out.println(c);
+                        }
+                    }
+                    break;
+                default:
+                    System.out.println("Invalid choice.");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid ID.");
+        } catch (SQLException e) {
+            System.out.println("Error reading summary counters: " + e.getMessage());
+        }
+    }
+
     /**
      * Simple report #1 (projection + ordering):
      * Lists all events (EventID, Title, Category) ordered by EventID.
@@ -640,25 +370,15 @@ public class ETicketUI {
      * and is used in the A9 demo to show that the application can
      * read from the database and present event information to the user.
      */
-    private static void listEvents(Connection conn) {
-        String sql = "SELECT EventID, Title, Category FROM Events ORDER BY EventID";
+    private static void listEvents() {
+        System.out.println("EventID | Title | Category");
+        System.out.println("--------------------------------------");
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            System.out.println("EventID | Title | Category");
-            System.out.println("--------------------------------------");
-
-            boolean hasRows = false;
-            while (rs.next()) {
-                hasRows = true;
-                int id = rs.getInt("EventID");
-                String title = rs.getString("Title");
-                String cat = rs.getString("Category");
-                System.out.println(id + " | " + title + " | " + cat);
-            }
+        try {
+            // Keyset pages, read through the catalogue cache
+            long rows = events.forEach(row -> System.out.println(row));
 
-            if (!hasRows) {
+            if (rows == 0) {
                 System.out.println("(No rows found in Events table)");
             }
 
@@ -669,14 +389,12 @@ public class ETicketUI {
 
     /**
      * Insert a new row into EVENTS (Create in CRUD).
-     * Uses a parameterized INSERT to avoid SQL injection.
+     * Uses a parameterized INSERT to avoid SQL injection. The EventID is
+     * allocated by IdAllocator, so it never collides with another user's.
      */
-    private static void addEvent(Connection conn, Scanner in) {
+    private static void addEvent(ConnectionPool pool, Scanner in) {
         try {
             System.out.println("=== Add New Event ===");
-            System.out.print("New EventID (integer, must be unique): ");
-            int eventId = Integer.parseInt(in.nextLine().trim());
-
             System.out.print("OrganizerID (must exist in ORGANIZERS): ");
             int organizerId = Integer.parseInt(in.nextLine().trim());
 
@@ -689,18 +407,9 @@ public class ETicketUI {
             System.out.print("Description (can be empty): ");
             String description = in.nextLine().trim();
 
-            String sql = "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
-                         "VALUES (?, ?, ?, ?, ?)";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, eventId);
-                ps.setInt(2, organizerId);
-                ps.setString(3, title);
-                ps.setString(4, category);
-                ps.setString(5, description);
-
-                int rows = ps.executeUpdate();
-                System.out.println("Inserted " + rows + " row(s) into EVENTS.");
+            try (Connection conn = pool.getConnection()) {
+                int eventId = events.insert(conn, organizerId, title, category, description);
+                System.out.println("Inserted 1 row(s) into EVENTS (EventID " + eventId + ").");
             }
 
         } catch (NumberFormatException ex) {
@@ -713,7 +422,7 @@ public class ETicketUI {
     /**
      * Update the Title attribute for an existing EVENTS row (Update in CRUD).
      */
-    private static void updateEventTitle(Connection conn, Scanner in) {
+    private static void updateEventTitle(ConnectionPool pool, Scanner in) {
         try {
             System.out.println("=== Update Event Title ===");
             System.out.print("EventID to update: ");
@@ -722,18 +431,14 @@ public class ETicketUI {
             System.out.print("New Title: ");
             String newTitle = in.nextLine().trim();
 
-            String sql = "UPDATE Events SET Title = ? WHERE EventID = ?";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, newTitle);
-                ps.setInt(2, eventId);
-
-                int rows = ps.executeUpdate();
-                if (rows == 0) {
-                    System.out.println("No event found with EventID = " + eventId);
-                } else {
-                    System.out.println("Updated " + rows + " row(s).");
-                }
+            int rows;
+            try (Connection conn = pool.getConnection()) {
+                rows = events.updateTitle(conn, eventId, newTitle);
+            }
+            if (rows == 0) {
+                System.out.println("No event found with EventID = " + eventId);
+            } else {
+                System.out.println("Updated " + rows + " row(s).");
             }
 
         } catch (NumberFormatException ex) {
@@ -748,23 +453,20 @@ public class ETicketUI {
      * If there are foreign-key references (e.g., SHOWTIMES), Oracle
      * will raise an error, which we catch and display.
      */
-    private static void deleteEvent(Connection conn, Scanner in) {
+    private static void deleteEvent(ConnectionPool pool, Scanner in) {
         try {
             System.out.println("=== Delete Event ===");
             System.out.print("EventID to delete: ");
             int eventId = Integer.parseInt(in.nextLine().trim());
 
-            String sql = "DELETE FROM Events WHERE EventID = ?";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, eventId);
-
-                int rows = ps.executeUpdate();
-                if (rows == 0) {
-                    System.out.println("No event found with EventID = " + eventId);
-                } else {
-                    System.out.println("Deleted " + rows + " row(s).");
-                }
+            int rows;
+            try (Connection conn = pool.getConnection()) {
+                rows = events.delete(conn, eventId);
+            }
+            if (rows == 0) {
+                System.out.println("No event found with EventID = " + eventId);
+            } else {
+                System.out.println("Deleted " + rows + " row(s).");
             }
 
         } catch (NumberFormatException ex) {
@@ -776,46 +478,47 @@ public class ETicketUI {
 
     /**
      * Simple report #2 (search / filtering):
-     * Allows the user to search events by a keyword in the Title.
+     * Allows the user to search events by keywords.
+     *
+     * Answered from EventSearchIndex: words are matched against Title,
+     * Category and Description, by whole word, word prefix or one typo,
+     * and results are ranked by relevance.
      *
-     * This implements a selection with a LIKE condition:
+     * Without the index it falls back to a selection with a LIKE condition:
      *   SELECT EventID, Title, Category
      *   FROM   Events
      *   WHERE  LOWER(Title) LIKE '%keyword%'
-     *
-     * It demonstrates a more “advanced” query than listEvents,
-     * because it includes user input, case-insensitive matching,
-     * and dynamic filtering of the result set.
      */
-    private static void searchEventsByTitle(Connection conn, Scanner in) {
+    private static void searchEventsByTitle(ConnectionPool pool, Scanner in) {
         System.out.println("=== Search Events by Title ===");
         System.out.print("Enter keyword: ");
         String keyword = in.nextLine().trim().toLowerCase();
 
-        String sql = "SELECT EventID, Title, Category " +
-                     "FROM Events " +
-                     "WHERE LOWER(Title) LIKE ? " +
-                     "ORDER BY EventID";
-
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, "%" + keyword + "%");
-
-            try (ResultSet rs = ps.executeQuery()) {
-                System.out.println("EventID | Title | Category");
-                System.out.println("--------------------------------------");
-
-                boolean hasRows = false;
-                while (rs.next()) {
-                    hasRows = true;
-                    int id = rs.getInt("EventID");
-                    String title = rs.getString("Title");
-                    String cat = rs.getString("Category");
-                    System.out.println(id + " | " + title + " | " + cat);
-                }
+        long start = System.nanoTime();
+        List<EventSearchIndex.Hit> hits = events.search(keyword);
+        if (hits != null) {
+            System.out.println("EventID | Title | Category");
+            System.out.println("--------------------------------------");
+            for (EventSearchIndex.Hit hit : hits) {
+                System.out.println(hit);
+            }
+            if (hits.isEmpty()) {
+                System.out.println("(No events match that keyword)");
+            }
+            System.out.printf("(%d result(s) from the search index in %.3f ms)%n",
+                    hits.size(), (System.nanoTime() - start) / 1e6);
+            return;
+        }
 
-                if (!hasRows) {
-                    System.out.println("(No events match that keyword)");
-                }
+        try (Connection conn = pool.getConnection()) {
+            List<EventListing.Row> rows = events.searchTitles(conn, keyword);
+            System.out.println("EventID | Title | Category");
+            System.out.println("--------------------------------------");
+            for (EventListing.Row row : rows) {
+                System.out.println(row);
+            }
+            if (rows.isEmpty()) {
+                System.out.println("(No events match that keyword)");
             }
 
         } catch (SQLException e) {
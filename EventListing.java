@@ -0,0 +1,132 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CPS510 A9 – Paged listing of EVENTS (keyset pagination)
+ *
+ * Instead of SELECT ... ORDER BY EventID over the whole table, events are
+ * read one page at a time:
+ *
+ *   SELECT EventID, Title, Category FROM Events
+ *   WHERE EventID > :lastSeen ORDER BY EventID FETCH FIRST :n ROWS ONLY
+ *
+ * Each page is a short range scan on the primary key index starting at
+ * the last EventID of the previous page, so page 10,000 costs the same as
+ * page 1 (unlike OFFSET, which reads and discards every earlier row).
+ * The JDBC fetch size matches the page size, so one page is one round
+ * trip.
+ */
+public class EventListing {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    static final String SQL_PAGE =
+            "SELECT EventID, Title, Category FROM Events " +
+            "WHERE EventID > ? ORDER BY EventID FETCH FIRST ? ROWS ONLY";
+
+    /**
+     * One EVENTS row as listed.
+     */
+    public static final class Row {
+        public final int eventId;
+        public final String title;
+        public final String category;
+
+        Row(int eventId, String title, String category) {
+            this.eventId = eventId;
+            this.title = title;
+            this.category = category;
+        }
+
+        @Override
+        public String toString() {
+            return eventId + " | " + title + " | " + category;
+        }
+    }
+
+    /**
+     * Rows of one page; pass lastEventId to fetch the next one.
+     */
+    public static final class Page {
+        public final List<Row> rows;
+        public final int lastEventId;
+        public final boolean hasMore;
+
+        Page(List<Row> rows, int lastEventId, boolean hasMore) {
+            this.rows = rows;
+            this.lastEventId = lastEventId;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private EventListing() {
+    }
+
+    /**
+     * Up to pageSize events with EventID > afterEventId, in EventID order.
+     * Use Integer.MIN_VALUE for the first page.
+     */
+    public static Page fetchPage(Connection conn, int afterEventId, int pageSize) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_PAGE)) {
+            return fetchPage(ps, afterEventId, pageSize);
+        }
+    }
+
+    /**
+     * Same, reusing a statement prepared from SQL_PAGE (for walking many
+     * pages on one connection).
+     */
+    public static Page fetchPage(PreparedStatement ps, int afterEventId, int pageSize) throws SQLException {
+        // one extra row tells us whether another page exists
+        ps.setInt(1, afterEventId);
+        ps.setInt(2, pageSize + 1);
+        ps.setFetchSize(pageSize + 1);
+        List<Row> rows = new ArrayList<>(pageSize);
+        boolean hasMore = false;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (rows.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                rows.add(new Row(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        int last = rows.isEmpty() ? afterEventId : rows.get(rows.size() - 1).eventId;
+        return new Page(Collections.unmodifiableList(rows), last, hasMore);
+    }
+
+    /**
+     * Callback for forEach().
+     */
+    public interface RowHandler {
+        void accept(Row row) throws SQLException;
+    }
+
+    /**
+     * Stream every event page by page; memory stays at one page however
+     * large EVENTS is. Returns the number of rows visited.
+     */
+    public static long forEach(Connection conn, int pageSize, RowHandler handler) throws SQLException {
+        long count = 0;
+        try (PreparedStatement ps = conn.prepareStatement(SQL_PAGE)) {
+            int after = Integer.MIN_VALUE;
+            while (true) {
+                Page page = fetchPage(ps, after, pageSize);
+                for (Row row : page.rows) {
+                    handler.accept(row);
+                }
+                count += page.rows.size();
+                if (!page.hasMore) {
+                    return count;
+                }
+                after = page.lastEventId;
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * CPS510 A9 – EVENTS data access (list, search, add, rename, delete)
+ *
+ * The single place where EVENTS is read and written. Besides the SQL it
+ * keeps the in-process views of EVENTS consistent with every write:
+ *
+ *  - new EventIDs come from IdAllocator
+ *  - list pages and rows are read through CatalogCache and invalidated
+ *    by add / rename / delete
+ *  - EventSearchIndex is updated in place, and search() answers from it
+ *    (falling back to a LIKE query while no index is loaded)
+ */
+public class EventRepository extends Repository {
+
+    static final String SQL_INSERT =
+            "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    static final String SQL_UPDATE_TITLE =
+            "UPDATE Events SET Title = ? WHERE EventID = ?";
+    static final String SQL_DELETE =
+            "DELETE FROM Events WHERE EventID = ?";
+    static final String SQL_SEARCH_TITLE =
+            "SELECT EventID, Title, Category FROM Events " +
+            "WHERE LOWER(Title) LIKE ? ORDER BY EventID";
+
+    private final IdAllocator ids;
+    private final CatalogCache catalog;
+
+    // null until built: search() then falls back to SQL
+    private volatile EventSearchIndex searchIndex;
+
+    public EventRepository(ConnectionPool pool, IdAllocator ids, CatalogCache catalog) {
+        this(pool, ids, catalog, null);
+    }
+
+    public EventRepository(ConnectionPool pool, IdAllocator ids, CatalogCache catalog, Executor executor) {
+        super(pool, executor);
+        this.ids = ids;
+        this.catalog = catalog;
+    }
+
+    /**
+     * The EventID allocator; anything else inserting events (e.g.
+     * CsvImporter) must share it, so schemaReset() / dataReloaded()
+     * reset every claimed block at once.
+     */
+    public IdAllocator ids() {
+        return ids;
+    }
+
+    // ============== Reads ==============
+
+    /**
+     * One keyset page of events after afterEventId (Integer.MIN_VALUE for
+     * the first page), served from CatalogCache when possible.
+     */
+    public EventListing.Page listPage(int afterEventId) throws SQLException {
+        return catalog.eventPage(afterEventId);
+    }
+
+    /**
+     * Every event in EventID order, page by page; returns the row count.
+     */
+    public long forEach(EventListing.RowHandler handler) throws SQLException {
+        long rows = 0;
+        int after = Integer.MIN_VALUE;
+        EventListing.Page page;
+        do {
+            page = listPage(after);
+            for (EventListing.Row row : page.rows) {
+                handler.accept(row);
+            }
+            rows += page.rows.size();
+            after = page.lastEventId;
+        } while (page.hasMore);
+        return rows;
+    }
+
+    /**
+     * The loaded search index, or null if searches currently go to SQL.
+     */
+    public EventSearchIndex searchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Ranked matches from the search index; null when no index is loaded
+     * (use searchTitles() then).
+     */
+    public List<EventSearchIndex.Hit> search(String keyword) {
+        EventSearchIndex index = searchIndex;
+        return index == null ? null : index.search(keyword);
+    }
+
+    /**
+     * Events whose title contains keyword (case-insensitive), by LIKE.
+     */
+    public List<EventListing.Row> searchTitles(Connection conn, String keyword) throws SQLException {
+        List<EventListing.Row> rows = new ArrayList<>();
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_SEARCH_TITLE))) {
+            ps.setString(1, "%" + keyword.toLowerCase() + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new EventListing.Row(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // ============== Writes ==============
+
+    /**
+     * Insert an event with a newly allocated EventID; returns that ID.
+     */
+    public int insert(Connection conn, int organizerId, String title, String category,
+                      String description) throws SQLException {
+        int eventId = (int) ids.next(IdAllocator.Sequence.EVENT);
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_INSERT))) {
+            ps.setInt(1, eventId);
+            ps.setInt(2, organizerId);
+            ps.setString(3, title);
+            ps.setString(4, category);
+            ps.setString(5, description);
+            ps.executeUpdate();
+        }
+        EventSearchIndex index = searchIndex;
+        if (index != null) {
+            index.put(eventId, title, category, description);
+        }
+        catalog.eventChanged(eventId);
+        return eventId;
+    }
+
+    /**
+     * Rename an event; returns the number of rows updated (0 if absent).
+     */
+    public int updateTitle(Connection conn, int eventId, String newTitle) throws SQLException {
+        int rows;
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_UPDATE_TITLE))) {
+            ps.setString(1, newTitle);
+            ps.setInt(2, eventId);
+            rows = ps.executeUpdate();
+        }
+        if (rows > 0) {
+            EventSearchIndex index = searchIndex;
+            if (index != null) {
+                index.updateTitle(eventId, newTitle);
+            }
+            catalog.eventChanged(eventId);
+        }
+        return rows;
+    }
+
+    /**
+     * Delete an event; returns the number of rows deleted (0 if absent).
+     */
+    public int delete(Connection conn, int eventId) throws SQLException {
+        int rows;
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_DELETE))) {
+            ps.setInt(1, eventId);
+            rows = ps.executeUpdate();
+        }
+        if (rows > 0) {
+            EventSearchIndex index = searchIndex;
+            if (index != null) {
+                index.remove(eventId);
+            }
+            catalog.eventChanged(eventId);
+        }
+        return rows;
+    }
+
+    // ============== In-memory state ==============
+
+    /**
+     * Rebuild the search index from EVENTS. If that fails (e.g. no tables
+     * yet) the index is unset, so searches fall back to SQL.
+     */
+    public EventSearchIndex reloadSearchIndex(Connection conn) throws SQLException {
+        try {
+            EventSearchIndex index = EventSearchIndex.load(conn);
+            searchIndex = index;
+            return index;
+        } catch (SQLException e) {
+            searchIndex = null;
+            throw e;
+        }
+    }
+
+    /**
+     * EVENTS was dropped or re-created: forget cached IDs and rows, and
+     * start from an empty index.
+     */
+    public void schemaReset() {
+        ids.reset();
+        catalog.invalidateAll();
+        searchIndex = new EventSearchIndex();
+    }
+
+    /**
+     * EVENTS was bulk-loaded behind our back: forget cached rows and the
+     * claimed ID block; the next EventID is claimed past the loaded rows.
+     */
+    public void dataReloaded() {
+        ids.reset();
+        catalog.invalidateAll();
+    }
+
+    // ============== Async variants ==============
+
+    public CompletableFuture<EventListing.Page> listPageAsync(int afterEventId) {
+        // CatalogCache borrows a connection only on a miss
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return listPage(afterEventId);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<List<EventListing.Row>> searchTitlesAsync(String keyword) {
+        return async(conn -> searchTitles(conn, keyword));
+    }
+
+    public CompletableFuture<Integer> insertAsync(int organizerId, String title, String category,
+                                                  String description) {
+        return async(conn -> insert(conn, organizerId, title, category, description));
+    }
+
+    public CompletableFuture<Integer> updateTitleAsync(int eventId, String newTitle) {
+        return async(conn -> updateTitle(conn, eventId, newTitle));
+    }
+
+    public CompletableFuture<Integer> deleteAsync(int eventId) {
+        return async(conn -> delete(conn, eventId));
+    }
+
+    public CompletableFuture<EventSearchIndex> reloadSearchIndexAsync() {
+        return async(this::reloadSearchIndex);
+    }
+}
@@ -0,0 +1,632 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CPS510 A9 – In-memory full-text search over EVENTS
+ *
+ * WHERE LOWER(Title) LIKE '%kw%' cannot use an index, so every search
+ * scanned the whole EVENTS table. This class keeps an inverted index of
+ * Title, Category and Description in memory instead:
+ *
+ *  - Text is split into lowercase alphanumeric tokens. Each token
+ *    (term) maps to a sorted int[] of EventIDs plus a per-event field
+ *    bitmask (title / category / description).
+ *  - The term dictionary is a sorted map, so a query token also matches
+ *    every term it is a prefix of ("phil" -> "philharmonic").
+ *  - Typos: all single-character deletions of each term are indexed
+ *    (symmetric-delete method), so terms within one edit of a query token
+ *    are found with a few hash lookups instead of a dictionary scan.
+ *  - All query tokens must match (AND). Candidates come from the token
+ *    with the fewest postings; the other lists are intersected with them
+ *    by a forward galloping search.
+ *  - Ranking: per token, field weight (title 3, category 2,
+ *    description 1) x idf x match quality (exact 1.0, prefix 0.8,
+ *    fuzzy 0.5), summed over tokens. Each term keeps the union of its
+ *    fields, which bounds the best score any event can still reach; the
+ *    scan stops once the top-k are all at that bound, so even terms in
+ *    most events answer in well under a millisecond.
+ *
+ * Built once from EVENTS, then kept current by put() / updateTitle() /
+ * remove() after the corresponding statement commits. Many searches run
+ * in parallel under a read lock; updates take the write lock briefly.
+ */
+public class EventSearchIndex {
+
+    public static final int TITLE = 1;
+    public static final int CATEGORY = 2;
+    public static final int DESCRIPTION = 4;
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.8f;
+    private static final float FUZZY = 0.5f;
+
+    /**
+     * One search result.
+     */
+    public static final class Hit {
+        public final int eventId;
+        public final String title;
+        public final String category;
+        public final float score;
+
+        Hit(int eventId, String title, String category, float score) {
+            this.eventId = eventId;
+            this.title = title;
+            this.category = category;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return eventId + " | " + title + " | " + category;
+        }
+    }
+
+    /**
+     * Sorted EventIDs containing a term, with the fields it appears in.
+     */
+    private static final class Postings {
+        int[] ids = new int[1];
+        byte[] fields = new byte[1];
+        int size;
+        int fieldUnion; // every field bit ever added (upper bound for ranking)
+
+        /**
+         * Index of the first id >= eventId at or after from (galloping
+         * search, cheap when successive lookups move forward a little).
+         */
+        int seek(int from, int eventId) {
+            int lo = from;
+            int step = 1;
+            int hi = from;
+            while (hi < size && ids[hi] < eventId) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int i = Arrays.binarySearch(ids, lo, Math.min(hi + 1, size), eventId);
+            return i >= 0 ? i : -(i + 1);
+        }
+
+        void add(int eventId, int field) {
+            int i;
+            if (size == 0 || ids[size - 1] < eventId) {
+                i = -(size + 1); // bulk load arrives in EventID order
+            } else {
+                i = Arrays.binarySearch(ids, 0, size, eventId);
+            }
+            fieldUnion |= field;
+            if (i >= 0) {
+                fields[i] |= field;
+                return;
+            }
+            i = -(i + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(fields, i, fields, i + 1, size - i);
+            ids[i] = eventId;
+            fields[i] = (byte) field;
+            size++;
+        }
+
+        /** Clears the field bits; true if the event no longer has the term. */
+        boolean remove(int eventId, int fieldMask) {
+            int i = Arrays.binarySearch(ids, 0, size, eventId);
+            if (i < 0) {
+                return true;
+            }
+            fields[i] &= ~fieldMask;
+            if (fields[i] != 0) {
+                return false;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(fields, i + 1, fields, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * What is shown for a hit, plus the terms needed to unindex it.
+     */
+    private static final class Doc {
+        final String title;
+        final String category;
+        final String[] terms;
+
+        Doc(String title, String category, String[] terms) {
+            this.title = title;
+            this.category = category;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * A term matched by a query token, and how well it matched.
+     */
+    private static final class Match {
+        final Postings postings;
+        final float weight; // match quality x idf
+        int cursor;         // position reached by the intersection
+
+        Match(Postings postings, float quality, int docCount) {
+            this.postings = postings;
+            this.weight = quality * idf(docCount, postings.size);
+        }
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // single-character deletion of a term -> terms producing it
+    private final Map<String, List<String>> deletions = new HashMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ============== Loading ==============
+
+    /**
+     * Build the index from every row of EVENTS.
+     */
+    public static EventSearchIndex load(Connection conn) throws SQLException {
+        EventSearchIndex index = new EventSearchIndex();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT EventID, Title, Category, Description FROM Events ORDER BY EventID")) {
+                while (rs.next()) {
+                    index.put(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                }
+            }
+        }
+        return index;
+    }
+
+    // ============== Keeping in sync ==============
+
+    /**
+     * Index a new (or replace an existing) event.
+     */
+    public void put(int eventId, String title, String category, String description) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(eventId);
+            Set<String> all = new LinkedHashSet<>();
+            indexField(eventId, title, TITLE, all);
+            indexField(eventId, category, CATEGORY, all);
+            indexField(eventId, description, DESCRIPTION, all);
+            docs.put(eventId, new Doc(title, category, all.toArray(new String[0])));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index only the title (after UPDATE Events SET Title = ...).
+     */
+    public void updateTitle(int eventId, String newTitle) {
+        lock.writeLock().lock();
+        try {
+            Doc old = docs.get(eventId);
+            if (old == null) {
+                return;
+            }
+            Set<String> kept = new LinkedHashSet<>();
+            for (String term : old.terms) {
+                if (!unindex(term, eventId, TITLE)) {
+                    kept.add(term);
+                }
+            }
+            indexField(eventId, newTitle, TITLE, kept);
+            docs.put(eventId, new Doc(newTitle, old.category, kept.toArray(new String[0])));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int eventId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(eventId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(int eventId) {
+        Doc old = docs.remove(eventId);
+        if (old != null) {
+            for (String term : old.terms) {
+                unindex(term, eventId, TITLE | CATEGORY | DESCRIPTION);
+            }
+        }
+    }
+
+    private void indexField(int eventId, String text, int field, Set<String> out) {
+        for (String token : tokenize(text)) {
+            Postings p = terms.get(token);
+            if (p == null) {
+                p = new Postings();
+                terms.put(token, p);
+                addDeletions(token);
+            }
+            p.add(eventId, field);
+            out.add(token);
+        }
+    }
+
+    /** Returns true if the event no longer contains the term at all. */
+    private boolean unindex(String term, int eventId, int fieldMask) {
+        Postings p = terms.get(term);
+        if (p == null) {
+            return true;
+        }
+        boolean gone = p.remove(eventId, fieldMask);
+        if (p.size == 0) {
+            terms.remove(term);
+            removeDeletions(term);
+        }
+        return gone;
+    }
+
+    private void addDeletions(String term) {
+        if (!fuzzyIndexed(term)) {
+            return;
+        }
+        for (String d : deletionsOf(term)) {
+            List<String> list = deletions.get(d);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                deletions.put(d, list);
+            }
+            list.add(term);
+        }
+    }
+
+    private void removeDeletions(String term) {
+        if (!fuzzyIndexed(term)) {
+            return;
+        }
+        for (String d : deletionsOf(term)) {
+            List<String> list = deletions.get(d);
+            if (list != null) {
+                list.remove(term);
+                if (list.isEmpty()) {
+                    deletions.remove(d);
+                }
+            }
+        }
+    }
+
+    // ============== Searching ==============
+
+    public List<Hit> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Events matching every token of the query, best first.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<Match>> perToken = new ArrayList<>();
+            int driver = 0;
+            long driverCost = Long.MAX_VALUE;
+            for (String token : tokens) {
+                List<Match> matches = expand(token);
+                if (matches.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                long cost = 0;
+                for (Match m : matches) {
+                    cost += m.postings.size;
+                }
+                if (cost < driverCost) {
+                    driverCost = cost;
+                    driver = perToken.size();
+                }
+                perToken.add(matches);
+            }
+
+            // Candidates and their score for the driving token
+            List<Match> driving = perToken.get(driver);
+            int[] candIds;
+            float[] candScores;
+            int candCount;
+            Match single = driving.size() == 1 ? driving.get(0) : null;
+            if (single != null) {
+                // Common case: walk the postings in place, no copy
+                candIds = single.postings.ids;
+                candScores = null;
+                candCount = single.postings.size;
+            } else {
+                Map<Integer, float[]> best = new HashMap<>();
+                for (Match m : driving) {
+                    for (int i = 0; i < m.postings.size; i++) {
+                        float sc = m.weight * fieldWeight(m.postings.fields[i]);
+                        float[] cur = best.get(m.postings.ids[i]);
+                        if (cur == null) {
+                            best.put(m.postings.ids[i], new float[] { sc });
+                        } else if (sc > cur[0]) {
+                            cur[0] = sc;
+                        }
+                    }
+                }
+                // back into EventID order for the intersection below
+                long[] packed = new long[best.size()];
+                int k = 0;
+                for (Map.Entry<Integer, float[]> e : best.entrySet()) {
+                    packed[k++] = ((long) e.getKey() << 32) | Float.floatToIntBits(e.getValue()[0]);
+                }
+                Arrays.sort(packed);
+                candIds = new int[packed.length];
+                candScores = new float[packed.length];
+                for (k = 0; k < packed.length; k++) {
+                    candIds[k] = (int) (packed[k] >>> 32);
+                    candScores[k] = Float.intBitsToFloat((int) packed[k]);
+                }
+                candCount = packed.length;
+            }
+
+            // Best total any event could reach: once the heap is full of
+            // hits at this score, later (higher) EventIDs cannot beat them.
+            float bound = 0f;
+            for (List<Match> matches : perToken) {
+                float w = 0f;
+                for (Match m : matches) {
+                    w = Math.max(w, m.weight * fieldWeight(m.postings.fieldUnion));
+                }
+                bound += w;
+            }
+
+            // Every other token must match too (candidates ascend, so each
+            // postings list is walked forward once). The top-k heap holds
+            // (score, EventID) packed in a long, worst on top, so a
+            // candidate that cannot make the cut allocates nothing.
+            PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+            float floor = -1f;
+            for (int c = 0; c < candCount && floor < bound; c++) {
+                int eventId = candIds[c];
+                float total = single != null
+                        ? single.weight * fieldWeight(single.postings.fields[c])
+                        : candScores[c];
+                boolean all = true;
+                for (int t = 0; t < perToken.size() && all; t++) {
+                    if (t == driver) {
+                        continue;
+                    }
+                    float best = 0f;
+                    for (Match m : perToken.get(t)) {
+                        m.cursor = m.postings.seek(m.cursor, eventId);
+                        if (m.cursor < m.postings.size && m.postings.ids[m.cursor] == eventId) {
+                            best = Math.max(best, m.weight * fieldWeight(m.postings.fields[m.cursor]));
+                        }
+                    }
+                    all = best > 0f;
+                    total += best;
+                }
+                if (!all) {
+                    continue;
+                }
+                long key = rankKey(total, eventId);
+                if (top.size() < limit) {
+                    top.add(key);
+                } else if (key > top.peek()) {
+                    top.poll();
+                    top.add(key);
+                } else {
+                    continue;
+                }
+                if (top.size() == limit) {
+                    floor = Float.intBitsToFloat((int) (top.peek() >>> 32));
+                }
+            }
+
+            Hit[] out = new Hit[top.size()];
+            for (int i = out.length - 1; i >= 0; i--) {
+                long key = top.poll();
+                int eventId = Integer.MAX_VALUE - (int) key;
+                Doc d = docs.get(eventId);
+                out[i] = new Hit(eventId, d.title, d.category, Float.intBitsToFloat((int) (key >>> 32)));
+            }
+            return Arrays.asList(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Terms a query token matches: itself, terms it prefixes, and (if it
+     * is long enough and not a known term) terms one edit away.
+     */
+    private List<Match> expand(String token) {
+        List<Match> out = new ArrayList<>();
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            out.add(new Match(exact, EXACT, docs.size()));
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            NavigableMap<String, Postings> range =
+                    terms.subMap(token, false, token + Character.MAX_VALUE, false);
+            int taken = 0;
+            for (Postings p : range.values()) {
+                if (++taken > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                out.add(new Match(p, PREFIX, docs.size()));
+            }
+        }
+        if (exact == null && fuzzyIndexed(token)) {
+            for (String term : fuzzyTerms(token)) {
+                out.add(new Match(terms.get(term), FUZZY, docs.size()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Indexed terms within one insertion, deletion, substitution or
+     * adjacent transposition of the token.
+     */
+    private Set<String> fuzzyTerms(String token) {
+        Set<String> candidates = new LinkedHashSet<>();
+        List<String> direct = deletions.get(token); // term = token + 1 char
+        if (direct != null) {
+            candidates.addAll(direct);
+        }
+        for (String d : deletionsOf(token)) {
+            if (terms.containsKey(d)) {
+                candidates.add(d); // term = token - 1 char
+            }
+            List<String> shared = deletions.get(d); // substitution / transposition
+            if (shared != null) {
+                candidates.addAll(shared);
+            }
+        }
+        candidates.removeIf(t -> t.equals(token) || !withinOneEdit(token, t));
+        return candidates;
+    }
+
+    // ============== Helpers ==============
+
+    /**
+     * Lowercase alphanumeric tokens, without duplicates, in order.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> out = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** Numbers (e.g. the IDs in generated titles) are matched exactly or by prefix only. */
+    private static boolean fuzzyIndexed(String term) {
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i < term.length(); i++) {
+            out.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return out;
+    }
+
+    /** Optimal string alignment distance <= 1. */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) {
+                return true; // substitution
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2); // transposition
+        }
+        return la > lb
+                ? a.regionMatches(i + 1, b, i, lb - i)
+                : b.regionMatches(i + 1, a, i, la - i);
+    }
+
+    private static float idf(int docCount, int docFreq) {
+        return (float) Math.log(1.0 + (double) docCount / Math.max(1, docFreq));
+    }
+
+    private static float fieldWeight(int fields) {
+        float w = 0f;
+        if ((fields & TITLE) != 0) {
+            w += 3f;
+        }
+        if ((fields & CATEGORY) != 0) {
+            w += 2f;
+        }
+        if ((fields & DESCRIPTION) != 0) {
+            w += 1f;
+        }
+        return w;
+    }
+
+    /**
+     * Orders hits: higher score first, then lower EventID. Scores are
+     * positive, so their float bits compare like the floats themselves.
+     */
+    private static long rankKey(float score, int eventId) {
+        return ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - eventId);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
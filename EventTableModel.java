@@ -0,0 +1,154 @@
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Lazily loaded EVENTS table for the GUI
+ *
+ * Backs a JTable with EventListing pages from EventRepository (read
+ * through CatalogCache, so reopening the list is served from memory).
+ * It starts with one page, and the next page is fetched (keyset, off
+ * the EDT) only when the user scrolls near the last loaded row. While
+ * more rows exist, a final "Loading..." row marks the end. JTable
+ * renders just the visible rows, so the window stays responsive however
+ * large EVENTS is.
+ *
+ * All methods except the background fetch run on the EDT.
+ */
+public class EventTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = { "EventID", "Title", "Category" };
+
+    // Fetch ahead when the viewport gets this close to the last loaded row
+    private static final int PREFETCH_ROWS = 50;
+
+    private final transient EventRepository events;
+    private final transient Consumer<String> errorSink;
+
+    private final List<EventListing.Row> rows = new ArrayList<>();
+    private int lastEventId = Integer.MIN_VALUE;
+    private boolean hasMore = true;
+    private boolean loading = false;
+    private boolean closed = false;
+
+    public EventTableModel(EventRepository events, Consumer<String> errorSink) {
+        this.events = events;
+        this.errorSink = errorSink;
+    }
+
+    // ============== TableModel ==============
+
+    @Override
+    public int getRowCount() {
+        return rows.size() + (hasMore ? 1 : 0);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int column) {
+        if (rowIndex >= rows.size()) {
+            return column == 1 ? (loading ? "Loading..." : "") : null;
+        }
+        EventListing.Row row = rows.get(rowIndex);
+        switch (column) {
+            case 0: return row.eventId;
+            case 1: return row.title;
+            default: return row.category;
+        }
+    }
+
+    public int getLoadedRowCount() {
+        return rows.size();
+    }
+
+    // ============== Paging ==============
+
+    /**
+     * Called when the viewport moves; fetches the next page if the last
+     * visible row is close to the end of what is loaded.
+     */
+    public void ensureLoaded(int lastVisibleRow) {
+        if (lastVisibleRow + PREFETCH_ROWS >= rows.size()) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Stop applying pages (e.g. the window was closed).
+     */
+    public void close() {
+        closed = true;
+    }
+
+    private void loadNextPage() {
+        if (loading || !hasMore || closed) {
+            return;
+        }
+        loading = true;
+        final int after = lastEventId;
+        fireTableRowsUpdated(rows.size(), rows.size()); // show "Loading..."
+        try {
+            events.listPageAsync(after).whenComplete((page, err) -> SwingUtilities.invokeLater(() -> {
+                if (err == null) {
+                    applyPage(page);
+                } else {
+                    Throwable cause = err instanceof CompletionException && err.getCause() != null
+                            ? err.getCause() : err;
+                    failed("Error listing events: " + cause.getMessage());
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            failed("Error listing events: worker busy, scroll again to retry");
+        }
+    }
+
+    private void applyPage(EventListing.Page page) {
+        loading = false;
+        if (closed) {
+            return;
+        }
+        int first = rows.size();
+        rows.addAll(page.rows);
+        lastEventId = page.lastEventId;
+        boolean hadMore = hasMore;
+        hasMore = page.hasMore;
+
+        if (!page.rows.isEmpty()) {
+            // the old "Loading..." row becomes the first new row
+            fireTableRowsUpdated(first, first);
+            if (page.rows.size() > 1) {
+                fireTableRowsInserted(first + 1, first + page.rows.size() - 1);
+            }
+        }
+        if (hadMore && !hasMore) {
+            fireTableRowsDeleted(rows.size(), rows.size());
+        } else if (hasMore && !page.rows.isEmpty()) {
+            fireTableRowsInserted(rows.size(), rows.size());
+        }
+    }
+
+    private void failed(String message) {
+        loading = false;
+        fireTableRowsUpdated(rows.size(), rows.size());
+        errorSink.accept(message);
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * CPS510 A9 – Local write-ahead log of gate scans
+ *
+ * Every successful scan is appended here before it is written to
+ * TICKETS, so validations survive a network outage and a restart of the
+ * gate process:
+ *
+ *  - records are fixed 32 bytes: type, ShowtimeID, TicketID,
+ *    ValidatedAt, CRC32 of the first 24 bytes and a magic number;
+ *    records are numbered one after the other, from 0 or from the last
+ *    BASE record
+ *  - append() only copies into a buffer; a sync thread writes the
+ *    buffer with one FileChannel write and one force() every syncMs
+ *    (group commit), so a scan never waits for the disk. A crash can
+ *    lose at most the last syncMs of scans.
+ *  - a CHECKPOINT record marks that every scan before a given sequence
+ *    number has reached the database, so recovery only replays the rest
+ *  - on open, the existing file is memory-mapped and read front to back;
+ *    a torn or corrupt tail (crash mid-write) is cut off
+ *  - once the file has reached rollBytes and a checkpoint covers every
+ *    scan in it, rollOver() truncates it to a single BASE record that
+ *    carries the sequence numbering on. The file, and so recovery time,
+ *    only grows with the scans since the last roll-over, not with every
+ *    scan the gate has ever made.
+ *
+ * A crash during a roll-over is harmless: the file is then either the old
+ * log (replayed again, which the conditional write-back tolerates), empty
+ * (every scan was in the database already) or the BASE record.
+ */
+public class GateScanLog implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 32;
+    public static final long DEFAULT_SYNC_MS = 10;
+    public static final long DEFAULT_ROLL_BYTES = 1L << 20; // 32768 records
+
+    private static final int MAGIC = 0x47534C31; // "GSL1"
+    private static final int TYPE_SCAN = 1;
+    private static final int TYPE_CHECKPOINT = 2;
+    private static final int TYPE_BASE = 3; // this record's sequence number is a
+
+    /**
+     * Receives the SCAN records found on open, in log order.
+     */
+    public interface ScanHandler {
+        void scan(long seq, int showtimeId, long ticketId, long validatedAt);
+    }
+
+    /**
+     * What open found in the existing file.
+     */
+    public static final class Recovery {
+        public final long records;
+        public final long nextSeq;        // sequence number of the next append
+        public final long scans;
+        public final long checkpoint;     // scans with seq < checkpoint are in the database
+        public final long truncatedBytes;
+        public final double millis;
+
+        Recovery(long records, long nextSeq, long scans, long checkpoint, long truncatedBytes, double millis) {
+            this.records = records;
+            this.nextSeq = nextSeq;
+            this.scans = scans;
+            this.checkpoint = checkpoint;
+            this.truncatedBytes = truncatedBytes;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("recovered %d record(s) up to seq %d (%d scan(s), checkpoint at %d, %d byte(s) truncated) in %.1f ms",
+                    records, nextSeq, scans, checkpoint, truncatedBytes, millis);
+        }
+    }
+
+    private final FileChannel channel;
+    private final long rollBytes;
+    private final Recovery recovery;
+    private final ScheduledExecutorService syncer;
+    private final CRC32 crc = new CRC32(); // guarded by this
+
+    // Guarded by this: records appended but not yet handed to sync()
+    private ByteBuffer staging = ByteBuffer.allocate(64 * RECORD_SIZE);
+    private long nextSeq;
+    private long fileStartSeq;     // sequence number of the file's first record
+    private long lastScanSeq = -1;
+
+    // Guarded by syncLock: bytes being written to the file
+    private final Object syncLock = new Object();
+    private ByteBuffer writing = ByteBuffer.allocate(64 * RECORD_SIZE);
+    private volatile long syncedSeq;
+
+    // ---- metrics ----
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong syncFailures = new AtomicLong();
+    private final AtomicLong maxSyncNanos = new AtomicLong();
+    private final AtomicLong rollOvers = new AtomicLong();
+
+    public GateScanLog(Path file, long syncMs, ScanHandler handler) throws IOException {
+        this(file, syncMs, DEFAULT_ROLL_BYTES, handler);
+    }
+
+    /**
+     * Open (or create) the log, passing every SCAN record already in it
+     * to handler, then start syncing every syncMs. rollOver() only starts
+     * a fresh file once this one holds at least rollBytes.
+     */
+    public GateScanLog(Path file, long syncMs, long rollBytes, ScanHandler handler) throws IOException {
+        this.rollBytes = rollBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.recovery = recover(handler);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.nextSeq = recovery.nextSeq;
+        this.syncedSeq = recovery.nextSeq;
+        this.fileStartSeq = recovery.nextSeq - recovery.records;
+        if (recovery.scans > 0) {
+            this.lastScanSeq = recovery.nextSeq - 1; // at most; only delays the next roll-over
+        }
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eticket-gate-wal");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, syncMs, syncMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Recovery getRecovery() {
+        return recovery;
+    }
+
+    // ============== Recovery ==============
+
+    private Recovery recover(ScanHandler handler) throws IOException {
+        long start = System.nanoTime();
+        long size = channel.size();
+        long records = 0;
+        long seq = 0;
+        long scans = 0;
+        long checkpoint = 0;
+        if (size >= RECORD_SIZE) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    size / RECORD_SIZE * RECORD_SIZE);
+            CRC32 check = new CRC32();
+            byte[] body = new byte[24];
+            ByteBuffer r = ByteBuffer.wrap(body);
+            while (map.remaining() >= RECORD_SIZE) {
+                map.get(body);
+                int storedCrc = map.getInt();
+                int magic = map.getInt();
+                check.reset();
+                check.update(body, 0, body.length);
+                if (magic != MAGIC || storedCrc != (int) check.getValue()) {
+                    break; // torn or corrupt: everything from here on is discarded
+                }
+                r.clear();
+                int type = r.getInt();
+                int showtimeId = r.getInt();
+                long a = r.getLong();
+                long b = r.getLong();
+                if (type == TYPE_SCAN) {
+                    handler.scan(seq, showtimeId, a, b);
+                    scans++;
+                } else if (type == TYPE_CHECKPOINT) {
+                    checkpoint = Math.max(checkpoint, a);
+                } else if (type == TYPE_BASE) {
+                    seq = a;
+                    checkpoint = Math.max(checkpoint, a);
+                }
+                records++;
+                seq++;
+            }
+        }
+        long valid = records * RECORD_SIZE;
+        if (size > valid) {
+            channel.truncate(valid);
+            channel.force(false);
+        }
+        channel.position(valid);
+        return new Recovery(records, seq, scans, checkpoint, size - valid, (System.nanoTime() - start) / 1e6);
+    }
+
+    // ============== Appending ==============
+
+    /**
+     * Log one validation; returns its sequence number. Durable after the
+     * next sync.
+     */
+    public long appendScan(int showtimeId, long ticketId, long validatedAt) {
+        return append(TYPE_SCAN, showtimeId, ticketId, validatedAt);
+    }
+
+    /**
+     * Every scan with a sequence number below upToSeq is in the database.
+     */
+    public long appendCheckpoint(long upToSeq) {
+        return append(TYPE_CHECKPOINT, 0, upToSeq, System.currentTimeMillis());
+    }
+
+    private synchronized long append(int type, int showtimeId, long a, long b) {
+        if (staging.remaining() < RECORD_SIZE) {
+            ByteBuffer bigger = ByteBuffer.allocate(staging.capacity() * 2);
+            staging.flip();
+            bigger.put(staging);
+            staging = bigger;
+        }
+        put(staging, crc, type, showtimeId, a, b);
+        appended.incrementAndGet();
+        if (type == TYPE_SCAN) {
+            lastScanSeq = nextSeq;
+        }
+        return nextSeq++;
+    }
+
+    private static void put(ByteBuffer buf, CRC32 crc, int type, int showtimeId, long a, long b) {
+        int start = buf.position();
+        buf.putInt(type).putInt(showtimeId).putLong(a).putLong(b);
+        crc.reset();
+        crc.update(buf.array(), start, 24);
+        buf.putInt((int) crc.getValue()).putInt(MAGIC);
+    }
+
+    // ============== Roll-over ==============
+
+    /**
+     * True if the file has reached rollBytes and every scan in it is
+     * below upToSeq, i.e. rollOver(upToSeq) would start a fresh file.
+     */
+    public synchronized boolean isRollOverDue(long upToSeq) {
+        return lastScanSeq < upToSeq && (nextSeq - fileStartSeq) * RECORD_SIZE >= rollBytes;
+    }
+
+    /**
+     * Every scan below upToSeq is in the database: if that is every scan
+     * logged so far and the file has reached rollBytes, cut the file down
+     * to one BASE record and return true. Records still buffered are
+     * dropped (they are all covered by upToSeq); scans appended meanwhile
+     * simply follow the BASE record.
+     */
+    public boolean rollOver(long upToSeq) throws IOException {
+        synchronized (syncLock) {
+            long base;
+            synchronized (this) {
+                if (!isRollOverDue(upToSeq)) {
+                    return false;
+                }
+                staging.clear();
+                base = nextSeq++;
+                fileStartSeq = base;
+                appended.incrementAndGet();
+            }
+            writing.clear();
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            put(record, new CRC32(), TYPE_BASE, 0, base, System.currentTimeMillis());
+            record.flip();
+            try {
+                channel.truncate(0);
+                channel.position(0);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                // Leave the BASE record to the next sync, after the last
+                // whole record: recovery numbers what follows from it
+                record.rewind();
+                writing.put(record);
+                try {
+                    channel.position(channel.size() / RECORD_SIZE * RECORD_SIZE);
+                } catch (IOException | RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            syncedSeq = base + 1;
+            rollOvers.incrementAndGet();
+            return true;
+        }
+    }
+
+    // ============== Group commit ==============
+
+    /**
+     * Write and fsync everything appended so far.
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            long upTo;
+            synchronized (this) {
+                staging.flip();
+                if (writing.remaining() < staging.remaining()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(writing.position() + staging.remaining());
+                    writing.flip();
+                    bigger.put(writing);
+                    writing = bigger;
+                }
+                writing.put(staging);
+                staging.clear();
+                upTo = nextSeq;
+            }
+            if (writing.position() == 0) {
+                return;
+            }
+            long t0 = System.nanoTime();
+            writing.flip();
+            try {
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+                syncedSeq = upTo;
+                syncs.incrementAndGet();
+                maxSyncNanos.accumulateAndGet(System.nanoTime() - t0, Math::max);
+            } finally {
+                writing.compact(); // keeps whatever was not written, for the next try
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            syncFailures.incrementAndGet();
+            System.err.println("Gate scan log sync failed, will retry: " + e.getMessage());
+        }
+    }
+
+    // ============== Metrics / lifecycle ==============
+
+    public long getAppended()  { return appended.get(); }
+    public long getSyncedSeq() { return syncedSeq; }
+    public long getSyncs()     { return syncs.get(); }
+    public long getRollOvers() { return rollOvers.get(); }
+
+    public String stats() {
+        return String.format("wal: appended=%d synced=%d syncs=%d failures=%d maxSync=%.1fms rollOvers=%d",
+                appended.get(), syncedSeq, syncs.get(), syncFailures.get(), maxSyncNanos.get() / 1e6,
+                rollOvers.get());
+    }
+
+    /**
+     * Sync what is left and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        // Not shutdownNow(): interrupting a FileChannel write closes the channel
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,445 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Expiry of HELD seats (hierarchical timer wheel)
+ *
+ * Every hold gets a TTL. Instead of periodically scanning SeatMaps for
+ * old HELD rows, holds are placed in a 3-level hashed timer wheel:
+ *
+ *   level 0: 256 slots x tickMs          (25.6 s at 100 ms ticks)
+ *   level 1: 256 slots x 256 ticks       (~1.8 h)
+ *   level 2: 256 slots x 65,536 ticks    (~19 days)
+ *
+ * Scheduling is O(1) and lock-free: callers push onto a concurrent queue
+ * that the single ticker thread drains, so only that thread touches the
+ * wheel. Each tick empties one level-0 slot; when level 0 wraps, the next
+ * level-1 slot is cascaded down (and likewise for level 2). CPU cost per
+ * tick depends on the number of holds expiring, not on the number held.
+ *
+ * Selling or releasing a hold cancels it lazily: the seat -> hold map
+ * entry is removed and the wheel entry is skipped when its time comes.
+ * Holds are identified by their hold token, both in that map and in the
+ * UPDATE, so a seat that was released and held again is never released
+ * by the older hold's timer.
+ *
+ * Expired seats are released with one batched conditional UPDATE per
+ * tick (WHERE Status = 'HELD'); once it commits, memory is moved HELD ->
+ * AVAILABLE (CAS) for the rows the database released, and set from the
+ * database for the rest. With a SummaryRepository attached, the rows
+ * that really changed are counted into the summary counters in the same
+ * transaction.
+ */
+public class HoldExpiryScheduler implements AutoCloseable {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 3;
+    private static final int DB_BATCH_SIZE = 1000;
+
+    static final String SQL_EXPIRE =
+            "UPDATE SeatMaps SET Status = 'AVAILABLE', HoldToken = NULL " +
+            "WHERE SeatMapID = ? AND Status = 'HELD' AND HoldToken = ?";
+    // Adopted holds: the token of whoever held the seat is not known here
+    static final String SQL_EXPIRE_ADOPTED =
+            "UPDATE SeatMaps SET Status = 'AVAILABLE', HoldToken = NULL " +
+            "WHERE SeatMapID = ? AND Status = 'HELD'";
+
+    /**
+     * One hold in the wheel; slots are singly linked lists of these.
+     */
+    private static final class Hold {
+        final long holdId;
+        final boolean adopted;
+        final int showtimeId;
+        final int[] seatIds;
+        final long deadlineTick;
+        Hold next;
+
+        Hold(long holdId, boolean adopted, int showtimeId, int[] seatIds, long deadlineTick) {
+            this.holdId = holdId;
+            this.adopted = adopted;
+            this.showtimeId = showtimeId;
+            this.seatIds = seatIds;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final SeatInventory inventory;
+    private final long tickMs;
+    private final long startMs;
+
+    // Owned by the ticker thread
+    private final Hold[][] wheels = new Hold[LEVELS][WHEEL_SIZE];
+    private long currentTick = 0;
+
+    private final ConcurrentLinkedQueue<Hold> incoming = new ConcurrentLinkedQueue<>();
+    // (showtimeId, seatId) -> id of the hold that currently owns the seat:
+    // its hold token, or a local id for an adopted hold
+    private final Map<Long, Long> seatOwner = new ConcurrentHashMap<>();
+    private final AtomicLong nextAdoptedId = new AtomicLong(-1);
+    private final ScheduledExecutorService ticker;
+    private volatile SummaryRepository summaries;
+
+    // ---- metrics ----
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong expiredHolds = new AtomicLong();
+    private final AtomicLong releasedSeats = new AtomicLong();
+    private final AtomicLong dbBatches = new AtomicLong();
+    private final AtomicLong failedReleases = new AtomicLong();
+
+    public HoldExpiryScheduler(ConnectionPool pool, SeatInventory inventory, long tickMs) {
+        this.pool = pool;
+        this.inventory = inventory;
+        this.tickMs = tickMs;
+        this.startMs = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eticket-hold-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count released seats into the summary counters (null stops it).
+     */
+    public void setSummaries(SummaryRepository summaries) {
+        this.summaries = summaries;
+    }
+
+    // ============== Scheduling / cancelling ==============
+
+    /**
+     * Register a successful hold under its hold token (see
+     * SeatReservationService.hold()); only rows still HELD under that
+     * token are released.
+     */
+    public void schedule(int showtimeId, int[] seatIds, long ttlMs, long holdToken) {
+        schedule(holdToken, false, showtimeId, seatIds, ttlMs);
+    }
+
+    private void schedule(long holdId, boolean adopted, int showtimeId, int[] seatIds, long ttlMs) {
+        for (int seatId : seatIds) {
+            seatOwner.put(key(showtimeId, seatId), holdId);
+        }
+        long deadline = (System.currentTimeMillis() - startMs + ttlMs + tickMs - 1) / tickMs;
+        incoming.add(new Hold(holdId, adopted, showtimeId, seatIds.clone(), deadline));
+        scheduled.incrementAndGet();
+    }
+
+    /**
+     * The hold's seats left HELD (sold or released): stop tracking them.
+     * Seats held again since by another hold are left alone.
+     */
+    public void cancel(int showtimeId, int[] seatIds, long holdToken) {
+        for (int seatId : seatIds) {
+            seatOwner.remove(key(showtimeId, seatId), holdToken);
+        }
+    }
+
+    /**
+     * Give HELD seats that have no owner in this process (e.g. left over
+     * from a crash) a TTL, so they are eventually released too, whatever
+     * their hold token. Adopted holds get negative ids, which no hold
+     * token can equal.
+     */
+    public int adoptUnownedHolds(long ttlMs) {
+        int adopted = 0;
+        for (int showtimeId : inventory.showtimeIds()) {
+            List<Integer> orphans = new ArrayList<>();
+            for (int seatId : inventory.seatIds(showtimeId, SeatInventory.SeatStatus.HELD)) {
+                if (!seatOwner.containsKey(key(showtimeId, seatId))) {
+                    orphans.add(seatId);
+                }
+            }
+            if (!orphans.isEmpty()) {
+                schedule(nextAdoptedId.getAndDecrement(), true, showtimeId,
+                        orphans.stream().mapToInt(Integer::intValue).toArray(), ttlMs);
+                adopted += orphans.size();
+            }
+        }
+        return adopted;
+    }
+
+    private static long key(int showtimeId, int seatId) {
+        return ((long) showtimeId << 32) | (seatId & 0xFFFFFFFFL);
+    }
+
+    // ============== Timer wheel (ticker thread only) ==============
+
+    private void tick() {
+        try {
+            long nowTick = (System.currentTimeMillis() - startMs) / tickMs;
+            List<Hold> due = new ArrayList<>();
+
+            Hold h;
+            while ((h = incoming.poll()) != null) {
+                if (h.deadlineTick <= currentTick) {
+                    due.add(h);
+                } else {
+                    place(h);
+                }
+            }
+
+            while (currentTick < nowTick) {
+                currentTick++;
+                if ((currentTick & WHEEL_MASK) == 0) {
+                    cascade(1);
+                }
+                int slot = (int) (currentTick & WHEEL_MASK);
+                for (Hold e = wheels[0][slot]; e != null; e = e.next) {
+                    due.add(e);
+                }
+                wheels[0][slot] = null;
+            }
+
+            if (!due.isEmpty()) {
+                expire(due);
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the fixed-rate ticker
+            System.err.println("Hold expiry tick failed: " + e);
+        }
+    }
+
+    /**
+     * Put a hold in the lowest level whose range covers its deadline.
+     */
+    private void place(Hold h) {
+        long delta = h.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        long slotTick = Math.min(h.deadlineTick,
+                currentTick + (1L << (WHEEL_BITS * (level + 1))) - 1);
+        int slot = (int) ((slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        h.next = wheels[level][slot];
+        wheels[level][slot] = h;
+    }
+
+    /**
+     * Move the current slot of a higher level down one level.
+     */
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        long levelTick = currentTick >>> (WHEEL_BITS * level);
+        if ((levelTick & WHEEL_MASK) == 0) {
+            cascade(level + 1);
+        }
+        int slot = (int) (levelTick & WHEEL_MASK);
+        Hold e = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (e != null) {
+            Hold next = e.next;
+            e.next = null;
+            if (e.deadlineTick <= currentTick) {
+                // due this very tick: drop into the level-0 slot being processed
+                int s0 = (int) (currentTick & WHEEL_MASK);
+                e.next = wheels[0][s0];
+                wheels[0][s0] = e;
+            } else {
+                place(e);
+            }
+            e = next;
+        }
+    }
+
+    // ============== Releasing expired holds ==============
+
+    /**
+     * Release the still-owned seats of the due holds: first in the
+     * database (conditional updates, one transaction), then in memory for
+     * exactly the rows the database released. Memory never runs ahead of
+     * the database, so a concurrent hold() cannot win a seat in memory
+     * that the database still has HELD.
+     */
+    private void expire(List<Hold> due) {
+        List<Hold> owners = new ArrayList<>();
+        List<int[]> seats = new ArrayList<>(); // {showtimeId, seatId, seatMapId}
+        for (Hold h : due) {
+            for (int seatId : h.seatIds) {
+                long key = key(h.showtimeId, seatId);
+                Long owner = seatOwner.get(key);
+                if (owner == null || owner != h.holdId) {
+                    continue; // sold, released or re-held since
+                }
+                int seatMapId = inventory.seatMapIdOf(h.showtimeId, seatId);
+                if (seatMapId < 0) {
+                    seatOwner.remove(key, h.holdId); // showtime no longer loaded
+                    continue;
+                }
+                owners.add(h);
+                seats.add(new int[] { h.showtimeId, seatId, seatMapId });
+            }
+        }
+        if (seats.isEmpty()) {
+            return;
+        }
+
+        int[] counts = new int[seats.size()];
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            SummaryRepository counters = summaries;
+            SummaryRepository.Delta delta = new SummaryRepository.Delta();
+            try (PreparedStatement byToken = conn.prepareStatement(SQL_EXPIRE);
+                 PreparedStatement adopted = conn.prepareStatement(SQL_EXPIRE_ADOPTED)) {
+                executeInBatches(byToken, false, owners, seats, counts);
+                executeInBatches(adopted, true, owners, seats, counts);
+                for (int i = 0; i < counts.length; i++) {
+                    if (changed(counts[i])) {
+                        delta.seats(seats.get(i)[0], SeatInventory.SeatStatus.HELD,
+                                SeatInventory.SeatStatus.AVAILABLE, 1);
+                    }
+                }
+                if (counters != null) {
+                    counters.apply(conn, delta);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+            // Committed: now memory, only for what the database did
+            Set<Hold> expired = new HashSet<>();
+            for (int i = 0; i < counts.length; i++) {
+                int[] seat = seats.get(i);
+                Hold h = owners.get(i);
+                boolean owned = seatOwner.remove(key(seat[0], seat[1]), h.holdId);
+                if (changed(counts[i])) {
+                    releasedSeats.incrementAndGet();
+                    expired.add(h);
+                    if (owned && !inventory.compareAndSet(seat[0], seat[1],
+                            SeatInventory.SeatStatus.HELD, SeatInventory.SeatStatus.AVAILABLE)) {
+                        // Memory moved on meanwhile (e.g. a checkout's CAS that its
+                        // update will now miss); nobody owns the seat any more, so
+                        // take the committed state or it could stay HELD for good
+                        refreshFromDatabase(conn, seat[0], seat[1], seat[2]);
+                    }
+                } else {
+                    // The row was not HELD in the database (e.g. another instance sold it)
+                    failedReleases.incrementAndGet();
+                    if (owned) {
+                        refreshFromDatabase(conn, seat[0], seat[1], seat[2]);
+                    }
+                }
+            }
+            expiredHolds.addAndGet(expired.size());
+        } catch (SQLException e) {
+            // Nothing changed anywhere: the holds stay owned and are retried next tick
+            failedReleases.addAndGet(seats.size());
+            Set<Hold> retried = new HashSet<>();
+            for (Hold h : owners) {
+                if (retried.add(h)) {
+                    place(new Hold(h.holdId, h.adopted, h.showtimeId, h.seatIds, currentTick + 1));
+                }
+            }
+            System.err.println("Hold expiry write-back failed, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run the conditional updates of the seats whose hold is (or is not)
+     * adopted, DB_BATCH_SIZE at a time; each row's count goes to counts.
+     */
+    private void executeInBatches(PreparedStatement ps, boolean adopted, List<Hold> owners,
+                                  List<int[]> seats, int[] counts) throws SQLException {
+        int[] rows = new int[DB_BATCH_SIZE];
+        int pending = 0;
+        for (int i = 0; i < seats.size(); i++) {
+            Hold h = owners.get(i);
+            if (h.adopted != adopted) {
+                continue;
+            }
+            ps.setInt(1, seats.get(i)[2]);
+            if (!adopted) {
+                ps.setLong(2, h.holdId);
+            }
+            ps.addBatch();
+            rows[pending++] = i;
+            if (pending == DB_BATCH_SIZE) {
+                flush(ps, rows, pending, counts);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            flush(ps, rows, pending, counts);
+        }
+    }
+
+    private void flush(PreparedStatement ps, int[] rows, int n, int[] counts) throws SQLException {
+        int[] batch = ps.executeBatch();
+        for (int k = 0; k < n; k++) {
+            counts[rows[k]] = batch[k];
+        }
+        dbBatches.incrementAndGet();
+    }
+
+    /**
+     * SUCCESS_NO_INFO is taken as a change, since the row was HELD when
+     * the update ran; if another instance had sold it, reconciliation
+     * corrects the counters.
+     */
+    private static boolean changed(int count) {
+        return count != 0 && count != Statement.EXECUTE_FAILED;
+    }
+
+    /**
+     * Copy the seat's committed state into memory.
+     */
+    private void refreshFromDatabase(Connection conn, int showtimeId, int seatId, int seatMapId) {
+        try (PreparedStatement ps = conn.prepareStatement(SeatReservationService.SQL_STATUS)) {
+            ps.setInt(1, seatMapId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    inventory.apply(showtimeId, seatId,
+                            SeatInventory.SeatStatus.valueOf(rs.getString(1).trim()));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            // best effort; the next conditional update still protects the seat
+        }
+    }
+
+    // ============== Metrics / lifecycle ==============
+
+    public long getOutstandingSeats() { return seatOwner.size(); }
+    public long getScheduled()        { return scheduled.get(); }
+    public long getExpiredHolds()     { return expiredHolds.get(); }
+    public long getReleasedSeats()    { return releasedSeats.get(); }
+    public long getFailedReleases()   { return failedReleases.get(); }
+
+    public String stats() {
+        return "holds: scheduled=" + scheduled.get() + " outstandingSeats=" + seatOwner.size()
+                + " expired=" + expiredHolds.get() + " releasedSeats=" + releasedSeats.get()
+                + " failed=" + failedReleases.get();
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,259 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * CPS510 A9 – Primary key allocation (hi/lo blocks)
+ *
+ * Hands out IDs for EVENTS, ORDERS, PAYMENTS, TICKETS and SEATMAPS so that
+ * no insert needs a user-typed key, a MAX(id) query or a retry:
+ *
+ *  - The IdBlocks table holds, per name, the next value no process has
+ *    claimed yet. A process claims a whole block of IDs (default 1000)
+ *    by bumping that value in a short transaction of its own. The
+ *    UPDATE locks the row, so two app instances never get the same block.
+ *  - Inside the process, IDs come from the current block with
+ *    AtomicLong.getAndIncrement(): lock-free, no database round trip.
+ *    Only the thread that exhausts a block goes back to the database.
+ *  - The first claim for a name seeds IdBlocks from MAX(id) of its table.
+ *    The first claim of this process, and the first after reset(), also
+ *    raises NextValue past MAX(id), so rows written with explicit IDs
+ *    (populate, DataGenerator, CSV import) are never reused even when a
+ *    block was claimed before they were loaded.
+ *
+ * IDs are unique but not gap-free: a block that is not used up before the
+ * process exits is simply skipped.
+ */
+public class IdAllocator {
+
+    public enum Sequence {
+        EVENT("Events", "EventID"),
+        ORDER("Orders", "OrderID"),
+        PAYMENT("Payments", "PaymentID"),
+        TICKET("Tickets", "TicketID"),
+        SEATMAP("SeatMaps", "SeatMapID");
+
+        final String table;
+        final String column;
+
+        Sequence(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    static final String SQL_BUMP =
+            "UPDATE IdBlocks SET NextValue = NextValue + ? WHERE Name = ?";
+    static final String SQL_READ =
+            "SELECT NextValue FROM IdBlocks WHERE Name = ?";
+    static final String SQL_SEED =
+            "INSERT INTO IdBlocks (Name, NextValue) VALUES (?, ?)";
+
+    /**
+     * IDs [next, end) claimed by this process.
+     */
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int blockSize;
+    private final AtomicReferenceArray<Block> blocks =
+            new AtomicReferenceArray<>(Sequence.values().length);
+    private final Object[] refillLocks = new Object[Sequence.values().length];
+    // 1 = IdBlocks may be behind MAX(id) of the table; checked on the next claim
+    private final AtomicIntegerArray stale = new AtomicIntegerArray(Sequence.values().length);
+
+    // ---- metrics ----
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong blocksClaimed = new AtomicLong();
+
+    public IdAllocator(ConnectionPool pool) {
+        this(pool, DEFAULT_BLOCK_SIZE);
+    }
+
+    public IdAllocator(ConnectionPool pool, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be >= 1");
+        }
+        this.pool = pool;
+        this.blockSize = blockSize;
+        for (int i = 0; i < refillLocks.length; i++) {
+            refillLocks[i] = new Object();
+            stale.set(i, 1);
+        }
+    }
+
+    // ============== Allocation ==============
+
+    /**
+     * Next unused ID for the sequence.
+     */
+    public long next(Sequence seq) throws SQLException {
+        int i = seq.ordinal();
+        while (true) {
+            Block b = blocks.get(i);
+            if (b != null) {
+                long id = b.next.getAndIncrement();
+                if (id < b.end) {
+                    issued.incrementAndGet();
+                    return id;
+                }
+            }
+            refill(seq, b);
+        }
+    }
+
+    /**
+     * n unused IDs (not necessarily consecutive if a block boundary is
+     * crossed).
+     */
+    public long[] next(Sequence seq, int n) throws SQLException {
+        long[] ids = new long[n];
+        for (int k = 0; k < n; k++) {
+            ids[k] = next(seq);
+        }
+        return ids;
+    }
+
+    /**
+     * Forget the cached blocks, e.g. after the tables were dropped and
+     * re-created or bulk-loaded. The next call claims a fresh block from
+     * IdBlocks, first raising NextValue past the table's highest ID.
+     */
+    public void reset() {
+        for (int i = 0; i < blocks.length(); i++) {
+            stale.set(i, 1);
+            blocks.set(i, null);
+        }
+    }
+
+    /**
+     * Replace an exhausted block. Threads racing here wait for the one
+     * that claims the new block instead of each claiming their own.
+     */
+    private void refill(Sequence seq, Block exhausted) throws SQLException {
+        int i = seq.ordinal();
+        synchronized (refillLocks[i]) {
+            if (blocks.get(i) != exhausted) {
+                return; // another thread already refilled
+            }
+            long start = claimBlock(seq);
+            blocks.set(i, new Block(start, start + blockSize));
+            blocksClaimed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reserve [start, start + blockSize) in IdBlocks; returns start.
+     */
+    private long claimBlock(Sequence seq) throws SQLException {
+        boolean raise = stale.getAndSet(seq.ordinal(), 0) == 1;
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                if (raise) {
+                    // No row yet is fine: seed() starts from MAX(id) anyway
+                    try (PreparedStatement ps = conn.prepareStatement(sqlRaise(seq))) {
+                        ps.setString(1, seq.name());
+                        ps.executeUpdate();
+                    }
+                }
+                while (true) {
+                    try (PreparedStatement ps = conn.prepareStatement(SQL_BUMP)) {
+                        ps.setLong(1, blockSize);
+                        ps.setString(2, seq.name());
+                        if (ps.executeUpdate() == 1) {
+                            long end = readNext(conn, seq);
+                            conn.commit();
+                            return end - blockSize;
+                        }
+                    }
+                    if (seed(conn, seq)) {
+                        long end = readNext(conn, seq);
+                        conn.commit();
+                        return end - blockSize;
+                    }
+                    // another instance seeded the row first; bump it instead
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                if (raise) {
+                    stale.set(seq.ordinal(), 1);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Move NextValue past the table's highest ID (never backwards).
+     */
+    static String sqlRaise(Sequence seq) {
+        return "UPDATE IdBlocks SET NextValue = GREATEST(NextValue, " +
+               "(SELECT COALESCE(MAX(" + seq.column + "), 0) + 1 FROM " + seq.table + ")) WHERE Name = ?";
+    }
+
+    /**
+     * First claim for this name: start after the table's highest ID, with
+     * the first block already taken. Returns false if another instance
+     * inserted the row concurrently.
+     */
+    private boolean seed(Connection conn, Sequence seq) throws SQLException {
+        long max;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(" + seq.column + ") FROM " + seq.table)) {
+            max = rs.next() ? rs.getLong(1) : 0L;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(SQL_SEED)) {
+            ps.setString(1, seq.name());
+            ps.setLong(2, max + 1 + blockSize);
+            ps.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (!"23000".equals(e.getSQLState()) && !"23505".equals(e.getSQLState())) {
+                throw e;
+            }
+            conn.rollback();
+            return false;
+        }
+    }
+
+    private static long readNext(Connection conn, Sequence seq) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_READ)) {
+            ps.setString(1, seq.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No IdBlocks row for " + seq);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getIssued()        { return issued.get(); }
+    public long getBlocksClaimed() { return blocksClaimed.get(); }
+
+    public String stats() {
+        return "ids: issued=" + issued.get() + " blocksClaimed=" + blocksClaimed.get()
+                + " blockSize=" + blockSize;
+    }
+}
@@ -0,0 +1,233 @@
+import javax.swing.AbstractListModel;
+import javax.swing.JList;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.FontMetrics;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Bounded, virtualised log output for the GUI
+ *
+ * Replaces the ever-growing JTextArea behind appendLine():
+ *
+ *  - Lines live in a ring buffer of fixed capacity (default 100,000);
+ *    once it is full the oldest line is overwritten, so memory stays
+ *    constant however many millions of lines a session prints.
+ *  - The model backs a JList with a fixed cell height and width, so
+ *    Swing lays out and paints only the rows inside the viewport. The
+ *    width is widened as longer lines arrive, measuring only new lines.
+ *  - append() may be called from any thread. Lines are queued (the queue
+ *    is bounded by the same capacity) and a Swing Timer moves them into
+ *    the ring at most once per frame, firing one list event and one
+ *    scroll per burst instead of one relayout per line.
+ *  - The view follows new output only while it is scrolled to the
+ *    bottom, so scrolling back to read is not interrupted.
+ */
+public class LogListModel extends AbstractListModel<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    // ~60 flushes per second at most
+    private static final int FLUSH_INTERVAL_MS = 16;
+
+    // ---- ring buffer (EDT only) ----
+    private final String[] ring;
+    private int head = 0;   // index of the oldest line
+    private int size = 0;
+
+    // ---- lines appended since the last flush (guarded by 'pending') ----
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+    private final transient Timer flushTimer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private JList<String> list;
+    private JScrollPane scrollPane;
+    private int widestLine = 0;
+
+    // ---- metrics ----
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    public LogListModel() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LogListModel(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        this.ring = new String[capacity];
+        this.flushTimer = new Timer(FLUSH_INTERVAL_MS, e -> flush());
+        this.flushTimer.setRepeats(false);
+        this.flushTimer.setCoalesce(true);
+    }
+
+    /**
+     * Attach the list and scroll pane showing this model: fixes the row
+     * height, and lets flushes size the rows and keep the last line in
+     * view. Call on the EDT.
+     */
+    public void attach(JList<String> list, JScrollPane scrollPane) {
+        this.list = list;
+        this.scrollPane = scrollPane;
+        FontMetrics fm = list.getFontMetrics(list.getFont());
+        list.setFixedCellHeight(fm.getHeight() + 2);
+        list.setFixedCellWidth(1);
+    }
+
+    // ============== Appending (any thread) ==============
+
+    /**
+     * Queue one line (embedded newlines start new lines). Safe to call from
+     * any thread; the view is updated on the next flush.
+     */
+    public void append(String text) {
+        synchronized (pending) {
+            int from = 0;
+            int nl;
+            while ((nl = text.indexOf('\n', from)) >= 0) {
+                enqueue(text.substring(from, nl));
+                from = nl + 1;
+            }
+            enqueue(from == 0 ? text : text.substring(from));
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                if (!flushTimer.isRunning()) {
+                    flushTimer.start();
+                }
+            });
+        }
+    }
+
+    // caller holds 'pending'
+    private void enqueue(String line) {
+        if (pending.size() == ring.length) {
+            // older than anything the ring could keep after this flush
+            pending.pollFirst();
+            dropped.incrementAndGet();
+        }
+        pending.addLast(line);
+        appended.incrementAndGet();
+    }
+
+    // ============== Flushing (EDT) ==============
+
+    private void flush() {
+        // appends from here on schedule the next flush
+        flushScheduled.set(false);
+        String[] batch;
+        synchronized (pending) {
+            batch = pending.toArray(new String[0]);
+            pending.clear();
+        }
+        if (batch.length == 0) {
+            return;
+        }
+        flushes.incrementAndGet();
+        boolean follow = isAtBottom();
+
+        int oldSize = size;
+        int overwritten = 0;
+        for (String line : batch) {
+            int tail = (head + size) % ring.length;
+            ring[tail] = line;
+            if (size < ring.length) {
+                size++;
+            } else {
+                head = (head + 1) % ring.length;
+                overwritten++;
+            }
+        }
+        dropped.addAndGet(overwritten);
+        widenFor(batch);
+
+        if (size > oldSize) {
+            fireIntervalAdded(this, oldSize, size - 1);
+        }
+        if (overwritten > 0) {
+            // every index now maps to a newer line
+            fireContentsChanged(this, 0, size - 1);
+        }
+        if (follow && list != null) {
+            list.ensureIndexIsVisible(size - 1);
+        }
+    }
+
+    /**
+     * Grow the fixed cell width to fit the widest line seen so far (never
+     * shrinks, so the horizontal scrollbar does not jump).
+     */
+    private void widenFor(String[] batch) {
+        if (list == null) {
+            return;
+        }
+        FontMetrics fm = list.getFontMetrics(list.getFont());
+        int widest = widestLine;
+        for (String line : batch) {
+            widest = Math.max(widest, fm.stringWidth(line));
+        }
+        if (widest > widestLine) {
+            widestLine = widest;
+            list.setFixedCellWidth(widest + 8);
+        }
+    }
+
+    private boolean isAtBottom() {
+        if (scrollPane == null) {
+            return true;
+        }
+        JScrollBar bar = scrollPane.getVerticalScrollBar();
+        return bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - 2;
+    }
+
+    /**
+     * Remove every line. Call on the EDT.
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        int oldSize = size;
+        java.util.Arrays.fill(ring, null);
+        head = 0;
+        size = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+
+    // ============== ListModel (EDT) ==============
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    // ============== Metrics ==============
+
+    public long getAppended() { return appended.get(); }
+    public long getDropped()  { return dropped.get(); }
+    public long getFlushes()  { return flushes.get(); }
+
+    public String stats() {
+        return "log: lines=" + appended.get() + " dropped=" + dropped.get()
+                + " flushes=" + flushes.get() + " capacity=" + ring.length;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * CPS510 A9 – Payment gateway boundary
+ *
+ * CheckoutService only talks to the payment provider through this
+ * interface, so a real gateway client and StubPaymentAuthorizer are
+ * interchangeable.
+ *
+ *  - authorize() is called before the checkout transaction starts, so no
+ *    database locks are held during the (slow, remote) gateway call.
+ *  - voidAuthorization() is called if the order cannot be committed after
+ *    an approval, so the customer is not charged for seats they did not get.
+ */
+public interface PaymentAuthorizer {
+
+    /**
+     * Outcome of one authorisation request.
+     */
+    final class Authorization {
+        public final boolean approved;
+        public final String authCode;     // set when approved
+        public final String declineReason; // set when declined
+
+        private Authorization(boolean approved, String authCode, String declineReason) {
+            this.approved = approved;
+            this.authCode = authCode;
+            this.declineReason = declineReason;
+        }
+
+        public static Authorization approved(String authCode) {
+            return new Authorization(true, authCode, null);
+        }
+
+        public static Authorization declined(String reason) {
+            return new Authorization(false, null, reason);
+        }
+    }
+
+    /**
+     * Ask the gateway to reserve amountCents on the buyer's payment method.
+     * A decline is a normal result; an exception means the gateway could
+     * not be reached.
+     */
+    Authorization authorize(long orderId, int userId, long amountCents, String method) throws Exception;
+
+    /**
+     * Cancel an approved authorisation whose order was not committed.
+     */
+    void voidAuthorization(String authCode) throws Exception;
+}
@@ -0,0 +1,150 @@
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Size-bounded read-through cache
+ *
+ *  - get(key) returns the cached value, or calls the loader (usually one
+ *    JDBC query) and caches what it returns. null results are not cached.
+ *  - At most maxSize entries are kept; the least recently used entry is
+ *    evicted first (LinkedHashMap in access order).
+ *  - Each entry expires ttlMs after it was loaded, as a safety net for
+ *    writes made outside this process.
+ *  - Writers call invalidate() or invalidateAll(). A load that
+ *    was already running when an invalidation happened does not store its
+ *    (possibly stale) result, because every invalidation bumps a
+ *    generation counter that the load checks before storing.
+ *  - Loads run outside the lock, so a slow query never blocks hits on
+ *    other keys. Two threads missing the same key may both load it.
+ */
+public class ReadThroughCache<K, V> {
+
+    /**
+     * Reads the value for a key from the database; null if absent.
+     */
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    private static final class Cached<V> {
+        final V value;
+        final long expiresAt;
+
+        Cached(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Loader<K, V> loader;
+    private final LinkedHashMap<K, Cached<V>> map;
+    private long generation = 0; // guarded by map
+
+    // ---- metrics ----
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ReadThroughCache(String name, int maxSize, long ttlMs, Loader<K, V> loader) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.loader = loader;
+        this.map = new LinkedHashMap<K, Cached<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                if (size() > ReadThroughCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // ============== Reads ==============
+
+    public V get(K key) throws SQLException {
+        long gen;
+        synchronized (map) {
+            Cached<V> e = map.get(key);
+            if (e != null) {
+                if (System.nanoTime() - e.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return e.value;
+                }
+                map.remove(key);
+                expirations.incrementAndGet();
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+
+        V value = loader.load(key);
+        if (value != null) {
+            synchronized (map) {
+                if (generation == gen) {
+                    map.put(key, new Cached<>(value, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return value;
+    }
+
+    // ============== Invalidation ==============
+
+    public void invalidate(K key) {
+        synchronized (map) {
+            generation++;
+            if (map.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (map) {
+            generation++;
+            invalidations.addAndGet(map.size());
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getHits()          { return hits.get(); }
+    public long getMisses()        { return misses.get(); }
+    public long getEvictions()     { return evictions.get(); }
+    public long getExpirations()   { return expirations.get(); }
+    public long getInvalidations() { return invalidations.get(); }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public String stats() {
+        return String.format("%s: size=%d/%d hits=%d misses=%d hitRatio=%.1f%% evicted=%d expired=%d invalidated=%d",
+                name, size(), maxSize, hits.get(), misses.get(), hitRatio() * 100,
+                evictions.get(), expirations.get(), invalidations.get());
+    }
+}
@@ -0,0 +1,471 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * CPS510 A9 – Sales and revenue reports (Tickets / Orders / Payments)
+ *
+ *  - salesByEvent:    showtimes, seats, sold, sell-through, tickets and
+ *                     revenue per event
+ *  - salesByShowtime: the same per showtime, plus HELD seats
+ *  - salesByVenue:    the same per venue
+ *  - paymentMethods / paymentMethodsByEvent: orders, tickets and ticket
+ *    revenue per payment method (one payment per order, as written by
+ *    CheckoutService)
+ *
+ * All aggregation happens in SQL. Tickets and SeatMaps are first grouped
+ * by ShowtimeID in inline views (joined to Showtimes only to filter the
+ * partition), and only those per-showtime sums are joined to Showtimes,
+ * Events and Venues, so the large tables are never joined row by row to
+ * the small ones.
+ *
+ * The per-event and per-venue reports are split into EventID / VenueID
+ * ranges that run in parallel, each on its own pooled connection. Rows
+ * are handed to the RowHandler while the ResultSets are read, never
+ * collected: rows of different ranges may arrive interleaved (each row
+ * is self-describing), but the handler is never called concurrently.
+ */
+public class ReportRepository extends Repository {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    private static final int FETCH_SIZE = 500;
+
+    /**
+     * Receives report rows as they are read.
+     */
+    public interface RowHandler<T> {
+        void accept(T row);
+    }
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // ============== Report rows ==============
+
+    public static final class EventSales {
+        public final int eventId;
+        public final String title;
+        public final int showtimes;
+        public final long seats;
+        public final long sold;
+        public final long tickets;
+        public final long revenueCents;
+
+        EventSales(int eventId, String title, int showtimes, long seats, long sold,
+                   long tickets, long revenueCents) {
+            this.eventId = eventId;
+            this.title = title;
+            this.showtimes = showtimes;
+            this.seats = seats;
+            this.sold = sold;
+            this.tickets = tickets;
+            this.revenueCents = revenueCents;
+        }
+
+        public double sellThrough() {
+            return seats == 0 ? 0.0 : (double) sold / seats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d | %s | %d showtime(s) | %d/%d sold (%.1f%%) | %d ticket(s) | %.2f",
+                    eventId, title, showtimes, sold, seats, sellThrough() * 100, tickets, revenueCents / 100.0);
+        }
+    }
+
+    public static final class ShowtimeSales {
+        public final int showtimeId;
+        public final int eventId;
+        public final String title;
+        public final String venue;
+        public final Timestamp start;
+        public final long seats;
+        public final long sold;
+        public final long held;
+        public final long tickets;
+        public final long revenueCents;
+
+        ShowtimeSales(int showtimeId, int eventId, String title, String venue, Timestamp start,
+                      long seats, long sold, long held, long tickets, long revenueCents) {
+            this.showtimeId = showtimeId;
+            this.eventId = eventId;
+            this.title = title;
+            this.venue = venue;
+            this.start = start;
+            this.seats = seats;
+            this.sold = sold;
+            this.held = held;
+            this.tickets = tickets;
+            this.revenueCents = revenueCents;
+        }
+
+        public double sellThrough() {
+            return seats == 0 ? 0.0 : (double) sold / seats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d | %s @ %s, %s | %d/%d sold (%.1f%%), %d held | %d ticket(s) | %.2f",
+                    showtimeId, title, venue, start, sold, seats, sellThrough() * 100, held,
+                    tickets, revenueCents / 100.0);
+        }
+    }
+
+    public static final class VenueSales {
+        public final int venueId;
+        public final String name;
+        public final String city;
+        public final int showtimes;
+        public final long seats;
+        public final long sold;
+        public final long tickets;
+        public final long revenueCents;
+
+        VenueSales(int venueId, String name, String city, int showtimes, long seats, long sold,
+                   long tickets, long revenueCents) {
+            this.venueId = venueId;
+            this.name = name;
+            this.city = city;
+            this.showtimes = showtimes;
+            this.seats = seats;
+            this.sold = sold;
+            this.tickets = tickets;
+            this.revenueCents = revenueCents;
+        }
+
+        public double sellThrough() {
+            return seats == 0 ? 0.0 : (double) sold / seats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d | %s, %s | %d showtime(s) | %d/%d sold (%.1f%%) | %d ticket(s) | %.2f",
+                    venueId, name, city, showtimes, sold, seats, sellThrough() * 100, tickets,
+                    revenueCents / 100.0);
+        }
+    }
+
+    public static final class MethodSales {
+        public final int eventId;     // 0 in the all-events breakdown
+        public final String title;    // null in the all-events breakdown
+        public final String method;
+        public final long orders;
+        public final long tickets;
+        public final long revenueCents;
+
+        MethodSales(int eventId, String title, String method, long orders, long tickets, long revenueCents) {
+            this.eventId = eventId;
+            this.title = title;
+            this.method = method;
+            this.orders = orders;
+            this.tickets = tickets;
+            this.revenueCents = revenueCents;
+        }
+
+        @Override
+        public String toString() {
+            String prefix = title == null ? "" : eventId + " | " + title + " | ";
+            return String.format("%s%s | %d order(s) | %d ticket(s) | %.2f",
+                    prefix, method, orders, tickets, revenueCents / 100.0);
+        }
+    }
+
+    // ============== SQL ==============
+
+    // Per-showtime sums of the big tables, limited to one partition of
+    // Showtimes (key BETWEEN ? AND ?)
+    private static String seatsByShowtime(String key) {
+        return "SELECT m.ShowtimeID, COUNT(*) AS Seats, " +
+               "SUM(CASE WHEN m.Status = 'SOLD' THEN 1 ELSE 0 END) AS Sold, " +
+               "SUM(CASE WHEN m.Status = 'HELD' THEN 1 ELSE 0 END) AS Held " +
+               "FROM SeatMaps m JOIN Showtimes ms ON ms.ShowtimeID = m.ShowtimeID " +
+               "WHERE ms." + key + " BETWEEN ? AND ? GROUP BY m.ShowtimeID";
+    }
+
+    private static String ticketsByShowtime(String key) {
+        return "SELECT t.ShowtimeID, COUNT(*) AS Tickets, SUM(t.TicketPrice) AS Revenue " +
+               "FROM Tickets t JOIN Showtimes ts ON ts.ShowtimeID = t.ShowtimeID " +
+               "WHERE ts." + key + " BETWEEN ? AND ? GROUP BY t.ShowtimeID";
+    }
+
+    static final String SQL_EVENT_RANGE = "SELECT MIN(EventID), MAX(EventID) FROM Events";
+    static final String SQL_VENUE_RANGE = "SELECT MIN(VenueID), MAX(VenueID) FROM Venues";
+
+    // Every "?" pair below is (low, high) of the partition
+    static final String SQL_SALES_BY_EVENT =
+            "SELECT e.EventID, e.Title, COUNT(s.ShowtimeID), NVL(SUM(sm.Seats), 0), NVL(SUM(sm.Sold), 0), " +
+            "NVL(SUM(t.Tickets), 0), NVL(SUM(t.Revenue), 0) " +
+            "FROM Events e " +
+            "LEFT JOIN Showtimes s ON s.EventID = e.EventID " +
+            "LEFT JOIN (" + seatsByShowtime("EventID") + ") sm ON sm.ShowtimeID = s.ShowtimeID " +
+            "LEFT JOIN (" + ticketsByShowtime("EventID") + ") t ON t.ShowtimeID = s.ShowtimeID " +
+            "WHERE e.EventID BETWEEN ? AND ? " +
+            "GROUP BY e.EventID, e.Title ORDER BY e.EventID";
+    static final String SQL_SALES_BY_SHOWTIME =
+            "SELECT s.ShowtimeID, e.EventID, e.Title, v.Name, s.StartDateTime, NVL(sm.Seats, 0), " +
+            "NVL(sm.Sold, 0), NVL(sm.Held, 0), NVL(t.Tickets, 0), NVL(t.Revenue, 0) " +
+            "FROM Showtimes s " +
+            "JOIN Events e ON e.EventID = s.EventID " +
+            "JOIN Venues v ON v.VenueID = s.VenueID " +
+            "LEFT JOIN (" + seatsByShowtime("EventID") + ") sm ON sm.ShowtimeID = s.ShowtimeID " +
+            "LEFT JOIN (" + ticketsByShowtime("EventID") + ") t ON t.ShowtimeID = s.ShowtimeID " +
+            "WHERE s.EventID BETWEEN ? AND ? " +
+            "ORDER BY s.EventID, s.StartDateTime";
+    static final String SQL_SALES_BY_VENUE =
+            "SELECT v.VenueID, v.Name, v.City, COUNT(s.ShowtimeID), NVL(SUM(sm.Seats), 0), " +
+            "NVL(SUM(sm.Sold), 0), NVL(SUM(t.Tickets), 0), NVL(SUM(t.Revenue), 0) " +
+            "FROM Venues v " +
+            "LEFT JOIN Showtimes s ON s.VenueID = v.VenueID " +
+            "LEFT JOIN (" + seatsByShowtime("VenueID") + ") sm ON sm.ShowtimeID = s.ShowtimeID " +
+            "LEFT JOIN (" + ticketsByShowtime("VenueID") + ") t ON t.ShowtimeID = s.ShowtimeID " +
+            "WHERE v.VenueID BETWEEN ? AND ? " +
+            "GROUP BY v.VenueID, v.Name, v.City ORDER BY v.VenueID";
+    static final String SQL_METHODS_BY_EVENT =
+            "SELECT e.EventID, e.Title, p.Method, COUNT(DISTINCT t.OrderID), COUNT(*), SUM(t.TicketPrice) " +
+            "FROM Tickets t " +
+            "JOIN Showtimes s ON s.ShowtimeID = t.ShowtimeID " +
+            "JOIN Events e ON e.EventID = s.EventID " +
+            "JOIN Payments p ON p.OrderID = t.OrderID " +
+            "WHERE s.EventID BETWEEN ? AND ? " +
+            "GROUP BY e.EventID, e.Title, p.Method ORDER BY e.EventID, p.Method";
+    static final String SQL_METHODS =
+            "SELECT p.Method, COUNT(DISTINCT t.OrderID), COUNT(*), SUM(t.TicketPrice) " +
+            "FROM Tickets t JOIN Payments p ON p.OrderID = t.OrderID " +
+            "GROUP BY p.Method ORDER BY 4 DESC";
+
+    /**
+     * One report in progress: serialises handler calls and lets cancel()
+     * stop all of its partitions.
+     */
+    private static final class Run<T> {
+        final RowHandler<? super T> handler;
+        final Map<Statement, Boolean> statements = new ConcurrentHashMap<>();
+        volatile boolean cancelled;
+        volatile SQLException failure; // the first real error, not "cancelled"
+
+        Run(RowHandler<? super T> handler) {
+            this.handler = handler;
+        }
+
+        synchronized void deliver(T row) {
+            handler.accept(row);
+        }
+    }
+
+    private final int parallelism;
+    private final Map<Run<?>, Boolean> running = new ConcurrentHashMap<>();
+
+    public ReportRepository(ConnectionPool pool) {
+        this(pool, null, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * executor must allow parallelism tasks at once (null = shared default);
+     * each partition holds a pooled connection while it runs.
+     */
+    public ReportRepository(ConnectionPool pool, Executor executor, int parallelism) {
+        super(pool, executor);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // ============== Reports ==============
+
+    public long salesByEvent(RowHandler<? super EventSales> handler) throws SQLException {
+        return join(salesByEventAsync(handler));
+    }
+
+    public long salesByShowtime(RowHandler<? super ShowtimeSales> handler) throws SQLException {
+        return join(salesByShowtimeAsync(handler));
+    }
+
+    public long salesByVenue(RowHandler<? super VenueSales> handler) throws SQLException {
+        return join(salesByVenueAsync(handler));
+    }
+
+    public long paymentMethodsByEvent(RowHandler<? super MethodSales> handler) throws SQLException {
+        return join(paymentMethodsByEventAsync(handler));
+    }
+
+    /**
+     * Payment-method totals over all events (one small query, on conn).
+     */
+    public long paymentMethods(Connection conn, RowHandler<? super MethodSales> handler) throws SQLException {
+        Run<MethodSales> run = new Run<>(handler);
+        running.put(run, Boolean.TRUE);
+        try {
+            return stream(conn, SQL_METHODS, 0, 0, rs -> new MethodSales(0, null, rs.getString(1),
+                    rs.getLong(2), rs.getLong(3), cents(rs, 4)), run);
+        } finally {
+            running.remove(run);
+        }
+    }
+
+    // ============== Async variants ==============
+
+    public CompletableFuture<Long> salesByEventAsync(RowHandler<? super EventSales> handler) {
+        return partitioned(SQL_EVENT_RANGE, SQL_SALES_BY_EVENT, rs -> new EventSales(
+                rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getLong(4), rs.getLong(5),
+                rs.getLong(6), cents(rs, 7)), handler);
+    }
+
+    public CompletableFuture<Long> salesByShowtimeAsync(RowHandler<? super ShowtimeSales> handler) {
+        return partitioned(SQL_EVENT_RANGE, SQL_SALES_BY_SHOWTIME, rs -> new ShowtimeSales(
+                rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4), rs.getTimestamp(5),
+                rs.getLong(6), rs.getLong(7), rs.getLong(8), rs.getLong(9), cents(rs, 10)), handler);
+    }
+
+    public CompletableFuture<Long> salesByVenueAsync(RowHandler<? super VenueSales> handler) {
+        return partitioned(SQL_VENUE_RANGE, SQL_SALES_BY_VENUE, rs -> new VenueSales(
+                rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(5),
+                rs.getLong(6), rs.getLong(7), cents(rs, 8)), handler);
+    }
+
+    public CompletableFuture<Long> paymentMethodsByEventAsync(RowHandler<? super MethodSales> handler) {
+        return partitioned(SQL_EVENT_RANGE, SQL_METHODS_BY_EVENT, rs -> new MethodSales(
+                rs.getInt(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getLong(5),
+                cents(rs, 6)), handler);
+    }
+
+    public CompletableFuture<Long> paymentMethodsAsync(RowHandler<? super MethodSales> handler) {
+        return async(conn -> paymentMethods(conn, handler));
+    }
+
+    /**
+     * Stop every running report: its open statements are cancelled and
+     * the remaining rows are skipped. The report fails with an SQLException.
+     */
+    public void cancel() {
+        for (Run<?> run : running.keySet()) {
+            run.cancelled = true;
+            for (Statement stmt : run.statements.keySet()) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException e) {
+                    // already finished or closed
+                }
+            }
+        }
+    }
+
+    // ============== Engine ==============
+
+    /**
+     * Split [MIN, MAX] of rangeSql into 2 x parallelism key ranges and run
+     * sql for each on the executor; completes with the total row count.
+     */
+    private <T> CompletableFuture<Long> partitioned(String rangeSql, String sql, RowMapper<T> mapper,
+                                                    RowHandler<? super T> handler) {
+        Run<T> run = new Run<>(handler);
+        running.put(run, Boolean.TRUE);
+        CompletableFuture<Long> result = async(conn -> keyRange(conn, rangeSql)).thenCompose(range -> {
+            if (range == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            long lo = range[0];
+            long hi = range[1];
+            int parts = 2 * parallelism;
+            long step = Math.max(1, (hi - lo + parts) / parts);
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (long from = lo; from <= hi; from += step) {
+                int a = (int) from;
+                int b = (int) Math.min(hi, from + step - 1);
+                futures.add(async(conn -> stream(conn, sql, a, b, mapper, run)));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(v -> futures.stream().mapToLong(CompletableFuture::join).sum());
+        });
+        return result.handle((rows, err) -> {
+            running.remove(run);
+            if (err == null) {
+                return rows;
+            }
+            // Report the partition that failed, not one stopped because of it
+            throw run.failure != null ? new CompletionException(run.failure)
+                    : err instanceof CompletionException ? (CompletionException) err
+                    : new CompletionException(err);
+        });
+    }
+
+    private static long[] keyRange(Connection conn, String rangeSql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(rangeSql)) {
+            if (!rs.next()) {
+                return null;
+            }
+            long lo = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null; // empty table
+            }
+            return new long[] { lo, rs.getLong(2) };
+        }
+    }
+
+    /**
+     * Run one partition, handing rows over as they are read. Every "?"
+     * is bound to lo / hi in turn.
+     */
+    private <T> long stream(Connection conn, String sql, int lo, int hi, RowMapper<T> mapper,
+                            Run<T> run) throws SQLException {
+        if (run.cancelled) {
+            throw new SQLException("Report cancelled");
+        }
+        long rows = 0;
+        try (PreparedStatement ps = track(conn.prepareStatement(sql))) {
+            run.statements.put(ps, Boolean.TRUE);
+            try {
+                int params = (int) sql.chars().filter(c -> c == '?').count();
+                for (int p = 1; p <= params; p++) {
+                    ps.setInt(p, p % 2 == 1 ? lo : hi);
+                }
+                ps.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (run.cancelled) {
+                            throw new SQLException("Report cancelled");
+                        }
+                        run.deliver(mapper.map(rs));
+                        rows++;
+                    }
+                }
+            } catch (SQLException e) {
+                if (!run.cancelled && run.failure == null) {
+                    run.failure = e;
+                }
+                run.cancelled = true; // stop the other partitions too
+                throw e;
+            } catch (RuntimeException e) {
+                run.cancelled = true;
+                throw e;
+            } finally {
+                run.statements.remove(ps);
+            }
+        }
+        return rows;
+    }
+
+    private static long cents(ResultSet rs, int column) throws SQLException {
+        return Math.round(rs.getDouble(column) * 100);
+    }
+
+    private static long join(CompletableFuture<Long> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Common base of the data-access layer
+ *
+ * EventRepository, SeatMapRepository and SchemaRepository hold every SQL
+ * statement the console and GUI apps run, so batching, caching, pooling
+ * and metrics are implemented once. Each operation comes in two forms:
+ *
+ *  - sync: takes the caller's Connection, so the caller decides which
+ *    thread runs it and can group calls on one connection
+ *  - async (...Async): borrows its own pooled connection on the
+ *    repository's executor and returns a CompletableFuture; a
+ *    SQLException completes the future exceptionally
+ *
+ * A statement tracker can be installed to see every statement as it is
+ * executed (the GUI uses this for its Cancel button).
+ */
+public abstract class Repository {
+
+    /**
+     * A unit of JDBC work for async().
+     */
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private static final int DEFAULT_ASYNC_THREADS = 4;
+    private static volatile ExecutorService defaultExecutor;
+
+    protected final ConnectionPool pool;
+    protected final Executor executor;
+    private volatile Consumer<Statement> tracker = stmt -> { };
+
+    protected Repository(ConnectionPool pool, Executor executor) {
+        this.pool = pool;
+        this.executor = executor != null ? executor : defaultExecutor();
+    }
+
+    /**
+     * See every statement before it executes (e.g. to cancel it).
+     */
+    public void setStatementTracker(Consumer<Statement> tracker) {
+        this.tracker = tracker != null ? tracker : stmt -> { };
+    }
+
+    protected <T extends Statement> T track(T stmt) {
+        tracker.accept(stmt);
+        return stmt;
+    }
+
+    /**
+     * Run work on the executor with a connection borrowed for its duration.
+     */
+    protected <T> CompletableFuture<T> async(SqlWork<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                return work.run(conn);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Shared daemon pool for async calls when no executor is given. Small,
+     * because each task holds a pooled connection while it runs.
+     */
+    private static Executor defaultExecutor() {
+        ExecutorService ex = defaultExecutor;
+        if (ex == null) {
+            synchronized (Repository.class) {
+                ex = defaultExecutor;
+                if (ex == null) {
+                    AtomicInteger n = new AtomicInteger();
+                    ex = Executors.newFixedThreadPool(DEFAULT_ASYNC_THREADS, r -> {
+                        Thread t = new Thread(r, "eticket-repo-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    defaultExecutor = ex;
+                }
+            }
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,516 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CPS510 A9 – Versioned schema migrations
+ *
+ * The schema is an ordered list of Migrations (V1, V2, ...), each a short
+ * script of DDL statements and/or Java steps. The SCHEMAVERSION table
+ * records which versions a database has, with a checksum of the script
+ * and how long it took, so migrate() only runs what is missing:
+ *
+ *  - Incremental: an up-to-date schema costs one SELECT; a new version
+ *    runs its own statements and leaves the data alone. Drop + Create is
+ *    no longer the only way to change the schema.
+ *  - Idempotent: every statement runs on its own, and "already exists"
+ *    (table, index, constraint, column) counts as done. A database built
+ *    before this table existed is adopted by simply running migrate(),
+ *    and a migration that failed halfway is finished by running it again.
+ *  - Checksums: if an applied version's script has been edited since,
+ *    nothing is applied and the difference is reported; ship the change
+ *    as a new version instead.
+ *  - Parallel: a migration's statements run through a DdlScheduler,
+ *    so tables that do not reference each other are created at the same
+ *    time on separate pooled connections.
+ *  - Online (Oracle): DDL waits up to DDL_LOCK_TIMEOUT seconds for busy
+ *    tables instead of failing with ORA-00054, and SchemaTuning builds
+ *    its indexes ONLINE, so a migration can run while the apps sell
+ *    tickets.
+ *
+ * A CREATE TABLE may end in a PARTITION_MARKER comment naming its table;
+ * when the statement runs the marker is replaced by
+ * SchemaTuning.partitionClause() for that table. The checksum covers the
+ * script as written.
+ */
+public class SchemaMigrator {
+
+    /**
+     * A Java migration step (for DDL that depends on the database).
+     */
+    public interface Work {
+        void run(Connection conn, Consumer<String> out) throws SQLException;
+    }
+
+    /**
+     * One schema version: SQL statements and Java steps, run in order.
+     */
+    public static final class Migration {
+        public final int version;
+        public final String description;
+        private final List<Object> steps = new ArrayList<>();
+        private final StringBuilder script = new StringBuilder();
+        private String checksum;
+
+        public Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        public Migration sql(String statement) {
+            steps.add(statement);
+            script.append(statement).append(";\n");
+            checksum = null;
+            return this;
+        }
+
+        /**
+         * A Java step; fingerprint stands for it in the checksum (e.g. the
+         * DDL it will produce), so changing it is caught like an edited
+         * statement.
+         */
+        public Migration run(String fingerprint, Work work) {
+            steps.add(work);
+            script.append("-- java: ").append(fingerprint).append("\n");
+            checksum = null;
+            return this;
+        }
+
+        /**
+         * The SQL steps, as written.
+         */
+        public List<String> statements() {
+            List<String> sql = new ArrayList<>();
+            for (Object step : steps) {
+                if (step instanceof String) {
+                    sql.add((String) step);
+                }
+            }
+            return sql;
+        }
+
+        /**
+         * SHA-256 of the script with runs of whitespace collapsed, so
+         * re-indenting a statement does not count as a change.
+         */
+        public synchronized String checksum() {
+            if (checksum == null) {
+                checksum = sha256(script.toString().replaceAll("\\s+", " ").trim());
+            }
+            return checksum;
+        }
+
+        private static String sha256(String normalized) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(normalized.getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + " " + description;
+        }
+    }
+
+    public enum State { APPLIED, PENDING, FAILED, CHANGED, UNKNOWN }
+
+    /**
+     * A version as the database and the migration list see it.
+     */
+    public static final class VersionInfo {
+        public final int version;
+        public final String description;
+        public final State state;
+        public final Timestamp appliedAt;
+        public final long executionMs;
+
+        VersionInfo(int version, String description, State state, Timestamp appliedAt, long executionMs) {
+            this.version = version;
+            this.description = description;
+            this.state = state;
+            this.appliedAt = appliedAt;
+            this.executionMs = executionMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("V%-3d %-8s %s%s", version, state, description,
+                    appliedAt != null ? " (" + appliedAt + ", " + executionMs + " ms)" : "");
+        }
+    }
+
+    /**
+     * Outcome of one migrate() call.
+     */
+    public static final class Result {
+        public final int applied;
+        /** The version before this run (0: the schema was empty). */
+        public final int previousVersion;
+        public final int currentVersion;
+        public final boolean ok;
+        public final long elapsedMs;
+        public final String message;
+
+        Result(int applied, int previousVersion, int currentVersion, boolean ok, long elapsedMs,
+               String message) {
+            this.applied = applied;
+            this.previousVersion = previousVersion;
+            this.currentVersion = currentVersion;
+            this.ok = ok;
+            this.elapsedMs = elapsedMs;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return (ok ? "Schema at V" : "Schema migration stopped at V") + currentVersion + ": "
+                    + applied + " migration(s) applied in " + elapsedMs + " ms"
+                    + (message != null ? " (" + message + ")" : "") + ".";
+        }
+    }
+
+    static final int DDL_LOCK_TIMEOUT_SECONDS = 30;
+
+    static final String SQL_CREATE_VERSION_TABLE =
+            "CREATE TABLE SchemaVersion (" +
+            "    Version      NUMBER(10)     PRIMARY KEY," +
+            "    Description  VARCHAR2(200)  NOT NULL," +
+            "    Checksum     VARCHAR2(64)   NOT NULL," +
+            "    AppliedAt    DATE           DEFAULT SYSDATE NOT NULL," +
+            "    ExecutionMs  NUMBER(10)     NOT NULL," +
+            "    Success      CHAR(1)        NOT NULL," +
+            "    CONSTRAINT chk_schemaversion_success" +
+            "        CHECK (Success IN ('Y','N'))" +
+            ")";
+    static final String SQL_SELECT_VERSIONS =
+            "SELECT Version, Description, Checksum, AppliedAt, ExecutionMs, Success " +
+            "FROM SchemaVersion ORDER BY Version";
+    static final String SQL_DELETE_VERSION =
+            "DELETE FROM SchemaVersion WHERE Version = ?";
+    static final String SQL_INSERT_VERSION =
+            "INSERT INTO SchemaVersion (Version, Description, Checksum, AppliedAt, ExecutionMs, Success) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // e.g. "CREATE TABLE Orders (...) /*PARTITION Orders*/"
+    static final Pattern PARTITION_MARKER = Pattern.compile("/\\*PARTITION (\\w+)\\*/");
+
+    private final List<Migration> migrations;
+    private final SchemaTuning tuning;
+    private final DdlScheduler scheduler;
+    private volatile Consumer<Statement> tracker = stmt -> { };
+
+    public SchemaMigrator(List<Migration> migrations, SchemaTuning tuning, DdlScheduler scheduler) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort((a, b) -> Integer.compare(a.version, b.version));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).version == sorted.get(i - 1).version) {
+                throw new IllegalArgumentException("Duplicate migration version " + sorted.get(i).version);
+            }
+        }
+        this.migrations = Collections.unmodifiableList(sorted);
+        this.tuning = tuning;
+        this.scheduler = scheduler;
+    }
+
+    public List<Migration> migrations() {
+        return migrations;
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * See every statement before it executes (e.g. to cancel it).
+     */
+    public void setStatementTracker(Consumer<Statement> tracker) {
+        this.tracker = tracker != null ? tracker : stmt -> { };
+    }
+
+    // ============== Migrate ==============
+
+    /**
+     * Bring the schema up to the latest version. Applies nothing if an
+     * applied script has changed or the database has versions this list
+     * does not know; stops at the first statement that fails.
+     */
+    public Result migrate(Connection conn, Consumer<String> out) throws SQLException {
+        long start = System.nanoTime();
+        out.accept("=== Migrating schema (latest V" + latestVersion() + ") ===");
+        List<VersionInfo> status;
+        try {
+            status = status(conn, false);
+        } catch (SQLException e) {
+            if (!isMissingTable(e)) {
+                throw e;
+            }
+            createVersionTable(conn, out);
+            status = status(conn, false);
+        }
+        int current = currentVersion(status);
+        if (status.stream().allMatch(v -> v.state == State.APPLIED)) {
+            Result result = new Result(0, current, current, true, elapsedMs(start), "up to date");
+            out.accept(result.toString());
+            return result;
+        }
+        if (SchemaTuning.isOracle(conn)) {
+            try (Statement stmt = track(conn.createStatement())) {
+                stmt.executeUpdate("ALTER SESSION SET DDL_LOCK_TIMEOUT = " + DDL_LOCK_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                out.accept("Skip: DDL_LOCK_TIMEOUT (" + e.getMessage() + ")");
+            }
+        }
+
+        for (VersionInfo v : status) {
+            if (v.state == State.CHANGED || v.state == State.UNKNOWN) {
+                String message = v.state == State.CHANGED
+                        ? "V" + v.version + " was changed after it was applied; add a new version instead"
+                        : "the database has V" + v.version + ", which this build does not know";
+                out.accept("Error: " + message + ".");
+                return new Result(0, current, current, false, elapsedMs(start), message);
+            }
+        }
+
+        int applied = 0;
+        for (Migration m : migrations) {
+            State state = stateOf(status, m.version);
+            if (state == State.APPLIED) {
+                continue;
+            }
+            out.accept("--- " + m + (state == State.FAILED ? " (retrying)" : "") + " ---");
+            long t0 = System.nanoTime();
+            try {
+                runSteps(conn, m, out);
+            } catch (SQLException e) {
+                record(conn, m, elapsedMs(t0), false);
+                out.accept("Error in V" + m.version + ": " + e.getMessage());
+                return new Result(applied, current, currentVersion(status(conn, false)), false,
+                        elapsedMs(start), "V" + m.version + " failed: " + e.getMessage());
+            }
+            long ms = elapsedMs(t0);
+            record(conn, m, ms, true);
+            out.accept("V" + m.version + " applied in " + ms + " ms.");
+            applied++;
+        }
+        Result result = new Result(applied, current, currentVersion(status(conn, false)), true,
+                elapsedMs(start), null);
+        out.accept(result.toString());
+        return result;
+    }
+
+    /**
+     * Runs of consecutive SQL statements go through the DdlScheduler (in
+     * FK order, independent tables in parallel); Java steps run on conn
+     * between them.
+     */
+    private void runSteps(Connection conn, Migration m, Consumer<String> out) throws SQLException {
+        List<String> batch = new ArrayList<>();
+        for (Object step : m.steps) {
+            if (step instanceof Work) {
+                runStatements(conn, batch, out);
+                batch.clear();
+                ((Work) step).run(conn, out);
+            } else {
+                batch.add(expand(conn, (String) step));
+            }
+        }
+        runStatements(conn, batch, out);
+    }
+
+    private void runStatements(Connection conn, List<String> statements, Consumer<String> out)
+            throws SQLException {
+        if (statements.isEmpty()) {
+            return;
+        }
+        DdlScheduler.Report report = scheduler.run(conn, DdlScheduler.createPlan(statements),
+                SchemaMigrator::isAlreadyThere, out);
+        SQLException error = report.firstError();
+        if (error != null) {
+            throw error;
+        }
+        out.accept("  " + report);
+    }
+
+    // ============== Status ==============
+
+    /**
+     * Every known and every recorded version with its state, by version.
+     */
+    public List<VersionInfo> status(Connection conn) throws SQLException {
+        return status(conn, true);
+    }
+
+    private List<VersionInfo> status(Connection conn, boolean missingTableOk) throws SQLException {
+        Map<Integer, VersionInfo> byVersion = new TreeMap<>();
+        Map<Integer, Migration> known = new TreeMap<>();
+        for (Migration m : migrations) {
+            known.put(m.version, m);
+            byVersion.put(m.version, new VersionInfo(m.version, m.description, State.PENDING, null, 0));
+        }
+        try (Statement stmt = track(conn.createStatement());
+             ResultSet rs = stmt.executeQuery(SQL_SELECT_VERSIONS)) {
+            while (rs.next()) {
+                int version = rs.getInt(1);
+                Migration m = known.get(version);
+                State state;
+                if (m == null) {
+                    state = State.UNKNOWN;
+                } else if (!"Y".equals(rs.getString(6))) {
+                    state = State.FAILED;
+                } else if (!m.checksum().equals(rs.getString(3))) {
+                    state = State.CHANGED;
+                } else {
+                    state = State.APPLIED;
+                }
+                byVersion.put(version, new VersionInfo(version, rs.getString(2), state,
+                        rs.getTimestamp(4), rs.getLong(5)));
+            }
+        } catch (SQLException e) {
+            // No SCHEMAVERSION yet: everything is pending
+            if (!missingTableOk || !isMissingTable(e)) {
+                throw e;
+            }
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    /**
+     * Print the status of every version.
+     */
+    public void printStatus(Connection conn, Consumer<String> out) throws SQLException {
+        List<VersionInfo> status = status(conn);
+        out.accept("=== Schema versions (current V" + currentVersion(status)
+                + ", latest V" + latestVersion() + ") ===");
+        for (VersionInfo v : status) {
+            out.accept("  " + v);
+        }
+    }
+
+    private static int currentVersion(List<VersionInfo> status) {
+        int current = 0;
+        for (VersionInfo v : status) {
+            // A CHANGED version was applied; its script was edited later
+            if (v.state != State.APPLIED && v.state != State.CHANGED) {
+                break;
+            }
+            current = v.version;
+        }
+        return current;
+    }
+
+    private static State stateOf(List<VersionInfo> status, int version) {
+        for (VersionInfo v : status) {
+            if (v.version == version) {
+                return v.state;
+            }
+        }
+        return State.PENDING;
+    }
+
+    // ============== SCHEMAVERSION ==============
+
+    private void createVersionTable(Connection conn, Consumer<String> out) throws SQLException {
+        try (Statement stmt = track(conn.createStatement())) {
+            stmt.executeUpdate(SQL_CREATE_VERSION_TABLE);
+            out.accept("OK: CREATE TABLE SchemaVersion");
+        } catch (SQLException e) {
+            if (!isAlreadyThere(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private void record(Connection conn, Migration m, long ms, boolean success) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement ps = track(conn.prepareStatement(SQL_DELETE_VERSION))) {
+                ps.setInt(1, m.version);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = track(conn.prepareStatement(SQL_INSERT_VERSION))) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.description);
+                ps.setString(3, m.checksum());
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.setLong(5, ms);
+                ps.setString(6, success ? "Y" : "N");
+                ps.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // ============== Helpers ==============
+
+    private String expand(Connection conn, String sql) throws SQLException {
+        Matcher m = PARTITION_MARKER.matcher(sql);
+        if (!m.find()) {
+            return sql;
+        }
+        StringBuffer sb = new StringBuffer();
+        do {
+            m.appendReplacement(sb, Matcher.quoteReplacement(tuning.partitionClause(conn, m.group(1))));
+        } while (m.find());
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * The object a DDL statement creates is already there (Oracle
+     * ORA-00955/01408/01430/02260/02261/02275, H2 42101/42111/42121/90045).
+     */
+    static boolean isAlreadyThere(SQLException e) {
+        switch (e.getErrorCode()) {
+            case 955: case 1408: case 1430: case 2260: case 2261: case 2275:
+            case 42101: case 42111: case 42121: case 90045:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Table or view does not exist (Oracle ORA-00942, H2 42102/42104).
+     */
+    static boolean isMissingTable(SQLException e) {
+        int code = e.getErrorCode();
+        return code == 942 || code == 42102 || code == 42104;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    private <T extends Statement> T track(T stmt) {
+        tracker.accept(stmt);
+        return stmt;
+    }
+}
@@ -0,0 +1,807 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Schema management (Drop / Create / Populate Tables)
+ *
+ * The one copy of the schema DDL and the demo data set, used by both the
+ * console and the GUI. Progress goes to a line consumer (System.out or
+ * the GUI output pane). After each step the in-memory state that depends
+ * on the tables is reset or reloaded through EventRepository and
+ * SeatMapRepository, and the summary counters are rebuilt through
+ * SummaryRepository, so neither UI has to remember to do it.
+ *
+ * The DDL is kept as SchemaMigrator versions (migrations()), so Create
+ * Tables only runs what an existing schema is missing and keeps its
+ * data. Create and Drop both run through a DdlScheduler, which orders
+ * the tables by their FK constraints and handles independent ones in
+ * parallel. Secondary indexes and optional partitioning come from
+ * SchemaTuning and are one of those versions. Partner CSV files load
+ * through CsvImporter.
+ */
+public class SchemaRepository extends Repository {
+
+    private final EventRepository events;
+    private final SeatMapRepository seats;
+    private final SummaryRepository summaries;
+    private final SchemaTuning tuning = new SchemaTuning();
+    private final DdlScheduler scheduler;
+    private final SchemaMigrator migrator;
+    private final CsvImporter importer;
+
+    public SchemaRepository(ConnectionPool pool, EventRepository events, SeatMapRepository seats,
+                            SummaryRepository summaries) {
+        this(pool, events, seats, summaries, null);
+    }
+
+    public SchemaRepository(ConnectionPool pool, EventRepository events, SeatMapRepository seats,
+                            SummaryRepository summaries, Executor executor) {
+        super(pool, executor);
+        this.events = events;
+        this.seats = seats;
+        this.summaries = summaries;
+        this.scheduler = new DdlScheduler(pool);
+        this.migrator = new SchemaMigrator(migrations(tuning), tuning, scheduler);
+        this.importer = new CsvImporter(pool, events.ids());
+    }
+
+    public SchemaTuning tuning() {
+        return tuning;
+    }
+
+    public SchemaMigrator migrator() {
+        return migrator;
+    }
+
+    public DdlScheduler scheduler() {
+        return scheduler;
+    }
+
+    public CsvImporter importer() {
+        return importer;
+    }
+
+    @Override
+    public void setStatementTracker(Consumer<Statement> tracker) {
+        super.setStatementTracker(tracker);
+        tuning.setStatementTracker(tracker);
+        migrator.setStatementTracker(tracker);
+        scheduler.setStatementTracker(tracker);
+    }
+
+    // ============== 1) Drop Tables ==============
+
+    /**
+     * Drop every table the schema versions create, plus SCHEMAVERSION.
+     * The order comes from their FK constraints (children first, see
+     * DdlScheduler); tables that do not depend on each other are dropped
+     * in parallel. Tables that do not exist are reported and skipped.
+     */
+    public void dropTables(Connection conn, Consumer<String> out) {
+        out.accept("=== Dropping tables (if they exist) ===");
+
+        List<String> creates = new ArrayList<>();
+        for (SchemaMigrator.Migration m : migrator.migrations()) {
+            creates.addAll(m.statements());
+        }
+        creates.add(SchemaMigrator.SQL_CREATE_VERSION_TABLE);
+
+        // If a table doesn't exist, just show the message and continue
+        DdlScheduler.Report report = scheduler.run(conn, DdlScheduler.dropPlan(creates), e -> true, out);
+
+        out.accept("Done dropping tables: " + report + ".");
+        events.schemaReset();
+        seats.schemaReset();
+    }
+
+    // ============== Schema versions ==============
+
+    /**
+     * The schema as SchemaMigrator versions, oldest first. V1 is the
+     * 3NF/BCNF design from A6/A8. Never edit a version once it has shipped
+     * (its checksum is recorded); add the next one instead.
+     */
+    static List<SchemaMigrator.Migration> migrations(SchemaTuning tuning) {
+        StringBuilder tuningDdl = new StringBuilder("SchemaTuning v1:");
+        for (SchemaTuning.IndexDef ix : SchemaTuning.indexes()) {
+            if (ix.since <= 1) {
+                tuningDdl.append(' ').append(ix.ddl(true, false)).append(';');
+            }
+        }
+
+        return Arrays.asList(
+            new SchemaMigrator.Migration(1, "Base schema (A6/A8)")
+                // USERS
+                .sql(
+                    "CREATE TABLE Users (" +
+                    "    UserID       NUMBER(10)      PRIMARY KEY," +
+                    "    FirstName    VARCHAR2(100)   NOT NULL," +
+                    "    LastName     VARCHAR2(100)   NOT NULL," +
+                    "    Email        VARCHAR2(255)   NOT NULL UNIQUE," +
+                    "    Phone        VARCHAR2(30)," +
+                    "    CreatedAt    DATE            DEFAULT SYSDATE NOT NULL" +
+                    ")"
+                )
+
+                // ORGANIZERS
+                .sql(
+                    "CREATE TABLE Organizers (" +
+                    "    OrganizerID   NUMBER(10)     PRIMARY KEY," +
+                    "    Name          VARCHAR2(200)  NOT NULL," +
+                    "    ContactEmail  VARCHAR2(255)," +
+                    "    ContactPhone  VARCHAR2(30)" +
+                    ")"
+                )
+
+                // VENUES
+                .sql(
+                    "CREATE TABLE Venues (" +
+                    "    VenueID   NUMBER(10)     PRIMARY KEY," +
+                    "    Name      VARCHAR2(200)  NOT NULL," +
+                    "    Address   VARCHAR2(300)," +
+                    "    City      VARCHAR2(120)," +
+                    "    Capacity  NUMBER(10)" +
+                    ")"
+                )
+
+                // EVENTS
+                .sql(
+                    "CREATE TABLE Events (" +
+                    "    EventID     NUMBER(10)    PRIMARY KEY," +
+                    "    OrganizerID NUMBER(10)    NOT NULL," +
+                    "    Title       VARCHAR2(200) NOT NULL," +
+                    "    Category    VARCHAR2(100)," +
+                    "    Description VARCHAR2(1000)," +
+                    "    CONSTRAINT fk_events_organizer" +
+                    "        FOREIGN KEY (OrganizerID)" +
+                    "        REFERENCES Organizers (OrganizerID)" +
+                    ")"
+                )
+
+                // SHOWTIMES
+                .sql(
+                    "CREATE TABLE Showtimes (" +
+                    "    ShowtimeID    NUMBER(10)     PRIMARY KEY," +
+                    "    EventID       NUMBER(10)     NOT NULL," +
+                    "    VenueID       NUMBER(10)     NOT NULL," +
+                    "    StartDateTime DATE           NOT NULL," +
+                    "    BasePrice     NUMBER(10,2)   NOT NULL," +
+                    "    CONSTRAINT fk_showtimes_event" +
+                    "        FOREIGN KEY (EventID)" +
+                    "        REFERENCES Events (EventID)," +
+                    "    CONSTRAINT fk_showtimes_venue" +
+                    "        FOREIGN KEY (VenueID)" +
+                    "        REFERENCES Venues (VenueID)," +
+                    "    CONSTRAINT uq_showtimes_event_venue_start" +
+                    "        UNIQUE (EventID, VenueID, StartDateTime)" +
+                    ")"
+                )
+
+                // SEATS
+                .sql(
+                    "CREATE TABLE Seats (" +
+                    "    SeatID     NUMBER(10)    PRIMARY KEY," +
+                    "    VenueID    NUMBER(10)    NOT NULL," +
+                    "    Section    VARCHAR2(50)  NOT NULL," +
+                    "    RowLabel   VARCHAR2(20)  NOT NULL," +
+                    "    SeatNumber VARCHAR2(20)  NOT NULL," +
+                    "    CONSTRAINT fk_seats_venue" +
+                    "        FOREIGN KEY (VenueID)" +
+                    "        REFERENCES Venues (VenueID)," +
+                    "    CONSTRAINT uq_venue_section_row_seat" +
+                    "        UNIQUE (VenueID, Section, RowLabel, SeatNumber)" +
+                    ")"
+                )
+
+                // ORDERS
+                .sql(
+                    "CREATE TABLE Orders (" +
+                    "    OrderID        NUMBER(10)     PRIMARY KEY," +
+                    "    UserID         NUMBER(10)     NOT NULL," +
+                    "    OrderDateTime  DATE           DEFAULT SYSDATE NOT NULL," +
+                    "    OrderTotal     NUMBER(10,2)   NOT NULL," +
+                    "    Status         VARCHAR2(20)   NOT NULL," +
+                    "    CONSTRAINT fk_orders_user" +
+                    "        FOREIGN KEY (UserID)" +
+                    "        REFERENCES Users (UserID)" +
+                    ") /*PARTITION Orders*/"
+                )
+
+                // PAYMENTS
+                .sql(
+                    "CREATE TABLE Payments (" +
+                    "    PaymentID  NUMBER(10)     PRIMARY KEY," +
+                    "    OrderID    NUMBER(10)     NOT NULL," +
+                    "    Amount     NUMBER(10,2)   NOT NULL," +
+                    "    Method     VARCHAR2(40)   NOT NULL," +
+                    "    PaidAt     DATE," +
+                    "    AuthCode   VARCHAR2(64)," +
+                    "    CONSTRAINT fk_payments_order" +
+                    "        FOREIGN KEY (OrderID)" +
+                    "        REFERENCES Orders (OrderID)" +
+                    ")"
+                )
+
+                // SEATMAPS
+                .sql(
+                    "CREATE TABLE SeatMaps (" +
+                    "    SeatMapID  NUMBER(10)     PRIMARY KEY," +
+                    "    ShowtimeID NUMBER(10)     NOT NULL," +
+                    "    SeatID     NUMBER(10)     NOT NULL," +
+                    "    Status     VARCHAR2(16)   NOT NULL," +
+                    "    CONSTRAINT fk_seatmaps_showtime" +
+                    "        FOREIGN KEY (ShowtimeID)" +
+                    "        REFERENCES Showtimes (ShowtimeID)," +
+                    "    CONSTRAINT fk_seatmaps_seat" +
+                    "        FOREIGN KEY (SeatID)" +
+                    "        REFERENCES Seats (SeatID)," +
+                    "    CONSTRAINT uq_seatmaps_showtime_seat" +
+                    "        UNIQUE (ShowtimeID, SeatID)," +
+                    "    CONSTRAINT chk_seatmaps_status" +
+                    "        CHECK (Status IN ('AVAILABLE', 'HELD', 'SOLD'))" +
+                    ")"
+                )
+
+                // TICKETS
+                .sql(
+                    "CREATE TABLE Tickets (" +
+                    "    TicketID     NUMBER(10)     PRIMARY KEY," +
+                    "    OrderID      NUMBER(10)     NOT NULL," +
+                    "    ShowtimeID   NUMBER(10)     NOT NULL," +
+                    "    SeatID       NUMBER(10)     NOT NULL," +
+                    "    TicketPrice  NUMBER(10,2)   NOT NULL," +
+                    "    QRCode       VARCHAR2(128)  NOT NULL," +
+                    "    IsValidated  CHAR(1)        DEFAULT 'N' NOT NULL," +
+                    "    ValidatedAt  DATE," +
+                    "    CONSTRAINT fk_tickets_order" +
+                    "        FOREIGN KEY (OrderID)" +
+                    "        REFERENCES Orders (OrderID)," +
+                    "    CONSTRAINT fk_tickets_showtime" +
+                    "        FOREIGN KEY (ShowtimeID)" +
+                    "        REFERENCES Showtimes (ShowtimeID)," +
+                    "    CONSTRAINT fk_tickets_seat" +
+                    "        FOREIGN KEY (SeatID)" +
+                    "        REFERENCES Seats (SeatID)," +
+                    "    CONSTRAINT uq_tickets_qrcode" +
+                    "        UNIQUE (QRCode)," +
+                    "    CONSTRAINT uq_tickets_showtime_seat" +
+                    "        UNIQUE (ShowtimeID, SeatID)," +
+                    "    CONSTRAINT chk_tickets_isvalidated" +
+                    "        CHECK (IsValidated IN ('Y','N'))" +
+                    ") /*PARTITION Tickets*/"
+                ),
+
+            new SchemaMigrator.Migration(2, "Hi/lo ID blocks")
+                // ID BLOCKS (hi/lo primary key allocation, see IdAllocator)
+                .sql(
+                    "CREATE TABLE IdBlocks (" +
+                    "    Name       VARCHAR2(30)   PRIMARY KEY," +
+                    "    NextValue  NUMBER(19)     NOT NULL" +
+                    ")"
+                ),
+
+            new SchemaMigrator.Migration(3, "Summary counters")
+                // SHOWTIME / EVENT SUMMARY (materialized counters, see SummaryRepository).
+                // No foreign keys: a summary row must never block deleting its
+                // showtime or event; reconciliation reports leftovers instead.
+                .sql(
+                    "CREATE TABLE ShowtimeSummary (" +
+                    "    ShowtimeID      NUMBER(10)     PRIMARY KEY," +
+                    "    SeatsAvailable  NUMBER(10)     NOT NULL," +
+                    "    SeatsHeld       NUMBER(10)     NOT NULL," +
+                    "    SeatsSold       NUMBER(10)     NOT NULL," +
+                    "    TicketsSold     NUMBER(10)     NOT NULL," +
+                    "    GrossRevenue    NUMBER(14,2)   NOT NULL" +
+                    ")"
+                )
+                .sql(
+                    "CREATE TABLE EventSummary (" +
+                    "    EventID         NUMBER(10)     PRIMARY KEY," +
+                    "    SeatsAvailable  NUMBER(10)     NOT NULL," +
+                    "    SeatsHeld       NUMBER(10)     NOT NULL," +
+                    "    SeatsSold       NUMBER(10)     NOT NULL," +
+                    "    TicketsSold     NUMBER(10)     NOT NULL," +
+                    "    GrossRevenue    NUMBER(14,2)   NOT NULL" +
+                    ")"
+                ),
+
+            // Secondary indexes / partitioning; needs the live connection
+            // to know the database and whether ORDERS is partitioned
+            new SchemaMigrator.Migration(4, "Secondary indexes (SchemaTuning v1)")
+                .run(tuningDdl.toString(), (conn, out) -> tuning.apply(conn, out)),
+
+            // Owner of a HELD seat (see SeatReservationService.hold()); NULL otherwise
+            new SchemaMigrator.Migration(5, "Seat hold tokens")
+                .sql("ALTER TABLE SeatMaps ADD HoldToken NUMBER(19)")
+        );
+    }
+
+    // ============== 2) Create Tables ==============
+
+    /**
+     * Create the 3NF/BCNF schema for the e-ticket reservation system, or
+     * bring an existing one up to the latest version: only the versions
+     * SCHEMAVERSION does not list as applied run, and tables or indexes
+     * that are already there are skipped, so this is safe to run on a
+     * schema with data in it. A new schema starts with empty in-memory
+     * state; versions added to a schema with data reload it instead.
+     */
+    public void createTables(Connection conn, Consumer<String> out) {
+        try {
+            SchemaMigrator.Result result = migrator.migrate(conn, out);
+            if (result.applied > 0 && result.previousVersion == 0) {
+                // A new schema: nothing to load
+                events.schemaReset();
+                seats.schemaReset();
+            } else if (result.applied > 0) {
+                // Versions added to a schema that has data: keep serving it
+                events.dataReloaded();
+                reloadInMemory(conn, out);
+            }
+        } catch (SQLException e) {
+            out.accept("Error creating tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * List every schema version with its state (applied, pending, failed,
+     * changed since applied).
+     */
+    public void schemaStatus(Connection conn, Consumer<String> out) {
+        try {
+            migrator.printStatus(conn, out);
+        } catch (SQLException e) {
+            out.accept("Error reading schema versions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add any SchemaTuning index missing from an existing schema (no
+     * data is touched).
+     */
+    public void applyTuning(Connection conn, Consumer<String> out) {
+        try {
+            tuning.apply(conn, out);
+        } catch (SQLException e) {
+            out.accept("Error applying schema tuning: " + e.getMessage());
+        }
+    }
+
+    // ============== 3) Populate Tables ==============
+
+    /**
+     * Insert a small set of dummy records into all main tables, in JDBC
+     * batches and one transaction, then reload the search index and seat
+     * inventory from them.
+     *
+     * All inserts respect the 3NF/BCNF schema from A6/A8.
+     */
+    public void populateTables(Connection conn, Consumer<String> out) {
+        out.accept("=== Inserting dummy data into tables ===");
+
+        // Rows go out in JDBC batches instead of one round trip each
+        BulkLoader loader = new BulkLoader(conn);
+
+        try {
+            loader.begin(); // group inserts in one transaction
+
+            // USERS
+            try (BulkLoader.Batch batch = loader.open("Users",
+                    "INSERT INTO Users (UserID, FirstName, LastName, Email, Phone) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setString(2, "Ahmad");
+                ps.setString(3, "Kanaan");
+                ps.setString(4, "ahmad@example.com");
+                ps.setString(5, "4161111111");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setString(2, "John");
+                ps.setString(3, "Doe");
+                ps.setString(4, "john@example.com");
+                ps.setString(5, "4162222222");
+                batch.add();
+
+                ps.setInt(1, 3);
+                ps.setString(2, "Sarah");
+                ps.setString(3, "Ali");
+                ps.setString(4, "sarah@example.com");
+                ps.setString(5, "6473333333");
+                batch.add();
+            }
+
+            // ORGANIZERS
+            try (BulkLoader.Batch batch = loader.open("Organizers",
+                    "INSERT INTO Organizers (OrganizerID, Name, ContactEmail, ContactPhone) " +
+                    "VALUES (?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setString(2, "Live Nation");
+                ps.setString(3, "contact@livenation.com");
+                ps.setString(4, "4165550000");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setString(2, "Cineplex");
+                ps.setString(3, "info@cineplex.com");
+                ps.setString(4, "4165551234");
+                batch.add();
+            }
+
+            // VENUES
+            try (BulkLoader.Batch batch = loader.open("Venues",
+                    "INSERT INTO Venues (VenueID, Name, Address, City, Capacity) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setString(2, "Scotiabank Arena");
+                ps.setString(3, "40 Bay St");
+                ps.setString(4, "Toronto");
+                ps.setInt(5, 20000);
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setString(2, "Cineplex YD Square");
+                ps.setString(3, "10 Dundas St E");
+                ps.setString(4, "Toronto");
+                ps.setInt(5, 500);
+                batch.add();
+            }
+
+            // EVENTS
+            try (BulkLoader.Batch batch = loader.open("Events",
+                    "INSERT INTO Events (EventID, OrganizerID, Title, Category, Description) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setString(3, "Drake Live Concert");
+                ps.setString(4, "Concert");
+                ps.setString(5, "Drake performing live in Toronto.");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 2);
+                ps.setString(3, "Avengers: Endgame");
+                ps.setString(4, "Movie");
+                ps.setString(5, "Special screening of Avengers Endgame.");
+                batch.add();
+            }
+
+            // SHOWTIMES
+            try (BulkLoader.Batch batch = loader.open("Showtimes",
+                    "INSERT INTO Showtimes (ShowtimeID, EventID, VenueID, StartDateTime, BasePrice) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setInt(3, 1);
+                ps.setTimestamp(4, Timestamp.valueOf("2025-12-10 20:00:00"));
+                ps.setDouble(5, 150.00);
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 2);
+                ps.setInt(3, 2);
+                ps.setTimestamp(4, Timestamp.valueOf("2025-12-12 18:00:00"));
+                ps.setDouble(5, 20.00);
+                batch.add();
+            }
+
+            // SEATS
+            try (BulkLoader.Batch batch = loader.open("Seats",
+                    "INSERT INTO Seats (SeatID, VenueID, Section, RowLabel, SeatNumber) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                // Venue 1: 3 seats
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setString(3, "Floor");
+                ps.setString(4, "A");
+                ps.setString(5, "1");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 1);
+                ps.setString(3, "Floor");
+                ps.setString(4, "A");
+                ps.setString(5, "2");
+                batch.add();
+
+                ps.setInt(1, 3);
+                ps.setInt(2, 1);
+                ps.setString(3, "Floor");
+                ps.setString(4, "A");
+                ps.setString(5, "3");
+                batch.add();
+
+                // Venue 2: 2 seats
+                ps.setInt(1, 4);
+                ps.setInt(2, 2);
+                ps.setString(3, "Front");
+                ps.setString(4, "B");
+                ps.setString(5, "5");
+                batch.add();
+
+                ps.setInt(1, 5);
+                ps.setInt(2, 2);
+                ps.setString(3, "Front");
+                ps.setString(4, "B");
+                ps.setString(5, "6");
+                batch.add();
+            }
+
+            // SEATMAPS
+            try (BulkLoader.Batch batch = loader.open("SeatMaps",
+                    "INSERT INTO SeatMaps (SeatMapID, ShowtimeID, SeatID, Status) " +
+                    "VALUES (?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                // Showtime 1
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setInt(3, 1);
+                ps.setString(4, "AVAILABLE");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 1);
+                ps.setInt(3, 2);
+                ps.setString(4, "AVAILABLE");
+                batch.add();
+
+                ps.setInt(1, 3);
+                ps.setInt(2, 1);
+                ps.setInt(3, 3);
+                ps.setString(4, "HELD");
+                batch.add();
+
+                // Showtime 2
+                ps.setInt(1, 4);
+                ps.setInt(2, 2);
+                ps.setInt(3, 4);
+                ps.setString(4, "AVAILABLE");
+                batch.add();
+
+                ps.setInt(1, 5);
+                ps.setInt(2, 2);
+                ps.setInt(3, 5);
+                ps.setString(4, "SOLD");
+                batch.add();
+            }
+
+            // ORDERS
+            try (BulkLoader.Batch batch = loader.open("Orders",
+                    "INSERT INTO Orders (OrderID, UserID, OrderDateTime, OrderTotal, Status) " +
+                    "VALUES (?, ?, SYSDATE, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setDouble(3, 150.00);
+                ps.setString(4, "PAID");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 2);
+                ps.setDouble(3, 20.00);
+                ps.setString(4, "PAID");
+                batch.add();
+            }
+
+            // PAYMENTS
+            try (BulkLoader.Batch batch = loader.open("Payments",
+                    "INSERT INTO Payments (PaymentID, OrderID, Amount, Method, PaidAt, AuthCode) " +
+                    "VALUES (?, ?, ?, ?, SYSDATE, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setDouble(3, 150.00);
+                ps.setString(4, "CARD");
+                ps.setString(5, "AUTH12345");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 2);
+                ps.setDouble(3, 20.00);
+                ps.setString(4, "CARD");
+                ps.setString(5, "AUTH67890");
+                batch.add();
+            }
+
+            // TICKETS
+            try (BulkLoader.Batch batch = loader.open("Tickets",
+                    "INSERT INTO Tickets (TicketID, OrderID, ShowtimeID, SeatID, TicketPrice, QRCode, IsValidated) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                PreparedStatement ps = track(batch.statement());
+                ps.setInt(1, 1);
+                ps.setInt(2, 1);
+                ps.setInt(3, 1);
+                ps.setInt(4, 1);
+                ps.setDouble(5, 150.00);
+                ps.setString(6, "QR-ABC-111");
+                ps.setString(7, "N");
+                batch.add();
+
+                ps.setInt(1, 2);
+                ps.setInt(2, 2);
+                ps.setInt(3, 2);
+                ps.setInt(4, 5);
+                ps.setDouble(5, 20.00);
+                ps.setString(6, "QR-XYZ-222");
+                ps.setString(7, "Y");
+                batch.add();
+            }
+
+            loader.commit();
+            events.dataReloaded();
+            out.accept("Dummy data inserted successfully.");
+            for (BulkLoader.TableStats ts : loader.getStats()) {
+                out.accept("  " + ts);
+            }
+            rebuildSummaries(conn, out);
+            reloadInMemory(conn, out);
+
+        } catch (SQLException e) {
+            out.accept("Error populating tables: " + e.getMessage());
+            try {
+                loader.rollback();
+            } catch (SQLException ex2) {
+                out.accept("Rollback error: " + ex2.getMessage());
+            }
+        }
+    }
+
+    // ============== CSV import ==============
+
+    /**
+     * Stream a partner CSV file into VENUES, SEATS or EVENTS through
+     * CsvImporter (rejected rows are listed, the rest load), then refresh
+     * what depends on EVENTS. Writers commit batch by batch, so that
+     * refresh also runs when the import fails partway.
+     */
+    public void importCsv(Connection conn, CsvImporter.Kind kind, Path file, Consumer<String> out) {
+        try {
+            importer.importFile(kind, file, out);
+        } catch (IOException e) {
+            out.accept("Error reading " + file + ": " + e.getMessage());
+        } catch (SQLException e) {
+            out.accept("Error importing " + file + ": " + e.getMessage());
+        } finally {
+            if (kind == CsvImporter.Kind.EVENTS) {
+                events.dataReloaded();
+                reloadInMemory(conn, out);
+            }
+        }
+    }
+
+    // ============== Summary counters ==============
+
+    /**
+     * Recompute the summary counters after a bulk load (which bypasses
+     * the per-transaction deltas).
+     */
+    public void rebuildSummaries(Connection conn, Consumer<String> out) {
+        long start = System.nanoTime();
+        try {
+            long rows = summaries.rebuild(conn);
+            out.accept("Summary counters rebuilt: " + rows + " row(s) in "
+                    + (System.nanoTime() - start) / 1_000_000L + " ms.");
+        } catch (SQLException e) {
+            out.accept("Summary counters not rebuilt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check the summary counters against SEATMAPS / TICKETS, listing any
+     * differences; with repair, rebuild them and check again.
+     */
+    public void reconcileSummaries(Connection conn, boolean repair, Consumer<String> out) {
+        out.accept("=== Reconciling summary counters ===");
+        try {
+            SummaryRepository.Reconciliation r = summaries.reconcile(conn, repair);
+            for (SummaryRepository.Mismatch m : r.mismatches) {
+                out.accept("  " + m);
+            }
+            out.accept(r.toString());
+        } catch (SQLException e) {
+            out.accept("Error reconciling summary counters: " + e.getMessage());
+        }
+    }
+
+    // ============== In-memory state ==============
+
+    /**
+     * Rebuild the search index and seat inventory from the tables.
+     * Missing tables (before Create Tables) leave searches on SQL and the
+     * inventory empty.
+     */
+    public void reloadInMemory(Connection conn, Consumer<String> out) {
+        long start = System.nanoTime();
+        try {
+            SeatInventory inv = seats.reload(conn);
+            out.accept("Seat inventory loaded: " + inv.showtimeCount() + " showtime(s) in "
+                    + (System.nanoTime() - start) / 1_000_000L + " ms.");
+        } catch (SQLException e) {
+            out.accept("Seat inventory not loaded: " + e.getMessage());
+        }
+
+        start = System.nanoTime();
+        try {
+            EventSearchIndex index = events.reloadSearchIndex(conn);
+            out.accept("Search index built: " + index.size() + " event(s), " + index.termCount()
+                    + " term(s) in " + (System.nanoTime() - start) / 1_000_000L + " ms.");
+        } catch (SQLException e) {
+            out.accept("Search index not built: " + e.getMessage());
+        }
+    }
+
+    // ============== Async variants ==============
+
+    public CompletableFuture<Void> dropTablesAsync(Consumer<String> out) {
+        return async(conn -> {
+            dropTables(conn, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> createTablesAsync(Consumer<String> out) {
+        return async(conn -> {
+            createTables(conn, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> schemaStatusAsync(Consumer<String> out) {
+        return async(conn -> {
+            schemaStatus(conn, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> applyTuningAsync(Consumer<String> out) {
+        return async(conn -> {
+            applyTuning(conn, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> populateTablesAsync(Consumer<String> out) {
+        return async(conn -> {
+            populateTables(conn, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> importCsvAsync(CsvImporter.Kind kind, Path file, Consumer<String> out) {
+        return async(conn -> {
+            importCsv(conn, kind, file, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> reconcileSummariesAsync(boolean repair, Consumer<String> out) {
+        return async(conn -> {
+            reconcileSummaries(conn, repair, out);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> reloadInMemoryAsync(Consumer<String> out) {
+        return async(conn -> {
+            reloadInMemory(conn, out);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,335 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * CPS510 A9 – Schema tuning (secondary indexes, optional partitioning)
+ *
+ * The base schema only has the indexes behind PRIMARY KEY and UNIQUE
+ * constraints. Oracle does not index foreign keys by itself, so joins
+ * through an unindexed FK scan the child table, and deleting or
+ * re-keying a parent row locks the whole child table while it checks
+ * for children. This class is the versioned list of indexes added on top
+ * of the base schema for the access paths the apps really use:
+ *
+ *  - every FK column that does not already lead a PK / UNIQUE index
+ *    (Showtimes.EventID, Seats.VenueID, SeatMaps.ShowtimeID and
+ *    Tickets.ShowtimeID already do)
+ *  - covering indexes for the hot reads, so they are answered from the
+ *    index alone (seat counts per showtime, revenue per showtime,
+ *    payment method per order, a user's orders by date)
+ *  - a function-based index on LOWER(Title) for title search; a
+ *    'keyword%' search range-scans it, a '%keyword%' search can fast-
+ *    full-scan the narrow index instead of the table
+ *
+ * Each definition records the VERSION it was introduced in. apply() is
+ * idempotent: an index that is already there is skipped, and so, on
+ * other databases only, is one the database cannot build (H2 has no
+ * function-based indexes). On Oracle the indexes are built ONLINE, so DML
+ * on the table goes on while they build; where ONLINE is not available
+ * (ORA-00439, Standard Edition) the index is built offline instead. Any
+ * other error (ORA-00054, out of temp space, ...) fails apply(), so the
+ * SchemaMigrator version that runs it is recorded FAILED and retried.
+ *
+ * With partitioning on (Oracle only), ORDERS is range-partitioned by
+ * month of OrderDateTime (interval partitioning) and TICKETS by
+ * reference to ORDERS, so date-bounded queries and purges touch only the
+ * months involved. New schemas get it at CREATE TABLE time; apply()
+ * converts an existing ORDERS online (12.2+), while TICKETS has to be
+ * re-created because reference partitioning cannot be added in place.
+ */
+public class SchemaTuning {
+
+    public static final int VERSION = 1;
+
+    /**
+     * One secondary index. local: build it LOCAL when its table is
+     * partitioned (the partition key is one of its columns).
+     */
+    public static final class IndexDef {
+        public final int since;
+        public final String name;
+        public final String table;
+        public final String columns;
+        public final boolean local;
+        public final String purpose;
+
+        IndexDef(int since, String name, String table, String columns, boolean local, String purpose) {
+            this.since = since;
+            this.name = name;
+            this.table = table;
+            this.columns = columns;
+            this.local = local;
+            this.purpose = purpose;
+        }
+
+        String ddl(boolean partitioned, boolean online) {
+            return "CREATE INDEX " + name + " ON " + table + " (" + columns + ")"
+                    + (partitioned && local ? " LOCAL" : "")
+                    + (online ? " ONLINE" : "");
+        }
+
+        @Override
+        public String toString() {
+            return name + " ON " + table + " (" + columns + ") - " + purpose;
+        }
+    }
+
+    private static final List<IndexDef> INDEXES = Collections.unmodifiableList(Arrays.asList(
+            // Unindexed foreign keys
+            new IndexDef(1, "idx_events_organizer", "Events", "OrganizerID", false,
+                    "FK to ORGANIZERS"),
+            new IndexDef(1, "idx_showtimes_venue", "Showtimes", "VenueID, StartDateTime", false,
+                    "FK to VENUES; showtimes of a venue by date, per-venue reports"),
+            new IndexDef(1, "idx_orders_user", "Orders", "UserID, OrderDateTime", false,
+                    "FK to USERS; a user's order history by date"),
+            new IndexDef(1, "idx_payments_order", "Payments", "OrderID, Method, Amount", false,
+                    "FK to ORDERS; covers payment-method reports"),
+            new IndexDef(1, "idx_tickets_order", "Tickets", "OrderID", false,
+                    "FK to ORDERS; tickets of an order"),
+            new IndexDef(1, "idx_tickets_seat", "Tickets", "SeatID", false,
+                    "FK to SEATS"),
+            new IndexDef(1, "idx_seatmaps_seat", "SeatMaps", "SeatID", false,
+                    "FK to SEATS"),
+            // Covering / expression indexes for hot reads
+            new IndexDef(1, "idx_seatmaps_status", "SeatMaps", "ShowtimeID, Status", false,
+                    "covers seat counts per showtime and status"),
+            new IndexDef(1, "idx_tickets_revenue", "Tickets", "ShowtimeID, TicketPrice", false,
+                    "covers tickets / revenue per showtime"),
+            new IndexDef(1, "idx_orders_date", "Orders", "OrderDateTime, OrderTotal", true,
+                    "covers sales by date range"),
+            new IndexDef(1, "idx_events_lower_title", "Events", "LOWER(Title)", false,
+                    "function-based index for LOWER(Title) LIKE searches")
+    ));
+
+    // Partitioning (Oracle): months of OrderDateTime, TICKETS following ORDERS
+    static final String ORDERS_PARTITIONING =
+            " PARTITION BY RANGE (OrderDateTime) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))" +
+            " (PARTITION orders_p0 VALUES LESS THAN (DATE '2020-01-01'))";
+    static final String TICKETS_PARTITIONING =
+            " PARTITION BY REFERENCE (fk_tickets_order)";
+    static final String SQL_PARTITION_ORDERS_ONLINE =
+            "ALTER TABLE Orders MODIFY" + ORDERS_PARTITIONING + " ONLINE UPDATE INDEXES";
+    static final String SQL_IS_PARTITIONED =
+            "SELECT COUNT(*) FROM USER_PART_TABLES WHERE TABLE_NAME = ?";
+
+    private volatile boolean partitioning;
+    private volatile Consumer<Statement> tracker = stmt -> { };
+
+    public static List<IndexDef> indexes() {
+        return INDEXES;
+    }
+
+    /**
+     * Partition ORDERS / TICKETS by date (Oracle only; off by default).
+     */
+    public void setPartitioning(boolean partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    public boolean isPartitioning() {
+        return partitioning;
+    }
+
+    /**
+     * See every statement before it executes (e.g. to cancel it).
+     */
+    public void setStatementTracker(Consumer<Statement> tracker) {
+        this.tracker = tracker != null ? tracker : stmt -> { };
+    }
+
+    // ============== CREATE TABLE clauses ==============
+
+    /**
+     * Partitioning clause to append to CREATE TABLE for table, or "" if
+     * the table is not partitioned on this database.
+     */
+    public String partitionClause(Connection conn, String table) throws SQLException {
+        if (!partitioning || !isOracle(conn)) {
+            return "";
+        }
+        if ("Orders".equalsIgnoreCase(table)) {
+            return ORDERS_PARTITIONING;
+        }
+        if ("Tickets".equalsIgnoreCase(table)) {
+            return TICKETS_PARTITIONING;
+        }
+        return "";
+    }
+
+    // ============== Apply / drop ==============
+
+    /**
+     * Create every index (and, if enabled, partition ORDERS) that is not
+     * there yet; returns the number of indexes created.
+     */
+    public int apply(Connection conn, Consumer<String> out) throws SQLException {
+        out.accept("=== Schema tuning v" + VERSION + " ===");
+        boolean oracle = isOracle(conn);
+        if (partitioning) {
+            partitionOrders(conn, oracle, out);
+        }
+        boolean ordersPartitioned = partitioning && oracle && isPartitioned(conn, "ORDERS");
+
+        int created = 0;
+        for (IndexDef ix : INDEXES) {
+            boolean partitioned = ordersPartitioned && "Orders".equals(ix.table);
+            String sql = ix.ddl(partitioned, oracle);
+            try {
+                execute(conn, sql);
+                out.accept("OK: " + sql);
+                created++;
+            } catch (SQLException e) {
+                if (SchemaMigrator.isAlreadyThere(e)) {
+                    out.accept("Skip: " + sql + " (already there)");
+                } else if (oracle && isFeatureMissing(e)) {
+                    // No online index builds on this edition: build it offline
+                    String offline = ix.ddl(partitioned, false);
+                    execute(conn, offline);
+                    out.accept("OK: " + offline + " (ONLINE not available)");
+                    created++;
+                } else if (!oracle && isUnsupported(e)) {
+                    out.accept("Skip: " + sql + " (" + e.getMessage() + ")");
+                } else {
+                    throw e;
+                }
+            }
+        }
+        out.accept("Schema tuning done: " + created + " index(es) created.");
+        return created;
+    }
+
+    /**
+     * Drop the tuning indexes (not the constraint indexes); returns the
+     * number dropped. Partitioning is left as it is.
+     */
+    public int dropIndexes(Connection conn, Consumer<String> out) {
+        int dropped = 0;
+        for (IndexDef ix : INDEXES) {
+            String sql = "DROP INDEX " + ix.name;
+            try (Statement stmt = track(conn.createStatement())) {
+                stmt.executeUpdate(sql);
+                out.accept("OK: " + sql);
+                dropped++;
+            } catch (SQLException e) {
+                out.accept("Skip: " + sql + " (" + e.getMessage() + ")");
+            }
+        }
+        return dropped;
+    }
+
+    private void partitionOrders(Connection conn, boolean oracle, Consumer<String> out) throws SQLException {
+        if (!oracle) {
+            out.accept("Skip: partitioning (needs Oracle, this is "
+                    + conn.getMetaData().getDatabaseProductName() + ")");
+            return;
+        }
+        if (!isPartitioned(conn, "ORDERS")) {
+            try {
+                execute(conn, SQL_PARTITION_ORDERS_ONLINE);
+                out.accept("OK: " + SQL_PARTITION_ORDERS_ONLINE);
+            } catch (SQLException e) {
+                if (!isFeatureMissing(e)) {
+                    throw e;
+                }
+                out.accept("Skip: " + SQL_PARTITION_ORDERS_ONLINE
+                        + " (partitioning not available: " + e.getMessage() + ")");
+            }
+        }
+        if (!isPartitioned(conn, "TICKETS")) {
+            out.accept("Note: TICKETS is not partitioned; reference partitioning needs the table"
+                    + " re-created (Drop + Create Tables with partitioning on).");
+        }
+    }
+
+    // ============== Plans ==============
+
+    /**
+     * The optimizer's plan for sql with the given bind values, one line
+     * per element (Oracle: DBMS_XPLAN; others: EXPLAIN).
+     */
+    public static List<String> explain(Connection conn, String sql, Object... binds) throws SQLException {
+        List<String> lines = new ArrayList<>();
+        if (isOracle(conn)) {
+            try (PreparedStatement ps = conn.prepareStatement("EXPLAIN PLAN FOR " + sql)) {
+                bind(ps, binds);
+                ps.execute();
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC'))")) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+        } else {
+            try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+                bind(ps, binds);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lines.addAll(Arrays.asList(rs.getString(1).split("\n")));
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static void bind(PreparedStatement ps, Object[] binds) throws SQLException {
+        for (int i = 0; i < binds.length; i++) {
+            ps.setObject(i + 1, binds[i]);
+        }
+    }
+
+    // ============== Helpers ==============
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = track(conn.createStatement())) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Oracle ORA-00439: feature not enabled (e.g. ONLINE or partitioning
+     * outside Enterprise Edition).
+     */
+    static boolean isFeatureMissing(SQLException e) {
+        return e.getErrorCode() == 439;
+    }
+
+    /**
+     * The database has no such feature or syntax (SQLSTATE 0A / 42000 /
+     * 42001); only meaningful for non-Oracle databases.
+     */
+    static boolean isUnsupported(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLFeatureNotSupportedException
+                || state != null && (state.startsWith("0A") || state.equals("42000") || state.equals("42001"));
+    }
+
+    static boolean isOracle(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().toLowerCase().contains("oracle");
+    }
+
+    private boolean isPartitioned(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_IS_PARTITIONED))) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private <T extends Statement> T track(T stmt) {
+        tracker.accept(stmt);
+        return stmt;
+    }
+}
@@ -0,0 +1,564 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CPS510 A9 – In-memory seat availability per showtime
+ *
+ * Mirrors the SeatMaps table so questions like "how many seats are free
+ * for showtime X", "which sections still have seats" or "find 4 seats
+ * together" are answered from memory in microseconds instead of a
+ * SeatMaps query.
+ *
+ * Layout:
+ *  - one VenueLayout per venue, built from SEATS: the venue's SeatIDs are
+ *    kept sorted and mapped to dense indexes (position in that array, by
+ *    binary search), with the section of each seat and the seats of each
+ *    row in seat-number order; sparse SeatIDs cost nothing extra
+ *  - one ShowtimeSeats per showtime: 2 bits of state per seat packed into
+ *    an AtomicLongArray (32 seats per long), plus the SeatMapID of each
+ *    seat and running AVAILABLE / HELD / SOLD counters
+ *
+ * State codes: 00 = no SeatMaps row, 01 = AVAILABLE, 10 = HELD, 11 = SOLD.
+ * Availability of a whole word is one mask operation, so per-section
+ * counts touch 1 long per 32 seats; totals are kept as counters.
+ *
+ * load() builds the inventory from the database; every write to SeatMaps
+ * must be reported through apply() so the two stay in sync. reload() and
+ * clear() swap the contents in place, so everyone holding this object
+ * (SeatReservationService, HoldExpiryScheduler) sees the new state.
+ * compareAndSet() gives lock-free seat transitions for reservations.
+ */
+public class SeatInventory {
+
+    public enum SeatStatus {
+        AVAILABLE(1), HELD(2), SOLD(3);
+
+        final int code;
+
+        SeatStatus(int code) {
+            this.code = code;
+        }
+
+        static SeatStatus fromCode(int code) {
+            switch (code) {
+                case 1: return AVAILABLE;
+                case 2: return HELD;
+                case 3: return SOLD;
+                default: return null;
+            }
+        }
+    }
+
+    // 01 in every 2-bit slot
+    private static final long LOW_BITS = 0x5555555555555555L;
+    private static final int SEATS_PER_WORD = 32;
+    private static final int FETCH_SIZE = 10_000;
+
+    // Replaced together by reload() / clear(), never mutated after that
+    private volatile Map<Integer, VenueLayout> venues = new ConcurrentHashMap<>();
+    private volatile Map<Integer, ShowtimeSeats> showtimes = new ConcurrentHashMap<>();
+
+    // ============== Loading ==============
+
+    /**
+     * Build the inventory from SEATS, SHOWTIMES and SEATMAPS.
+     */
+    public static SeatInventory load(Connection conn) throws SQLException {
+        SeatInventory inv = new SeatInventory();
+        inv.loadVenues(conn);
+        inv.loadShowtimes(conn);
+        inv.loadSeatMaps(conn);
+        return inv;
+    }
+
+    /**
+     * Load the tables again and switch to the result in one step; on an
+     * error the current contents are kept.
+     */
+    public void reload(Connection conn) throws SQLException {
+        SeatInventory fresh = load(conn);
+        venues = fresh.venues;
+        showtimes = fresh.showtimes;
+    }
+
+    private void loadVenues(Connection conn) throws SQLException {
+        String sql = "SELECT SeatID, VenueID, Section, RowLabel, SeatNumber FROM Seats ORDER BY VenueID, SeatID";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                VenueLayout.Builder b = null;
+                while (rs.next()) {
+                    int venueId = rs.getInt(2);
+                    if (b == null || b.venueId != venueId) {
+                        if (b != null) {
+                            venues.put(b.venueId, b.build());
+                        }
+                        b = new VenueLayout.Builder(venueId);
+                    }
+                    b.add(rs.getInt(1), rs.getString(3), rs.getString(4), rs.getString(5));
+                }
+                if (b != null) {
+                    venues.put(b.venueId, b.build());
+                }
+            }
+        }
+    }
+
+    private void loadShowtimes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery("SELECT ShowtimeID, VenueID FROM Showtimes")) {
+                while (rs.next()) {
+                    VenueLayout layout = venues.get(rs.getInt(2));
+                    if (layout != null) {
+                        int id = rs.getInt(1);
+                        showtimes.put(id, new ShowtimeSeats(id, layout));
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadSeatMaps(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT SeatMapID, ShowtimeID, SeatID, Status FROM SeatMaps")) {
+                while (rs.next()) {
+                    ShowtimeSeats st = showtimes.get(rs.getInt(2));
+                    if (st == null) {
+                        continue;
+                    }
+                    int idx = st.layout.indexOf(rs.getInt(3));
+                    if (idx >= 0) {
+                        st.seatMapIds[idx] = rs.getInt(1);
+                        st.set(idx, SeatStatus.valueOf(rs.getString(4).trim()));
+                    }
+                }
+            }
+        }
+    }
+
+    // ============== Keeping in sync ==============
+
+    /**
+     * Record a committed SeatMaps write (insert or status change).
+     * Returns false if the showtime or seat is unknown to the inventory.
+     */
+    public boolean apply(int showtimeId, int seatId, SeatStatus status) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return false;
+        }
+        int idx = st.layout.indexOf(seatId);
+        if (idx < 0) {
+            return false;
+        }
+        st.set(idx, status);
+        return true;
+    }
+
+    /**
+     * Atomically move one seat from expect to update. Only one of any
+     * number of concurrent callers can win a given transition.
+     */
+    public boolean compareAndSet(int showtimeId, int seatId, SeatStatus expect, SeatStatus update) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return false;
+        }
+        int idx = st.layout.indexOf(seatId);
+        return idx >= 0 && st.compareAndSet(idx, expect.code, update.code);
+    }
+
+    /**
+     * Forget everything (e.g. after Drop Tables).
+     */
+    public void clear() {
+        showtimes = new ConcurrentHashMap<>();
+        venues = new ConcurrentHashMap<>();
+    }
+
+    // ============== Queries ==============
+
+    public boolean hasShowtime(int showtimeId) {
+        return showtimes.containsKey(showtimeId);
+    }
+
+    public int showtimeCount() {
+        return showtimes.size();
+    }
+
+    public int[] showtimeIds() {
+        return showtimes.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    public int countAvailable(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        return st == null ? 0 : st.available.get();
+    }
+
+    public int countHeld(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        return st == null ? 0 : st.held.get();
+    }
+
+    public int countSold(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        return st == null ? 0 : st.sold.get();
+    }
+
+    /**
+     * Available seats in one section: popcount(available & sectionMask)
+     * per word.
+     */
+    public int countAvailable(int showtimeId, String section) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return 0;
+        }
+        int s = st.layout.sectionIndex(section);
+        if (s < 0) {
+            return 0;
+        }
+        long[] mask = st.layout.sectionMasks[s];
+        int count = 0;
+        for (int w = 0; w < mask.length; w++) {
+            if (mask[w] != 0) {
+                count += Long.bitCount(availableBits(st.words.get(w)) & mask[w]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Available-seat count per section, in section order.
+     */
+    public Map<String, Integer> availableBySection(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (String section : st.layout.sections) {
+            out.put(section, countAvailable(showtimeId, section));
+        }
+        return out;
+    }
+
+    public List<String> sections(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        return st == null ? Collections.<String>emptyList() : Arrays.asList(st.layout.sections);
+    }
+
+    /**
+     * SeatIDs that have a SeatMaps row for this showtime, row by row.
+     */
+    public int[] seatIds(int showtimeId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return new int[0];
+        }
+        int[] out = new int[st.layout.size];
+        int n = 0;
+        for (int[] row : st.layout.rows) {
+            for (int idx : row) {
+                if (st.get(idx) != 0) {
+                    out[n++] = st.layout.seatIds[idx];
+                }
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * SeatIDs for this showtime that are currently in the given state.
+     */
+    public int[] seatIds(int showtimeId, SeatStatus status) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return new int[0];
+        }
+        int[] out = new int[st.layout.size];
+        int n = 0;
+        for (int idx = 0; idx < st.layout.size; idx++) {
+            if (st.get(idx) == status.code) {
+                out[n++] = st.layout.seatIds[idx];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public SeatStatus statusOf(int showtimeId, int seatId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return null;
+        }
+        int idx = st.layout.indexOf(seatId);
+        return idx < 0 ? null : SeatStatus.fromCode(st.get(idx));
+    }
+
+    public int seatMapIdOf(int showtimeId, int seatId) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null) {
+            return -1;
+        }
+        int idx = st.layout.indexOf(seatId);
+        return idx < 0 || st.seatMapIds[idx] == 0 ? -1 : st.seatMapIds[idx];
+    }
+
+    /**
+     * First block of n adjacent AVAILABLE seats in one row (optionally
+     * restricted to a section). Returns their SeatIDs or null if none.
+     * This is a snapshot: a concurrent writer may take a seat afterwards.
+     */
+    public int[] findContiguous(int showtimeId, String section, int n) {
+        ShowtimeSeats st = showtimes.get(showtimeId);
+        if (st == null || n < 1) {
+            return null;
+        }
+        VenueLayout layout = st.layout;
+        int wanted = section == null ? -1 : layout.sectionIndex(section);
+        if (section != null && wanted < 0) {
+            return null;
+        }
+        for (int r = 0; r < layout.rows.length; r++) {
+            if (wanted >= 0 && layout.sectionOfRow[r] != wanted) {
+                continue;
+            }
+            int[] row = layout.rows[r];
+            if (row.length < n) {
+                continue;
+            }
+            int run = 0;
+            for (int i = 0; i < row.length; i++) {
+                if (st.get(row[i]) == SeatStatus.AVAILABLE.code) {
+                    if (++run == n) {
+                        int[] seatIds = new int[n];
+                        for (int k = 0; k < n; k++) {
+                            seatIds[k] = layout.seatIds[row[i - n + 1 + k]];
+                        }
+                        return seatIds;
+                    }
+                } else {
+                    run = 0;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * For each 2-bit slot, 1 in the low bit iff the slot is AVAILABLE (01).
+     */
+    static long availableBits(long word) {
+        return word & ~(word >>> 1) & LOW_BITS;
+    }
+
+    // ============== Venue layout ==============
+
+    /**
+     * Immutable seat layout of one venue, shared by all its showtimes.
+     */
+    static final class VenueLayout {
+        final int venueId;
+        final int[] seatIds;         // sorted; a seat's index is its position here
+        final int size;              // number of seats
+        final String[] sections;
+        final long[][] sectionMasks; // per section, 01 at each of its seats
+        final int[][] rows;          // seat indexes per row, in seat-number order
+        final int[] sectionOfRow;
+
+        private VenueLayout(int venueId, int[] seatIds, String[] sections,
+                            long[][] sectionMasks, int[][] rows, int[] sectionOfRow) {
+            this.venueId = venueId;
+            this.seatIds = seatIds;
+            this.size = seatIds.length;
+            this.sections = sections;
+            this.sectionMasks = sectionMasks;
+            this.rows = rows;
+            this.sectionOfRow = sectionOfRow;
+        }
+
+        int indexOf(int seatId) {
+            int idx = Arrays.binarySearch(seatIds, seatId);
+            return idx >= 0 ? idx : -1;
+        }
+
+        int sectionIndex(String section) {
+            for (int i = 0; i < sections.length; i++) {
+                if (sections[i].equalsIgnoreCase(section)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int words() {
+            return (size + SEATS_PER_WORD - 1) / SEATS_PER_WORD;
+        }
+
+        static final class Builder {
+            final int venueId;
+            private final List<int[]> seats = new ArrayList<>();     // {seatId, section, rowKey}
+            private final List<String> seatNumbers = new ArrayList<>();
+            private final Map<String, Integer> sectionIds = new LinkedHashMap<>();
+            private final Map<String, Integer> rowIds = new LinkedHashMap<>();
+            private final List<Integer> rowSection = new ArrayList<>();
+
+            Builder(int venueId) {
+                this.venueId = venueId;
+            }
+
+            void add(int seatId, String section, String rowLabel, String seatNumber) {
+                Integer s = sectionIds.get(section);
+                if (s == null) {
+                    s = sectionIds.size();
+                    sectionIds.put(section, s);
+                }
+                String rowKey = section + "\u0000" + rowLabel;
+                Integer r = rowIds.get(rowKey);
+                if (r == null) {
+                    r = rowIds.size();
+                    rowIds.put(rowKey, r);
+                    rowSection.add(s);
+                }
+                seats.add(new int[] { seatId, s, r });
+                seatNumbers.add(seatNumber);
+            }
+
+            VenueLayout build() {
+                int[] seatIds = new int[seats.size()];
+                for (int i = 0; i < seatIds.length; i++) {
+                    seatIds[i] = seats.get(i)[0];
+                }
+                Arrays.sort(seatIds);
+                int words = (seatIds.length + SEATS_PER_WORD - 1) / SEATS_PER_WORD;
+
+                long[][] masks = new long[sectionIds.size()][words];
+                List<List<Integer>> rowSeats = new ArrayList<>();
+                for (int i = 0; i < rowIds.size(); i++) {
+                    rowSeats.add(new ArrayList<>());
+                }
+                String[] numberOf = new String[seatIds.length];
+                for (int i = 0; i < seats.size(); i++) {
+                    int[] seat = seats.get(i);
+                    int idx = Arrays.binarySearch(seatIds, seat[0]);
+                    masks[seat[1]][idx / SEATS_PER_WORD] |= 1L << (2 * (idx % SEATS_PER_WORD));
+                    rowSeats.get(seat[2]).add(idx);
+                    numberOf[idx] = seatNumbers.get(i);
+                }
+
+                int[][] rows = new int[rowSeats.size()][];
+                for (int r = 0; r < rows.length; r++) {
+                    List<Integer> list = rowSeats.get(r);
+                    list.sort((a, b) -> compareSeatNumbers(numberOf[a], numberOf[b]));
+                    rows[r] = list.stream().mapToInt(Integer::intValue).toArray();
+                }
+                int[] sectionOfRow = rowSection.stream().mapToInt(Integer::intValue).toArray();
+                String[] sectionNames = sectionIds.keySet().toArray(new String[0]);
+
+                return new VenueLayout(venueId, seatIds, sectionNames, masks, rows, sectionOfRow);
+            }
+
+            /** Numeric seat numbers sort numerically ("2" before "10"). */
+            private static int compareSeatNumbers(String a, String b) {
+                try {
+                    return Integer.compare(Integer.parseInt(a.trim()), Integer.parseInt(b.trim()));
+                } catch (NumberFormatException e) {
+                    return a.compareTo(b);
+                }
+            }
+        }
+    }
+
+    // ============== Per-showtime state ==============
+
+    /**
+     * Seat states of one showtime, 2 bits per seat.
+     */
+    static final class ShowtimeSeats {
+        final int showtimeId;
+        final VenueLayout layout;
+        final AtomicLongArray words;
+        final int[] seatMapIds;
+        final AtomicInteger available = new AtomicInteger();
+        final AtomicInteger held = new AtomicInteger();
+        final AtomicInteger sold = new AtomicInteger();
+
+        ShowtimeSeats(int showtimeId, VenueLayout layout) {
+            this.showtimeId = showtimeId;
+            this.layout = layout;
+            this.words = new AtomicLongArray(layout.words());
+            this.seatMapIds = new int[layout.size];
+        }
+
+        int get(int idx) {
+            long w = words.get(idx / SEATS_PER_WORD);
+            return (int) (w >>> (2 * (idx % SEATS_PER_WORD))) & 3;
+        }
+
+        /**
+         * Unconditionally set a seat's state (lock-free CAS loop on its word).
+         */
+        void set(int idx, SeatStatus status) {
+            int w = idx / SEATS_PER_WORD;
+            int shift = 2 * (idx % SEATS_PER_WORD);
+            long prev;
+            long next;
+            do {
+                prev = words.get(w);
+                next = (prev & ~(3L << shift)) | ((long) status.code << shift);
+            } while (!words.compareAndSet(w, prev, next));
+            adjustCounters((int) (prev >>> shift) & 3, status.code);
+        }
+
+        /**
+         * Change a seat's state only if it currently is expectCode.
+         */
+        boolean compareAndSet(int idx, int expectCode, int newCode) {
+            int w = idx / SEATS_PER_WORD;
+            int shift = 2 * (idx % SEATS_PER_WORD);
+            while (true) {
+                long prev = words.get(w);
+                if (((int) (prev >>> shift) & 3) != expectCode) {
+                    return false;
+                }
+                long next = (prev & ~(3L << shift)) | ((long) newCode << shift);
+                if (words.compareAndSet(w, prev, next)) {
+                    adjustCounters(expectCode, newCode);
+                    return true;
+                }
+                // another seat in the same word changed; retry
+            }
+        }
+
+        void adjustCounters(int oldCode, int newCode) {
+            if (oldCode == newCode) {
+                return;
+            }
+            counter(oldCode, -1);
+            counter(newCode, +1);
+        }
+
+        private void counter(int code, int delta) {
+            switch (code) {
+                case 1: available.addAndGet(delta); break;
+                case 2: held.addAndGet(delta); break;
+                case 3: sold.addAndGet(delta); break;
+                default: break;
+            }
+        }
+    }
+}
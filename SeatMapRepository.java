@@ -0,0 +1,55 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * CPS510 A9 – SEATS / SHOWTIMES / SEATMAPS data access
+ *
+ * Owns the in-memory SeatInventory that seat availability is answered
+ * from, and reloads or resets it when the schema or data change. Seat
+ * holds and sales go through SeatReservationService, which writes
+ * SEATMAPS and this same inventory: it is reloaded in place, never
+ * replaced, so services built on inventory() stay attached to it.
+ */
+public class SeatMapRepository extends Repository {
+
+    private final SeatInventory inventory = new SeatInventory();
+
+    public SeatMapRepository(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    public SeatMapRepository(ConnectionPool pool, Executor executor) {
+        super(pool, executor);
+    }
+
+    public SeatInventory inventory() {
+        return inventory;
+    }
+
+    /**
+     * Rebuild the inventory from the database. If that fails (e.g. no
+     * tables yet) the inventory is left empty.
+     */
+    public SeatInventory reload(Connection conn) throws SQLException {
+        try {
+            inventory.reload(conn);
+            return inventory;
+        } catch (SQLException e) {
+            inventory.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * The seat tables were dropped or re-created: nothing is loaded.
+     */
+    public void schemaReset() {
+        inventory.clear();
+    }
+
+    public CompletableFuture<SeatInventory> reloadAsync() {
+        return async(this::reload);
+    }
+}
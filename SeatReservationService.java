@@ -0,0 +1,446 @@
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Seat reservation (hold -> sell -> release)
+ *
+ * Seat transitions use optimistic concurrency twice, with no global lock:
+ *
+ *  1) In memory: SeatInventory.compareAndSet() on the seat's packed state.
+ *     Of many buyers racing for one seat, exactly one wins; the others
+ *     fail without touching the database.
+ *  2) In the database: a conditional update per seat,
+ *       UPDATE SeatMaps SET Status = ? WHERE SeatMapID = ? AND Status = ?
+ *     which is the final arbiter across app instances. An update count
+ *     of 0 means someone else changed the row first.
+ *
+ * Every hold gets a random hold token, recorded in memory and in
+ * SeatMaps.HoldToken. Selling or releasing HELD seats (and checkout)
+ * needs that token: the memory check and the update's WHERE clause
+ * both compare it, so one buyer cannot buy or cancel another's hold.
+ *
+ * Multi-seat requests are all-or-nothing: on any conflict the database
+ * transaction is rolled back and the in-memory CAS steps are undone.
+ * Rows are always updated in ascending SeatMapID order, so two requests
+ * overlapping on several seats lock them in the same order and cannot
+ * deadlock.
+ *
+ * With a HoldExpiryScheduler attached, every hold gets a TTL and is
+ * released automatically if it is neither sold nor released in time.
+ * With a SummaryRepository attached, the showtime / event seat counters
+ * are moved in the same transaction as the seats.
+ */
+public class SeatReservationService {
+
+    /** hold() returns this when the seats could not be held. */
+    public static final long NO_HOLD = 0L;
+
+    static final String SQL_TRANSITION =
+            "UPDATE SeatMaps SET Status = ?, HoldToken = ? WHERE SeatMapID = ? AND Status = ?";
+    static final String SQL_LEAVE_HOLD =
+            "UPDATE SeatMaps SET Status = ?, HoldToken = NULL " +
+            "WHERE SeatMapID = ? AND Status = 'HELD' AND HoldToken = ?";
+    static final String SQL_STATUS =
+            "SELECT Status FROM SeatMaps WHERE SeatMapID = ?";
+
+    private final ConnectionPool pool;
+    private final SeatInventory inventory;
+    private volatile HoldExpiryScheduler holdExpiry;
+    private volatile long holdTtlMs;
+    private volatile SummaryRepository summaries;
+    private final SecureRandom random = new SecureRandom();
+
+    // (showtimeId, seatId) -> token of the hold that owns the seat. An
+    // expired hold's entry stays until the seat is held again; it can no
+    // longer match, since the seat is not HELD under that token.
+    private final Map<Long, Long> holdTokens = new ConcurrentHashMap<>();
+
+    // ---- metrics ----
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong memoryConflicts = new AtomicLong();
+    private final AtomicLong databaseConflicts = new AtomicLong();
+    private final AtomicLong tokenMismatches = new AtomicLong();
+
+    public SeatReservationService(ConnectionPool pool, SeatInventory inventory) {
+        this.pool = pool;
+        this.inventory = inventory;
+    }
+
+    public SeatInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Expire holds after ttlMs (null disables expiry).
+     */
+    public void setHoldExpiry(HoldExpiryScheduler scheduler, long ttlMs) {
+        this.holdExpiry = scheduler;
+        this.holdTtlMs = ttlMs;
+    }
+
+    /**
+     * Keep the summary counters in step with every transition (null
+     * stops maintaining them).
+     */
+    public void setSummaries(SummaryRepository summaries) {
+        this.summaries = summaries;
+    }
+
+    public SummaryRepository getSummaries() {
+        return summaries;
+    }
+
+    // ============== Public API ==============
+
+    /**
+     * AVAILABLE -> HELD for all seats, or none. Returns the hold token that
+     * sell(), release() and checkout need, or NO_HOLD.
+     */
+    public long hold(int showtimeId, int... seatIds) throws SQLException {
+        long token = newHoldToken();
+        if (!transition(showtimeId, seatIds,
+                SeatInventory.SeatStatus.AVAILABLE, SeatInventory.SeatStatus.HELD, token)) {
+            return NO_HOLD;
+        }
+        HoldExpiryScheduler expiry = holdExpiry;
+        if (expiry != null) {
+            expiry.schedule(showtimeId, seatIds, holdTtlMs, token);
+        }
+        return token;
+    }
+
+    /** HELD (under holdToken) -> SOLD for all seats, or none. */
+    public boolean sell(long holdToken, int showtimeId, int... seatIds) throws SQLException {
+        return leaveHeld(holdToken, showtimeId, seatIds, SeatInventory.SeatStatus.SOLD);
+    }
+
+    /** HELD (under holdToken) -> AVAILABLE for all seats, or none. */
+    public boolean release(long holdToken, int showtimeId, int... seatIds) throws SQLException {
+        return leaveHeld(holdToken, showtimeId, seatIds, SeatInventory.SeatStatus.AVAILABLE);
+    }
+
+    /**
+     * True if every seat is HELD in memory under holdToken.
+     */
+    public boolean isHeldBy(long holdToken, int showtimeId, int[] seatIds) {
+        for (int seatId : seatIds) {
+            Long owner = holdTokens.get(key(showtimeId, seatId));
+            if (owner == null || owner != holdToken
+                    || inventory.statusOf(showtimeId, seatId) != SeatInventory.SeatStatus.HELD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The seats of a hold were sold or released and committed (by this
+     * service or by checkout): stop their expiry timers.
+     */
+    public void holdEnded(long holdToken, int showtimeId, int[] seatIds) {
+        HoldExpiryScheduler expiry = holdExpiry;
+        if (expiry != null) {
+            expiry.cancel(showtimeId, seatIds, holdToken);
+        }
+    }
+
+    private boolean leaveHeld(long holdToken, int showtimeId, int[] seatIds,
+                              SeatInventory.SeatStatus to) throws SQLException {
+        boolean ok = transition(showtimeId, seatIds, SeatInventory.SeatStatus.HELD, to, holdToken);
+        if (ok) {
+            holdEnded(holdToken, showtimeId, seatIds);
+        }
+        return ok;
+    }
+
+    /**
+     * Run one transition in its own transaction on a pooled connection.
+     * holdToken is the token a hold is given (to HELD) or must carry
+     * (from HELD).
+     */
+    public boolean transition(int showtimeId, int[] seatIds, SeatInventory.SeatStatus from,
+                              SeatInventory.SeatStatus to, long holdToken) throws SQLException {
+        // Losing buyers fail here without borrowing a connection
+        for (int seatId : seatIds) {
+            if (inventory.statusOf(showtimeId, seatId) != from) {
+                attempts.incrementAndGet();
+                memoryConflicts.incrementAndGet();
+                return false;
+            }
+        }
+        if (from == SeatInventory.SeatStatus.HELD && !isHeldBy(holdToken, showtimeId, seatIds)) {
+            attempts.incrementAndGet();
+            tokenMismatches.incrementAndGet();
+            return false;
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            boolean ok = false;
+            try {
+                ok = transitionInTransaction(conn, showtimeId, seatIds, from, to, holdToken);
+                SummaryRepository counters = summaries;
+                if (ok && counters != null) {
+                    counters.apply(conn, new SummaryRepository.Delta()
+                            .seats(showtimeId, from, to, seatIds.length));
+                }
+                if (ok) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                if (ok) {
+                    revert(showtimeId, seatIds, from, to, holdToken);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return ok;
+        }
+    }
+
+    /**
+     * Claim the seats in memory and apply the conditional updates on the
+     * caller's connection without committing, so the seat change can
+     * share a transaction with other writes (e.g. checkout).
+     *
+     * Leaving HELD needs the hold's token, which is checked in memory and
+     * in the update; entering HELD records holdToken as the new owner.
+     *
+     * Returns false on a conflict; memory is already restored then and
+     * the caller must roll back. If the caller rolls back after a true
+     * result, it must call revert(). Summary counters are not touched:
+     * the caller adds the seat change to its own Delta.
+     */
+    public boolean transitionInTransaction(Connection conn, int showtimeId, int[] seatIds,
+                                           SeatInventory.SeatStatus from, SeatInventory.SeatStatus to,
+                                           long holdToken) throws SQLException {
+        attempts.incrementAndGet();
+        if (from == SeatInventory.SeatStatus.HELD && !isHeldBy(holdToken, showtimeId, seatIds)) {
+            tokenMismatches.incrementAndGet();
+            return false;
+        }
+        int[] seats = seatIds.clone();
+        int[] seatMapIds = new int[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            seatMapIds[i] = inventory.seatMapIdOf(showtimeId, seats[i]);
+            if (seatMapIds[i] < 0) {
+                memoryConflicts.incrementAndGet();
+                return false;
+            }
+        }
+        sortBySeatMapId(seats, seatMapIds);
+
+        // 1) In-memory CAS, all or nothing
+        for (int i = 0; i < seats.length; i++) {
+            if (!inventory.compareAndSet(showtimeId, seats[i], from, to)) {
+                undo(showtimeId, seats, i, from, to, holdToken);
+                memoryConflicts.incrementAndGet();
+                return false;
+            }
+            moveToken(showtimeId, seats[i], from, to, holdToken);
+        }
+
+        // 2) Conditional updates in SeatMapID order
+        int conflict;
+        try {
+            conflict = applyConditionalUpdates(conn, seatMapIds, from, to, holdToken);
+        } catch (SQLException | RuntimeException e) {
+            undo(showtimeId, seats, seats.length, from, to, holdToken);
+            throw e;
+        }
+        if (conflict >= 0) {
+            undo(showtimeId, seats, seats.length, from, to, holdToken);
+            databaseConflicts.incrementAndGet();
+            // Any seat of the batch may be stale (e.g. an expired hold was
+            // released while this ran), not just the conflicting one
+            for (int i = 0; i < seats.length; i++) {
+                refreshFromDatabase(conn, showtimeId, seats[i], seatMapIds[i]);
+            }
+            return false;
+        }
+        successes.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Undo a successful transitionInTransaction() whose transaction was
+     * rolled back by the caller.
+     */
+    public void revert(int showtimeId, int[] seatIds, SeatInventory.SeatStatus from,
+                       SeatInventory.SeatStatus to, long holdToken) {
+        undo(showtimeId, seatIds, seatIds.length, from, to, holdToken);
+    }
+
+    // ============== Internals ==============
+
+    /**
+     * Returns the index of the first seat whose row was not in the
+     * expected state, or -1 if every update hit exactly one row. On a
+     * conflict the batch's own updates are already rolled back, so the
+     * rows read back their committed state.
+     */
+    private int applyConditionalUpdates(Connection conn, int[] seatMapIds, SeatInventory.SeatStatus from,
+                                        SeatInventory.SeatStatus to, long holdToken) throws SQLException {
+        String sql = from == SeatInventory.SeatStatus.HELD ? SQL_LEAVE_HOLD : SQL_TRANSITION;
+        if (seatMapIds.length == 1) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                bind(ps, seatMapIds[0], from, to, holdToken);
+                return ps.executeUpdate() == 1 ? -1 : 0;
+            }
+        }
+
+        // Savepoint, not a full rollback: the caller's transaction may hold other writes
+        Savepoint beforeBatch = conn.setSavepoint();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int id : seatMapIds) {
+                bind(ps, id, from, to, holdToken);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            boolean exact = true;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    exact = false;
+                } else if (counts[i] != 1) {
+                    conn.rollback(beforeBatch);
+                    return i;
+                }
+            }
+            if (exact) {
+                return -1;
+            }
+        }
+
+        // Driver gave no per-row counts: undo the batch and redo row by row
+        conn.rollback(beforeBatch);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < seatMapIds.length; i++) {
+                bind(ps, seatMapIds[i], from, to, holdToken);
+                if (ps.executeUpdate() != 1) {
+                    conn.rollback(beforeBatch);
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void bind(PreparedStatement ps, int seatMapId, SeatInventory.SeatStatus from,
+                             SeatInventory.SeatStatus to, long holdToken) throws SQLException {
+        ps.setString(1, to.name());
+        if (from == SeatInventory.SeatStatus.HELD) {
+            // SQL_LEAVE_HOLD
+            ps.setInt(2, seatMapId);
+            ps.setLong(3, holdToken);
+            return;
+        }
+        if (to == SeatInventory.SeatStatus.HELD) {
+            ps.setLong(2, holdToken);
+        } else {
+            ps.setNull(2, Types.NUMERIC);
+        }
+        ps.setInt(3, seatMapId);
+        ps.setString(4, from.name());
+    }
+
+    /**
+     * Undo the first n in-memory transitions (to -> from).
+     */
+    private void undo(int showtimeId, int[] seats, int n, SeatInventory.SeatStatus from,
+                      SeatInventory.SeatStatus to, long holdToken) {
+        for (int i = 0; i < n; i++) {
+            if (inventory.compareAndSet(showtimeId, seats[i], to, from)) {
+                moveToken(showtimeId, seats[i], to, from, holdToken);
+            }
+        }
+    }
+
+    /**
+     * Keep holdTokens in step with a seat's memory transition.
+     */
+    private void moveToken(int showtimeId, int seatId, SeatInventory.SeatStatus from,
+                           SeatInventory.SeatStatus to, long holdToken) {
+        if (to == SeatInventory.SeatStatus.HELD) {
+            holdTokens.put(key(showtimeId, seatId), holdToken);
+        } else if (from == SeatInventory.SeatStatus.HELD) {
+            holdTokens.remove(key(showtimeId, seatId), holdToken);
+        }
+    }
+
+    /**
+     * A random, positive token; unguessable, so it also works across app
+     * instances sharing the database.
+     */
+    private long newHoldToken() {
+        long token;
+        do {
+            token = random.nextLong() & Long.MAX_VALUE;
+        } while (token == NO_HOLD);
+        return token;
+    }
+
+    private static long key(int showtimeId, int seatId) {
+        return ((long) showtimeId << 32) | (seatId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Another app instance changed the row; copy its committed state into
+     * memory so later requests fail fast in step 1.
+     */
+    private void refreshFromDatabase(Connection conn, int showtimeId, int seatId, int seatMapId) {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_STATUS)) {
+            ps.setInt(1, seatMapId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    inventory.apply(showtimeId, seatId,
+                            SeatInventory.SeatStatus.valueOf(rs.getString(1).trim()));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            // best effort; the conditional update still protects correctness
+        }
+    }
+
+    private static void sortBySeatMapId(int[] seats, int[] seatMapIds) {
+        long[] pairs = new long[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            pairs[i] = ((long) seatMapIds[i] << 32) | (seats[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(pairs);
+        for (int i = 0; i < pairs.length; i++) {
+            seatMapIds[i] = (int) (pairs[i] >>> 32);
+            seats[i] = (int) pairs[i];
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getAttempts()          { return attempts.get(); }
+    public long getSuccesses()         { return successes.get(); }
+    public long getMemoryConflicts()   { return memoryConflicts.get(); }
+    public long getDatabaseConflicts() { return databaseConflicts.get(); }
+    public long getTokenMismatches()   { return tokenMismatches.get(); }
+
+    public String stats() {
+        return "reservations: attempts=" + attempts.get() + " ok=" + successes.get()
+                + " memoryConflicts=" + memoryConflicts.get()
+                + " dbConflicts=" + databaseConflicts.get()
+                + " tokenMismatches=" + tokenMismatches.get();
+    }
+}
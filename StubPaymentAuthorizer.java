@@ -0,0 +1,56 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Local stand-in for the payment gateway
+ *
+ * Approves every request (or a configurable fraction) after an optional
+ * simulated network latency, and hands out unique auth codes. Used by the
+ * benchmarks and for running checkout without a real provider.
+ */
+public class StubPaymentAuthorizer implements PaymentAuthorizer {
+
+    private final long latencyMs;
+    private final double declineRate;
+    private final AtomicLong nextCode = new AtomicLong(1);
+    private final AtomicLong approvals = new AtomicLong();
+    private final AtomicLong declines = new AtomicLong();
+    private final AtomicLong voids = new AtomicLong();
+
+    public StubPaymentAuthorizer() {
+        this(0, 0.0);
+    }
+
+    public StubPaymentAuthorizer(long latencyMs, double declineRate) {
+        this.latencyMs = latencyMs;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public Authorization authorize(long orderId, int userId, long amountCents, String method)
+            throws InterruptedException {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        if (amountCents <= 0) {
+            declines.incrementAndGet();
+            return Authorization.declined("invalid amount");
+        }
+        if (declineRate > 0 && ThreadLocalRandom.current().nextDouble() < declineRate) {
+            declines.incrementAndGet();
+            return Authorization.declined("card declined");
+        }
+        approvals.incrementAndGet();
+        return Authorization.approved(String.format("STUB%012X", nextCode.getAndIncrement()));
+    }
+
+    @Override
+    public void voidAuthorization(String authCode) {
+        voids.incrementAndGet();
+    }
+
+    public String stats() {
+        return "stub gateway: approved=" + approvals.get() + " declined=" + declines.get()
+                + " voided=" + voids.get();
+    }
+}
@@ -0,0 +1,531 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPS510 A9 – Materialized availability / sales counters
+ *
+ * SHOWTIMESUMMARY and EVENTSUMMARY hold, per showtime and per event, the
+ * AVAILABLE / HELD / SOLD seat counts and the tickets sold and gross
+ * revenue, so "seats left" or "tickets sold" is one primary-key read
+ * instead of a GROUP BY over SEATMAPS and TICKETS.
+ *
+ *  - Counters move by deltas written in the same transaction as the seat
+ *    or ticket change (SeatReservationService, CheckoutService,
+ *    HoldExpiryScheduler), so they commit or roll back together with it.
+ *    Summary rows are updated after the seat rows, showtimes before
+ *    events and in ascending ID order, so writers cannot deadlock on
+ *    them.
+ *  - A missing summary row reads as all zeros. If a delta finds no row,
+ *    the row is computed from SEATMAPS / TICKETS inside the same
+ *    transaction and inserted instead.
+ *  - Bulk loads bypass the deltas and are followed by rebuild(), which
+ *    recomputes both tables from scratch in one transaction.
+ *  - reconcile() compares every stored row with a fresh aggregate in one
+ *    statement per table (one consistent snapshot) and lists the rows
+ *    that differ; with repair it rebuilds and checks again.
+ */
+public class SummaryRepository extends Repository {
+
+    private static final int AVAILABLE = 0;
+    private static final int HELD = 1;
+    private static final int SOLD = 2;
+    private static final int TICKETS = 3;
+    private static final int REVENUE_CENTS = 4;
+
+    // Per-showtime counters computed from the base tables
+    static final String SQL_COMPUTED_BY_SHOWTIME =
+            "SELECT s.ShowtimeID, s.EventID, " +
+            "       NVL(m.Available, 0) AS Available, NVL(m.Held, 0) AS Held, NVL(m.Sold, 0) AS Sold, " +
+            "       NVL(t.Tickets, 0) AS Tickets, NVL(t.Revenue, 0) AS Revenue " +
+            "FROM Showtimes s " +
+            "LEFT JOIN (SELECT ShowtimeID, " +
+            "                  SUM(CASE WHEN Status = 'AVAILABLE' THEN 1 ELSE 0 END) AS Available, " +
+            "                  SUM(CASE WHEN Status = 'HELD' THEN 1 ELSE 0 END) AS Held, " +
+            "                  SUM(CASE WHEN Status = 'SOLD' THEN 1 ELSE 0 END) AS Sold " +
+            "           FROM SeatMaps GROUP BY ShowtimeID) m ON m.ShowtimeID = s.ShowtimeID " +
+            "LEFT JOIN (SELECT ShowtimeID, COUNT(*) AS Tickets, SUM(TicketPrice) AS Revenue " +
+            "           FROM Tickets GROUP BY ShowtimeID) t ON t.ShowtimeID = s.ShowtimeID";
+    static final String SQL_COMPUTED_BY_EVENT =
+            "SELECT e.EventID, " +
+            "       NVL(SUM(c.Available), 0) AS Available, NVL(SUM(c.Held), 0) AS Held, " +
+            "       NVL(SUM(c.Sold), 0) AS Sold, NVL(SUM(c.Tickets), 0) AS Tickets, " +
+            "       NVL(SUM(c.Revenue), 0) AS Revenue " +
+            "FROM Events e LEFT JOIN (" + SQL_COMPUTED_BY_SHOWTIME + ") c ON c.EventID = e.EventID " +
+            "GROUP BY e.EventID";
+
+    // Deltas
+    static final String SQL_DELTA_SHOWTIME =
+            "UPDATE ShowtimeSummary SET SeatsAvailable = SeatsAvailable + ?, SeatsHeld = SeatsHeld + ?, " +
+            "SeatsSold = SeatsSold + ?, TicketsSold = TicketsSold + ?, GrossRevenue = GrossRevenue + ? " +
+            "WHERE ShowtimeID = ?";
+    static final String SQL_DELTA_EVENT =
+            "UPDATE EventSummary SET SeatsAvailable = SeatsAvailable + ?, SeatsHeld = SeatsHeld + ?, " +
+            "SeatsSold = SeatsSold + ?, TicketsSold = TicketsSold + ?, GrossRevenue = GrossRevenue + ? " +
+            "WHERE EventID = ?";
+    static final String SQL_DELTA_EVENT_OF_SHOWTIME =
+            "UPDATE EventSummary SET SeatsAvailable = SeatsAvailable + ?, SeatsHeld = SeatsHeld + ?, " +
+            "SeatsSold = SeatsSold + ?, TicketsSold = TicketsSold + ?, GrossRevenue = GrossRevenue + ? " +
+            "WHERE EventID = (SELECT EventID FROM Showtimes WHERE ShowtimeID = ?)";
+    static final String SQL_EVENT_OF_SHOWTIME =
+            "SELECT EventID FROM Showtimes WHERE ShowtimeID = ?";
+
+    // Missing rows, computed inside the writer's transaction
+    static final String SQL_INSERT_SHOWTIME =
+            "INSERT INTO ShowtimeSummary " +
+            "(ShowtimeID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue) " +
+            "SELECT ShowtimeID, Available, Held, Sold, Tickets, Revenue " +
+            "FROM (" + SQL_COMPUTED_BY_SHOWTIME + ") c WHERE c.ShowtimeID = ?";
+    static final String SQL_INSERT_EVENT =
+            "INSERT INTO EventSummary " +
+            "(EventID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue) " +
+            "SELECT EventID, Available, Held, Sold, Tickets, Revenue " +
+            "FROM (" + SQL_COMPUTED_BY_EVENT + ") c WHERE c.EventID = ?";
+
+    // Rebuild
+    static final String SQL_REBUILD_SHOWTIMES =
+            "INSERT INTO ShowtimeSummary " +
+            "(ShowtimeID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue) " +
+            "SELECT ShowtimeID, Available, Held, Sold, Tickets, Revenue " +
+            "FROM (" + SQL_COMPUTED_BY_SHOWTIME + ") c";
+    static final String SQL_REBUILD_EVENTS =
+            "INSERT INTO EventSummary " +
+            "(EventID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue) " +
+            "SELECT EventID, Available, Held, Sold, Tickets, Revenue " +
+            "FROM (" + SQL_COMPUTED_BY_EVENT + ") c";
+
+    // Reconciliation: rows whose stored counters differ from the computed
+    // ones (a missing row counts as zeros), plus rows of deleted showtimes
+    // / events
+    static final String SQL_DIFF_SHOWTIMES =
+            "SELECT c.ShowtimeID, c.Available, c.Held, c.Sold, c.Tickets, c.Revenue, " +
+            "       NVL(x.SeatsAvailable, 0), NVL(x.SeatsHeld, 0), NVL(x.SeatsSold, 0), " +
+            "       NVL(x.TicketsSold, 0), NVL(x.GrossRevenue, 0) " +
+            "FROM (" + SQL_COMPUTED_BY_SHOWTIME + ") c " +
+            "LEFT JOIN ShowtimeSummary x ON x.ShowtimeID = c.ShowtimeID " +
+            "WHERE NVL(x.SeatsAvailable, 0) <> c.Available OR NVL(x.SeatsHeld, 0) <> c.Held " +
+            "   OR NVL(x.SeatsSold, 0) <> c.Sold OR NVL(x.TicketsSold, 0) <> c.Tickets " +
+            "   OR NVL(x.GrossRevenue, 0) <> c.Revenue " +
+            "UNION ALL " +
+            "SELECT x.ShowtimeID, 0, 0, 0, 0, 0, " +
+            "       x.SeatsAvailable, x.SeatsHeld, x.SeatsSold, x.TicketsSold, x.GrossRevenue " +
+            "FROM ShowtimeSummary x " +
+            "WHERE NOT EXISTS (SELECT 1 FROM Showtimes s WHERE s.ShowtimeID = x.ShowtimeID)";
+    static final String SQL_DIFF_EVENTS =
+            "SELECT c.EventID, c.Available, c.Held, c.Sold, c.Tickets, c.Revenue, " +
+            "       NVL(x.SeatsAvailable, 0), NVL(x.SeatsHeld, 0), NVL(x.SeatsSold, 0), " +
+            "       NVL(x.TicketsSold, 0), NVL(x.GrossRevenue, 0) " +
+            "FROM (" + SQL_COMPUTED_BY_EVENT + ") c " +
+            "LEFT JOIN EventSummary x ON x.EventID = c.EventID " +
+            "WHERE NVL(x.SeatsAvailable, 0) <> c.Available OR NVL(x.SeatsHeld, 0) <> c.Held " +
+            "   OR NVL(x.SeatsSold, 0) <> c.Sold OR NVL(x.TicketsSold, 0) <> c.Tickets " +
+            "   OR NVL(x.GrossRevenue, 0) <> c.Revenue " +
+            "UNION ALL " +
+            "SELECT x.EventID, 0, 0, 0, 0, 0, " +
+            "       x.SeatsAvailable, x.SeatsHeld, x.SeatsSold, x.TicketsSold, x.GrossRevenue " +
+            "FROM EventSummary x " +
+            "WHERE NOT EXISTS (SELECT 1 FROM Events e WHERE e.EventID = x.EventID)";
+
+    // Reads
+    static final String SQL_SHOWTIME =
+            "SELECT ShowtimeID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue " +
+            "FROM ShowtimeSummary WHERE ShowtimeID = ?";
+    static final String SQL_EVENT =
+            "SELECT EventID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue " +
+            "FROM EventSummary WHERE EventID = ?";
+    static final String SQL_TOP_EVENTS =
+            "SELECT EventID, SeatsAvailable, SeatsHeld, SeatsSold, TicketsSold, GrossRevenue " +
+            "FROM EventSummary ORDER BY GrossRevenue DESC, EventID FETCH FIRST ? ROWS ONLY";
+
+    // ============== Counters / deltas / reconciliation results ==============
+
+    /**
+     * The counters of one showtime or event.
+     */
+    public static final class Counters {
+        public final int id;
+        public final long available;
+        public final long held;
+        public final long sold;
+        public final long tickets;
+        public final long revenueCents;
+
+        Counters(int id, long available, long held, long sold, long tickets, long revenueCents) {
+            this.id = id;
+            this.available = available;
+            this.held = held;
+            this.sold = sold;
+            this.tickets = tickets;
+            this.revenueCents = revenueCents;
+        }
+
+        public long seats() {
+            return available + held + sold;
+        }
+
+        public double sellThrough() {
+            long seats = seats();
+            return seats == 0 ? 0.0 : (double) sold / seats;
+        }
+
+        boolean sameAs(Counters o) {
+            return available == o.available && held == o.held && sold == o.sold
+                    && tickets == o.tickets && revenueCents == o.revenueCents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d | %d available, %d held, %d/%d sold (%.1f%%) | %d ticket(s) | %.2f",
+                    id, available, held, sold, seats(), sellThrough() * 100, tickets, revenueCents / 100.0);
+        }
+    }
+
+    /**
+     * Counter changes of one transaction, per showtime. Build it while
+     * changing seats / tickets, then apply() it before committing.
+     */
+    public static final class Delta {
+        private final TreeMap<Integer, long[]> byShowtime = new TreeMap<>();
+
+        /** n seats of showtimeId moved from -> to. */
+        public Delta seats(int showtimeId, SeatInventory.SeatStatus from, SeatInventory.SeatStatus to, int n) {
+            long[] d = of(showtimeId);
+            d[column(from)] -= n;
+            d[column(to)] += n;
+            return this;
+        }
+
+        /** n tickets worth revenueCents in total were issued for showtimeId. */
+        public Delta tickets(int showtimeId, int n, long revenueCents) {
+            long[] d = of(showtimeId);
+            d[TICKETS] += n;
+            d[REVENUE_CENTS] += revenueCents;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return byShowtime.isEmpty();
+        }
+
+        private long[] of(int showtimeId) {
+            return byShowtime.computeIfAbsent(showtimeId, id -> new long[5]);
+        }
+
+        private static int column(SeatInventory.SeatStatus status) {
+            switch (status) {
+                case AVAILABLE: return AVAILABLE;
+                case HELD:      return HELD;
+                default:        return SOLD;
+            }
+        }
+    }
+
+    /**
+     * One stored row that does not match the base tables.
+     */
+    public static final class Mismatch {
+        public final String level; // "showtime" or "event"
+        public final Counters expected;
+        public final Counters stored;
+
+        Mismatch(String level, Counters expected, Counters stored) {
+            this.level = level;
+            this.expected = expected;
+            this.stored = stored;
+        }
+
+        @Override
+        public String toString() {
+            return level + " " + expected.id + ": expected [" + expected + "] stored [" + stored + "]";
+        }
+    }
+
+    /**
+     * What reconcile() found, and whether a rebuild fixed it.
+     */
+    public static final class Reconciliation {
+        public final List<Mismatch> mismatches;
+        public final boolean rebuilt;
+        public final int mismatchesAfterRebuild;
+        public final double millis;
+
+        Reconciliation(List<Mismatch> mismatches, boolean rebuilt, int mismatchesAfterRebuild, double millis) {
+            this.mismatches = Collections.unmodifiableList(mismatches);
+            this.rebuilt = rebuilt;
+            this.mismatchesAfterRebuild = mismatchesAfterRebuild;
+            this.millis = millis;
+        }
+
+        /** True if the counters match the base tables now. */
+        public boolean matches() {
+            return rebuilt ? mismatchesAfterRebuild == 0 : mismatches.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            String s = mismatches.size() + " mismatch(es)";
+            if (rebuilt) {
+                s += ", rebuilt, " + mismatchesAfterRebuild + " after rebuild";
+            }
+            return s + String.format(" in %.1f ms - %s", millis, matches() ? "counters match" : "COUNTERS DIFFER");
+        }
+    }
+
+    // ---- metrics ----
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong mismatchesFound = new AtomicLong();
+
+    public SummaryRepository(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    public SummaryRepository(ConnectionPool pool, Executor executor) {
+        super(pool, executor);
+    }
+
+    // ============== Deltas (caller's transaction) ==============
+
+    /**
+     * Apply delta on the caller's connection without committing. Call it
+     * after the seat / ticket writes it describes, in the same
+     * transaction.
+     */
+    public void apply(Connection conn, Delta delta) throws SQLException {
+        if (delta.isEmpty()) {
+            return;
+        }
+        deltas.incrementAndGet();
+        for (Map.Entry<Integer, long[]> e : delta.byShowtime.entrySet()) {
+            applyRow(conn, SQL_DELTA_SHOWTIME, SQL_INSERT_SHOWTIME, e.getKey(), e.getValue());
+        }
+
+        if (delta.byShowtime.size() == 1) {
+            // The usual case (one checkout / hold): find the event in the UPDATE itself
+            Map.Entry<Integer, long[]> e = delta.byShowtime.firstEntry();
+            if (update(conn, SQL_DELTA_EVENT_OF_SHOWTIME, e.getKey(), e.getValue()) == 0) {
+                int eventId = eventOf(conn, e.getKey());
+                if (eventId > 0) {
+                    applyRow(conn, SQL_DELTA_EVENT, SQL_INSERT_EVENT, eventId, e.getValue());
+                }
+            }
+            return;
+        }
+
+        // Several showtimes (hold expiry): sum per event, then update in EventID order
+        TreeMap<Integer, long[]> byEvent = new TreeMap<>();
+        for (Map.Entry<Integer, long[]> e : delta.byShowtime.entrySet()) {
+            int eventId = eventOf(conn, e.getKey());
+            if (eventId > 0) {
+                long[] sum = byEvent.computeIfAbsent(eventId, id -> new long[5]);
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += e.getValue()[i];
+                }
+            }
+        }
+        for (Map.Entry<Integer, long[]> e : byEvent.entrySet()) {
+            applyRow(conn, SQL_DELTA_EVENT, SQL_INSERT_EVENT, e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * UPDATE the row by d; if there is none, insert it computed from the
+     * base tables (which already include this transaction's changes). If
+     * another transaction inserted it first, update after all.
+     */
+    private void applyRow(Connection conn, String updateSql, String insertSql, int id, long[] d)
+            throws SQLException {
+        if (update(conn, updateSql, id, d) > 0) {
+            return;
+        }
+        try (PreparedStatement ps = track(conn.prepareStatement(insertSql))) {
+            ps.setInt(1, id);
+            rowsInserted.addAndGet(ps.executeUpdate());
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            update(conn, updateSql, id, d);
+        }
+    }
+
+    private int update(Connection conn, String sql, int id, long[] d) throws SQLException {
+        try (PreparedStatement ps = track(conn.prepareStatement(sql))) {
+            ps.setLong(1, d[AVAILABLE]);
+            ps.setLong(2, d[HELD]);
+            ps.setLong(3, d[SOLD]);
+            ps.setLong(4, d[TICKETS]);
+            ps.setBigDecimal(5, BigDecimal.valueOf(d[REVENUE_CENTS], 2));
+            ps.setInt(6, id);
+            int rows = ps.executeUpdate();
+            rowsUpdated.addAndGet(rows);
+            return rows;
+        }
+    }
+
+    private int eventOf(Connection conn, int showtimeId) throws SQLException {
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_EVENT_OF_SHOWTIME))) {
+            ps.setInt(1, showtimeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    // ============== Reads ==============
+
+    /**
+     * Counters of one showtime (all zeros if it has no summary row).
+     */
+    public Counters showtime(Connection conn, int showtimeId) throws SQLException {
+        return readOne(conn, SQL_SHOWTIME, showtimeId);
+    }
+
+    /**
+     * Counters of one event (all zeros if it has no summary row).
+     */
+    public Counters event(Connection conn, int eventId) throws SQLException {
+        return readOne(conn, SQL_EVENT, eventId);
+    }
+
+    /**
+     * The n events with the highest gross revenue.
+     */
+    public List<Counters> topEvents(Connection conn, int n) throws SQLException {
+        List<Counters> rows = new ArrayList<>();
+        try (PreparedStatement ps = track(conn.prepareStatement(SQL_TOP_EVENTS))) {
+            ps.setInt(1, n);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(counters(rs, 1));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Counters readOne(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement ps = track(conn.prepareStatement(sql))) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? counters(rs, 1) : new Counters(id, 0, 0, 0, 0, 0);
+            }
+        }
+    }
+
+    private static Counters counters(ResultSet rs, int first) throws SQLException {
+        return new Counters(rs.getInt(first), rs.getLong(first + 1), rs.getLong(first + 2),
+                rs.getLong(first + 3), rs.getLong(first + 4), Math.round(rs.getDouble(first + 5) * 100));
+    }
+
+    // ============== Rebuild / reconcile ==============
+
+    /**
+     * Recompute both tables from SEATMAPS and TICKETS in one transaction;
+     * returns the number of summary rows written.
+     */
+    public long rebuild(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = track(conn.createStatement())) {
+            stmt.executeUpdate("DELETE FROM ShowtimeSummary");
+            stmt.executeUpdate("DELETE FROM EventSummary");
+            long rows = stmt.executeUpdate(SQL_REBUILD_SHOWTIMES);
+            rows += stmt.executeUpdate(SQL_REBUILD_EVENTS);
+            conn.commit();
+            rebuilds.incrementAndGet();
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Compare every stored counter with the base tables. With repair, a
+     * mismatch triggers rebuild() and a second comparison, which proves
+     * the rebuilt counters match.
+     */
+    public Reconciliation reconcile(Connection conn, boolean repair) throws SQLException {
+        long start = System.nanoTime();
+        List<Mismatch> found = diff(conn);
+        mismatchesFound.addAndGet(found.size());
+        if (found.isEmpty() || !repair) {
+            return new Reconciliation(found, false, 0, (System.nanoTime() - start) / 1e6);
+        }
+        rebuild(conn);
+        int after = diff(conn).size();
+        return new Reconciliation(found, true, after, (System.nanoTime() - start) / 1e6);
+    }
+
+    private List<Mismatch> diff(Connection conn) throws SQLException {
+        List<Mismatch> found = new ArrayList<>();
+        diff(conn, SQL_DIFF_SHOWTIMES, "showtime", found);
+        diff(conn, SQL_DIFF_EVENTS, "event", found);
+        return found;
+    }
+
+    private void diff(Connection conn, String sql, String level, List<Mismatch> found) throws SQLException {
+        try (Statement stmt = track(conn.createStatement());
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                Counters expected = new Counters(id, rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                        rs.getLong(5), Math.round(rs.getDouble(6) * 100));
+                Counters stored = new Counters(id, rs.getLong(7), rs.getLong(8), rs.getLong(9),
+                        rs.getLong(10), Math.round(rs.getDouble(11) * 100));
+                if (!expected.sameAs(stored)) {
+                    found.add(new Mismatch(level, expected, stored));
+                }
+            }
+        }
+    }
+
+    // ============== Metrics ==============
+
+    public long getDeltas()   { return deltas.get(); }
+    public long getRebuilds() { return rebuilds.get(); }
+
+    public String stats() {
+        return "summaries: deltas=" + deltas.get() + " rowsUpdated=" + rowsUpdated.get()
+                + " rowsInserted=" + rowsInserted.get() + " rebuilds=" + rebuilds.get()
+                + " mismatches=" + mismatchesFound.get();
+    }
+
+    // ============== Async variants ==============
+
+    public CompletableFuture<Counters> showtimeAsync(int showtimeId) {
+        return async(conn -> showtime(conn, showtimeId));
+    }
+
+    public CompletableFuture<Counters> eventAsync(int eventId) {
+        return async(conn -> event(conn, eventId));
+    }
+
+    public CompletableFuture<List<Counters>> topEventsAsync(int n) {
+        return async(conn -> topEvents(conn, n));
+    }
+
+    public CompletableFuture<Long> rebuildAsync() {
+        return async(this::rebuild);
+    }
+
+    public CompletableFuture<Reconciliation> reconcileAsync(boolean repair) {
+        return async(conn -> reconcile(conn, repair));
+    }
+}
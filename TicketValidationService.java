@@ -0,0 +1,767 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CPS510 A9 – Ticket validation at the gate (QR scan)
+ *
+ * Before doors open, preload() reads the tickets of a showtime into a
+ * QrIndex: an open-addressing hash table over primitive arrays (64-bit
+ * QR hash per slot, ticket number per slot, every QR code packed into
+ * one char[]), so a showtime of 100k tickets is a handful of arrays and
+ * not 100k map entries.
+ *
+ * validate() never touches the database:
+ *  - the QR code is hashed and probed in the showtime's index (no
+ *    allocation, the full code is compared to rule out hash collisions)
+ *  - the ticket is validated by one CAS on its ValidatedAt slot
+ *    (0 -> now), so of two gates scanning the same ticket exactly one
+ *    gets VALID and the other ALREADY_VALIDATED
+ *  - the validation is queued for write-back
+ *
+ * A single writer thread drains the queue every flushMs and writes
+ * IsValidated = 'Y' / ValidatedAt in JDBC batches, one transaction per
+ * drain. If the database is slow the queue simply grows (at most one
+ * entry per ticket); if a write fails the batch is kept and retried on
+ * the next drain. Either way scan latency does not change.
+ *
+ * The conditional update (AND IsValidated = 'N') counts a ticket that
+ * another process validated first as a write conflict instead of moving
+ * its ValidatedAt.
+ *
+ * Offline operation (constructed with a data directory):
+ *  - preload() also saves the showtime's index to a local snapshot file,
+ *    and preloadOffline() memory-maps that file to load the index with
+ *    no database at all
+ *  - every validation is first appended to a GateScanLog (local WAL),
+ *    in the same order as the write-back queue; after each successful
+ *    write-back a checkpoint records how far the database is
+ *  - on start the WAL is replayed: its scans mark tickets as validated in
+ *    every index loaded later (so a ticket scanned before a restart is
+ *    still ALREADY_VALIDATED), and scans after the last checkpoint are
+ *    queued for write-back again. The write-back simply keeps retrying
+ *    until the database is reachable; replaying a scan twice is harmless
+ *    because of the conditional update.
+ *  - once a checkpoint covers every scan and the WAL has grown past
+ *    GateScanLog.DEFAULT_ROLL_BYTES, the validations in memory are saved
+ *    into the snapshots (and unload() saves a showtime's before dropping
+ *    it) and the WAL rolls over to a fresh file, so neither the WAL nor
+ *    the scans remembered from it grow for the life of the gate.
+ */
+public class TicketValidationService implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_MS = 200;
+    private static final int FETCH_SIZE = 10_000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+    private static final String WAL_FILE = "gate-scans.wal";
+    private static final int SNAPSHOT_MAGIC = 0x54495831; // "TIX1"
+    private static final int SNAPSHOT_HEADER = 24;
+
+    public enum Outcome { VALID, ALREADY_VALIDATED, WRONG_SHOWTIME, UNKNOWN, NOT_LOADED }
+
+    static final String SQL_LOAD =
+            "SELECT TicketID, QRCode, IsValidated, ValidatedAt FROM Tickets WHERE ShowtimeID = ?";
+    static final String SQL_VALIDATE =
+            "UPDATE Tickets SET IsValidated = 'Y', ValidatedAt = ? " +
+            "WHERE TicketID = ? AND IsValidated = 'N'";
+
+    /**
+     * Outcome of one scan. validatedAt is the (first) validation time in
+     * epoch millis, -1 if the database has no ValidatedAt, 0 if none.
+     */
+    public static final class Result {
+        public final Outcome outcome;
+        public final long ticketId;
+        public final long validatedAt;
+
+        Result(Outcome outcome, long ticketId, long validatedAt) {
+            this.outcome = outcome;
+            this.ticketId = ticketId;
+            this.validatedAt = validatedAt;
+        }
+
+        public boolean isValid() {
+            return outcome == Outcome.VALID;
+        }
+
+        @Override
+        public String toString() {
+            return ticketId == 0 ? outcome.toString() : outcome + " (ticket " + ticketId + ")";
+        }
+    }
+
+    private static final Result UNKNOWN = new Result(Outcome.UNKNOWN, 0, 0);
+    private static final Result NOT_LOADED = new Result(Outcome.NOT_LOADED, 0, 0);
+
+    /**
+     * One validation waiting to be written back.
+     */
+    private static final class Validation {
+        final long ticketId;
+        final long validatedAt;
+        final long seq; // WAL sequence number, -1 without a WAL
+
+        Validation(long ticketId, long validatedAt, long seq) {
+            this.ticketId = ticketId;
+            this.validatedAt = validatedAt;
+            this.seq = seq;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final Map<Integer, QrIndex> showtimes = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Validation> queue = new ConcurrentLinkedQueue<>();
+    // Owned by the writer thread: drained but not yet written (retried first)
+    private final ArrayDeque<Validation> retry = new ArrayDeque<>();
+    private final ScheduledExecutorService writer;
+    private boolean offline = false; // writer thread only
+
+    // Offline support; all null without a data directory
+    private final Path dataDir;
+    private final GateScanLog wal;
+    // TicketID -> ValidatedAt of every scan found in the WAL on start;
+    // emptied once they are all in the snapshots (first roll-over)
+    private volatile Map<Long, Long> logged;
+    // Snapshot writes and installs of loaded indexes, so a roll-over never
+    // misses an index installed from a snapshot it has not updated yet
+    private final Object snapshotLock = new Object();
+
+    // ---- metrics ----
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong valid = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong wrongShowtime = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writeConflicts = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final AtomicLong dbBatches = new AtomicLong();
+
+    public TicketValidationService(ConnectionPool pool) {
+        this(pool, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_MS);
+    }
+
+    public TicketValidationService(ConnectionPool pool, int batchSize, long flushMs) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.dataDir = null;
+        this.wal = null;
+        this.logged = null;
+        this.writer = startWriter(flushMs);
+    }
+
+    /**
+     * With a data directory for snapshots and the WAL: recovers the WAL
+     * found there before returning.
+     */
+    public TicketValidationService(ConnectionPool pool, int batchSize, long flushMs,
+                                   Path dataDir) throws IOException {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.dataDir = Files.createDirectories(dataDir);
+        this.logged = new HashMap<>();
+        List<Validation> unreplayed = new ArrayList<>();
+        this.wal = new GateScanLog(dataDir.resolve(WAL_FILE), GateScanLog.DEFAULT_SYNC_MS,
+                (seq, showtimeId, ticketId, validatedAt) -> {
+                    logged.putIfAbsent(ticketId, validatedAt);
+                    unreplayed.add(new Validation(ticketId, validatedAt, seq));
+                });
+        long checkpoint = wal.getRecovery().checkpoint;
+        for (Validation v : unreplayed) {
+            if (v.seq >= checkpoint) {
+                queue.add(v);
+                pending.incrementAndGet();
+            }
+        }
+        this.writer = startWriter(flushMs);
+    }
+
+    private ScheduledExecutorService startWriter(long flushMs) {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eticket-gate-writeback");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::drain, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        return writer;
+    }
+
+    // ============== Preloading ==============
+
+    /**
+     * Load (or reload) the tickets of one showtime; returns how many.
+     * On a reload, validations already made in memory are kept.
+     */
+    public int preload(Connection conn, int showtimeId) throws SQLException {
+        QrIndex.Builder b = new QrIndex.Builder();
+        try (PreparedStatement ps = conn.prepareStatement(SQL_LOAD)) {
+            ps.setInt(1, showtimeId);
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long validatedAt = 0;
+                    if ("Y".equals(rs.getString(3))) {
+                        Timestamp ts = rs.getTimestamp(4);
+                        validatedAt = ts != null ? ts.getTime() : -1;
+                    }
+                    b.add(rs.getLong(1), rs.getString(2), validatedAt);
+                }
+            }
+        }
+        QrIndex index = b.build();
+        synchronized (snapshotLock) {
+            if (dataDir != null) {
+                try {
+                    index.writeSnapshot(snapshotFile(showtimeId), showtimeId);
+                } catch (IOException e) {
+                    System.err.println("Could not save ticket snapshot of showtime " + showtimeId
+                            + ": " + e.getMessage());
+                }
+            }
+            return install(showtimeId, index);
+        }
+    }
+
+    /**
+     * Load the tickets of one showtime from the snapshot saved by the last
+     * preload(), without the database; returns how many.
+     */
+    public int preloadOffline(int showtimeId) throws IOException {
+        if (dataDir == null) {
+            throw new IllegalStateException("No data directory: offline preload is not available");
+        }
+        synchronized (snapshotLock) {
+            return install(showtimeId, QrIndex.readSnapshot(snapshotFile(showtimeId), showtimeId));
+        }
+    }
+
+    private int install(int showtimeId, QrIndex index) {
+        Map<Long, Long> logged = this.logged;
+        if (logged != null) {
+            index.markValidated(logged);
+        }
+        QrIndex old = showtimes.get(showtimeId);
+        if (old != null) {
+            index.carryOver(old);
+        }
+        showtimes.put(showtimeId, index);
+        if (old != null) {
+            index.carryOver(old); // scans that hit the old index meanwhile
+        }
+        return index.size();
+    }
+
+    /**
+     * With a data directory, the showtime's validations are saved to its
+     * snapshot first: once the WAL rolls over it no longer has them.
+     */
+    public void unload(int showtimeId) {
+        synchronized (snapshotLock) {
+            QrIndex index = showtimes.remove(showtimeId);
+            if (index != null && dataDir != null) {
+                try {
+                    index.writeSnapshot(snapshotFile(showtimeId), showtimeId);
+                } catch (IOException e) {
+                    System.err.println("Could not save ticket snapshot of showtime " + showtimeId
+                            + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public boolean isLoaded(int showtimeId) {
+        return showtimes.containsKey(showtimeId);
+    }
+
+    // ============== Scanning ==============
+
+    /**
+     * Validate a scanned QR code at a gate of showtimeId. Memory only.
+     */
+    public Result validate(int showtimeId, String qrCode) {
+        scans.incrementAndGet();
+        QrIndex index = showtimes.get(showtimeId);
+        if (index == null) {
+            return NOT_LOADED;
+        }
+        if (qrCode == null) {
+            unknown.incrementAndGet();
+            return UNKNOWN;
+        }
+        int entry = index.find(qrCode);
+        if (entry < 0) {
+            for (QrIndex other : showtimes.values()) {
+                int e = other.find(qrCode);
+                if (e >= 0) {
+                    wrongShowtime.incrementAndGet();
+                    return new Result(Outcome.WRONG_SHOWTIME, other.ticketIds[e], 0);
+                }
+            }
+            unknown.incrementAndGet();
+            return UNKNOWN;
+        }
+
+        long ticketId = index.ticketIds[entry];
+        long now = System.currentTimeMillis();
+        if (!index.validatedAt.compareAndSet(entry, 0, now)) {
+            duplicates.incrementAndGet();
+            return new Result(Outcome.ALREADY_VALIDATED, ticketId, index.validatedAt.get(entry));
+        }
+        if (wal != null) {
+            // Same order in the WAL and the queue, so checkpoints are exact
+            synchronized (wal) {
+                queue.add(new Validation(ticketId, now, wal.appendScan(showtimeId, ticketId, now)));
+            }
+        } else {
+            queue.add(new Validation(ticketId, now, -1));
+        }
+        pending.incrementAndGet();
+        valid.incrementAndGet();
+        return new Result(Outcome.VALID, ticketId, now);
+    }
+
+    // ============== Write-back (writer thread) ==============
+
+    /**
+     * Write every queued validation now (also done every flushMs).
+     * Returns false if the database write failed; the validations stay
+     * queued.
+     */
+    public boolean flush() {
+        try {
+            return writer.submit(this::drain).get();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean drain() {
+        Validation v;
+        while ((v = queue.poll()) != null) {
+            retry.add(v);
+        }
+        if (retry.isEmpty()) {
+            return true;
+        }
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_VALIDATE)) {
+                int n = 0;
+                int batches = 0;
+                int conflicts = 0;
+                for (Validation r : retry) {
+                    ps.setTimestamp(1, new Timestamp(r.validatedAt));
+                    ps.setLong(2, r.ticketId);
+                    ps.addBatch();
+                    if (++n % batchSize == 0) {
+                        conflicts += countConflicts(ps.executeBatch());
+                        batches++;
+                    }
+                }
+                if (n % batchSize != 0) {
+                    conflicts += countConflicts(ps.executeBatch());
+                    batches++;
+                }
+                conn.commit();
+                long lastSeq = retry.peekLast().seq;
+                if (wal != null && lastSeq >= 0) {
+                    wal.appendCheckpoint(lastSeq + 1);
+                }
+                if (offline) {
+                    offline = false;
+                    System.err.println("Ticket validation write-back resumed: " + n + " validation(s) replayed.");
+                }
+                dbBatches.addAndGet(batches);
+                writeConflicts.addAndGet(conflicts);
+                written.addAndGet(n);
+                pending.addAndGet(-n);
+                retry.clear();
+                if (wal != null && lastSeq >= 0 && wal.isRollOverDue(lastSeq + 1)) {
+                    rollOverLog(lastSeq + 1);
+                }
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            writeFailures.incrementAndGet();
+            if (!offline) {
+                offline = true; // report once per outage, not once per retry
+                System.err.println("Ticket validation write-back failed, will retry: " + e.getMessage());
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the fixed-delay writer
+            writeFailures.incrementAndGet();
+            System.err.println("Ticket validation write-back failed: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Every scan in the WAL is in the database: save the validations into
+     * the snapshots, so the WAL is no longer needed to catch duplicates
+     * after a restart, then let it start a fresh file. If a gate scanned
+     * meanwhile the WAL simply does not roll over this time.
+     */
+    private void rollOverLog(long upToSeq) {
+        try {
+            synchronized (snapshotLock) {
+                for (Map.Entry<Integer, QrIndex> e : showtimes.entrySet()) {
+                    e.getValue().writeSnapshot(snapshotFile(e.getKey()), e.getKey());
+                }
+                if (!logged.isEmpty()) {
+                    markSnapshotsValidated(logged);
+                    logged = Collections.emptyMap();
+                }
+            }
+            wal.rollOver(upToSeq);
+        } catch (IOException e) {
+            System.err.println("Could not roll over gate scan log, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mark the scans recovered from the WAL in the snapshots of the
+     * showtimes that are not loaded (loaded ones already have them).
+     */
+    private void markSnapshotsValidated(Map<Long, Long> validations) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, "showtime-*.tix")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int showtimeId;
+                try {
+                    showtimeId = Integer.parseInt(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (!showtimes.containsKey(showtimeId)) {
+                    QrIndex index = QrIndex.readSnapshot(file, showtimeId);
+                    index.markValidated(validations);
+                    index.writeSnapshot(file, showtimeId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows not updated because they were already 'Y' in the database
+     * (validated by another process).
+     */
+    private static int countConflicts(int[] counts) {
+        int conflicts = 0;
+        for (int c : counts) {
+            if (c == 0) {
+                conflicts++;
+            }
+        }
+        return conflicts;
+    }
+
+    // ============== Metrics / lifecycle ==============
+
+    public long getScans()          { return scans.get(); }
+    public long getValid()          { return valid.get(); }
+    public long getDuplicates()     { return duplicates.get(); }
+    public long getWrongShowtime()  { return wrongShowtime.get(); }
+    public long getUnknown()        { return unknown.get(); }
+    public long getPending()        { return pending.get(); }
+    public long getWritten()        { return written.get(); }
+    public long getWriteConflicts() { return writeConflicts.get(); }
+    public long getWriteFailures()  { return writeFailures.get(); }
+
+    public GateScanLog getLog() {
+        return wal;
+    }
+
+    public String stats() {
+        return (wal == null ? "" : wal.stats() + "\n  ") + "gate: scans=" + scans.get() + " valid=" + valid.get() + " duplicate=" + duplicates.get()
+                + " wrongShowtime=" + wrongShowtime.get() + " unknown=" + unknown.get()
+                + " | write-back: pending=" + pending.get() + " written=" + written.get()
+                + " batches=" + dbBatches.get() + " conflicts=" + writeConflicts.get()
+                + " failures=" + writeFailures.get();
+    }
+
+    /**
+     * Stop the writer, then write what is still queued.
+     */
+    @Override
+    public void close() {
+        // Not shutdownNow(): interrupting a drain mid-JDBC can kill its
+        // connection, and without a WAL that batch would be lost
+        writer.shutdown();
+        boolean stopped = false;
+        try {
+            stopped = writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stopped) {
+            drain(); // the writer is gone, so its state is ours now
+        } else {
+            System.err.println("Ticket validation writer still busy after " + CLOSE_TIMEOUT_SECONDS
+                    + " s; " + pending.get() + " validation(s) not written");
+        }
+        if (wal != null) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                System.err.println("Could not close gate scan log: " + e.getMessage());
+            }
+        }
+    }
+
+    private Path snapshotFile(int showtimeId) {
+        return dataDir.resolve("showtime-" + showtimeId + ".tix");
+    }
+
+    // ============== Primitive QR hash index ==============
+
+    /**
+     * Open-addressing (linear probing) table from QR code to entry number,
+     * at most half full. Entry i is ticketIds[i], its code is
+     * codes[codeEnd[i-1] .. codeEnd[i]), and validatedAt[i] is 0 until
+     * the ticket is validated.
+     */
+    static final class QrIndex {
+        private final long[] slotHash;
+        private final int[] slotEntry;   // entry + 1; 0 = empty slot
+        private final int mask;
+        final long[] ticketIds;
+        private final char[] codes;
+        private final int[] codeEnd;
+        final AtomicLongArray validatedAt;
+
+        private QrIndex(long[] ticketIds, char[] codes, int[] codeEnd, long[] validatedAt, int n) {
+            this.ticketIds = ticketIds;
+            this.codes = codes;
+            this.codeEnd = codeEnd;
+            this.validatedAt = new AtomicLongArray(validatedAt);
+            int capacity = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+            this.slotHash = new long[capacity];
+            this.slotEntry = new int[capacity];
+            this.mask = capacity - 1;
+            for (int e = 0; e < n; e++) {
+                long h = hash(codes, e == 0 ? 0 : codeEnd[e - 1], codeEnd[e]);
+                int i = (int) h & mask;
+                while (slotEntry[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slotHash[i] = h;
+                slotEntry[i] = e + 1;
+            }
+        }
+
+        int size() {
+            return ticketIds.length;
+        }
+
+        /**
+         * Entry number of qrCode, or -1.
+         */
+        int find(String qrCode) {
+            long h = hash(qrCode);
+            int i = (int) h & mask;
+            int e;
+            while ((e = slotEntry[i]) != 0) {
+                if (slotHash[i] == h && codeEquals(e - 1, qrCode)) {
+                    return e - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean codeEquals(int entry, String qrCode) {
+            int start = entry == 0 ? 0 : codeEnd[entry - 1];
+            int len = codeEnd[entry] - start;
+            if (len != qrCode.length()) {
+                return false;
+            }
+            for (int k = 0; k < len; k++) {
+                if (codes[start + k] != qrCode.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Copy validations made in memory on an older index of the same
+         * showtime.
+         */
+        void carryOver(QrIndex old) {
+            for (int e = 0; e < old.size(); e++) {
+                long at = old.validatedAt.get(e);
+                if (at != 0) {
+                    int start = e == 0 ? 0 : old.codeEnd[e - 1];
+                    int mine = find(new String(old.codes, start, old.codeEnd[e] - start));
+                    if (mine >= 0) {
+                        validatedAt.compareAndSet(mine, 0, at);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Mark tickets found in the WAL (TicketID -> ValidatedAt) as validated.
+         */
+        void markValidated(Map<Long, Long> validations) {
+            if (validations.isEmpty()) {
+                return;
+            }
+            for (int e = 0; e < size(); e++) {
+                Long at = validations.get(ticketIds[e]);
+                if (at != null) {
+                    validatedAt.compareAndSet(e, 0, at);
+                }
+            }
+        }
+
+        /**
+         * Header (magic, showtimeId, n, code length, saved-at) followed by
+         * ticketIds, validatedAt, codeEnd and the codes. Written to a temp
+         * file and renamed, so a crash never leaves a half-written snapshot.
+         */
+        void writeSnapshot(Path file, int showtimeId) throws IOException {
+            int n = size();
+            ByteBuffer buf = ByteBuffer.allocate(SNAPSHOT_HEADER + n * 20 + codes.length * 2);
+            buf.putInt(SNAPSHOT_MAGIC).putInt(showtimeId).putInt(n).putInt(codes.length)
+                    .putLong(System.currentTimeMillis());
+            buf.asLongBuffer().put(ticketIds);
+            buf.position(buf.position() + n * 8);
+            for (int e = 0; e < n; e++) {
+                buf.putLong(validatedAt.get(e));
+            }
+            buf.asIntBuffer().put(codeEnd);
+            buf.position(buf.position() + n * 4);
+            buf.asCharBuffer().put(codes);
+            buf.position(buf.capacity());
+            buf.flip();
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        static QrIndex readSnapshot(Path file, int showtimeId) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if (map.remaining() < SNAPSHOT_HEADER || map.getInt() != SNAPSHOT_MAGIC
+                        || map.getInt() != showtimeId) {
+                    throw new IOException("Not a ticket snapshot of showtime " + showtimeId + ": " + file);
+                }
+                int n = map.getInt();
+                int codeLength = map.getInt();
+                map.getLong(); // saved-at
+                if (map.remaining() != (long) n * 20 + (long) codeLength * 2) {
+                    throw new IOException("Truncated ticket snapshot: " + file);
+                }
+                long[] ids = new long[n];
+                long[] at = new long[n];
+                int[] ends = new int[n];
+                char[] c = new char[codeLength];
+                map.asLongBuffer().get(ids);
+                map.position(map.position() + n * 8);
+                map.asLongBuffer().get(at);
+                map.position(map.position() + n * 8);
+                map.asIntBuffer().get(ends);
+                map.position(map.position() + n * 4);
+                map.asCharBuffer().get(c);
+                return new QrIndex(ids, c, ends, at, n);
+            }
+        }
+
+        // FNV-1a over the chars, then a 64-bit finalizer to spread the bits
+        private static long hash(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int k = 0; k < s.length(); k++) {
+                h = (h ^ s.charAt(k)) * 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long hash(char[] c, int from, int to) {
+            long h = 0xcbf29ce484222325L;
+            for (int k = from; k < to; k++) {
+                h = (h ^ c[k]) * 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        static final class Builder {
+            private long[] ticketIds = new long[256];
+            private long[] validatedAt = new long[256];
+            private int[] codeEnd = new int[256];
+            private final StringBuilder codes = new StringBuilder();
+            private int n = 0;
+
+            void add(long ticketId, String qrCode, long validated) {
+                if (n == ticketIds.length) {
+                    ticketIds = Arrays.copyOf(ticketIds, n * 2);
+                    validatedAt = Arrays.copyOf(validatedAt, n * 2);
+                    codeEnd = Arrays.copyOf(codeEnd, n * 2);
+                }
+                codes.append(qrCode.trim());
+                ticketIds[n] = ticketId;
+                validatedAt[n] = validated;
+                codeEnd[n] = codes.length();
+                n++;
+            }
+
+            QrIndex build() {
+                char[] c = new char[codes.length()];
+                codes.getChars(0, c.length, c, 0);
+                return new QrIndex(Arrays.copyOf(ticketIds, n), c, Arrays.copyOf(codeEnd, n),
+                        Arrays.copyOf(validatedAt, n), n);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import eticket.jmh.Workload;
+
+/**
+ * CPS510 A9 – Workload implementation for the JMH benchmarks
+ *
+ * Wires the same repositories the console and GUI apps use (pool,
+ * IdAllocator, CatalogCache, EventRepository, SchemaRepository) and
+ * exposes the operations in eticket.jmh.Workload. It sits in the default
+ * package next to the app classes; see Workload for why.
+ */
+public class ETicketWorkload implements Workload {
+
+    private static final int LOAD_THREADS = 4;
+    private static final int LOAD_CHUNK_ROWS = 50_000;
+
+    private final ConnectionPool pool;
+    private final EventRepository events;
+    private final SummaryRepository summaries;
+    private final SchemaRepository schema;
+
+    public ETicketWorkload(String url, String user, String pass, boolean catalogCache) {
+        this.pool = new ConnectionPool(() -> DriverManager.getConnection(url, user, pass),
+                1, 16, 60_000L, 60_000L, ConnectionPool.LEAK_DETECTION_DISABLED);
+        // TTL 0: every page is a miss, so listEvents reads EVENTS each time
+        CatalogCache catalog = catalogCache
+                ? new CatalogCache(pool)
+                : new CatalogCache(pool, CatalogCache.DEFAULT_MAX_ROWS, CatalogCache.DEFAULT_MAX_PAGES,
+                        0L, EventListing.DEFAULT_PAGE_SIZE);
+        this.events = new EventRepository(pool, new IdAllocator(pool), catalog);
+        this.summaries = new SummaryRepository(pool);
+        this.schema = new SchemaRepository(pool, events, new SeatMapRepository(pool), summaries);
+    }
+
+    // ============== Schema / data ==============
+
+    @Override
+    public long loadGenerated(double scale) throws SQLException {
+        long rows = new DataGenerator(DataGenerator.Config.scaled(scale)).load(pool, LOAD_THREADS,
+                LOAD_CHUNK_ROWS, BulkLoader.DEFAULT_BATCH_SIZE, line -> { });
+        try (Connection conn = pool.getConnection()) {
+            summaries.rebuild(conn);
+            events.dataReloaded();
+            schema.reloadInMemory(conn, line -> { });
+        }
+        return rows;
+    }
+
+    @Override
+    public void resetSchema() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            schema.dropTables(conn, line -> { });
+            schema.createTables(conn, line -> { });
+        }
+    }
+
+    @Override
+    public int populateTables() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            schema.populateTables(conn, line -> { });
+        }
+        return count("SELECT COUNT(*) FROM Events");
+    }
+
+    @Override
+    public int maxEventId() throws SQLException {
+        return count("SELECT MAX(EventID) FROM Events");
+    }
+
+    // ============== Events ==============
+
+    @Override
+    public long listEvents() throws SQLException {
+        return events.forEach(row -> { });
+    }
+
+    @Override
+    public int searchEventsByTitle(String keyword) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return events.searchTitles(conn, keyword).size();
+        }
+    }
+
+    @Override
+    public int searchEventsByKeyword(String keyword) {
+        return events.search(keyword).size();
+    }
+
+    @Override
+    public int addEvent(String title) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return events.insert(conn, 1, title, "Benchmark", "Inserted by the JMH benchmarks");
+        }
+    }
+
+    @Override
+    public int updateEventTitle(int eventId, String title) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return events.updateTitle(conn, eventId, title);
+        }
+    }
+
+    @Override
+    public int deleteEvent(int eventId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return events.delete(conn, eventId);
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,131 @@
+package eticket.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPS510 A9 – JMH benchmarks for the Events operations of the apps
+ *
+ *  - listEvents             (every event, page by page, as the console lists them)
+ *  - searchEventsByTitle    (LOWER(Title) LIKE '%kw%')
+ *  - searchEventsByKeyword  (same keywords through EventSearchIndex)
+ *  - addEvent / updateEventTitle / deleteEvent
+ *
+ * Each trial loads the DataGenerator dataset at the given scale into an
+ * embedded H2 database in Oracle mode. Throughput mode reports ops/s;
+ * sample mode reports latency percentiles (p50 ... p99.99, max).
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBenchmarks {
+
+    private static final String[] KEYWORDS = {
+            "live", "grand", "night", "tour", "gala", "symphony", "cup", "42", "neon", "zzz-no-match"
+    };
+
+    @State(Scope.Benchmark)
+    public static class Db {
+
+        @Param("jdbc:h2:mem:eticket-jmh;MODE=Oracle;DB_CLOSE_DELAY=-1")
+        public String url;
+
+        @Param("sa")
+        public String user;
+
+        @Param("")
+        public String pass;
+
+        @Param("0.01")
+        public double scale;
+
+        /** true: list pages come from CatalogCache, as in the apps. */
+        @Param("false")
+        public boolean catalogCache;
+
+        Workload workload;
+        int loadedEvents;
+
+        @Setup(Level.Trial)
+        public void load() throws Exception {
+            workload = Workload.open(url, user, pass, catalogCache);
+            workload.resetSchema();
+            workload.loadGenerated(scale);
+            loadedEvents = workload.maxEventId();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            workload.close();
+        }
+    }
+
+    /** Per-thread call counter, to walk keywords and EventIDs. */
+    @State(Scope.Thread)
+    public static class Calls {
+        int n;
+
+        int next() {
+            return n++;
+        }
+    }
+
+    /** An event added before each deleteEvent call, outside the measured time. */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        private static final AtomicInteger SEQ = new AtomicInteger();
+        int eventId;
+
+        @Setup(Level.Invocation)
+        public void add(Db db) throws Exception {
+            eventId = db.workload.addEvent("Delete Me " + SEQ.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    public long listEvents(Db db) throws Exception {
+        return db.workload.listEvents();
+    }
+
+    @Benchmark
+    public int searchEventsByTitle(Db db, Calls calls) throws Exception {
+        return db.workload.searchEventsByTitle(KEYWORDS[calls.next() % KEYWORDS.length]);
+    }
+
+    @Benchmark
+    public int searchEventsByKeyword(Db db, Calls calls) {
+        return db.workload.searchEventsByKeyword(KEYWORDS[calls.next() % KEYWORDS.length]);
+    }
+
+    @Benchmark
+    public int addEvent(Db db, Calls calls) throws Exception {
+        return db.workload.addEvent("Bench Event " + calls.next());
+    }
+
+    @Benchmark
+    public int updateEventTitle(Db db, Calls calls) throws Exception {
+        int i = calls.next();
+        return db.workload.updateEventTitle(1 + i % Math.max(1, db.loadedEvents), "Bench Event " + i + " (updated)");
+    }
+
+    @Benchmark
+    public int deleteEvent(Db db, DeleteTarget target) throws Exception {
+        return db.workload.deleteEvent(target.eventId);
+    }
+}
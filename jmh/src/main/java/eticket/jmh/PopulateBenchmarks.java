@@ -0,0 +1,77 @@
+package eticket.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPS510 A9 – JMH benchmarks for loading the tables
+ *
+ *  - populateTables  (the apps' Populate Tables: the dummy rows in
+ *                     batches and one transaction)
+ *  - generatedLoad   (the DataGenerator dataset at the given scale,
+ *                     loaded in parallel through BulkLoader)
+ *
+ * Every call starts from a freshly dropped and created schema; that reset
+ * is not measured. Single-shot mode: one load per measurement, reported
+ * as the average and percentiles over all of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PopulateBenchmarks {
+
+    @Param("jdbc:h2:mem:eticket-jmh-load;MODE=Oracle;DB_CLOSE_DELAY=-1")
+    public String url;
+
+    @Param("sa")
+    public String user;
+
+    @Param("")
+    public String pass;
+
+    @Param("0.01")
+    public double scale;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        workload = Workload.open(url, user, pass, true);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetSchema() throws Exception {
+        workload.resetSchema();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        workload.close();
+    }
+
+    @Benchmark
+    public int populateTables() throws Exception {
+        return workload.populateTables();
+    }
+
+    @Benchmark
+    public long generatedLoad() throws Exception {
+        return workload.loadGenerated(scale);
+    }
+}
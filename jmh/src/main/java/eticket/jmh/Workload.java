@@ -0,0 +1,61 @@
+package eticket.jmh;
+
+/**
+ * CPS510 A9 – The app operations the JMH benchmarks drive
+ *
+ * The app classes live in the default package, which code in a named
+ * package cannot refer to, and JMH refuses benchmarks in the default
+ * package. So the benchmarks see the app only through this interface;
+ * ETicketWorkload (default package, same module) implements it on top of
+ * the real repositories and is looked up by name once per trial, never
+ * on the measured path.
+ */
+public interface Workload extends AutoCloseable {
+
+    String IMPLEMENTATION = "ETicketWorkload";
+
+    /** Drop and create the schema (no rows). */
+    void resetSchema() throws Exception;
+
+    /**
+     * Load the DataGenerator dataset at the given scale into the empty
+     * schema and rebuild the in-memory state; returns the rows inserted.
+     */
+    long loadGenerated(double scale) throws Exception;
+
+    /** Console / GUI "Populate Tables"; returns the events afterwards. */
+    int populateTables() throws Exception;
+
+    /** Highest EventID currently in EVENTS. */
+    int maxEventId() throws Exception;
+
+    /** Every event, page by page, as the console lists them; returns the row count. */
+    long listEvents() throws Exception;
+
+    /** LOWER(Title) LIKE '%keyword%' through EventRepository.searchTitles(). */
+    int searchEventsByTitle(String keyword) throws Exception;
+
+    /** The same keyword through the in-memory EventSearchIndex. */
+    int searchEventsByKeyword(String keyword);
+
+    /** Add Event with a newly allocated EventID; returns that ID. */
+    int addEvent(String title) throws Exception;
+
+    /** Returns the rows updated. */
+    int updateEventTitle(int eventId, String title) throws Exception;
+
+    /** Returns the rows deleted. */
+    int deleteEvent(int eventId) throws Exception;
+
+    /**
+     * The implementation over a pool of connections to url. catalogCache:
+     * serve list pages from CatalogCache (as the apps do) instead of
+     * reading EVENTS on every call.
+     */
+    static Workload open(String url, String user, String pass, boolean catalogCache)
+            throws ReflectiveOperationException {
+        return (Workload) Class.forName(IMPLEMENTATION)
+                .getConstructor(String.class, String.class, String.class, boolean.class)
+                .newInstance(url, user, pass, catalogCache);
+    }
+}